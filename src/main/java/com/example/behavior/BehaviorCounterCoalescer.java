@@ -0,0 +1,288 @@
+package com.example.behavior;
+
+import com.example.config.BehaviorProperties;
+import com.example.mapper.BehaviorCounterMapper;
+import com.example.model.dto.BehaviorCounterDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 行为计数合并写入
+ * 浏览、加购、购买行为在内存中按(用户, 商品)累加，定时（或待写入的键过多时）取出当前累加结果，
+ * 以多行INSERT ... ON DUPLICATE KEY UPDATE累加到user_product_counter，并按商品汇总后累加到product_counter，
+ * 同一用户反复浏览同一商品在一个时间窗口内只产生一行更新。一次写入的所有批次在同一个独立事务中提交，
+ * 任一批次失败时整体回滚，取出的增量全部放回内存等待下次写入，不会重复累加已写入的批次；
+ * 应用关闭时写入剩余增量，进程异常退出时最近一个时间窗口内的增量会丢失（原始行为记录不受影响）。
+ */
+@Slf4j
+@Component
+public class BehaviorCounterCoalescer {
+
+    private static final Comparator<BehaviorCounterDTO> USER_PRODUCT_ORDER =
+            Comparator.comparing(BehaviorCounterDTO::getUserId).thenComparing(BehaviorCounterDTO::getProductId);
+
+    private final BehaviorCounterMapper behaviorCounterMapper;
+    private final BehaviorProperties behaviorProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<CounterKey, PendingCounts> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder writtenRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile int lastFlushKeys;
+
+    public BehaviorCounterCoalescer(BehaviorCounterMapper behaviorCounterMapper,
+                                    BehaviorProperties behaviorProperties,
+                                    PlatformTransactionManager transactionManager) {
+        this.behaviorCounterMapper = behaviorCounterMapper;
+        this.behaviorProperties = behaviorProperties;
+        // 写入可能发生在请求线程的事务中，使用独立事务，失败时不影响调用方的事务
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 累加一次行为计数，只统计浏览(1)、加入购物车(3)、购买(8)，其他行为类型忽略
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param categoryId 分类ID，可为空
+     * @param behaviorType 行为类型
+     */
+    public void increment(Long userId, Long productId, Long categoryId, int behaviorType) {
+        if (userId == null || productId == null || (behaviorType != 1 && behaviorType != 3 && behaviorType != 8)) {
+            return;
+        }
+        BehaviorProperties.Counter config = behaviorProperties.getCounter();
+        if (!config.isEnabled()) {
+            PendingCounts counts = new PendingCounts();
+            counts.add(categoryId, behaviorType);
+            write(List.of(new CounterKey(userId, productId)), List.of(counts), Math.max(1, config.getBatchSize()));
+            return;
+        }
+        pending.compute(new CounterKey(userId, productId), (key, counts) -> {
+            PendingCounts target = counts == null ? new PendingCounts() : counts;
+            target.add(categoryId, behaviorType);
+            return target;
+        });
+        increments.increment();
+        // 待写入的键过多时由当前请求线程写入，已有线程在写入时不等待
+        if (pending.mappingCount() >= config.getMaxPendingKeys() && flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 写入当前累加的全部计数
+     * @return 写入的(用户, 商品)键数
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        int keys = flush();
+        if (!pending.isEmpty()) {
+            log.warn("关闭时仍有{}个行为计数未写入", pending.size());
+        } else if (keys > 0) {
+            log.info("关闭前写入{}个行为计数", keys);
+        }
+    }
+
+    /**
+     * 待写入数量与写入统计
+     */
+    public Map<String, Object> getStats() {
+        long flushCount = flushes.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", behaviorProperties.getCounter().isEnabled());
+        stats.put("pending_keys", pending.size());
+        stats.put("increments", increments.sum());
+        stats.put("written_rows", writtenRows.sum());
+        stats.put("failed_flushes", failedFlushes.sum());
+        stats.put("flushes", flushCount);
+        stats.put("last_flush_keys", lastFlushKeys);
+        stats.put("last_flush_ms", lastFlushNanos / 1_000_000.0);
+        stats.put("max_flush_ms", maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private int flushPending() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<CounterKey> keys = new ArrayList<>(pending.size());
+        List<PendingCounts> values = new ArrayList<>(pending.size());
+        for (CounterKey key : pending.keySet()) {
+            // remove在键所在的桶锁内完成，取出后其他线程的累加会落到新的计数对象上
+            PendingCounts counts = pending.remove(key);
+            if (counts != null) {
+                keys.add(key);
+                values.add(counts);
+            }
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        boolean success = write(keys, values, Math.max(1, behaviorProperties.getCounter().getBatchSize()));
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        lastFlushNanos = elapsed;
+        lastFlushKeys = keys.size();
+        if (!success) {
+            // 写入失败的增量放回，与期间新产生的增量合并后下次重试
+            for (int i = 0; i < keys.size(); i++) {
+                PendingCounts failed = values.get(i);
+                pending.merge(keys.get(i), failed, PendingCounts::mergeInto);
+            }
+        }
+        return keys.size();
+    }
+
+    private boolean write(List<CounterKey> keys, List<PendingCounts> values, int batchSize) {
+        List<BehaviorCounterDTO> userRows = new ArrayList<>(keys.size());
+        Map<Long, BehaviorCounterDTO> productRows = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            CounterKey key = keys.get(i);
+            PendingCounts counts = values.get(i);
+            BehaviorCounterDTO row = new BehaviorCounterDTO();
+            row.setUserId(key.userId);
+            row.setProductId(key.productId);
+            row.setViewCount(counts.views);
+            row.setCartCount(counts.carts);
+            row.setBuyCount(counts.buys);
+            userRows.add(row);
+
+            BehaviorCounterDTO product = productRows.get(key.productId);
+            if (product == null) {
+                product = new BehaviorCounterDTO();
+                product.setProductId(key.productId);
+                product.setViewCount(0);
+                product.setCartCount(0);
+                product.setBuyCount(0);
+                productRows.put(key.productId, product);
+            }
+            if (counts.categoryId != null) {
+                product.setCategoryId(counts.categoryId);
+            }
+            product.setViewCount(product.getViewCount() + counts.views);
+            product.setCartCount(product.getCartCount() + counts.carts);
+            product.setBuyCount(product.getBuyCount() + counts.buys);
+        }
+        // 各节点按相同顺序加行锁，减少并发写入时的死锁
+        userRows.sort(USER_PRODUCT_ORDER);
+        List<BehaviorCounterDTO> products = new ArrayList<>(productRows.values());
+        products.sort(Comparator.comparing(BehaviorCounterDTO::getProductId));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < userRows.size(); from += batchSize) {
+                    behaviorCounterMapper.batchUpsertUserProduct(userRows.subList(from, Math.min(from + batchSize, userRows.size())));
+                }
+                for (int from = 0; from < products.size(); from += batchSize) {
+                    behaviorCounterMapper.batchUpsertProduct(products.subList(from, Math.min(from + batchSize, products.size())));
+                }
+            });
+            writtenRows.add(userRows.size() + products.size());
+            return true;
+        } catch (Exception e) {
+            failedFlushes.increment();
+            log.error("写入行为计数失败: 用户-商品{}行, 商品{}行", userRows.size(), products.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * (用户, 商品)键
+     */
+    private static final class CounterKey {
+
+        private final long userId;
+        private final long productId;
+
+        private CounterKey(long userId, long productId) {
+            this.userId = userId;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CounterKey)) {
+                return false;
+            }
+            CounterKey other = (CounterKey) o;
+            return userId == other.userId && productId == other.productId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(userId * 31 + productId);
+        }
+    }
+
+    /**
+     * 待写入的计数增量，只在ConcurrentHashMap的compute/merge中修改
+     */
+    private static final class PendingCounts {
+
+        private Long categoryId;
+        private int views;
+        private int carts;
+        private int buys;
+
+        private void add(Long category, int behaviorType) {
+            if (category != null) {
+                categoryId = category;
+            }
+            if (behaviorType == 1) {
+                views++;
+            } else if (behaviorType == 3) {
+                carts++;
+            } else {
+                buys++;
+            }
+        }
+
+        private static PendingCounts mergeInto(PendingCounts current, PendingCounts failed) {
+            if (current.categoryId == null) {
+                current.categoryId = failed.categoryId;
+            }
+            current.views += failed.views;
+            current.carts += failed.carts;
+            current.buys += failed.buys;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.behavior;
+
+import com.example.config.BehaviorProperties;
+import com.example.mapper.UserBehaviorMapper;
+import com.example.model.entity.UserBehavior;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 用户行为异步批量写入
+ * 请求线程把行为记录放入有界无锁队列后立即返回，由单个后台线程取出后按批合并为一条多行INSERT写入user_behavior；
+ * 攒满flushSize条或最早的记录等待超过flushInterval时写入一批。队列已满时按配置丢弃或由请求线程同步写入。
+ * 一批中有违反约束的记录（如外键指向已删除的用户或商品）时整条INSERT失败，此时把该批对半拆分后分别重试，
+ * 只丢弃单独写入仍失败的记录；数据库不可用等其他错误整批丢弃。
+ * 每批写入后按(用户, 日期)累加用户每日活跃汇总（见UserActivityRollup）。
+ * 应用关闭时停止接收并在超时时间内写完队列中的剩余记录；进程异常退出时队列中尚未写入的记录会丢失。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BehaviorIngestionPipeline {
+
+    /**
+     * 队列为空时写入线程的休眠时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final UserBehaviorMapper userBehaviorMapper;
+    private final UserActivityRollup userActivityRollup;
+    private final BehaviorProperties behaviorProperties;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile int lastBatchSize;
+
+    private volatile BoundedMpscQueue<UserBehavior> queue;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        BehaviorProperties.Ingestion config = behaviorProperties.getIngestion();
+        if (!config.isEnabled()) {
+            log.info("用户行为异步写入未开启，行为记录同步写入");
+            return;
+        }
+        queue = new BoundedMpscQueue<>(config.getCapacity());
+        running = true;
+        writer = new Thread(this::drainLoop, "behavior-ingestion");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("用户行为异步写入已启动: 队列容量={}, 每批行数={}, 最长等待={}ms, 队列满时={}",
+                queue.capacity(), config.getFlushSize(), config.getFlushIntervalMs(), config.getOverflowPolicy());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(Math.max(1L, behaviorProperties.getIngestion().getShutdownTimeoutMs()));
+        if (writer.isAlive()) {
+            log.warn("关闭时仍有{}条用户行为未写入", queue.size());
+        }
+    }
+
+    /**
+     * 提交一条行为记录，不等待写入数据库
+     * @param behavior 行为记录
+     * @return 是否已接收（进入队列或同步写入成功），按DROP策略丢弃时返回false
+     */
+    public boolean submit(UserBehavior behavior) {
+        BoundedMpscQueue<UserBehavior> current = queue;
+        if (current == null || !running) {
+            return insertNow(behavior);
+        }
+        if (current.offer(behavior)) {
+            enqueued.increment();
+            return true;
+        }
+        if (behaviorProperties.getIngestion().getOverflowPolicy() == OverflowPolicy.DROP) {
+            dropped.increment();
+            return false;
+        }
+        callerRuns.increment();
+        return insertNow(behavior);
+    }
+
+    /**
+     * 队列深度与写入统计
+     */
+    public Map<String, Object> getStats() {
+        BoundedMpscQueue<UserBehavior> current = queue;
+        long flushCount = flushes.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", current != null);
+        stats.put("queue_depth", current == null ? 0 : current.size());
+        stats.put("queue_capacity", current == null ? 0 : current.capacity());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("caller_runs", callerRuns.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        stats.put("flushes", flushCount);
+        stats.put("last_batch_size", lastBatchSize);
+        stats.put("last_flush_ms", lastFlushNanos / 1_000_000.0);
+        stats.put("avg_flush_ms", flushCount == 0 ? 0.0 : flushNanos.get() / 1_000_000.0 / flushCount);
+        stats.put("max_flush_ms", maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private void drainLoop() {
+        BehaviorProperties.Ingestion config = behaviorProperties.getIngestion();
+        int flushSize = Math.max(1, config.getFlushSize());
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, config.getFlushIntervalMs()));
+        List<UserBehavior> batch = new ArrayList<>(flushSize);
+        long deadline = 0L;
+        while (running || !queue.isEmpty()) {
+            int drained = queue.drainTo(batch, flushSize - batch.size());
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            if (deadline == 0L) {
+                deadline = System.nanoTime() + intervalNanos;
+            }
+            if (batch.size() >= flushSize || System.nanoTime() - deadline >= 0 || !running) {
+                flush(batch);
+                batch.clear();
+                deadline = 0L;
+            } else if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<UserBehavior> batch) {
+        long start = System.nanoTime();
+        List<UserBehavior> inserted = new ArrayList<>(batch.size());
+        try {
+            insertSplitting(batch, inserted);
+        } finally {
+            recordFlush(batch.size(), System.nanoTime() - start);
+        }
+        if (!inserted.isEmpty()) {
+            rollup(inserted);
+        }
+    }
+
+    /**
+     * 写入一批记录，违反约束时对半拆分后分别重试，直到定位到单条无法写入的记录
+     * @param rows 待写入的记录
+     * @param inserted 接收写入成功的记录
+     */
+    private void insertSplitting(List<UserBehavior> rows, List<UserBehavior> inserted) {
+        try {
+            userBehaviorMapper.batchInsert(rows);
+            written.add(rows.size());
+            inserted.addAll(rows);
+        } catch (DataIntegrityViolationException e) {
+            if (rows.size() == 1) {
+                UserBehavior behavior = rows.get(0);
+                failed.increment();
+                log.error("写入用户行为失败，丢弃1条: 用户={}, 商品={}, 行为类型={}",
+                        behavior.getUserId(), behavior.getProductId(), behavior.getBehaviorType(), e);
+                return;
+            }
+            int middle = rows.size() >>> 1;
+            insertSplitting(rows.subList(0, middle), inserted);
+            insertSplitting(rows.subList(middle, rows.size()), inserted);
+        } catch (Exception e) {
+            failed.add(rows.size());
+            log.error("批量写入用户行为失败，丢弃{}条", rows.size(), e);
+        }
+    }
+
+    private boolean insertNow(UserBehavior behavior) {
+        if (userBehaviorMapper.insert(behavior) <= 0) {
+            return false;
+        }
+        rollup(Collections.singletonList(behavior));
+        return true;
+    }
+
+    private void rollup(List<UserBehavior> behaviors) {
+        try {
+            userActivityRollup.add(behaviors);
+        } catch (Exception e) {
+            log.error("累加用户每日活跃汇总失败，{}条行为未计入", behaviors.size(), e);
+        }
+    }
+
+    private void recordFlush(int batchSize, long elapsed) {
+        flushes.incrementAndGet();
+        flushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        lastFlushNanos = elapsed;
+        lastBatchSize = batchSize;
+    }
+}
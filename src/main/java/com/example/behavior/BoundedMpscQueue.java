@@ -0,0 +1,124 @@
+package com.example.behavior;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁多生产者单消费者环形队列
+ * 每个槽位带一个序号（Vyukov有界队列）：生产者用CAS抢占写入位置，写入元素后发布槽位序号，
+ * 队列已满时立即返回false，不阻塞也不加锁；只允许一个线程消费，消费位置无需CAS。
+ * 容量向上取整为2的幂。
+ */
+public final class BoundedMpscQueue<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 消费位置，只由消费线程写入，volatile便于其他线程读取队列长度
+     */
+    private volatile long head;
+
+    public BoundedMpscQueue(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = requestedCapacity <= 2 ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        if (size <= 0) {
+            throw new IllegalArgumentException("capacity too large: " + requestedCapacity);
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队，可由任意线程调用
+     * @param element 元素
+     * @return 队列已满时返回false
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    // 序号发布在元素之后，消费者看到序号时一定能看到元素
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 出队，只能由消费线程调用
+     * @return 队首元素，队列为空（或队首槽位尚未发布）时返回null
+     */
+    public E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * 批量出队，只能由消费线程调用
+     * @param target 接收元素的集合
+     * @param limit 最多出队数量
+     * @return 出队数量
+     */
+    public int drainTo(Collection<? super E> target, int limit) {
+        int count = 0;
+        while (count < limit) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 当前元素数量，并发修改时为近似值
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
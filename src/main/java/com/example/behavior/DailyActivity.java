@@ -0,0 +1,139 @@
+package com.example.behavior;
+
+/**
+ * 单个用户最近DAYS天的每日行为次数
+ * 固定大小的环形数组：按天号（epochDay）对DAYS取模定位到槽位，新的一天到来时清空被复用的槽位；
+ * 另用位图记录每天是否活跃，统计活跃天数时按64天一组做bitCount。超出窗口的更早日期不保存。
+ * 方法均加锁，单个用户的并发很低，锁几乎没有竞争。
+ */
+public final class DailyActivity {
+
+    /**
+     * 保存的天数，为64的倍数
+     */
+    public static final int DAYS = 128;
+
+    private final int[] counts = new int[DAYS];
+    private final long[] activeBits = new long[DAYS / Long.SIZE];
+
+    /**
+     * 窗口中最新的一天
+     */
+    private long lastDay;
+
+    public DailyActivity(long today) {
+        this.lastDay = today;
+    }
+
+    /**
+     * 累加某天的行为次数，早于窗口的日期忽略
+     * @param day 天号
+     * @param count 行为次数
+     */
+    public synchronized void add(long day, int count) {
+        if (day > lastDay) {
+            advance(day);
+        }
+        if (day <= lastDay - DAYS || count <= 0) {
+            return;
+        }
+        int slot = slot(day);
+        counts[slot] += count;
+        activeBits[slot >>> 6] |= 1L << slot;
+    }
+
+    /**
+     * 某天的行为次数
+     * @param day 天号
+     * @return 行为次数，超出窗口时返回0
+     */
+    public synchronized int count(long day) {
+        if (day > lastDay || day <= lastDay - DAYS) {
+            return 0;
+        }
+        return counts[slot(day)];
+    }
+
+    /**
+     * 按天复制[fromDay, toDay]内的行为次数
+     * @param fromDay 起始天号
+     * @param toDay 结束天号
+     * @return 每天的行为次数，超出窗口的日期为0
+     */
+    public synchronized int[] counts(long fromDay, long toDay) {
+        int[] result = new int[(int) Math.max(0, toDay - fromDay + 1)];
+        long from = Math.max(fromDay, lastDay - DAYS + 1);
+        long to = Math.min(toDay, lastDay);
+        for (long day = from; day <= to; day++) {
+            result[(int) (day - fromDay)] = counts[slot(day)];
+        }
+        return result;
+    }
+
+    /**
+     * [fromDay, toDay]内的行为总次数
+     */
+    public synchronized long total(long fromDay, long toDay) {
+        long from = Math.max(fromDay, lastDay - DAYS + 1);
+        long to = Math.min(toDay, lastDay);
+        long total = 0L;
+        for (long day = from; day <= to; day++) {
+            total += counts[slot(day)];
+        }
+        return total;
+    }
+
+    /**
+     * [fromDay, toDay]内有行为的天数
+     */
+    public synchronized int activeDays(long fromDay, long toDay) {
+        long from = Math.max(fromDay, lastDay - DAYS + 1);
+        long to = Math.min(toDay, lastDay);
+        if (from > to) {
+            return 0;
+        }
+        int fromSlot = slot(from);
+        int length = (int) (to - from + 1);
+        // 环形区间最多拆成两段连续槽位
+        if (fromSlot + length <= DAYS) {
+            return countBits(fromSlot, fromSlot + length);
+        }
+        return countBits(fromSlot, DAYS) + countBits(0, fromSlot + length - DAYS);
+    }
+
+    /**
+     * 把窗口推进到day，清空被复用的槽位
+     */
+    private void advance(long day) {
+        long clear = Math.min(day - lastDay, DAYS);
+        for (long d = day - clear + 1; d <= day; d++) {
+            int slot = slot(d);
+            counts[slot] = 0;
+            activeBits[slot >>> 6] &= ~(1L << slot);
+        }
+        lastDay = day;
+    }
+
+    /**
+     * 统计槽位[from, to)中置位的数量
+     */
+    private int countBits(int from, int to) {
+        int bits = 0;
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            long mask = -1L;
+            int wordStart = word << 6;
+            if (from > wordStart) {
+                mask &= -1L << (from - wordStart);
+            }
+            if (to < wordStart + Long.SIZE) {
+                mask &= -1L >>> (wordStart + Long.SIZE - to);
+            }
+            bits += Long.bitCount(activeBits[word] & mask);
+        }
+        return bits;
+    }
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) DAYS);
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.behavior;
+
+import com.example.config.BehaviorProperties;
+import com.example.mapper.UserBehaviorMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热门搜索关键词统计
+ * 搜索关键词按时间分桶（bucketMinutes）记录到Space-Saving统计中，每个桶按关键词哈希分为多个分片，
+ * 分片各自加锁，记录一次搜索只锁一个分片。查询最近N分钟时合并覆盖该时间段的分桶（精确到一个分桶），
+ * 已结束分桶的合并结果缓存到下一次换桶，查询结果缓存1秒，除启动后的补足外查询不访问数据库。
+ * 每个关键词返回保证次数search_count（不大于真实次数），真实次数不超过search_count + max_error。
+ * 开启Redis时已结束的分桶由定时任务累加到Redis有序集合，查询时合并所有节点的分桶（当前分桶只含本节点）；
+ * 未开启Redis且本节点启动时间短于查询时间段时，启动前的部分按时间范围从行为表中补足。
+ */
+@Slf4j
+@Component
+public class HotSearchKeywordTracker {
+
+    private static final String KEY_PREFIX = "search:hot:";
+
+    /**
+     * 查询结果的缓存时间
+     */
+    private static final long RESULT_TTL_MILLIS = 1000L;
+
+    /**
+     * 关键词最大长度，超过部分截断
+     */
+    private static final int MAX_KEYWORD_LENGTH = 100;
+
+    private final UserBehaviorMapper userBehaviorMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final BehaviorProperties.HotSearch config;
+    private final long bucketMillis;
+    private final int retentionBuckets;
+    private final long startMillis;
+
+    private volatile Bucket current;
+
+    /**
+     * 已结束的分桶，按时间升序，由this保护
+     */
+    private final ArrayDeque<Bucket> closed = new ArrayDeque<>();
+
+    /**
+     * 已结束但尚未写入Redis的分桶，由this保护
+     */
+    private final ArrayDeque<Bucket> unpublished = new ArrayDeque<>();
+
+    /**
+     * 按分桶数缓存的已结束分桶合并结果，换桶时清空
+     */
+    private final Map<Integer, SpaceSavingSketch.Snapshot> closedCache = new ConcurrentHashMap<>();
+
+    /**
+     * 按分桶数缓存的查询结果
+     */
+    private final Map<Integer, CachedResult> resultCache = new ConcurrentHashMap<>();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder backfills = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    public HotSearchKeywordTracker(UserBehaviorMapper userBehaviorMapper,
+                                   StringRedisTemplate stringRedisTemplate,
+                                   BehaviorProperties behaviorProperties) {
+        this.userBehaviorMapper = userBehaviorMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.config = behaviorProperties.getHotSearch();
+        this.bucketMillis = TimeUnit.MINUTES.toMillis(Math.max(1, config.getBucketMinutes()));
+        this.retentionBuckets = Math.max(1, (int) Math.ceil((double) config.getRetentionMinutes() / Math.max(1, config.getBucketMinutes())));
+        this.startMillis = System.currentTimeMillis();
+        this.current = new Bucket(startMillis / bucketMillis, Math.max(1, config.getStripes()), stripeCapacity());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 记录一次搜索
+     * @param keyword 搜索关键词，去掉首尾空白并转为小写后统计，空关键词忽略
+     */
+    public void record(String keyword) {
+        String key = normalize(keyword);
+        if (key == null) {
+            return;
+        }
+        long index = System.currentTimeMillis() / bucketMillis;
+        while (true) {
+            Bucket bucket = current;
+            if (bucket.index < index) {
+                bucket = rotate(index);
+            }
+            Stripe stripe = bucket.stripe(key);
+            synchronized (stripe) {
+                // 分片已在换桶时关闭，改为记录到新的分桶
+                if (!stripe.closed) {
+                    stripe.sketch.offer(key, 1L);
+                    recorded.increment();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询最近一段时间的热门搜索关键词
+     * @param windowMinutes 时间段（分钟），超过保留时长时按保留时长查询
+     * @param limit 返回数量，不超过统计容量
+     * @return 按保证次数降序的关键词列表，包含keyword、search_count、max_error
+     */
+    public List<Map<String, Object>> getHotKeywords(int windowMinutes, int limit) {
+        queries.increment();
+        int buckets = Math.min(retentionBuckets,
+                Math.max(1, (int) Math.ceil((double) windowMinutes / Math.max(1, config.getBucketMinutes()))));
+        long now = System.currentTimeMillis();
+        long index = now / bucketMillis;
+        if (current.index < index) {
+            rotate(index);
+        }
+        CachedResult cached = resultCache.get(buckets);
+        if (cached == null || cached.index != index || now - cached.createdAt > RESULT_TTL_MILLIS) {
+            List<SpaceSavingSketch.Snapshot> parts = new ArrayList<>(2);
+            parts.add(closedCache.computeIfAbsent(buckets, this::mergeClosed));
+            parts.add(current.snapshot());
+            cached = new CachedResult(index, now, SpaceSavingSketch.Snapshot.merge(parts, config.getCapacity()));
+            resultCache.put(buckets, cached);
+        }
+        SpaceSavingSketch.Snapshot snapshot = cached.snapshot;
+        int size = Math.min(Math.max(0, limit), snapshot.size());
+        List<Map<String, Object>> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("keyword", snapshot.key(i));
+            item.put("search_count", snapshot.count(i) - snapshot.error(i));
+            item.put("max_error", snapshot.error(i));
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 结束已到期的分桶，并把已结束的分桶累加到Redis
+     */
+    public void maintain() {
+        long index = System.currentTimeMillis() / bucketMillis;
+        if (current.index < index) {
+            rotate(index);
+        }
+        if (!config.isRedisEnabled()) {
+            return;
+        }
+        List<Bucket> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(unpublished);
+            unpublished.clear();
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            Bucket bucket = pending.get(i);
+            try {
+                publish(bucket);
+                published.increment();
+            } catch (Exception e) {
+                redisErrors.increment();
+                log.warn("热门搜索关键词写入Redis失败，稍后重试: {}", e.getMessage());
+                synchronized (this) {
+                    for (int j = pending.size() - 1; j >= i; j--) {
+                        if (pending.get(j).index > index - retentionBuckets) {
+                            unpublished.addFirst(pending.get(j));
+                        }
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 记录与查询统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("recorded", recorded.sum());
+        stats.put("queries", queries.sum());
+        stats.put("backfills", backfills.sum());
+        stats.put("published_buckets", published.sum());
+        stats.put("redis_errors", redisErrors.sum());
+        synchronized (this) {
+            stats.put("closed_buckets", closed.size());
+            stats.put("unpublished_buckets", unpublished.size());
+        }
+        return stats;
+    }
+
+    private synchronized Bucket rotate(long index) {
+        Bucket previous = current;
+        if (previous.index >= index) {
+            return previous;
+        }
+        current = new Bucket(index, previous.stripes.length, stripeCapacity());
+        previous.close();
+        closed.addLast(previous);
+        if (config.isRedisEnabled()) {
+            unpublished.addLast(previous);
+        }
+        while (!closed.isEmpty() && closed.peekFirst().index <= index - retentionBuckets) {
+            closed.pollFirst();
+        }
+        closedCache.clear();
+        return current;
+    }
+
+    /**
+     * 合并当前分桶之前buckets-1个分桶的统计
+     */
+    private SpaceSavingSketch.Snapshot mergeClosed(int buckets) {
+        long index = current.index;
+        long fromIndex = index - buckets + 1;
+        List<SpaceSavingSketch.Snapshot> parts = new ArrayList<>();
+        if (config.isRedisEnabled()) {
+            try {
+                parts.add(loadFromRedis(fromIndex, index));
+                // 本节点已结束但尚未写入Redis的分桶
+                synchronized (this) {
+                    for (Bucket bucket : unpublished) {
+                        if (bucket.index >= fromIndex) {
+                            parts.add(bucket.snapshot());
+                        }
+                    }
+                }
+                return SpaceSavingSketch.Snapshot.merge(parts, config.getCapacity());
+            } catch (Exception e) {
+                redisErrors.increment();
+                parts.clear();
+                log.warn("读取Redis中的热门搜索关键词失败，只使用本节点统计: {}", e.getMessage());
+            }
+        }
+        synchronized (this) {
+            for (Iterator<Bucket> it = closed.descendingIterator(); it.hasNext(); ) {
+                Bucket bucket = it.next();
+                if (bucket.index < fromIndex) {
+                    break;
+                }
+                parts.add(bucket.snapshot());
+            }
+        }
+        long fromMillis = fromIndex * bucketMillis;
+        if (fromMillis < startMillis) {
+            // 本节点启动前的部分没有统计，按时间范围查询行为表补足
+            backfills.increment();
+            parts.add(loadFromDatabase(fromMillis, startMillis));
+        }
+        return SpaceSavingSketch.Snapshot.merge(parts, config.getCapacity());
+    }
+
+    private SpaceSavingSketch.Snapshot loadFromDatabase(long fromMillis, long toMillis) {
+        ZoneId zone = ZoneId.systemDefault();
+        List<Map<String, Object>> rows = userBehaviorMapper.selectHotSearchKeywords(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(fromMillis), zone),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(toMillis), zone),
+                config.getCapacity());
+        // 同一关键词的不同大小写写法合并计数
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            String key = normalize((String) row.get("keyword"));
+            Object count = row.get("search_count");
+            if (key != null && count instanceof Number) {
+                counts.merge(key, ((Number) count).longValue(), Long::sum);
+            }
+        }
+        return toSnapshot(counts, rows.size() >= config.getCapacity());
+    }
+
+    private SpaceSavingSketch.Snapshot loadFromRedis(long fromIndex, long toIndexExclusive) {
+        if (fromIndex >= toIndexExclusive) {
+            return SpaceSavingSketch.Snapshot.EMPTY;
+        }
+        List<String> keys = new ArrayList<>();
+        for (long i = fromIndex; i < toIndexExclusive; i++) {
+            keys.add(bucketKey(i));
+        }
+        String destination = KEY_PREFIX + "window:" + fromIndex + ":" + toIndexExclusive;
+        ZSetOperations<String, String> zSet = stringRedisTemplate.opsForZSet();
+        zSet.unionAndStore(keys.get(0), keys.subList(1, keys.size()), destination);
+        stringRedisTemplate.expire(destination, Duration.ofMillis(bucketMillis));
+        Set<ZSetOperations.TypedTuple<String>> tuples = zSet.reverseRangeWithScores(destination, 0, config.getCapacity() - 1);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    counts.put(tuple.getValue(), tuple.getScore().longValue());
+                }
+            }
+        }
+        return toSnapshot(counts, counts.size() >= config.getCapacity());
+    }
+
+    private void publish(Bucket bucket) {
+        SpaceSavingSketch.Snapshot snapshot = bucket.snapshot();
+        if (snapshot.size() == 0) {
+            return;
+        }
+        String key = bucketKey(bucket.index);
+        long ttlMillis = (retentionBuckets + 1) * bucketMillis;
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                for (int i = 0; i < snapshot.size(); i++) {
+                    redis.opsForZSet().incrementScore(key, snapshot.key(i), snapshot.count(i));
+                }
+                redis.expire(key, Duration.ofMillis(ttlMillis));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 由精确计数（或各节点累加的估计值）构造统计，被截断时未返回的关键词次数不超过最后一个
+     */
+    private SpaceSavingSketch.Snapshot toSnapshot(Map<String, Long> counts, boolean truncated) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        String[] keys = new String[entries.size()];
+        long[] values = new long[entries.size()];
+        long total = 0L;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).getKey();
+            values[i] = entries.get(i).getValue();
+            total += values[i];
+        }
+        long floor = truncated && values.length > 0 ? values[values.length - 1] : 0L;
+        return new SpaceSavingSketch.Snapshot(keys, values, new long[keys.length], total, floor);
+    }
+
+    private int stripeCapacity() {
+        return Math.max(16, config.getCapacity() / Math.max(1, config.getStripes()));
+    }
+
+    private String bucketKey(long index) {
+        return KEY_PREFIX + config.getBucketMinutes() + "m:" + index;
+    }
+
+    private static String normalize(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String key = keyword.trim();
+        if (key.isEmpty()) {
+            return null;
+        }
+        if (key.length() > MAX_KEYWORD_LENGTH) {
+            key = key.substring(0, MAX_KEYWORD_LENGTH);
+        }
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 一个时间分桶，按关键词哈希分为多个分片
+     */
+    private static final class Bucket {
+
+        private final long index;
+        private final Stripe[] stripes;
+
+        /**
+         * 分桶结束后的统计结果
+         */
+        private SpaceSavingSketch.Snapshot closedSnapshot;
+
+        Bucket(long index, int stripeCount, int stripeCapacity) {
+            this.index = index;
+            this.stripes = new Stripe[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new Stripe(stripeCapacity);
+            }
+        }
+
+        Stripe stripe(String key) {
+            int hash = key.hashCode();
+            hash ^= hash >>> 16;
+            return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+        }
+
+        /**
+         * 关闭全部分片，之后的记录会转到新的分桶，统计结果不再变化
+         */
+        synchronized void close() {
+            List<SpaceSavingSketch.Snapshot> parts = new ArrayList<>(stripes.length);
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.closed = true;
+                    parts.add(stripe.sketch.snapshot());
+                }
+            }
+            closedSnapshot = SpaceSavingSketch.Snapshot.concat(parts);
+            // 结束后只保留统计结果，释放分片的哈希表
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.sketch = null;
+                }
+            }
+        }
+
+        /**
+         * 统计结果，与close互斥，未结束的分桶逐个分片加锁复制
+         */
+        synchronized SpaceSavingSketch.Snapshot snapshot() {
+            if (closedSnapshot != null) {
+                return closedSnapshot;
+            }
+            List<SpaceSavingSketch.Snapshot> parts = new ArrayList<>(stripes.length);
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    parts.add(stripe.sketch.snapshot());
+                }
+            }
+            return SpaceSavingSketch.Snapshot.concat(parts);
+        }
+    }
+
+    /**
+     * 分桶的一个分片，由自身的监视器锁保护
+     */
+    private static final class Stripe {
+
+        private SpaceSavingSketch sketch;
+        private boolean closed;
+
+        Stripe(int capacity) {
+            this.sketch = new SpaceSavingSketch(capacity);
+        }
+    }
+
+    /**
+     * 缓存的查询结果
+     */
+    private static final class CachedResult {
+
+        private final long index;
+        private final long createdAt;
+        private final SpaceSavingSketch.Snapshot snapshot;
+
+        CachedResult(long index, long createdAt, SpaceSavingSketch.Snapshot snapshot) {
+            this.index = index;
+            this.createdAt = createdAt;
+            this.snapshot = snapshot;
+        }
+    }
+}
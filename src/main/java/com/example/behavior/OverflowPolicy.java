@@ -0,0 +1,17 @@
+package com.example.behavior;
+
+/**
+ * 行为写入队列已满时的处理方式
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 丢弃新的行为记录，只计数，请求线程不受影响
+     */
+    DROP,
+
+    /**
+     * 由请求线程直接写入数据库（单行INSERT），不丢数据，写入压力反馈到请求上
+     */
+    CALLER_RUNS
+}
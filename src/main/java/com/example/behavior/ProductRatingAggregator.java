@@ -0,0 +1,207 @@
+package com.example.behavior;
+
+import com.example.cache.ProductRatingStatsCache;
+import com.example.config.BehaviorProperties;
+import com.example.mapper.ProductFavoriteMapper;
+import com.example.mapper.ProductRatingStatsMapper;
+import com.example.model.dto.ProductRatingStatsDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品评分汇总
+ * 评分、评价、首次收藏时在汇总表中累加（与行为记录在同一事务中时一起提交，本地缓存在事务提交后失效），
+ * 查询平均评分、评价数量、收藏人数时读取带本地缓存的汇总，不再扫描行为表。
+ * 首次收藏由product_favorite表的主键判断：INSERT IGNORE插入成功（影响1行）时收藏人数才加一，
+ * 同一用户并发或重复收藏只计一次，请求路径上不再查询行为表。
+ * 行为记录被清理、合并或异步写入失败都会使汇总与行为记录不一致，由校正任务按商品ID分段用行为记录
+ * （收藏人数用收藏关系表）重新计算。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductRatingAggregator {
+
+    /**
+     * 平均评分的小数位数，与数据库AVG对DECIMAL(2,1)的结果一致
+     */
+    private static final int AVERAGE_SCALE = 5;
+
+    private final ProductRatingStatsMapper productRatingStatsMapper;
+    private final ProductFavoriteMapper productFavoriteMapper;
+    private final ProductRatingStatsCache productRatingStatsCache;
+    private final BehaviorProperties behaviorProperties;
+
+    private final ReentrantLock repairLock = new ReentrantLock();
+
+    private volatile Map<String, Object> lastRepair = new HashMap<>();
+
+    /**
+     * 累加一次评分
+     * @param productId 商品ID
+     * @param rating 评分，为空时忽略
+     */
+    public void addRating(Long productId, BigDecimal rating) {
+        if (productId == null || rating == null) {
+            return;
+        }
+        productRatingStatsMapper.addRating(productId, rating);
+        runAfterCommit(() -> productRatingStatsCache.evict(productId));
+    }
+
+    /**
+     * 评价数量加一
+     * @param productId 商品ID
+     */
+    public void addReview(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        productRatingStatsMapper.addReview(productId);
+        runAfterCommit(() -> productRatingStatsCache.evict(productId));
+    }
+
+    /**
+     * 记录用户收藏商品，用户首次收藏该商品时收藏人数加一
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @return 是否为首次收藏
+     */
+    public boolean addFavorite(Long userId, Long productId) {
+        if (userId == null || productId == null) {
+            return false;
+        }
+        if (productFavoriteMapper.insertIgnore(userId, productId) == 0) {
+            return false;
+        }
+        productRatingStatsMapper.addFavorite(productId);
+        runAfterCommit(() -> productRatingStatsCache.evict(productId));
+        return true;
+    }
+
+    /**
+     * 把源用户的收藏关系合并到目标用户；两人都收藏过的商品的收藏人数由校正任务修正
+     * @param sourceUserId 源用户ID
+     * @param targetUserId 目标用户ID
+     */
+    public void mergeUser(Long sourceUserId, Long targetUserId) {
+        productFavoriteMapper.mergeUser(sourceUserId, targetUserId);
+        productFavoriteMapper.deleteByUserId(sourceUserId);
+    }
+
+    /**
+     * 商品的平均评分
+     * @param productId 商品ID
+     * @return 平均评分，没有评分时返回0
+     */
+    public BigDecimal getAverageRating(Long productId) {
+        ProductRatingStatsDTO stats = productRatingStatsCache.get(productId);
+        if (stats.getRatingCount() == null || stats.getRatingCount() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return stats.getRatingSum().divide(BigDecimal.valueOf(stats.getRatingCount()), AVERAGE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 商品的评价数量
+     */
+    public int getReviewCount(Long productId) {
+        Integer count = productRatingStatsCache.get(productId).getReviewCount();
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 商品的收藏人数
+     */
+    public int getFavoriteCount(Long productId) {
+        Integer count = productRatingStatsCache.get(productId).getFavoriteCount();
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 按商品ID分段由行为记录重新计算评分汇总
+     * @return 重新计算的段数，已有校正在执行时返回0
+     */
+    public int repair() {
+        if (!repairLock.tryLock()) {
+            log.warn("商品评分汇总校正正在执行，跳过本次调用");
+            return 0;
+        }
+        try {
+            return doRepair();
+        } finally {
+            repairLock.unlock();
+        }
+    }
+
+    /**
+     * 最近一次校正的统计数据
+     */
+    public Map<String, Object> getLastRepair() {
+        return lastRepair;
+    }
+
+    private int doRepair() {
+        BehaviorProperties.Rating config = behaviorProperties.getRating();
+        int chunkSize = Math.max(1, config.getRepairChunkSize());
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+
+        Long maxProductId = productRatingStatsMapper.selectMaxProductId();
+        long updated = 0;
+        int chunks = 0;
+        boolean interrupted = false;
+        long afterId = 0L;
+        while (maxProductId != null && afterId < maxProductId) {
+            long toId = Math.min(afterId + chunkSize, maxProductId);
+            updated += productRatingStatsMapper.recomputeRange(afterId, toId);
+            chunks++;
+            afterId = toId;
+            if (afterId < maxProductId && config.getRepairPauseMs() > 0) {
+                try {
+                    Thread.sleep(config.getRepairPauseMs());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    break;
+                }
+            }
+        }
+        productRatingStatsCache.invalidateAll();
+
+        long elapsed = System.currentTimeMillis() - start;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("run_time", now);
+        stats.put("max_product_id", maxProductId);
+        stats.put("affected_rows", updated);
+        stats.put("chunks", chunks);
+        stats.put("elapsed_ms", elapsed);
+        stats.put("interrupted", interrupted);
+        lastRepair = stats;
+        log.info("商品评分汇总校正完成: 分段={}, 影响行数={}, 耗时={}ms{}", chunks, updated, elapsed, interrupted ? "（被中断）" : "");
+        return chunks;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
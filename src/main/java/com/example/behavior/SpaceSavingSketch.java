@@ -0,0 +1,290 @@
+package com.example.behavior;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving高频元素统计
+ * 最多保存capacity个计数器，计数器已满时新元素替换计数最小的元素并继承其计数（记为误差），
+ * 因此每个元素的估计值不小于真实值，且高出的部分不超过其误差（误差不超过总次数/capacity）；
+ * 真实次数超过总次数/capacity的元素一定在统计中。计数器按计数组成最小堆，更新为O(log capacity)。
+ * 非线程安全，由调用方加锁。
+ */
+public final class SpaceSavingSketch {
+
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+    private long total;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 累加元素的次数
+     * @param key 元素
+     * @param weight 次数，必须为正
+     */
+    public void offer(String key, long weight) {
+        total += weight;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0L;
+            positions.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        // 替换计数最小的元素，新元素的真实次数可能为任意不超过最小计数的值
+        positions.remove(keys[0]);
+        long floor = counts[0];
+        keys[0] = key;
+        counts[0] = floor + weight;
+        errors[0] = floor;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /**
+     * 复制当前统计，按保证次数（计数减误差）降序
+     */
+    public Snapshot snapshot() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(counts[b] - errors[b], counts[a] - errors[a]));
+        String[] sortedKeys = new String[size];
+        long[] sortedCounts = new long[size];
+        long[] sortedErrors = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedCounts[i] = counts[order[i]];
+            sortedErrors[i] = errors[order[i]];
+        }
+        long floor = size < capacity ? 0L : counts[0];
+        return new Snapshot(sortedKeys, sortedCounts, sortedErrors, total, floor);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[parent] <= counts[index]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+        long error = errors[i];
+        errors[i] = errors[j];
+        errors[j] = error;
+        positions.put(keys[i], i);
+        positions.put(keys[j], j);
+    }
+
+    /**
+     * 不可变的统计结果，元素按保证次数（计数减误差，不大于真实次数）降序排列。
+     * 合并时未出现的元素按次数上限补足，只出现在少数统计中的元素计数偏高但误差同样偏高，按保证次数排序不会排在前面
+     */
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(new String[0], new long[0], new long[0], 0L, 0L);
+
+        private final String[] keys;
+        private final long[] counts;
+        private final long[] errors;
+        private final long total;
+
+        /**
+         * 未出现在统计中的元素的次数上限
+         */
+        private final long floor;
+
+        public Snapshot(String[] keys, long[] counts, long[] errors, long total, long floor) {
+            this.keys = keys;
+            this.counts = counts;
+            this.errors = errors;
+            this.total = total;
+            this.floor = floor;
+        }
+
+        /**
+         * 合并多个统计：每个元素的估计值为各统计中的估计值之和，未出现在某个统计中时按该统计的次数上限计入
+         * （同时计入误差），合并后保留保证次数最高的capacity个元素
+         * @param snapshots 待合并的统计
+         * @param capacity 合并后最多保留的元素数
+         * @return 合并结果
+         */
+        public static Snapshot merge(List<Snapshot> snapshots, int capacity) {
+            if (snapshots.isEmpty()) {
+                return EMPTY;
+            }
+            if (snapshots.size() == 1 && snapshots.get(0).size() <= capacity) {
+                return snapshots.get(0);
+            }
+            long floorSum = 0L;
+            long total = 0L;
+            Map<String, long[]> merged = new HashMap<>();
+            for (Snapshot snapshot : snapshots) {
+                floorSum += snapshot.floor;
+                total += snapshot.total;
+                for (int i = 0; i < snapshot.keys.length; i++) {
+                    long[] entry = merged.computeIfAbsent(snapshot.keys[i], key -> new long[3]);
+                    entry[0] += snapshot.counts[i];
+                    entry[1] += snapshot.errors[i];
+                    entry[2] += snapshot.floor;
+                }
+            }
+            List<Map.Entry<String, long[]>> entries = new ArrayList<>(merged.entrySet());
+            for (Map.Entry<String, long[]> entry : entries) {
+                long[] value = entry.getValue();
+                // 其他统计中没有该元素时按各自的次数上限补足
+                long missing = floorSum - value[2];
+                value[0] += missing;
+                value[1] += missing;
+            }
+            entries.sort((a, b) -> Long.compare(b.getValue()[0] - b.getValue()[1], a.getValue()[0] - a.getValue()[1]));
+            int kept = Math.min(capacity, entries.size());
+            String[] keys = new String[kept];
+            long[] counts = new long[kept];
+            long[] errors = new long[kept];
+            for (int i = 0; i < kept; i++) {
+                Map.Entry<String, long[]> entry = entries.get(i);
+                keys[i] = entry.getKey();
+                counts[i] = entry.getValue()[0];
+                errors[i] = entry.getValue()[1];
+            }
+            long floor = floorSum;
+            for (int i = kept; i < entries.size(); i++) {
+                floor = Math.max(floor, entries.get(i).getValue()[0]);
+            }
+            return new Snapshot(keys, counts, errors, total, floor);
+        }
+
+        /**
+         * 合并元素互不相同的多个统计（如按元素哈希分片的统计），各元素的估计值与误差不变
+         * @param snapshots 待合并的统计
+         * @return 合并结果，按保证次数降序
+         */
+        public static Snapshot concat(List<Snapshot> snapshots) {
+            int size = 0;
+            long total = 0L;
+            long floor = 0L;
+            for (Snapshot snapshot : snapshots) {
+                size += snapshot.size();
+                total += snapshot.total;
+                floor = Math.max(floor, snapshot.floor);
+            }
+            Integer[] order = new Integer[size];
+            String[] allKeys = new String[size];
+            long[] allCounts = new long[size];
+            long[] allErrors = new long[size];
+            int offset = 0;
+            for (Snapshot snapshot : snapshots) {
+                System.arraycopy(snapshot.keys, 0, allKeys, offset, snapshot.size());
+                System.arraycopy(snapshot.counts, 0, allCounts, offset, snapshot.size());
+                System.arraycopy(snapshot.errors, 0, allErrors, offset, snapshot.size());
+                offset += snapshot.size();
+            }
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(allCounts[b] - allErrors[b], allCounts[a] - allErrors[a]));
+            String[] keys = new String[size];
+            long[] counts = new long[size];
+            long[] errors = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = allKeys[order[i]];
+                counts[i] = allCounts[order[i]];
+                errors[i] = allErrors[order[i]];
+            }
+            return new Snapshot(keys, counts, errors, total, floor);
+        }
+
+        public int size() {
+            return keys.length;
+        }
+
+        public String key(int index) {
+            return keys[index];
+        }
+
+        /**
+         * 估计次数（不小于真实次数）
+         */
+        public long count(int index) {
+            return counts[index];
+        }
+
+        /**
+         * 估计次数可能高出真实次数的最大值
+         */
+        public long error(int index) {
+            return errors[index];
+        }
+
+        public long total() {
+            return total;
+        }
+
+        public long floor() {
+            return floor;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.behavior;
+
+import com.example.config.BehaviorProperties;
+import com.example.mapper.UserDailyActivityMapper;
+import com.example.model.dto.UserDailyActivityDTO;
+import com.example.model.entity.UserBehavior;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户每日活跃汇总
+ * 行为记录写入后按(用户, 日期)合并为每日次数，以多行INSERT ... ON DUPLICATE KEY UPDATE累加到user_daily_activity；
+ * 行为热力图和活跃度评分读取汇总，不再查询行为表。最近DailyActivity.DAYS天的汇总按用户缓存在本地
+ * （每个用户一个固定大小的DailyActivity），本节点写入汇总后直接累加到已缓存的用户上，
+ * 其他节点写入的汇总在缓存到期后可见；查询更长时间段时直接读取汇总表。
+ */
+@Component
+public class UserActivityRollup {
+
+    /**
+     * 批量查询汇总时每次查询的最多用户数
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    /**
+     * 每条INSERT语句最多写入的行数
+     */
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private static final Comparator<UserDailyActivityDTO> KEY_ORDER =
+            Comparator.comparing(UserDailyActivityDTO::getUserId).thenComparing(UserDailyActivityDTO::getActivityDate);
+
+    private final UserDailyActivityMapper userDailyActivityMapper;
+    private final Cache<Long, DailyActivity> localCache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writtenRows = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+
+    public UserActivityRollup(UserDailyActivityMapper userDailyActivityMapper, BehaviorProperties behaviorProperties) {
+        this.userDailyActivityMapper = userDailyActivityMapper;
+        BehaviorProperties.Activity config = behaviorProperties.getActivity();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaximumSize())
+                .expireAfterWrite(config.getCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 累加已写入的行为记录；处于事务中时本地缓存在事务提交后更新
+     * @param behaviors 行为记录
+     */
+    public void add(Collection<UserBehavior> behaviors) {
+        Map<Long, Map<LocalDate, int[]>> grouped = new HashMap<>();
+        for (UserBehavior behavior : behaviors) {
+            if (behavior.getUserId() == null) {
+                continue;
+            }
+            LocalDate date = behavior.getCreateTime() == null ? LocalDate.now() : behavior.getCreateTime().toLocalDate();
+            grouped.computeIfAbsent(behavior.getUserId(), key -> new HashMap<>())
+                    .computeIfAbsent(date, key -> new int[1])[0]++;
+        }
+        if (grouped.isEmpty()) {
+            return;
+        }
+        List<UserDailyActivityDTO> rows = new ArrayList<>();
+        grouped.forEach((userId, days) -> days.forEach((date, count) -> {
+            UserDailyActivityDTO row = new UserDailyActivityDTO();
+            row.setUserId(userId);
+            row.setActivityDate(date);
+            row.setBehaviorCount(count[0]);
+            rows.add(row);
+        }));
+        // 各节点按相同顺序加行锁，减少并发写入时的死锁
+        rows.sort(KEY_ORDER);
+        try {
+            for (int from = 0; from < rows.size(); from += WRITE_BATCH_SIZE) {
+                userDailyActivityMapper.batchUpsert(rows.subList(from, Math.min(from + WRITE_BATCH_SIZE, rows.size())));
+            }
+            writtenRows.add(rows.size());
+        } catch (RuntimeException e) {
+            failedWrites.increment();
+            throw e;
+        }
+        runAfterCommit(() -> {
+            for (UserDailyActivityDTO row : rows) {
+                DailyActivity activity = localCache.getIfPresent(row.getUserId());
+                if (activity != null) {
+                    activity.add(row.getActivityDate().toEpochDay(), row.getBehaviorCount());
+                }
+            }
+        });
+    }
+
+    /**
+     * 用户最近days天（从days天前到今天，共days+1天）每天的行为次数
+     * @param userId 用户ID
+     * @param days 天数
+     * @return 按日期升序的热力图数据，包含date、behaviorCount
+     */
+    public List<Map<String, Object>> getHeatmap(Long userId, int days) {
+        LocalDate today = LocalDate.now();
+        LocalDate fromDate = today.minusDays(days);
+        int[] counts;
+        if (days < DailyActivity.DAYS) {
+            counts = activity(userId).counts(fromDate.toEpochDay(), today.toEpochDay());
+        } else {
+            counts = new int[days + 1];
+            for (UserDailyActivityDTO row : userDailyActivityMapper.selectByUserIds(List.of(userId), fromDate)) {
+                long offset = row.getActivityDate().toEpochDay() - fromDate.toEpochDay();
+                if (offset >= 0 && offset < counts.length) {
+                    counts[(int) offset] += row.getBehaviorCount();
+                }
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            Map<String, Object> dayData = new HashMap<>();
+            dayData.put("date", fromDate.plusDays(i).toString());
+            dayData.put("behaviorCount", counts[i]);
+            result.add(dayData);
+        }
+        return result;
+    }
+
+    /**
+     * 用户最近days天的活跃度评分
+     * @param userId 用户ID
+     * @param days 天数
+     * @return 活跃度评分（0-100）
+     */
+    public int getActivityScore(Long userId, int days) {
+        Integer score = getActivityScores(List.of(userId), days).get(userId);
+        return score == null ? 0 : score;
+    }
+
+    /**
+     * 批量计算用户最近days天的活跃度评分，未缓存的用户按批合并查询
+     * @param userIds 用户ID集合
+     * @param days 天数
+     * @return 用户ID到活跃度评分的映射
+     */
+    public Map<Long, Integer> getActivityScores(Collection<Long> userIds, int days) {
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        Map<Long, Integer> scores = new HashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return scores;
+        }
+        LocalDate today = LocalDate.now();
+        long toDay = today.toEpochDay();
+        long fromDay = toDay - days;
+        if (days < DailyActivity.DAYS) {
+            Map<Long, DailyActivity> activities = new HashMap<>(localCache.getAllPresent(ids));
+            hits.add(activities.size());
+            if (activities.size() < ids.size()) {
+                Set<Long> missing = new LinkedHashSet<>(ids);
+                missing.removeAll(activities.keySet());
+                activities.putAll(localCache.getAll(missing, this::loadAll));
+            }
+            for (Long userId : ids) {
+                DailyActivity activity = activities.get(userId);
+                scores.put(userId, activity == null ? 0
+                        : score(activity.total(fromDay, toDay), activity.activeDays(fromDay, toDay), days));
+            }
+            return scores;
+        }
+
+        // 超出本地窗口的时间段直接汇总每日记录
+        List<Long> idList = new ArrayList<>(ids);
+        Map<Long, long[]> totals = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < idList.size(); from += QUERY_BATCH_SIZE) {
+            List<Long> batch = idList.subList(from, Math.min(from + QUERY_BATCH_SIZE, idList.size()));
+            for (UserDailyActivityDTO row : userDailyActivityMapper.selectByUserIds(batch, LocalDate.ofEpochDay(fromDay))) {
+                if (row.getBehaviorCount() != null && row.getBehaviorCount() > 0 && row.getActivityDate().toEpochDay() <= toDay) {
+                    long[] total = totals.computeIfAbsent(row.getUserId(), key -> new long[2]);
+                    total[0] += row.getBehaviorCount();
+                    total[1]++;
+                }
+            }
+        }
+        for (Long userId : ids) {
+            long[] total = totals.get(userId);
+            scores.put(userId, total == null ? 0 : score(total[0], (int) total[1], days));
+        }
+        return scores;
+    }
+
+    /**
+     * 把源用户的每日汇总合并到目标用户
+     * @param sourceUserId 源用户ID
+     * @param targetUserId 目标用户ID
+     */
+    public void mergeUser(Long sourceUserId, Long targetUserId) {
+        userDailyActivityMapper.mergeUser(sourceUserId, targetUserId);
+        userDailyActivityMapper.deleteByUserId(sourceUserId);
+        runAfterCommit(() -> localCache.invalidateAll(List.of(sourceUserId, targetUserId)));
+    }
+
+    /**
+     * 缓存命中与写入统计
+     */
+    public Map<String, Object> getStats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("hit_ratio", hit + miss > 0 ? (double) hit / (hit + miss) : 0);
+        stats.put("size", localCache.estimatedSize());
+        stats.put("written_rows", writtenRows.sum());
+        stats.put("failed_writes", failedWrites.sum());
+        return stats;
+    }
+
+    /**
+     * 活跃度评分：总行为数每2次1分，最高50分；活跃天数占比最高50分；合计不超过100分
+     */
+    static int score(long totalBehaviors, int activeDays, int days) {
+        double behaviorScore = Math.min(totalBehaviors / 2.0, 50);
+        double activeScore = (double) activeDays / days * 50;
+        int finalScore = (int) Math.round(behaviorScore + activeScore);
+        return Math.min(finalScore, 100);
+    }
+
+    private DailyActivity activity(Long userId) {
+        DailyActivity activity = localCache.getIfPresent(userId);
+        if (activity != null) {
+            hits.increment();
+            return activity;
+        }
+        return localCache.get(userId, key -> loadAll(Set.of(key)).get(key));
+    }
+
+    private Map<Long, DailyActivity> loadAll(Set<? extends Long> userIds) {
+        misses.add(userIds.size());
+        long today = LocalDate.now().toEpochDay();
+        LocalDate fromDate = LocalDate.ofEpochDay(today - DailyActivity.DAYS + 1);
+        Map<Long, DailyActivity> result = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            result.put(userId, new DailyActivity(today));
+        }
+        List<Long> idList = new ArrayList<>(userIds);
+        for (int from = 0; from < idList.size(); from += QUERY_BATCH_SIZE) {
+            List<Long> batch = idList.subList(from, Math.min(from + QUERY_BATCH_SIZE, idList.size()));
+            for (UserDailyActivityDTO row : userDailyActivityMapper.selectByUserIds(batch, fromDate)) {
+                DailyActivity activity = result.get(row.getUserId());
+                if (activity != null && row.getBehaviorCount() != null) {
+                    activity.add(row.getActivityDate().toEpochDay(), row.getBehaviorCount());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
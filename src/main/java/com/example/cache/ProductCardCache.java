@@ -0,0 +1,134 @@
+package com.example.cache;
+
+import com.example.config.RecommendProperties;
+import com.example.mapper.ProductMapper;
+import com.example.model.dto.ProductCardDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品卡片本地缓存
+ * 推荐列表等场景一次需要展示多个商品：先从有界的本地Caffeine缓存中批量读取，
+ * 未命中的商品合并为一次IN查询加载并写回缓存；商品修改、删除、上下架后由商品服务在事务提交后使缓存失效。
+ */
+@Component
+public class ProductCardCache {
+
+    private final ProductMapper productMapper;
+    private final Cache<Long, ProductCardDTO> localCache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+
+    public ProductCardCache(ProductMapper productMapper, RecommendProperties recommendProperties) {
+        this.productMapper = productMapper;
+        RecommendProperties.Cache config = recommendProperties.getCache();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getProductCardMaximumSize())
+                .expireAfterWrite(config.getProductCardTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 批量获取商品卡片
+     * @param productIds 商品ID集合
+     * @return 商品ID到卡片的映射，不存在的商品不包含在结果中
+     */
+    public Map<Long, ProductCardDTO> getAll(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        Map<Long, ProductCardDTO> cards = new HashMap<>(ids.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            ProductCardDTO card = localCache.getIfPresent(id);
+            if (card != null) {
+                cards.put(id, card);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.add(cards.size());
+        if (missing.isEmpty()) {
+            return cards;
+        }
+
+        misses.add(missing.size());
+        queries.increment();
+        for (ProductCardDTO card : productMapper.selectCardsByIds(missing)) {
+            cards.put(card.getId(), card);
+            // 事务中读到的可能是本事务未提交的数据，不写入缓存
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                localCache.put(card.getId(), card);
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * 使商品卡片缓存失效；处于事务中时在事务提交后执行
+     * @param productIds 商品ID集合
+     */
+    public void evict(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(productIds);
+        runAfterCommit(() -> localCache.invalidateAll(ids));
+    }
+
+    /**
+     * 使单个商品的卡片缓存失效
+     * @param productId 商品ID
+     */
+    public void evict(Long productId) {
+        if (productId != null) {
+            evict(Collections.singleton(productId));
+        }
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("queries", queries.sum());
+        stats.put("hit_ratio", hit + miss > 0 ? (double) hit / (hit + miss) : 0);
+        stats.put("size", localCache.estimatedSize());
+        return stats;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.cache;
+
+import com.example.config.BehaviorProperties;
+import com.example.mapper.ProductRatingStatsMapper;
+import com.example.model.dto.ProductRatingStatsDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品评分汇总本地缓存
+ * 商品详情页的平均评分、评价数量、收藏人数从缓存读取，未命中时按主键查询汇总表；
+ * 本节点累加汇总的事务提交后由ProductRatingAggregator使对应商品的缓存失效，其他节点的更新在缓存到期后可见。
+ */
+@Component
+public class ProductRatingStatsCache {
+
+    private final ProductRatingStatsMapper productRatingStatsMapper;
+    private final Cache<Long, ProductRatingStatsDTO> localCache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ProductRatingStatsCache(ProductRatingStatsMapper productRatingStatsMapper, BehaviorProperties behaviorProperties) {
+        this.productRatingStatsMapper = productRatingStatsMapper;
+        BehaviorProperties.Rating config = behaviorProperties.getRating();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaximumSize())
+                .expireAfterWrite(config.getCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取商品评分汇总
+     * @param productId 商品ID
+     * @return 汇总数据，商品没有评分、评价和收藏时各项为0
+     */
+    public ProductRatingStatsDTO get(Long productId) {
+        ProductRatingStatsDTO stats = localCache.getIfPresent(productId);
+        if (stats != null) {
+            hits.increment();
+            return stats;
+        }
+        misses.increment();
+        stats = productRatingStatsMapper.selectByProductId(productId);
+        if (stats == null) {
+            stats = new ProductRatingStatsDTO();
+            stats.setProductId(productId);
+            stats.setRatingSum(BigDecimal.ZERO);
+            stats.setRatingCount(0);
+            stats.setReviewCount(0);
+            stats.setFavoriteCount(0);
+        }
+        // 事务中读到的可能是本事务未提交的数据，不写入缓存
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            localCache.put(productId, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 使商品的缓存失效，应在汇总更新的事务提交后调用
+     * @param productId 商品ID
+     */
+    public void evict(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        localCache.invalidate(productId);
+    }
+
+    /**
+     * 使全部商品的缓存失效
+     */
+    public void invalidateAll() {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("hit_ratio", hit + miss > 0 ? (double) hit / (hit + miss) : 0);
+        stats.put("size", localCache.estimatedSize());
+        return stats;
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.cache;
+
+import com.example.config.RecommendProperties;
+import com.example.mapper.RecommendationResultMapper;
+import com.example.model.entity.RecommendationResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户推荐列表两级缓存
+ * 每个用户缓存一份按分数降序排列的推荐列表（最多maxItems条）：
+ * 1. 一级为本地Caffeine缓存，按容量和写入时间淘汰，同一用户并发未命中时只加载一次
+ * 2. 二级为Redis缓存，键中带有全局版本号，整体失效时只需递增版本号；单个用户失效时递增其失效序号，
+ *    未命中时只有失效序号与读取数据库前一致才写回Redis，加载期间被失效的旧列表不会写回
+ * 3. 读取时按expireTime过滤已过期的推荐，缓存中的过期条目不会返回给调用方
+ * Redis不可用时退化为只使用本地缓存，不影响查询
+ */
+@Slf4j
+@Component
+public class RecommendationListCache {
+
+    private static final String KEY_PREFIX = "recommend:list:";
+    private static final String VERSION_KEY = KEY_PREFIX + "version";
+    private static final String STAMP_PREFIX = KEY_PREFIX + "stamp:";
+
+    /**
+     * 失效序号（KEYS[2]，不存在时为空串）与ARGV[1]一致时写入列表（KEYS[1]）
+     */
+    private static final RedisScript<Long> SET_IF_NOT_EVICTED = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[2]) or '') == ARGV[1] then "
+                    + "redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]) return 1 end return 0",
+            Long.class);
+
+    /**
+     * 依次递增每个用户的失效序号（KEYS[2i]）并删除其列表（KEYS[2i-1]），失效序号保留ARGV[1]秒
+     */
+    private static final RedisScript<Long> EVICT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS, 2 do "
+                    + "redis.call('incr', KEYS[i + 1]) redis.call('expire', KEYS[i + 1], ARGV[1]) "
+                    + "redis.call('del', KEYS[i]) end return 1",
+            Long.class);
+
+    /**
+     * 本地缓存的Redis版本号的刷新间隔
+     */
+    private static final long VERSION_REFRESH_MILLIS = 1000L;
+
+    private final RecommendationResultMapper recommendationResultMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RecommendProperties.Cache config;
+    private final Cache<Long, CachedList> localCache;
+    private final ObjectMapper objectMapper;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final LongAdder staleWritesSkipped = new LongAdder();
+
+    private volatile long version;
+    private volatile long versionCheckedAt;
+
+    public RecommendationListCache(RecommendationResultMapper recommendationResultMapper,
+                                   StringRedisTemplate stringRedisTemplate,
+                                   RecommendProperties recommendProperties) {
+        this.recommendationResultMapper = recommendationResultMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.config = recommendProperties.getCache();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getLocalMaximumSize())
+                .expireAfterWrite(config.getLocalTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * 查询用户的推荐列表
+     * @param userId 用户ID
+     * @param limit 返回数量
+     * @param validOnly 是否只返回未过期的推荐
+     * @return 按分数降序排列的推荐列表，处于事务中或缓存的列表不足以回答时返回null，由调用方查询数据库
+     */
+    public List<RecommendationResult> get(Long userId, int limit, boolean validOnly) {
+        // 事务中可能读到本事务未提交的数据，不经过缓存
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        CachedList cached = load(userId);
+        LocalDateTime now = LocalDateTime.now();
+        List<RecommendationResult> result = new ArrayList<>(Math.min(limit, cached.items.size()));
+        for (RecommendationResult item : cached.items) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!validOnly || item.getExpireTime() == null || item.getExpireTime().isAfter(now)) {
+                result.add(item);
+            }
+        }
+        // 缓存只保存前maxItems条，被截断的列表不足limit条时无法确定是否还有更多结果
+        if (result.size() < limit && cached.truncated) {
+            fallbacks.increment();
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * 使指定用户的缓存失效；处于事务中时在事务提交后执行，避免并发读取把未提交前的旧数据重新写入缓存
+     * @param userId 用户ID
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evict(Collections.singleton(userId));
+    }
+
+    /**
+     * 批量使用户的缓存失效
+     * @param userIds 用户ID集合
+     */
+    public void evict(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        runAfterCommit(() -> {
+            localCache.invalidateAll(ids);
+            if (config.isRedisEnabled()) {
+                try {
+                    List<String> keys = new ArrayList<>(ids.size() * 2);
+                    for (Long id : ids) {
+                        keys.add(listKey(id));
+                        keys.add(stampKey(id));
+                    }
+                    stringRedisTemplate.execute(EVICT, keys, String.valueOf(config.getRedisTtlSeconds()));
+                } catch (Exception e) {
+                    onRedisError("删除推荐列表缓存", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 使全部用户的缓存失效
+     */
+    public void invalidateAll() {
+        runAfterCommit(() -> {
+            localCache.invalidateAll();
+            if (config.isRedisEnabled()) {
+                try {
+                    Long next = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+                    if (next != null) {
+                        version = next;
+                        versionCheckedAt = System.currentTimeMillis();
+                    }
+                } catch (Exception e) {
+                    onRedisError("递增推荐列表缓存版本", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long local = localHits.sum();
+        long redis = redisHits.sum();
+        long miss = misses.sum();
+        long total = local + redis + miss;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("local_hits", local);
+        stats.put("redis_hits", redis);
+        stats.put("misses", miss);
+        stats.put("db_fallbacks", fallbacks.sum());
+        stats.put("redis_errors", redisErrors.sum());
+        stats.put("stale_writes_skipped", staleWritesSkipped.sum());
+        stats.put("hit_ratio", total > 0 ? (double) (local + redis) / total : 0);
+        stats.put("local_size", localCache.estimatedSize());
+        return stats;
+    }
+
+    private CachedList load(Long userId) {
+        CachedList cached = localCache.getIfPresent(userId);
+        if (cached != null) {
+            localHits.increment();
+            return cached;
+        }
+        // 同一用户的并发未命中只加载一次
+        return localCache.get(userId, this::loadFromRemote);
+    }
+
+    private CachedList loadFromRemote(Long userId) {
+        String key = null;
+        String stamp = null;
+        if (config.isRedisEnabled()) {
+            try {
+                key = listKey(userId);
+                List<String> values = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(key, stampKey(userId)));
+                String json = values == null ? null : values.get(0);
+                if (json != null) {
+                    redisHits.increment();
+                    return toCachedList(objectMapper.readValue(json, new TypeReference<List<RecommendationResult>>() {}));
+                }
+                // 记录读取数据库前的失效序号
+                stamp = values == null || values.get(1) == null ? "" : values.get(1);
+            } catch (Exception e) {
+                key = null;
+                onRedisError("读取推荐列表缓存", e);
+            }
+        }
+
+        misses.increment();
+        List<RecommendationResult> items = recommendationResultMapper.selectByUserId(userId, config.getMaxItems());
+        CachedList cached = toCachedList(items);
+        if (key != null) {
+            try {
+                Long written = stringRedisTemplate.execute(SET_IF_NOT_EVICTED, Arrays.asList(key, stampKey(userId)),
+                        stamp, objectMapper.writeValueAsString(cached.items), String.valueOf(config.getRedisTtlSeconds()));
+                if (written == null || written == 0L) {
+                    staleWritesSkipped.increment();
+                }
+            } catch (Exception e) {
+                onRedisError("写入推荐列表缓存", e);
+            }
+        }
+        return cached;
+    }
+
+    private CachedList toCachedList(List<RecommendationResult> items) {
+        List<RecommendationResult> list = items == null ? Collections.emptyList() : Collections.unmodifiableList(items);
+        return new CachedList(list, list.size() >= config.getMaxItems());
+    }
+
+    private String listKey(Long userId) {
+        return KEY_PREFIX + currentVersion() + ":" + userId;
+    }
+
+    private static String stampKey(Long userId) {
+        return STAMP_PREFIX + userId;
+    }
+
+    private long currentVersion() {
+        long now = System.currentTimeMillis();
+        if (now - versionCheckedAt > VERSION_REFRESH_MILLIS) {
+            versionCheckedAt = now;
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            version = value == null ? 0L : Long.parseLong(value);
+        }
+        return version;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void onRedisError(String operation, Exception e) {
+        redisErrors.increment();
+        log.warn("{}失败，仅使用本地缓存: {}", operation, e.getMessage());
+    }
+
+    /**
+     * 缓存的推荐列表
+     */
+    private static final class CachedList {
+
+        private final List<RecommendationResult> items;
+
+        /**
+         * 列表是否因达到maxItems而被截断
+         */
+        private final boolean truncated;
+
+        CachedList(List<RecommendationResult> items, boolean truncated) {
+            this.items = items;
+            this.truncated = truncated;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.config;
+
+import com.example.behavior.OverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户行为配置（app.behavior）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.behavior")
+public class BehaviorProperties {
+
+    /**
+     * 行为异步批量写入配置
+     */
+    private Ingestion ingestion = new Ingestion();
+
+    /**
+     * 行为计数合并写入配置
+     */
+    private Counter counter = new Counter();
+
+    /**
+     * 热门搜索关键词统计配置
+     */
+    private HotSearch hotSearch = new HotSearch();
+
+    /**
+     * 商品评分汇总配置
+     */
+    private Rating rating = new Rating();
+
+    /**
+     * 用户每日活跃汇总配置
+     */
+    private Activity activity = new Activity();
+
+    @Data
+    public static class Ingestion {
+
+        /**
+         * 是否开启异步批量写入，关闭时每条行为在请求线程中同步写入
+         */
+        private boolean enabled = true;
+
+        /**
+         * 队列容量（向上取整为2的幂）
+         */
+        private int capacity = 65536;
+
+        /**
+         * 每条INSERT语句最多写入的行数
+         */
+        private int flushSize = 500;
+
+        /**
+         * 队列中最早的记录最多等待的时间（毫秒），不足flushSize时到期也写入
+         */
+        private long flushIntervalMs = 200L;
+
+        /**
+         * 队列已满时的处理方式
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+
+        /**
+         * 应用关闭时等待队列写完的最长时间（毫秒）
+         */
+        private long shutdownTimeoutMs = 10000L;
+    }
+
+    @Data
+    public static class Counter {
+
+        /**
+         * 是否在内存中合并计数后批量写入，关闭时每次行为直接累加到汇总表
+         */
+        private boolean enabled = true;
+
+        /**
+         * 合并窗口（毫秒），到期写入一次
+         */
+        private long flushIntervalMs = 5000L;
+
+        /**
+         * 每条INSERT语句最多写入的行数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 待写入的(用户, 商品)键达到该数量时不等窗口到期，由请求线程写入
+         */
+        private int maxPendingKeys = 100000;
+    }
+
+    @Data
+    public static class HotSearch {
+
+        /**
+         * 是否在内存中统计热门搜索关键词，关闭时按时间范围查询行为表
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个时间分桶保留的关键词数，越大估计越准确
+         */
+        private int capacity = 1000;
+
+        /**
+         * 每个分桶的分片数（按关键词哈希分片，减少并发记录时的锁竞争）
+         */
+        private int stripes = 8;
+
+        /**
+         * 分桶时长（分钟），查询的时间段精确到一个分桶
+         */
+        private int bucketMinutes = 10;
+
+        /**
+         * 保留时长（分钟），可查询的最长时间段
+         */
+        private int retentionMinutes = 1440;
+
+        /**
+         * 未指定时间段时查询的最近分钟数
+         */
+        private int defaultWindowMinutes = 60;
+
+        /**
+         * 是否把已结束的分桶累加到Redis，合并所有节点的统计
+         */
+        private boolean redisEnabled = false;
+
+        /**
+         * 检查换桶与写入Redis的间隔（毫秒）
+         */
+        private long maintainIntervalMs = 60000L;
+    }
+
+    @Data
+    public static class Rating {
+
+        /**
+         * 本地缓存最多保存的商品数
+         */
+        private long cacheMaximumSize = 50000L;
+
+        /**
+         * 本地缓存有效期（秒），其他节点更新的汇总最迟在该时间后可见
+         */
+        private long cacheTtlSeconds = 60L;
+
+        /**
+         * 是否定时由行为记录校正评分汇总
+         */
+        private boolean repairEnabled = true;
+
+        /**
+         * 校正的执行时间
+         */
+        private String repairCron = "0 0 4 * * ?";
+
+        /**
+         * 每段重新计算的商品ID范围
+         */
+        private int repairChunkSize = 1000;
+
+        /**
+         * 两段之间的暂停时间（毫秒）
+         */
+        private long repairPauseMs = 50L;
+    }
+
+    @Data
+    public static class Activity {
+
+        /**
+         * 本地缓存最多保存的用户数
+         */
+        private long cacheMaximumSize = 100000L;
+
+        /**
+         * 本地缓存有效期（秒），其他节点写入的汇总最迟在该时间后可见
+         */
+        private long cacheTtlSeconds = 300L;
+    }
+}
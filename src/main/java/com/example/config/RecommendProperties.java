@@ -0,0 +1,337 @@
+package com.example.config;
+
+import com.example.recommend.SimilarityMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 推荐系统配置（app.recommend）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.recommend")
+public class RecommendProperties {
+
+    /**
+     * 相似度矩阵构建配置
+     */
+    private Similarity similarity = new Similarity();
+
+    /**
+     * 推荐列表缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 批量推荐生成配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 混合推荐配置
+     */
+    private Hybrid hybrid = new Hybrid();
+
+    /**
+     * 商品热度榜配置
+     */
+    private Popularity popularity = new Popularity();
+
+    /**
+     * 过期推荐清理配置
+     */
+    private Purge purge = new Purge();
+
+    /**
+     * 相似度快照文件配置
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * 矩阵分解模型配置
+     */
+    private Als als = new Als();
+
+    @Data
+    public static class Similarity {
+
+        /**
+         * 用户相似度构建模式
+         */
+        private SimilarityMode mode = SimilarityMode.EXACT;
+
+        /**
+         * LSH band数量
+         */
+        private int lshBands = 16;
+
+        /**
+         * 每个band的MinHash值数量
+         */
+        private int lshRowsPerBand = 2;
+
+        /**
+         * 每个桶最多取出的候选数
+         */
+        private int lshMaxBucketSize = 1000;
+
+        /**
+         * MinHash哈希种子
+         */
+        private long lshSeed = 20240601L;
+
+        /**
+         * 是否开启增量更新
+         */
+        private boolean incrementalEnabled = true;
+
+        /**
+         * 增量更新轮询间隔（毫秒）
+         */
+        private long incrementalIntervalMs = 5000L;
+
+        /**
+         * 相似商品列表内存索引刷新间隔（毫秒）
+         */
+        private long neighborRefreshIntervalMs = 600000L;
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * 本地缓存最多保存的用户数
+         */
+        private long localMaximumSize = 100000L;
+
+        /**
+         * 本地缓存有效期（秒），多实例部署时也是其他实例失效通知的最大延迟
+         */
+        private long localTtlSeconds = 60L;
+
+        /**
+         * 是否启用Redis二级缓存
+         */
+        private boolean redisEnabled = true;
+
+        /**
+         * Redis缓存有效期（秒）
+         */
+        private long redisTtlSeconds = 1800L;
+
+        /**
+         * 每个用户缓存的推荐数量上限
+         */
+        private int maxItems = 100;
+
+        /**
+         * 本地缓存最多保存的商品卡片数
+         */
+        private long productCardMaximumSize = 50000L;
+
+        /**
+         * 商品卡片本地缓存有效期（秒）
+         */
+        private long productCardTtlSeconds = 600L;
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * 是否开启定时批量生成
+         */
+        private boolean enabled = true;
+
+        /**
+         * 定时批量生成的cron表达式
+         */
+        private String cron = "0 0 2 * * ?";
+
+        /**
+         * 工作线程数
+         */
+        private int threads = 4;
+
+        /**
+         * 每个分片的用户数
+         */
+        private int shardSize = 200;
+
+        /**
+         * 每个用户的推荐数量
+         */
+        private int limit = 20;
+
+        /**
+         * 参与生成的用户的活跃天数
+         */
+        private int activeDays = 30;
+
+        /**
+         * 共享数据加载缓存中每类数据的最大条目数
+         */
+        private long loaderCacheSize = 200000L;
+
+        /**
+         * 上次任务中断时是否从检查点继续
+         */
+        private boolean resume = true;
+    }
+
+    @Data
+    public static class Hybrid {
+
+        /**
+         * 基于用户的协同过滤得分权重
+         */
+        private float userWeight = 0.4f;
+
+        /**
+         * 基于商品的协同过滤得分权重
+         */
+        private float itemWeight = 0.4f;
+
+        /**
+         * 热门商品得分权重
+         */
+        private float popularWeight = 0.2f;
+
+        /**
+         * 参与混合的热门商品数量
+         */
+        private int popularCandidates = 100;
+    }
+
+    @Data
+    public static class Popularity {
+
+        /**
+         * 热度统计天数
+         */
+        private int days = 30;
+
+        /**
+         * 热度半衰期（天），一次互动的贡献每经过一个半衰期减半
+         */
+        private double halfLifeDays = 7.0;
+
+        /**
+         * 全站热度榜长度
+         */
+        private int topN = 500;
+
+        /**
+         * 每个分类热度榜长度
+         */
+        private int categoryTopN = 100;
+
+        /**
+         * 新品榜收录的上架天数
+         */
+        private int newProductDays = 30;
+
+        /**
+         * 热度榜刷新间隔（毫秒）
+         */
+        private long refreshIntervalMs = 600000L;
+    }
+
+    @Data
+    public static class Purge {
+
+        /**
+         * 是否开启定时清理
+         */
+        private boolean enabled = true;
+
+        /**
+         * 清理间隔（毫秒）
+         */
+        private long intervalMs = 3600000L;
+
+        /**
+         * 每段扫描的记录数
+         */
+        private int chunkSize = 5000;
+
+        /**
+         * 两段之间的暂停时间（毫秒）
+         */
+        private long pauseMs = 100L;
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * 是否在构建相似度矩阵时输出快照文件并优先从快照查询（开启用户相似度增量更新时不输出用户相似度快照）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 快照文件目录，多实例部署时应指向所有节点共享的目录
+         */
+        private String dir = "data/similarity";
+
+        /**
+         * 检查快照文件是否更新的间隔（毫秒）
+         */
+        private long refreshIntervalMs = 60000L;
+    }
+
+    @Data
+    public static class Als {
+
+        /**
+         * 是否定时训练矩阵分解模型并用于补充推荐
+         */
+        private boolean enabled = true;
+
+        /**
+         * 训练任务的执行时间
+         */
+        private String cron = "0 30 1 * * ?";
+
+        /**
+         * 训练数据天数
+         */
+        private int days = 90;
+
+        /**
+         * 隐因子维数
+         */
+        private int factors = 32;
+
+        /**
+         * 交替迭代轮数
+         */
+        private int iterations = 10;
+
+        /**
+         * L2正则化系数
+         */
+        private double regularization = 0.1;
+
+        /**
+         * 置信度系数，置信度 = 1 + alpha × log(1 + 行为权重之和)
+         */
+        private double alpha = 10.0;
+
+        /**
+         * 初始化随机种子
+         */
+        private long seed = 20240601L;
+
+        /**
+         * 模型文件路径，多实例部署时应指向所有节点共享的目录
+         */
+        private String file = "data/model/als.model";
+
+        /**
+         * 检查模型文件是否更新的间隔（毫秒）
+         */
+        private long refreshIntervalMs = 60000L;
+    }
+}
@@ -11,6 +11,11 @@ public class RecommendConstants {
      * 默认相似用户数量限制
      */
     public static final Integer DEFAULT_SIMILAR_USERS_LIMIT = 10;
+
+    /**
+     * 默认相似商品数量限制
+     */
+    public static final Integer DEFAULT_SIMILAR_PRODUCTS_LIMIT = 10;
     
     /**
      * 默认推荐用户数量限制
@@ -26,6 +31,11 @@ public class RecommendConstants {
      * 默认相似度过期天数
      */
     public static final Integer DEFAULT_SIMILARITY_EXPIRY_DAYS = 30;
+
+    /**
+     * 相似度保留的小数位数，与user_similarity、product_similarity表的similarity字段DECIMAL(8,7)一致
+     */
+    public static final int SIMILARITY_SCALE = 7;
     
     /**
      * 默认矩阵构建批处理大小
@@ -41,4 +51,79 @@ public class RecommendConstants {
      * 默认活跃天数
      */
     public static final Integer DEFAULT_ACTIVE_DAYS = 90;
+    
+    /**
+     * 每个用户保留的相似用户数量（相似度矩阵构建时使用）
+     */
+    public static final Integer DEFAULT_SIMILAR_USERS_TOP_K = 50;
+    
+    /**
+     * 每个商品保留的相似商品数量（商品相似度矩阵构建时使用）
+     */
+    public static final Integer DEFAULT_SIMILAR_PRODUCTS_TOP_K = 50;
+    
+    /**
+     * 构建商品相似度时单个用户参与计算的最多商品数，超过视为异常用户（爬虫、刷单）
+     */
+    public static final Integer MAX_USER_INTERACTIONS_FOR_ITEM_SIMILARITY = 1000;
+    
+    /**
+     * 浏览行为权重
+     */
+    public static final float BEHAVIOR_WEIGHT_VIEW = 1f;
+    
+    /**
+     * 加入购物车行为权重
+     */
+    public static final float BEHAVIOR_WEIGHT_CART = 5f;
+    
+    /**
+     * 收藏行为权重
+     */
+    public static final float BEHAVIOR_WEIGHT_FAVORITE = 8f;
+    
+    /**
+     * 购买行为权重
+     */
+    public static final float BEHAVIOR_WEIGHT_PURCHASE = 15f;
+    
+    /**
+     * 近似相似度模式召回率评估的默认抽样用户数
+     */
+    public static final Integer DEFAULT_LSH_EVALUATION_SAMPLE_SIZE = 1000;
+    
+    /**
+     * 增量更新用户相似度时每次轮询处理的最多购买记录数
+     */
+    public static final Integer INCREMENTAL_SIMILARITY_BATCH_SIZE = 500;
+    
+    /**
+     * 增量更新用户相似度时单个商品参与累加的最多购买用户数，超过视为爆款商品跳过
+     */
+    public static final Integer INCREMENTAL_SIMILARITY_MAX_FANOUT = 5000;
+    
+    /**
+     * 批量生成推荐时每次批量写入的最多推荐结果数
+     */
+    public static final Integer BATCH_RECOMMENDATION_WRITE_SIZE = 1000;
+    
+    /**
+     * 相似度分布统计的区间宽度
+     */
+    public static final BigDecimal SIMILARITY_HISTOGRAM_BUCKET_WIDTH = new BigDecimal("0.1");
+    
+    /**
+     * 分页查询高相似度用户对的默认每页数量
+     */
+    public static final Integer DEFAULT_SIMILARITY_PAIR_PAGE_SIZE = 500;
+    
+    /**
+     * 分页查询高相似度用户对的每页数量上限
+     */
+    public static final Integer MAX_SIMILARITY_PAIR_PAGE_SIZE = 5000;
+
+    /**
+     * 不分页查询高相似度用户对时最多返回的数量（保留相似度最高的部分）
+     */
+    public static final Integer MAX_HIGH_SIMILARITY_PAIRS = 1000;
 } 
\ No newline at end of file
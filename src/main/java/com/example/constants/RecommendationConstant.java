@@ -30,6 +30,11 @@ public class RecommendationConstant {
      */
     public static final int ALGORITHM_NEW_PRODUCT = 5;
     
+    /**
+     * 算法类型：矩阵分解（隐式反馈ALS）
+     */
+    public static final int ALGORITHM_MATRIX_FACTORIZATION = 6;
+    
     /**
      * 默认推荐过期时间（天）
      */
@@ -40,6 +45,11 @@ public class RecommendationConstant {
      */
     public static final int DEFAULT_RECOMMEND_LIMIT = 20;
     
+    /**
+     * 默认新品天数
+     */
+    public static final int DEFAULT_NEW_PRODUCT_DAYS = 30;
+    
     /**
      * 最低推荐分数阈值
      */
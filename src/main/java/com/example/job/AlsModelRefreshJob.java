@@ -0,0 +1,33 @@
+package com.example.job;
+
+import com.example.config.RecommendProperties;
+import com.example.recommend.AlsRecommender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 矩阵分解模型刷新任务
+ * 定时检查模型文件版本，其他节点训练出新模型后本节点无需重启即可切换
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlsModelRefreshJob {
+
+    private final AlsRecommender alsRecommender;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(fixedDelayString = "${app.recommend.als.refresh-interval-ms:60000}")
+    public void run() {
+        if (!recommendProperties.getAls().isEnabled()) {
+            return;
+        }
+        try {
+            alsRecommender.reload();
+        } catch (Exception e) {
+            log.error("刷新矩阵分解模型失败", e);
+        }
+    }
+}
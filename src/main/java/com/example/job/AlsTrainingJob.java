@@ -0,0 +1,33 @@
+package com.example.job;
+
+import com.example.config.RecommendProperties;
+import com.example.recommend.AlsRecommender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 矩阵分解模型训练任务
+ * 每天定时用最近的用户行为重新训练ALS模型并写出模型文件，其他节点由AlsModelRefreshJob切换到新版本
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlsTrainingJob {
+
+    private final AlsRecommender alsRecommender;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(cron = "${app.recommend.als.cron:0 30 1 * * ?}")
+    public void run() {
+        if (!recommendProperties.getAls().isEnabled()) {
+            return;
+        }
+        try {
+            alsRecommender.train();
+        } catch (Exception e) {
+            log.error("训练矩阵分解模型失败", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.job;
+
+import com.example.behavior.BehaviorCounterCoalescer;
+import com.example.config.BehaviorProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 行为计数写入任务
+ * 每个合并窗口把内存中累加的浏览、加购、购买次数写入计数汇总表
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BehaviorCounterFlushJob {
+
+    private final BehaviorCounterCoalescer behaviorCounterCoalescer;
+    private final BehaviorProperties behaviorProperties;
+
+    @Scheduled(fixedDelayString = "${app.behavior.counter.flush-interval-ms:5000}")
+    public void run() {
+        if (!behaviorProperties.getCounter().isEnabled()) {
+            return;
+        }
+        try {
+            int keys = behaviorCounterCoalescer.flush();
+            if (keys > 0) {
+                log.debug("写入行为计数: {}个用户-商品", keys);
+            }
+        } catch (Exception e) {
+            log.error("写入行为计数失败", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.job;
+
+import com.example.behavior.HotSearchKeywordTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热门搜索关键词维护任务
+ * 没有搜索时也按时结束到期的分桶，开启Redis时把已结束的分桶累加到Redis
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotSearchKeywordJob {
+
+    private final HotSearchKeywordTracker hotSearchKeywordTracker;
+
+    @Scheduled(fixedDelayString = "${app.behavior.hot-search.maintain-interval-ms:60000}")
+    public void run() {
+        if (!hotSearchKeywordTracker.isEnabled()) {
+            return;
+        }
+        try {
+            hotSearchKeywordTracker.maintain();
+        } catch (Exception e) {
+            log.error("维护热门搜索关键词统计失败", e);
+        }
+    }
+}
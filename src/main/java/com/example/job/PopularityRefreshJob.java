@@ -0,0 +1,28 @@
+package com.example.job;
+
+import com.example.recommend.PopularityEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品热度榜刷新任务
+ * 定时重新计算全站、分类热度榜和新品榜，刷新失败时继续使用上一次的结果
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityRefreshJob {
+
+    private final PopularityEngine popularityEngine;
+
+    @Scheduled(fixedDelayString = "${app.recommend.popularity.refresh-interval-ms:600000}")
+    public void run() {
+        try {
+            popularityEngine.refresh();
+        } catch (Exception e) {
+            log.error("刷新商品热度榜失败", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.job;
+
+import com.example.recommend.ProductNeighborIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 相似商品列表刷新任务
+ * 定时重新加载相似商品列表，使其他实例构建的相似度矩阵和商品上下架生效，加载失败时继续使用上一次的结果
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductNeighborRefreshJob {
+
+    private final ProductNeighborIndex productNeighborIndex;
+
+    @Scheduled(fixedDelayString = "${app.recommend.similarity.neighbor-refresh-interval-ms:600000}")
+    public void run() {
+        try {
+            productNeighborIndex.refresh();
+        } catch (Exception e) {
+            log.error("刷新相似商品列表失败", e);
+        }
+    }
+}
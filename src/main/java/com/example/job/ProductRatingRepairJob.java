@@ -0,0 +1,33 @@
+package com.example.job;
+
+import com.example.behavior.ProductRatingAggregator;
+import com.example.config.BehaviorProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品评分汇总校正任务
+ * 定时由行为记录分段重新计算商品的评分、评价数量和收藏人数
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductRatingRepairJob {
+
+    private final ProductRatingAggregator productRatingAggregator;
+    private final BehaviorProperties behaviorProperties;
+
+    @Scheduled(cron = "${app.behavior.rating.repair-cron:0 0 4 * * ?}")
+    public void run() {
+        if (!behaviorProperties.getRating().isRepairEnabled()) {
+            return;
+        }
+        try {
+            productRatingAggregator.repair();
+        } catch (Exception e) {
+            log.error("校正商品评分汇总失败", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.job;
+
+import com.example.config.RecommendProperties;
+import com.example.recommend.BatchRecommendationGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 个性化推荐批量生成任务
+ * 每天定时为近期活跃用户重新生成协同过滤推荐，上次任务中断时从检查点继续
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecommendationBatchJob {
+
+    private final BatchRecommendationGenerator batchRecommendationGenerator;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(cron = "${app.recommend.batch.cron:0 0 2 * * ?}")
+    public void run() {
+        RecommendProperties.Batch config = recommendProperties.getBatch();
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            batchRecommendationGenerator.generate(config.getLimit(), config.isResume());
+        } catch (Exception e) {
+            log.error("批量生成个性化推荐失败", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.job;
+
+import com.example.config.RecommendProperties;
+import com.example.recommend.ExpiredRecommendationPurger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 过期推荐清理任务
+ * 定时分段删除已过期的推荐结果
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecommendationPurgeJob {
+
+    private final ExpiredRecommendationPurger expiredRecommendationPurger;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(fixedDelayString = "${app.recommend.purge.interval-ms:3600000}")
+    public void run() {
+        if (!recommendProperties.getPurge().isEnabled()) {
+            return;
+        }
+        try {
+            expiredRecommendationPurger.purge();
+        } catch (Exception e) {
+            log.error("清理过期推荐失败", e);
+        }
+    }
+}
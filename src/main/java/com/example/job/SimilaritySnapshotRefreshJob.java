@@ -0,0 +1,33 @@
+package com.example.job;
+
+import com.example.config.RecommendProperties;
+import com.example.recommend.SimilaritySnapshotStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 相似度快照刷新任务
+ * 定时检查快照文件版本，其他节点构建出新快照后本节点无需重启即可切换
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SimilaritySnapshotRefreshJob {
+
+    private final SimilaritySnapshotStore similaritySnapshotStore;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(fixedDelayString = "${app.recommend.snapshot.refresh-interval-ms:60000}")
+    public void run() {
+        if (!recommendProperties.getSnapshot().isEnabled()) {
+            return;
+        }
+        try {
+            similaritySnapshotStore.reload();
+        } catch (Exception e) {
+            log.error("刷新相似度快照失败", e);
+        }
+    }
+}
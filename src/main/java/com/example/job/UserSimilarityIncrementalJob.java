@@ -0,0 +1,38 @@
+package com.example.job;
+
+import com.example.config.RecommendProperties;
+import com.example.constants.RecommendConstants;
+import com.example.recommend.IncrementalUserSimilarityUpdater;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户相似度增量更新任务
+ * 定时轮询新完成订单的购买记录并增量更新用户相似度，积压较多时连续处理直到追上
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSimilarityIncrementalJob {
+
+    private final IncrementalUserSimilarityUpdater incrementalUserSimilarityUpdater;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(fixedDelayString = "${app.recommend.similarity.incremental-interval-ms:5000}")
+    public void run() {
+        if (!recommendProperties.getSimilarity().isIncrementalEnabled()) {
+            return;
+        }
+        int batchSize = RecommendConstants.INCREMENTAL_SIMILARITY_BATCH_SIZE;
+        try {
+            int processed;
+            do {
+                processed = incrementalUserSimilarityUpdater.poll(batchSize);
+            } while (processed >= batchSize);
+        } catch (Exception e) {
+            log.error("增量更新用户相似度失败", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mapper;
+
+import com.example.model.dto.BehaviorCounterDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 行为计数汇总Mapper接口
+ */
+@Mapper
+public interface BehaviorCounterMapper {
+
+    /**
+     * 批量累加用户-商品行为计数（不存在则插入）
+     * @param list 计数增量列表，按(userId, productId)排序可减少并发写入时的死锁
+     * @return 影响行数
+     */
+    int batchUpsertUserProduct(@Param("list") List<BehaviorCounterDTO> list);
+
+    /**
+     * 批量累加商品行为计数（不存在则插入）
+     * @param list 计数增量列表，按productId排序
+     * @return 影响行数
+     */
+    int batchUpsertProduct(@Param("list") List<BehaviorCounterDTO> list);
+}
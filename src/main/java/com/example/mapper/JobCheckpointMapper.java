@@ -0,0 +1,33 @@
+package com.example.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.model.entity.JobCheckpoint;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务检查点Mapper接口
+ */
+@Mapper
+public interface JobCheckpointMapper extends BaseMapper<JobCheckpoint> {
+
+    /**
+     * 查询任务检查点
+     * @param jobName 任务名称
+     * @return 检查点，不存在则返回null
+     */
+    JobCheckpoint selectByJobName(@Param("jobName") String jobName);
+
+    /**
+     * 保存任务检查点（不存在则插入）
+     * @param jobName 任务名称
+     * @param checkpointTime 已处理数据的最大时间
+     * @param checkpointId 已处理数据在该时间内的最大ID
+     * @return 影响行数
+     */
+    int upsert(@Param("jobName") String jobName,
+               @Param("checkpointTime") LocalDateTime checkpointTime,
+               @Param("checkpointId") Long checkpointId);
+}
@@ -3,10 +3,12 @@ package com.example.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.model.dto.UserPurchaseDTO;
 import com.example.model.entity.OrderItem;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -120,4 +122,32 @@ public interface OrderItemMapper extends BaseMapper<OrderItem> {
      * @return 购买次数
      */
     Integer countUserProductPurchases(@Param("userId") Long userId, @Param("productId") Long productId);
+    
+    /**
+     * 流式扫描指定天数内已完成订单的购买记录（逐行回调，不在内存中缓存整个结果集）
+     * @param days 天数
+     * @param completedBefore 只扫描在该时间之前完成的订单（不包含），为空时不限；没有完成时间的历史订单总是包含
+     * @param handler 结果处理器
+     */
+    void scanUserPurchases(@Param("days") Integer days, @Param("completedBefore") LocalDateTime completedBefore,
+                           ResultHandler<UserPurchaseDTO> handler);
+    
+    /**
+     * 按(订单完成时间, 订单项ID)水位线查询新完成订单的购买记录
+     * @param sinceTime 水位线时间
+     * @param sinceId 水位线时间内已处理的最大订单项ID
+     * @param days 只返回指定天数内创建的订单（与全量构建的时间范围一致）
+     * @param limit 返回数量限制
+     * @return 按(订单完成时间, 订单项ID)升序排列的购买记录
+     */
+    List<UserPurchaseDTO> selectCompletedPurchasesAfter(@Param("sinceTime") LocalDateTime sinceTime,
+                                                        @Param("sinceId") Long sinceId,
+                                                        @Param("days") Integer days,
+                                                        @Param("limit") Integer limit);
+    
+    /**
+     * 查询数据库当前时间（订单完成时间由数据库写入，水位线需使用同一时钟）
+     * @return 数据库当前时间
+     */
+    LocalDateTime selectCurrentTime();
 } 
\ No newline at end of file
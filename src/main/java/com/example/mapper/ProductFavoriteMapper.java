@@ -0,0 +1,34 @@
+package com.example.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 商品收藏关系Mapper接口
+ */
+@Mapper
+public interface ProductFavoriteMapper {
+
+    /**
+     * 记录用户收藏商品，已收藏时忽略
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @return 影响行数，首次收藏时为1，已收藏时为0
+     */
+    int insertIgnore(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    /**
+     * 把源用户的收藏关系合并到目标用户（目标用户已收藏的商品忽略）
+     * @param sourceUserId 源用户ID
+     * @param targetUserId 目标用户ID
+     * @return 影响行数
+     */
+    int mergeUser(@Param("sourceUserId") Long sourceUserId, @Param("targetUserId") Long targetUserId);
+
+    /**
+     * 删除用户的收藏关系
+     * @param userId 用户ID
+     * @return 删除行数
+     */
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -3,12 +3,15 @@ package com.example.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.model.dto.ProductCardDTO;
 import com.example.model.entity.Product;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -158,4 +161,19 @@ public interface ProductMapper extends BaseMapper<Product> {
      * @return 商品列表
      */
     List<Product> selectByCategoryIds(@Param("categoryIds") List<Long> categoryIds);
+
+    /**
+     * 流式扫描在售商品的ID、分类和上架时间（按ID升序）
+     *
+     * @param handler 逐行处理结果，避免一次性加载到内存
+     */
+    void scanActiveProducts(ResultHandler<Product> handler);
+
+    /**
+     * 按ID批量查询商品卡片
+     *
+     * @param ids 商品ID列表
+     * @return 商品卡片列表，不存在的商品不返回
+     */
+    List<ProductCardDTO> selectCardsByIds(@Param("ids") Collection<Long> ids);
 } 
\ No newline at end of file
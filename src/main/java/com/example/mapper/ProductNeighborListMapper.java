@@ -0,0 +1,37 @@
+package com.example.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.model.entity.ProductNeighborList;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 商品相似商品列表Mapper接口
+ */
+@Mapper
+public interface ProductNeighborListMapper extends BaseMapper<ProductNeighborList> {
+
+    /**
+     * 批量写入商品相似商品列表（已存在则覆盖）
+     * @param list 相似商品列表
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("list") List<ProductNeighborList> list);
+
+    /**
+     * 删除指定时间之前构建的相似商品列表
+     * @param beforeTime 截止时间
+     * @return 影响行数
+     */
+    int deleteBeforeTime(@Param("beforeTime") LocalDateTime beforeTime);
+
+    /**
+     * 按商品ID升序流式读取全部相似商品列表
+     * @param handler 逐行处理结果
+     */
+    void scanAll(ResultHandler<ProductNeighborList> handler);
+}
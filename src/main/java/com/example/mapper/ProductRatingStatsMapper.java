@@ -0,0 +1,57 @@
+package com.example.mapper;
+
+import com.example.model.dto.ProductRatingStatsDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品评分汇总Mapper接口
+ */
+@Mapper
+public interface ProductRatingStatsMapper {
+
+    /**
+     * 查询商品评分汇总
+     * @param productId 商品ID
+     * @return 汇总数据，商品没有评分、评价和收藏时返回null
+     */
+    ProductRatingStatsDTO selectByProductId(@Param("productId") Long productId);
+
+    /**
+     * 累加一次评分
+     * @param productId 商品ID
+     * @param rating 评分
+     * @return 影响行数
+     */
+    int addRating(@Param("productId") Long productId, @Param("rating") BigDecimal rating);
+
+    /**
+     * 评价数量加一
+     * @param productId 商品ID
+     * @return 影响行数
+     */
+    int addReview(@Param("productId") Long productId);
+
+    /**
+     * 收藏人数加一
+     * @param productId 商品ID
+     * @return 影响行数
+     */
+    int addFavorite(@Param("productId") Long productId);
+
+    /**
+     * 由行为记录和收藏关系重新计算一段商品ID范围内的评分汇总
+     * @param afterProductId 起始商品ID（不包含）
+     * @param toProductId 结束商品ID（包含）
+     * @return 影响行数
+     */
+    int recomputeRange(@Param("afterProductId") Long afterProductId, @Param("toProductId") Long toProductId);
+
+    /**
+     * 查询最大商品ID
+     * @return 最大商品ID，没有商品时返回null
+     */
+    Long selectMaxProductId();
+}
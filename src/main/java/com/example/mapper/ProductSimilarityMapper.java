@@ -92,4 +92,4 @@ public interface ProductSimilarityMapper extends BaseMapper<ProductSimilarity> {
         @Param("categoryId") Long categoryId, 
         @Param("limit") Integer limit
     );
-} 
\ No newline at end of file
+}
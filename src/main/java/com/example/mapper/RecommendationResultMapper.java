@@ -4,7 +4,6 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.model.entity.RecommendationResult;
-import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -89,11 +88,23 @@ public interface RecommendationResultMapper extends BaseMapper<RecommendationRes
     int batchInsert(@Param("list") List<RecommendationResult> recommendationList);
     
     /**
-     * 删除过期的推荐结果
+     * 查询从指定ID开始按主键顺序的第offset + 1条记录ID
+     * @param fromId 起始ID（包含）
+     * @param offset 偏移量
+     * @return 记录ID，不足时返回null
+     */
+    Long selectIdAtOffset(@Param("fromId") Long fromId, @Param("offset") Integer offset);
+    
+    /**
+     * 删除ID区间内过期的推荐结果
+     * @param fromId 起始ID（包含）
+     * @param toId 结束ID（包含），为null时不限制
      * @param currentTime 当前时间
      * @return 影响行数
      */
-    int deleteExpiredRecommendations(@Param("currentTime") LocalDateTime currentTime);
+    int deleteExpiredInRange(@Param("fromId") Long fromId,
+                             @Param("toId") Long toId,
+                             @Param("currentTime") LocalDateTime currentTime);
     
     /**
      * 删除指定用户的所有推荐结果
@@ -109,6 +120,20 @@ public interface RecommendationResultMapper extends BaseMapper<RecommendationRes
      */
     int deleteByAlgorithmType(@Param("algorithmType") Integer algorithmType);
     
+    /**
+     * 删除指定用户在某时间之前生成的个性化推荐结果（算法类型1、2、3）
+     * @param userIds 用户ID列表
+     * @param beforeTime 时间点，此后生成或更新的推荐保留
+     * @return 影响行数
+     */
+    int deleteStalePersonalized(@Param("userIds") List<Long> userIds, @Param("beforeTime") LocalDateTime beforeTime);
+    
+    /**
+     * 查询数据库当前时间（推荐结果的create_time由数据库NOW()写入，与其比较的时间点需使用同一时钟）
+     * @return 数据库当前时间
+     */
+    LocalDateTime selectCurrentTime();
+    
     /**
      * 查询推荐分数高于特定值的商品
      * @param userId 用户ID
@@ -122,18 +147,6 @@ public interface RecommendationResultMapper extends BaseMapper<RecommendationRes
         @Param("limit") Integer limit
     );
     
-    /**
-     * 根据用户最近浏览商品生成的相似商品推荐
-     * @param productIds 最近浏览的商品ID列表
-     * @param limit 返回数量限制
-     * @return 相似商品推荐列表
-     */
-    @MapKey("productId")
-    Map<Long, Map<String, Object>> selectSimilarProductRecommendations(
-        @Param("productIds") List<Long> productIds, 
-        @Param("limit") Integer limit
-    );
-    
     /**
      * 分页查询用户的推荐商品
      * @param page 分页参数
@@ -147,4 +160,13 @@ public interface RecommendationResultMapper extends BaseMapper<RecommendationRes
      * @return 各算法类型的推荐结果数量
      */
     List<Map<String, Object>> selectAlgorithmTypeStats();
+    
+    /**
+     * 一次扫描统计推荐结果的有效期分布
+     * @param currentTime 当前时间
+     * @param soonTime 即将过期的截止时间
+     * @return total_count、expired_count、soon_expire_count、valid_count
+     */
+    Map<String, Object> selectExpiryHistogram(@Param("currentTime") LocalDateTime currentTime,
+                                              @Param("soonTime") LocalDateTime soonTime);
 } 
\ No newline at end of file
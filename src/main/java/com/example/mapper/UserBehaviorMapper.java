@@ -3,13 +3,17 @@ package com.example.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.model.dto.ProductEngagementDTO;
+import com.example.model.dto.UserInteractionDTO;
 import com.example.model.entity.UserBehavior;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -61,12 +65,16 @@ public interface UserBehaviorMapper extends BaseMapper<UserBehavior> {
     List<UserBehavior> selectByUserIdAndCategoryId(@Param("userId") Long userId, @Param("categoryId") Long categoryId, @Param("limit") Integer limit);
     
     /**
-     * 查询热门搜索关键词
+     * 查询时间范围内的热门搜索关键词
+     * @param startTime 开始时间（包含），为空时不限
+     * @param endTime 结束时间（不包含），为空时不限
      * @param limit 返回数量限制
      * @return 热门关键词列表，包含keyword、searchCount
      */
     @MapKey("keyword")
-    List<Map<String, Object>> selectHotSearchKeywords(@Param("limit") Integer limit);
+    List<Map<String, Object>> selectHotSearchKeywords(@Param("startTime") LocalDateTime startTime,
+                                                      @Param("endTime") LocalDateTime endTime,
+                                                      @Param("limit") Integer limit);
     
     /**
      * 查询商品的平均评分
@@ -83,7 +91,7 @@ public interface UserBehaviorMapper extends BaseMapper<UserBehavior> {
     Integer countReviewsByProductId(@Param("productId") Long productId);
     
     /**
-     * 查询某分类下的热门商品（基于用户行为）
+     * 查询某分类下的热门商品（读取商品行为计数汇总表product_counter）
      * @param categoryId 分类ID
      * @param limit 返回数量限制
      * @return 热门商品列表，包含productId、viewCount、cartCount、buyCount
@@ -150,4 +158,38 @@ public interface UserBehaviorMapper extends BaseMapper<UserBehavior> {
      * @return 搜索关键词列表
      */
     List<String> selectUserSearchHistory(@Param("userId") Long userId, @Param("limit") Integer limit);
+    
+    /**
+     * 流式扫描用户-商品交互记录（浏览、加购、收藏及已完成订单中的购买）
+     * @param days 统计最近多少天的数据
+     * @param handler 逐行处理结果，避免一次性加载到内存
+     */
+    void scanUserInteractions(@Param("days") Integer days, ResultHandler<UserInteractionDTO> handler);
+    
+    /**
+     * 批量查询多个用户最近浏览、收藏和购买的商品，每个用户每种行为各取最近的若干个
+     * @param userIds 用户ID列表
+     * @param viewLimit 每个用户的浏览商品数量上限
+     * @param favoriteLimit 每个用户的收藏商品数量上限
+     * @param purchaseLimit 每个用户的购买商品数量上限
+     * @return 按用户ID、行为类型、最近行为时间降序排列的交互记录（行为类型：1-浏览 4-收藏 8-购买）
+     */
+    List<UserInteractionDTO> selectBehaviorSnapshots(@Param("userIds") Collection<Long> userIds,
+                                                     @Param("viewLimit") Integer viewLimit,
+                                                     @Param("favoriteLimit") Integer favoriteLimit,
+                                                     @Param("purchaseLimit") Integer purchaseLimit);
+    
+    /**
+     * 流式扫描商品按天汇总的浏览、加购、收藏次数及已支付订单中的购买件数
+     * @param days 统计最近多少天的数据
+     * @param handler 逐行处理结果，避免一次性加载到内存
+     */
+    void scanProductEngagement(@Param("days") Integer days, ResultHandler<ProductEngagementDTO> handler);
+    
+    /**
+     * 批量插入行为记录（一条多行INSERT语句）
+     * @param list 行为记录列表
+     * @return 影响行数
+     */
+    int batchInsert(@Param("list") List<UserBehavior> list);
 } 
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.example.mapper;
+
+import com.example.model.dto.UserDailyActivityDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户每日活跃汇总Mapper接口
+ */
+@Mapper
+public interface UserDailyActivityMapper {
+
+    /**
+     * 批量累加用户每日行为次数（不存在则插入）
+     * @param list 每日行为次数增量，按(userId, activityDate)排序可减少并发写入时的死锁
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("list") List<UserDailyActivityDTO> list);
+
+    /**
+     * 批量查询用户从某天起的每日行为次数
+     * @param userIds 用户ID集合
+     * @param fromDate 起始日期（包含）
+     * @return 每日行为次数列表
+     */
+    List<UserDailyActivityDTO> selectByUserIds(@Param("userIds") Collection<Long> userIds,
+                                               @Param("fromDate") LocalDate fromDate);
+
+    /**
+     * 把源用户的每日行为次数累加到目标用户
+     * @param sourceUserId 源用户ID
+     * @param targetUserId 目标用户ID
+     * @return 影响行数
+     */
+    int mergeUser(@Param("sourceUserId") Long sourceUserId, @Param("targetUserId") Long targetUserId);
+
+    /**
+     * 删除用户的每日行为次数
+     * @param userId 用户ID
+     * @return 删除行数
+     */
+    int deleteByUserId(@Param("userId") Long userId);
+}
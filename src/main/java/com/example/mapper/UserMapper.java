@@ -151,4 +151,15 @@ public interface UserMapper extends BaseMapper<User> {
      * @return 活跃用户ID列表
      */
     List<Long> selectActiveUserIds(Integer days);
-} 
\ No newline at end of file
+
+    /**
+     * 按ID游标分页查询近期有浏览、加购、收藏或下单行为的启用用户ID
+     *
+     * @param afterId 上一页最后一个用户ID，从头开始时传0
+     * @param days 活跃天数
+     * @param limit 每页数量
+     * @return 按ID升序排列的用户ID列表
+     */
+    List<Long> selectActiveUserIdsAfter(@Param("afterId") Long afterId, @Param("days") Integer days,
+                                        @Param("limit") Integer limit);
+}
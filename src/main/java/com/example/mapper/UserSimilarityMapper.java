@@ -4,10 +4,13 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.model.entity.UserSimilarity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户相似度Mapper接口
@@ -59,6 +62,31 @@ public interface UserSimilarityMapper extends BaseMapper<UserSimilarity> {
      */
     List<UserSimilarity> selectByThreshold(@Param("threshold") BigDecimal threshold);
     
+    /**
+     * 按主键顺序分页查询高相似度用户对（两个方向都存在时只返回user_id_a较小的一条）
+     * 以上一页最后一条记录的(userIdA, userIdB)为起点沿主键向后扫描，不使用OFFSET
+     * @param threshold 相似度阈值
+     * @param afterUserIdA 上一页最后一条记录的用户A，从头开始时传0
+     * @param afterUserIdB 上一页最后一条记录的用户B，从头开始时传0
+     * @param limit 每页数量
+     * @return 按(user_id_a, user_id_b)升序排列的用户对
+     */
+    List<UserSimilarity> selectByThresholdAfter(@Param("threshold") BigDecimal threshold,
+                                                @Param("afterUserIdA") Long afterUserIdA,
+                                                @Param("afterUserIdB") Long afterUserIdB,
+                                                @Param("limit") Integer limit);
+    
+    /**
+     * 在数据库中按相似度区间分组计数，只返回有记录的区间
+     * @param beforeTime 只统计更新时间早于该时间的记录
+     * @param bucketWidth 区间宽度
+     * @param buckets 区间数量，相似度为1的记录计入最后一个区间
+     * @return bucket（区间序号，从0开始）、record_count
+     */
+    List<Map<String, Object>> selectSimilarityHistogram(@Param("beforeTime") LocalDateTime beforeTime,
+                                                        @Param("bucketWidth") BigDecimal bucketWidth,
+                                                        @Param("buckets") Integer buckets);
+    
     /**
      * 删除指定日期之前的相似度数据
      * @param beforeTime 截止时间
@@ -72,4 +100,26 @@ public interface UserSimilarityMapper extends BaseMapper<UserSimilarity> {
      * @return 相似度记录列表
      */
     List<UserSimilarity> selectAllByUserId(@Param("userId") Long userId);
+    
+    /**
+     * 批量更新已存在的相似度记录（不存在的记录不会被插入）
+     * @param similarityList 相似度列表
+     * @return 影响行数
+     */
+    int batchUpdateExisting(@Param("list") List<UserSimilarity> similarityList);
+    
+    /**
+     * 删除指定用户不在给定邻居集合中的相似度记录
+     * @param userId 用户ID（user_id_a）
+     * @param keepUserIds 保留的邻居用户ID（user_id_b），为空时删除该用户的全部记录
+     * @return 影响行数
+     */
+    int deleteByUserIdExcept(@Param("userId") Long userId, @Param("keepUserIds") Collection<Long> keepUserIds);
+    
+    /**
+     * 流式扫描邻居已满的用户的第K名相似度（userIdA为用户ID，similarity为其邻居中的最低相似度）
+     * @param topK 每个用户保留的邻居数量
+     * @param handler 结果处理器
+     */
+    void scanNeighborFloors(@Param("topK") Integer topK, ResultHandler<UserSimilarity> handler);
 } 
\ No newline at end of file
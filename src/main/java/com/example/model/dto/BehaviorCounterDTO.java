@@ -0,0 +1,40 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+/**
+ * 行为计数增量数据传输对象（写入用户-商品及商品行为计数汇总表）
+ */
+@Data
+public class BehaviorCounterDTO {
+
+    /**
+     * 用户ID（商品汇总时为空）
+     */
+    private Long userId;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 分类ID，为空时按商品表中的分类写入
+     */
+    private Long categoryId;
+
+    /**
+     * 浏览次数增量
+     */
+    private Integer viewCount;
+
+    /**
+     * 加购次数增量
+     */
+    private Integer cartCount;
+
+    /**
+     * 购买次数增量
+     */
+    private Integer buyCount;
+}
@@ -0,0 +1,42 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品卡片数据传输对象（推荐列表等场景展示商品所需的最少字段）
+ */
+@Data
+public class ProductCardDTO {
+
+    /**
+     * 商品ID
+     */
+    private Long id;
+
+    /**
+     * 商品名称
+     */
+    private String name;
+
+    /**
+     * 主图URL
+     */
+    private String imageMain;
+
+    /**
+     * 价格
+     */
+    private BigDecimal price;
+
+    /**
+     * 商品描述
+     */
+    private String description;
+
+    /**
+     * 商品状态：0-下架 1-上架
+     */
+    private Integer status;
+}
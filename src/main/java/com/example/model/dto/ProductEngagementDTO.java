@@ -0,0 +1,30 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+/**
+ * 商品按天汇总的互动次数数据传输对象（用于计算时间衰减的商品热度）
+ */
+@Data
+public class ProductEngagementDTO {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 行为类型：1-浏览 3-加入购物车 4-收藏 8-购买
+     */
+    private Integer behaviorType;
+
+    /**
+     * 距今天数
+     */
+    private Integer ageDays;
+
+    /**
+     * 次数（购买为购买件数）
+     */
+    private Long eventCount;
+}
@@ -0,0 +1,37 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品评分汇总数据传输对象
+ */
+@Data
+public class ProductRatingStatsDTO {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 评分总和
+     */
+    private BigDecimal ratingSum;
+
+    /**
+     * 评分次数
+     */
+    private Integer ratingCount;
+
+    /**
+     * 评价数量
+     */
+    private Integer reviewCount;
+
+    /**
+     * 收藏人数
+     */
+    private Integer favoriteCount;
+}
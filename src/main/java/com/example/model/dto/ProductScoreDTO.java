@@ -0,0 +1,20 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+/**
+ * 商品得分数据传输对象（用于热门商品等按得分排序的商品列表）
+ */
+@Data
+public class ProductScoreDTO {
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 得分
+     */
+    private Double score;
+}
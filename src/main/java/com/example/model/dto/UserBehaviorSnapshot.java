@@ -0,0 +1,46 @@
+package com.example.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户行为快照数据传输对象（用于推荐生成时批量获取多个用户的交互商品）
+ * 各数组按最近一次行为时间降序排列，没有对应行为时为空数组
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBehaviorSnapshot {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 最近浏览的商品ID
+     */
+    private long[] recentViewed;
+
+    /**
+     * 收藏的商品ID
+     */
+    private long[] favorites;
+
+    /**
+     * 已完成订单中购买的商品ID
+     */
+    private long[] purchased;
+
+    /**
+     * 创建没有任何行为的快照
+     * @param userId 用户ID
+     * @return 空快照
+     */
+    public static UserBehaviorSnapshot empty(Long userId) {
+        return new UserBehaviorSnapshot(userId, EMPTY, EMPTY, EMPTY);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 用户每日行为次数数据传输对象
+ */
+@Data
+public class UserDailyActivityDTO {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 日期
+     */
+    private LocalDate activityDate;
+
+    /**
+     * 行为次数（写入时为增量）
+     */
+    private Integer behaviorCount;
+}
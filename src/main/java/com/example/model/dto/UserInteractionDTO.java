@@ -0,0 +1,25 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+/**
+ * 用户-商品交互记录数据传输对象（用于批量构建商品相似度矩阵）
+ */
+@Data
+public class UserInteractionDTO {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 行为类型：1-浏览 3-加入购物车 4-收藏 8-购买
+     */
+    private Integer behaviorType;
+}
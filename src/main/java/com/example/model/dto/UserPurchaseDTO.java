@@ -0,0 +1,37 @@
+package com.example.model.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户购买记录数据传输对象（用于批量构建用户-商品矩阵）
+ */
+@Data
+public class UserPurchaseDTO {
+
+    /**
+     * 订单项ID（增量查询时返回）
+     */
+    private Long orderItemId;
+
+    /**
+     * 订单完成时间（增量查询时返回）
+     */
+    private LocalDateTime orderCompleteTime;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 购买数量
+     */
+    private Integer quantity;
+}
@@ -0,0 +1,46 @@
+package com.example.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 任务检查点实体类
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("job_checkpoint")
+public class JobCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 任务名称
+     */
+    @TableId(value = "job_name", type = IdType.INPUT)
+    private String jobName;
+
+    /**
+     * 已处理数据的最大时间
+     */
+    private LocalDateTime checkpointTime;
+
+    /**
+     * 已处理数据在该时间内的最大ID
+     */
+    private Long checkpointId;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -80,6 +80,11 @@ public class Order implements Serializable {
      */
     private LocalDateTime paymentTime;
     
+    /**
+     * 完成时间
+     */
+    private LocalDateTime completeTime;
+    
     /**
      * 创建时间
      */
@@ -0,0 +1,46 @@
+package com.example.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 商品相似商品列表实体类
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("product_neighbor_list")
+public class ProductNeighborList implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 商品ID
+     */
+    @TableId(value = "product_id", type = IdType.INPUT)
+    private Long productId;
+
+    /**
+     * 相似商品数量
+     */
+    private Integer neighborCount;
+
+    /**
+     * 相似商品列表，按相似商品ID升序，每项为8字节商品ID加4字节相似度（大端序）
+     */
+    private byte[] neighbors;
+
+    /**
+     * 构建时间
+     */
+    private LocalDateTime buildTime;
+}
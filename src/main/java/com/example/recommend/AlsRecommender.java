@@ -0,0 +1,140 @@
+package com.example.recommend;
+
+import com.example.config.RecommendProperties;
+import com.example.mapper.ProductMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 矩阵分解推荐
+ * 定时用最近的用户行为（与商品相似度相同的交互矩阵：浏览、加购、收藏、购买按行为权重累加后取对数）
+ * 训练隐式反馈ALS模型，只保留在售商品的因子，写为模型文件（见FactorModelFile）后各节点按文件头中的版本切换。
+ * 推荐时只做用户因子与商品因子的点积和Top-N选择，不访问数据库，可在请求中实时计算；
+ * 训练时没有行为数据的用户、模型未生成或未开启时返回空结果，调用方回退到其他推荐方式。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlsRecommender {
+
+    private final ProductSimilarityMatrixBuilder productSimilarityMatrixBuilder;
+    private final ProductMapper productMapper;
+    private final RecommendProperties recommendProperties;
+
+    private volatile FactorModel model;
+    private volatile boolean loaded;
+
+    /**
+     * 是否开启矩阵分解推荐
+     */
+    public boolean isEnabled() {
+        return recommendProperties.getAls().isEnabled();
+    }
+
+    /**
+     * 训练模型，写出模型文件并在本节点立即生效
+     * @return 模型中的用户数
+     */
+    public synchronized int train() throws IOException {
+        RecommendProperties.Als config = recommendProperties.getAls();
+        long start = System.currentTimeMillis();
+        SparseMatrix userItems = productSimilarityMatrixBuilder.loadInteractionMatrix(Math.max(1, config.getDays()));
+        long loadEnd = System.currentTimeMillis();
+        if (userItems.rows() == 0 || userItems.cols() == 0) {
+            log.info("没有用户交互数据，跳过训练矩阵分解模型");
+            return 0;
+        }
+
+        ImplicitAlsTrainer trainer = new ImplicitAlsTrainer(config.getFactors(), config.getRegularization(),
+                config.getAlpha(), config.getIterations(), config.getSeed());
+        ImplicitAlsTrainer.Factors factors = trainer.train(userItems, Runtime.getRuntime().availableProcessors());
+        long trainEnd = System.currentTimeMillis();
+
+        // 只有在售商品参与推荐
+        LongHashSet active = new LongHashSet(userItems.cols());
+        productMapper.scanActiveProducts(context -> active.add(context.getResultObject().getId()));
+        FactorModel trainedModel = FactorModel.of(userItems, factors, active::contains, start);
+        FactorModelFile.write(path(), trainedModel);
+        log.info("矩阵分解模型训练完成: 用户={}, 商品={}, 可推荐商品={}, 非零元素={}, 加载={}ms, 训练={}ms, 总耗时={}ms",
+                userItems.rows(), userItems.cols(), trainedModel.items(), userItems.nnz(),
+                loadEnd - start, trainEnd - loadEnd, System.currentTimeMillis() - start);
+        reload();
+        return trainedModel.users();
+    }
+
+    /**
+     * 检查模型文件，版本变化时重新映射
+     */
+    public synchronized void reload() {
+        Path file = path();
+        try {
+            long version = FactorModelFile.readVersion(file);
+            FactorModel current = model;
+            if (version < 0) {
+                if (current != null) {
+                    model = null;
+                    log.warn("矩阵分解模型文件已不存在，停止使用模型推荐");
+                }
+            } else if (current == null || current.version() != version) {
+                // 旧映射不主动释放，正在使用它的推荐可以继续完成，之后由GC回收
+                model = FactorModelFile.map(file);
+                log.info("矩阵分解模型切换到版本{}", version);
+            }
+        } catch (IOException e) {
+            log.error("加载矩阵分解模型失败，继续使用当前版本", e);
+        }
+        loaded = true;
+    }
+
+    /**
+     * 为用户推荐得分最高的未交互在售商品
+     * @param userId 用户ID
+     * @param limit 推荐数量，不超过输出数组长度
+     * @param productIds 商品ID输出数组
+     * @param scores 得分输出数组（按降序）
+     * @return 推荐数量
+     */
+    public int recommend(long userId, int limit, long[] productIds, float[] scores) {
+        FactorModel current = current();
+        return current == null ? 0 : current.recommend(userId, limit, productIds, scores);
+    }
+
+    /**
+     * 当前模型的版本与规模
+     */
+    public Map<String, Object> getStats() {
+        FactorModel current = model;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("version", current == null ? -1L : current.version());
+        stats.put("users", current == null ? 0 : current.users());
+        stats.put("items", current == null ? 0 : current.items());
+        stats.put("factors", current == null ? 0 : current.factors());
+        return stats;
+    }
+
+    private FactorModel current() {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+        return model;
+    }
+
+    private Path path() {
+        return Paths.get(recommendProperties.getAls().getFile());
+    }
+}
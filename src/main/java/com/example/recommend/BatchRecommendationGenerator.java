@@ -0,0 +1,232 @@
+package com.example.recommend;
+
+import com.example.cache.RecommendationListCache;
+import com.example.config.RecommendProperties;
+import com.example.constants.RecommendConstants;
+import com.example.mapper.JobCheckpointMapper;
+import com.example.mapper.RecommendationResultMapper;
+import com.example.mapper.UserMapper;
+import com.example.model.entity.JobCheckpoint;
+import com.example.model.entity.RecommendationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 个性化推荐批量生成器
+ * 为近期活跃的用户生成混合协同过滤推荐（合并基于用户、基于商品和热门商品三路候选，每个用户只写入一份列表）：
+ * 1. 按用户ID游标分页读取活跃用户，每页作为一个分片提交到固定大小的线程池，队列满时由提交线程自己执行，控制内存占用
+ * 2. 所有分片共享一个带缓存的数据加载器，相似用户的浏览/收藏列表在一次任务中只查询一次，相似商品列表直接读取内存索引
+ * 3. 每个分片分批写入推荐结果后，删除分片内用户在本次任务开始前生成的旧个性化推荐，再使其推荐列表缓存失效；
+ *    先写后删，用户在生成过程中不会看到空列表，也不持有长事务
+ * 4. 任务开始时间和已连续完成的最大用户ID记录在job_checkpoint表中，任务中断后可从该位置继续
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchRecommendationGenerator {
+
+    /**
+     * 检查点任务名称
+     */
+    public static final String JOB_NAME = "recommendation_batch";
+
+    private final UserMapper userMapper;
+    private final RecommendationResultMapper recommendationResultMapper;
+    private final JobCheckpointMapper jobCheckpointMapper;
+    private final RecommendationCalculator recommendationCalculator;
+    private final RecommendationDataLoader recommendationDataLoader;
+    private final RecommendationListCache recommendationListCache;
+    private final RecommendProperties recommendProperties;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /**
+     * 为全部活跃用户生成个性化推荐
+     * @param limit 每个用户的推荐数量，为null时使用配置值
+     * @param resume 上次任务未完成时是否从检查点继续
+     * @return 生成统计数据，已有任务在执行时返回running=true
+     */
+    public Map<String, Object> generate(Integer limit, boolean resume) {
+        Map<String, Object> stats = new HashMap<>();
+        if (!runLock.tryLock()) {
+            log.warn("批量推荐生成任务正在执行，跳过本次调用");
+            stats.put("running", true);
+            return stats;
+        }
+        try {
+            return doGenerate(limit, resume, stats);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private Map<String, Object> doGenerate(Integer limit, boolean resume, Map<String, Object> stats) {
+        RecommendProperties.Batch config = recommendProperties.getBatch();
+        int perUserLimit = limit != null && limit > 0 ? limit : config.getLimit();
+        int threads = Math.max(1, config.getThreads());
+        int shardSize = Math.max(1, config.getShardSize());
+
+        // 任务开始时间同时作为旧推荐的判断依据，续跑时沿用上次的开始时间，已写入的结果不会被当作旧数据删除；
+        // 推荐结果的create_time由数据库写入，开始时间同样取数据库时间，不受应用与数据库之间时钟偏差影响
+        JobCheckpoint checkpoint = jobCheckpointMapper.selectByJobName(JOB_NAME);
+        boolean resumed = resume && checkpoint != null && checkpoint.getCheckpointTime() != null;
+        LocalDateTime runStart;
+        long afterId;
+        if (resumed) {
+            runStart = checkpoint.getCheckpointTime();
+            afterId = checkpoint.getCheckpointId() == null ? 0L : checkpoint.getCheckpointId();
+            log.info("从检查点继续批量生成推荐: 开始时间={}, 已完成用户ID={}", runStart, afterId);
+        } else {
+            runStart = recommendationResultMapper.selectCurrentTime();
+            afterId = 0L;
+            jobCheckpointMapper.upsert(JOB_NAME, runStart, afterId);
+        }
+
+        RecommendationDataLoader loader = recommendationDataLoader.memoizing(config.getLoaderCacheSize());
+        ShardCounters counters = new ShardCounters();
+        long start = System.currentTimeMillis();
+        ThreadPoolExecutor executor = newExecutor(threads);
+        // 按提交顺序保存未完成的分片，只有前面的分片全部完成后才推进检查点
+        ArrayDeque<PendingShard> pending = new ArrayDeque<>();
+        try {
+            while (true) {
+                List<Long> userIds = userMapper.selectActiveUserIdsAfter(afterId, config.getActiveDays(), shardSize);
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
+                afterId = userIds.get(userIds.size() - 1);
+                Future<?> future = executor.submit(
+                        () -> processShard(userIds, perUserLimit, loader, runStart, counters));
+                pending.addLast(new PendingShard(afterId, future));
+                advanceCheckpoint(pending, runStart, false);
+                if (userIds.size() < shardSize) {
+                    break;
+                }
+            }
+            advanceCheckpoint(pending, runStart, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量推荐生成被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        jobCheckpointMapper.upsert(JOB_NAME, null, 0L);
+
+        long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+        long users = counters.users.sum();
+        stats.put("running", false);
+        stats.put("resumed", resumed);
+        stats.put("users", users);
+        stats.put("failed_users", counters.failedUsers.sum());
+        stats.put("recommendations", counters.recommendations.sum());
+        stats.put("elapsed_ms", elapsed);
+        stats.put("users_per_second", users * 1000.0 / elapsed);
+        log.info("批量推荐生成完成: 用户数={}, 失败用户数={}, 推荐数={}, 耗时={}ms, 吞吐={}用户/秒",
+                users, counters.failedUsers.sum(), counters.recommendations.sum(), elapsed,
+                String.format("%.1f", users * 1000.0 / elapsed));
+        return stats;
+    }
+
+    /**
+     * 处理一个分片：计算、分批写入、删除旧推荐、使缓存失效
+     */
+    private void processShard(List<Long> userIds, int limit, RecommendationDataLoader loader,
+                              LocalDateTime runStart, ShardCounters counters) {
+        int writeSize = RecommendConstants.BATCH_RECOMMENDATION_WRITE_SIZE;
+        LocalDateTime now = LocalDateTime.now();
+        List<RecommendationResult> buffer = new ArrayList<>(writeSize);
+        List<Long> completed = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            try {
+                List<RecommendationResult> results = recommendationCalculator.computeHybrid(userId, limit, loader, now);
+                buffer.addAll(results);
+                completed.add(userId);
+                counters.users.increment();
+                counters.recommendations.add(results.size());
+            } catch (RuntimeException e) {
+                counters.failedUsers.increment();
+                log.error("为用户{}批量生成推荐失败", userId, e);
+            }
+            if (buffer.size() >= writeSize) {
+                recommendationResultMapper.batchInsert(buffer);
+                buffer.clear();
+            }
+        }
+        if (!buffer.isEmpty()) {
+            recommendationResultMapper.batchInsert(buffer);
+        }
+        // 生成失败的用户保留原有推荐
+        if (!completed.isEmpty()) {
+            recommendationResultMapper.deleteStalePersonalized(completed, runStart);
+            recommendationListCache.evict(completed);
+        }
+    }
+
+    /**
+     * 移除队首已完成的分片并把检查点推进到最后一个连续完成的分片
+     * @param waitAll 是否等待全部分片完成
+     */
+    private void advanceCheckpoint(ArrayDeque<PendingShard> pending, LocalDateTime runStart, boolean waitAll)
+            throws InterruptedException {
+        Long completedId = null;
+        while (!pending.isEmpty() && (waitAll || pending.peekFirst().future.isDone())) {
+            PendingShard shard = pending.pollFirst();
+            try {
+                shard.future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("批量推荐生成分片执行失败，最后完成的用户ID为"
+                        + completedId, e.getCause());
+            }
+            completedId = shard.lastUserId;
+        }
+        if (completedId != null) {
+            jobCheckpointMapper.upsert(JOB_NAME, runStart, completedId);
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads) {
+        AtomicInteger sequence = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recommend-batch-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static final class PendingShard {
+
+        private final long lastUserId;
+        private final Future<?> future;
+
+        PendingShard(long lastUserId, Future<?> future) {
+            this.lastUserId = lastUserId;
+            this.future = future;
+        }
+    }
+
+    private static final class ShardCounters {
+
+        private final LongAdder users = new LongAdder();
+        private final LongAdder failedUsers = new LongAdder();
+        private final LongAdder recommendations = new LongAdder();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.recommend;
+
+/**
+ * 共现点积累加器
+ * 借助倒排索引（矩阵的转置），一次扫描即可求出某一行与所有存在共同列的行的点积，
+ * 没有任何共同列的行不会被访问，因此不会产生相似度为0的候选对。
+ * 内部使用按行下标寻址的基本类型数组，非线程安全，每个工作线程持有一个实例。
+ */
+public final class CoOccurrenceAccumulator {
+
+    private final double[] sums;
+    private final boolean[] seen;
+    private final int[] touched;
+    private int size;
+
+    public CoOccurrenceAccumulator(int rows) {
+        this.sums = new double[rows];
+        this.seen = new boolean[rows];
+        this.touched = new int[rows];
+    }
+
+    /**
+     * 累加指定行与其他行的点积
+     * @param matrix 原始矩阵（如用户-商品）
+     * @param inverted 倒排索引，即matrix.transpose()（如商品-用户）
+     * @param row 行下标
+     * @param upperOnly 为true时只累加下标大于row的行（每对只计算一次），否则累加除自身外的所有行
+     */
+    public void accumulate(SparseMatrix matrix, SparseMatrix inverted, int row, boolean upperOnly) {
+        accumulate(matrix, inverted, row, upperOnly, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 累加指定行与其他行的点积，跳过倒排列表过长的列
+     * 倒排列表长度为L的列会产生L²量级的累加次数，极少数超长列（如爆款商品、异常活跃用户）
+     * 对相似度的区分度很低，却会占据大部分计算量
+     * @param maxFanout 倒排列表长度上限
+     */
+    public void accumulate(SparseMatrix matrix, SparseMatrix inverted, int row, boolean upperOnly, int maxFanout) {
+        reset();
+        for (int p = matrix.rowStart(row); p < matrix.rowEnd(row); p++) {
+            int col = matrix.colAt(p);
+            if (inverted.rowEnd(col) - inverted.rowStart(col) > maxFanout) {
+                continue;
+            }
+            double weight = matrix.valueAt(p);
+            // 倒排列表内的行下标升序，从尾部向前扫描，只取上三角时可提前结束
+            for (int q = inverted.rowEnd(col) - 1; q >= inverted.rowStart(col); q--) {
+                int other = inverted.colAt(q);
+                if (other <= row) {
+                    if (upperOnly) {
+                        break;
+                    }
+                    if (other == row) {
+                        continue;
+                    }
+                }
+                if (!seen[other]) {
+                    seen[other] = true;
+                    touched[size++] = other;
+                }
+                sums[other] += weight * inverted.valueAt(q);
+            }
+        }
+    }
+
+    /**
+     * 本次累加涉及的候选行数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 第k个候选行的下标
+     */
+    public int neighborAt(int k) {
+        return touched[k];
+    }
+
+    /**
+     * 第k个候选行与当前行的点积
+     */
+    public double dotAt(int k) {
+        return sums[touched[k]];
+    }
+
+    private void reset() {
+        for (int k = 0; k < size; k++) {
+            int other = touched[k];
+            sums[other] = 0.0;
+            seen[other] = false;
+        }
+        size = 0;
+    }
+}
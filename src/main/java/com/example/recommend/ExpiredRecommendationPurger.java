@@ -0,0 +1,101 @@
+package com.example.recommend;
+
+import com.example.cache.RecommendationListCache;
+import com.example.config.RecommendProperties;
+import com.example.mapper.RecommendationResultMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 过期推荐清理器
+ * 按主键顺序把推荐结果表切分为固定行数的ID区间，逐段删除区间内的过期记录，每段之间暂停一段时间：
+ * 每条DELETE只锁定一小段主键范围、事务很短，不会长时间阻塞推荐写入和查询。
+ * 同一时间只执行一次清理，最近一次的清理结果保存在内存中供统计接口读取。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExpiredRecommendationPurger {
+
+    private final RecommendationResultMapper recommendationResultMapper;
+    private final RecommendationListCache recommendationListCache;
+    private final RecommendProperties recommendProperties;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private volatile Map<String, Object> lastRun = new HashMap<>();
+
+    /**
+     * 分段删除截至当前时间已过期的推荐
+     * @return 删除的记录数，已有清理在执行时返回0
+     */
+    public int purge() {
+        if (!runLock.tryLock()) {
+            log.warn("过期推荐清理正在执行，跳过本次调用");
+            return 0;
+        }
+        try {
+            return doPurge();
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * 最近一次清理的统计数据
+     */
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    private int doPurge() {
+        RecommendProperties.Purge config = recommendProperties.getPurge();
+        int chunkSize = Math.max(1, config.getChunkSize());
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+
+        long removed = 0;
+        int chunks = 0;
+        boolean interrupted = false;
+        long fromId = 0L;
+        while (true) {
+            // 区间终点为从fromId起的第chunkSize条记录，最后一段不足时不限制终点
+            Long toId = recommendationResultMapper.selectIdAtOffset(fromId, chunkSize - 1);
+            removed += recommendationResultMapper.deleteExpiredInRange(fromId, toId, now);
+            chunks++;
+            if (toId == null) {
+                break;
+            }
+            fromId = toId + 1;
+            if (config.getPauseMs() > 0) {
+                try {
+                    Thread.sleep(config.getPauseMs());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    break;
+                }
+            }
+        }
+        if (removed > 0) {
+            recommendationListCache.invalidateAll();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("run_time", now);
+        stats.put("removed", removed);
+        stats.put("chunks", chunks);
+        stats.put("elapsed_ms", elapsed);
+        stats.put("interrupted", interrupted);
+        lastRun = stats;
+        log.info("过期推荐清理完成: 删除={}, 分段={}, 耗时={}ms{}", removed, chunks, elapsed, interrupted ? "（被中断）" : "");
+        return (int) Math.min(Integer.MAX_VALUE, removed);
+    }
+}
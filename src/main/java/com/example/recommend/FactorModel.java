@@ -0,0 +1,210 @@
+package com.example.recommend;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.function.LongPredicate;
+
+/**
+ * 矩阵分解推荐模型
+ * 保存ALS训练得到的用户因子、可推荐商品的因子以及每个用户训练时已交互的商品，
+ * 推荐时取出用户因子与全部商品因子逐一计算float点积，跳过已交互商品后用定长最小堆选出得分最高的商品，不访问数据库。
+ * 用户ID、用户因子、已交互商品可以直接指向内存映射文件（见FactorModelFile），每次推荐都要完整扫描的商品因子保存在堆内数组中。
+ * 构建后只读，可在多个线程间共享。
+ */
+public final class FactorModel {
+
+    private final int factors;
+    private final long version;
+    private final LongBuffer userIds;
+    private final long[] itemIds;
+    private final IntBuffer seenOffsets;
+    private final IntBuffer seenItems;
+    private final FloatBuffer userFactors;
+    private final float[] itemFactors;
+
+    FactorModel(int factors, long version, LongBuffer userIds, long[] itemIds, IntBuffer seenOffsets,
+                IntBuffer seenItems, FloatBuffer userFactors, float[] itemFactors) {
+        this.factors = factors;
+        this.version = version;
+        this.userIds = userIds;
+        this.itemIds = itemIds;
+        this.seenOffsets = seenOffsets;
+        this.seenItems = seenItems;
+        this.userFactors = userFactors;
+        this.itemFactors = itemFactors;
+    }
+
+    /**
+     * 由训练结果构建模型，只保留可推荐的商品
+     * @param userItems 训练使用的用户-商品交互矩阵
+     * @param trained 训练得到的因子，下标与交互矩阵一致
+     * @param servable 商品是否可推荐（如是否在售）
+     * @param version 数据版本
+     * @return 模型
+     */
+    public static FactorModel of(SparseMatrix userItems, ImplicitAlsTrainer.Factors trained, LongPredicate servable,
+                                 long version) {
+        int factors = trained.factors();
+        // 交互矩阵的列下标 -> 模型中的商品下标，不可推荐的商品为-1；列按商品ID升序，映射后仍然升序
+        int[] itemIndex = new int[userItems.cols()];
+        int items = 0;
+        for (int col = 0; col < userItems.cols(); col++) {
+            itemIndex[col] = servable.test(userItems.colKey(col)) ? items++ : -1;
+        }
+        long[] itemIds = new long[items];
+        float[] itemFactors = new float[items * factors];
+        for (int col = 0; col < userItems.cols(); col++) {
+            int item = itemIndex[col];
+            if (item >= 0) {
+                itemIds[item] = userItems.colKey(col);
+                System.arraycopy(trained.items(), col * factors, itemFactors, item * factors, factors);
+            }
+        }
+
+        int users = userItems.rows();
+        long[] userIds = new long[users];
+        int[] seenOffsets = new int[users + 1];
+        int[] seenItems = new int[userItems.nnz()];
+        int seen = 0;
+        for (int row = 0; row < users; row++) {
+            userIds[row] = userItems.rowKey(row);
+            for (int p = userItems.rowStart(row); p < userItems.rowEnd(row); p++) {
+                int item = itemIndex[userItems.colAt(p)];
+                if (item >= 0) {
+                    seenItems[seen++] = item;
+                }
+            }
+            seenOffsets[row + 1] = seen;
+        }
+        return new FactorModel(factors, version, LongBuffer.wrap(userIds), itemIds, IntBuffer.wrap(seenOffsets),
+                IntBuffer.wrap(seenItems, 0, seen).slice(), FloatBuffer.wrap(trained.users()), itemFactors);
+    }
+
+    public int factors() {
+        return factors;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int users() {
+        return userIds.limit();
+    }
+
+    public int items() {
+        return itemIds.length;
+    }
+
+    /**
+     * 全部用户已交互的可推荐商品总数
+     */
+    public int seen() {
+        return seenItems.limit();
+    }
+
+    /**
+     * 用户在模型中的下标
+     * @param userId 用户ID
+     * @return 下标，训练时没有交互数据的用户返回-1
+     */
+    public int userIndex(long userId) {
+        int low = 0;
+        int high = userIds.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = userIds.get(mid);
+            if (key < userId) {
+                low = mid + 1;
+            } else if (key > userId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 为用户推荐得分最高的未交互商品
+     * @param userId 用户ID
+     * @param limit 推荐数量，不超过输出数组长度
+     * @param productIds 商品ID输出数组
+     * @param scores 得分输出数组（用户因子与商品因子的点积，按降序）
+     * @return 推荐数量，用户不在模型中时返回0
+     */
+    public int recommend(long userId, int limit, long[] productIds, float[] scores) {
+        int user = userIndex(userId);
+        if (user < 0 || limit <= 0 || itemIds.length == 0) {
+            return 0;
+        }
+        float[] vector = new float[factors];
+        userFactors.get(user * factors, vector);
+
+        // 已交互商品按下标升序，与商品扫描顺序一致，用一个指针跳过
+        int seenPos = seenOffsets.get(user);
+        int seenEnd = seenOffsets.get(user + 1);
+        int nextSeen = seenPos < seenEnd ? seenItems.get(seenPos++) : -1;
+        TopKHeap heap = new TopKHeap(Math.min(limit, itemIds.length));
+        for (int item = 0; item < itemIds.length; item++) {
+            if (item == nextSeen) {
+                nextSeen = seenPos < seenEnd ? seenItems.get(seenPos++) : -1;
+                continue;
+            }
+            heap.offer(item, dot(vector, itemFactors, item * factors, factors));
+        }
+
+        int[] items = new int[heap.size()];
+        int count = heap.drainDescending(items, scores);
+        for (int i = 0; i < count; i++) {
+            productIds[i] = itemIds[items[i]];
+        }
+        return count;
+    }
+
+    LongBuffer userIdBuffer() {
+        return userIds.duplicate();
+    }
+
+    long[] itemIds() {
+        return itemIds;
+    }
+
+    IntBuffer seenOffsetBuffer() {
+        return seenOffsets.duplicate();
+    }
+
+    IntBuffer seenItemBuffer() {
+        return seenItems.duplicate();
+    }
+
+    FloatBuffer userFactorBuffer() {
+        return userFactors.duplicate();
+    }
+
+    float[] itemFactors() {
+        return itemFactors;
+    }
+
+    /**
+     * 四路累加的float点积，减少循环依赖链，便于JIT展开
+     */
+    static float dot(float[] vector, float[] matrix, int offset, int length) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int k = 0;
+        for (; k + 3 < length; k += 4) {
+            s0 += vector[k] * matrix[offset + k];
+            s1 += vector[k + 1] * matrix[offset + k + 1];
+            s2 += vector[k + 2] * matrix[offset + k + 2];
+            s3 += vector[k + 3] * matrix[offset + k + 3];
+        }
+        for (; k < length; k++) {
+            s0 += vector[k] * matrix[offset + k];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
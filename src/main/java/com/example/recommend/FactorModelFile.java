@@ -0,0 +1,193 @@
+package com.example.recommend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 矩阵分解模型文件格式
+ * <pre>
+ * 文件头（32字节）：魔数 int | 格式版本 int | 数据版本 long | 用户数 int | 商品数 int | 因子维数 int | 已交互商品总数 int
+ * 用户ID       long[用户数]（升序）
+ * 商品ID       long[商品数]（升序）
+ * 已交互偏移   int[用户数 + 1]
+ * 已交互商品   int[已交互商品总数]（商品下标，每个用户内升序）
+ * 用户因子     float[用户数 × 因子维数]
+ * 商品因子     float[商品数 × 因子维数]
+ * </pre>
+ * 所有数值为小端序。写入方式与SimilaritySnapshotFile相同：先写临时文件并刷盘，再原子重命名覆盖正式文件。
+ * 读取时用户部分直接使用映射内存，商品因子复制到堆内数组。单个文件不超过2GB。
+ */
+public final class FactorModelFile {
+
+    private static final int MAGIC = 0x534C4146;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private FactorModelFile() {
+    }
+
+    /**
+     * 原子写入模型文件
+     * @param target 目标文件
+     * @param model 模型，文件头中的数据版本取model.version()
+     */
+    public static void write(Path target, FactorModel model) throws IOException {
+        int users = model.users();
+        int items = model.items();
+        int factors = model.factors();
+        int seen = model.seen();
+        long size = fileSize(users, items, factors, seen);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("factor model too large: " + size + " bytes");
+        }
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ORDER);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(model.version())
+                    .putInt(users).putInt(items).putInt(factors).putInt(seen);
+            LongBuffer userIds = model.userIdBuffer();
+            for (int i = 0; i < users; i++) {
+                buffer = ensure(channel, buffer, Long.BYTES).putLong(userIds.get(i));
+            }
+            long[] itemIds = model.itemIds();
+            for (int i = 0; i < items; i++) {
+                buffer = ensure(channel, buffer, Long.BYTES).putLong(itemIds[i]);
+            }
+            IntBuffer seenOffsets = model.seenOffsetBuffer();
+            for (int i = 0; i <= users; i++) {
+                buffer = ensure(channel, buffer, Integer.BYTES).putInt(seenOffsets.get(i));
+            }
+            IntBuffer seenItems = model.seenItemBuffer();
+            for (int i = 0; i < seen; i++) {
+                buffer = ensure(channel, buffer, Integer.BYTES).putInt(seenItems.get(i));
+            }
+            FloatBuffer userFactors = model.userFactorBuffer();
+            for (int i = 0, n = users * factors; i < n; i++) {
+                buffer = ensure(channel, buffer, Float.BYTES).putFloat(userFactors.get(i));
+            }
+            float[] itemFactors = model.itemFactors();
+            for (int i = 0, n = items * factors; i < n; i++) {
+                buffer = ensure(channel, buffer, Float.BYTES).putFloat(itemFactors[i]);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 映射模型文件
+     * @param file 模型文件
+     * @return 模型，用户部分直接读取映射内存
+     */
+    public static FactorModel map(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("invalid factor model size: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        mapped.order(ORDER);
+        long version = checkHeader(mapped, file);
+        int users = mapped.getInt(16);
+        int items = mapped.getInt(20);
+        int factors = mapped.getInt(24);
+        int seen = mapped.getInt(28);
+        if (users < 0 || items < 0 || factors <= 0 || seen < 0
+                || fileSize(users, items, factors, seen) != mapped.capacity()) {
+            throw new IOException("factor model size mismatch: " + file);
+        }
+        int userIdsAt = HEADER_BYTES;
+        int itemIdsAt = userIdsAt + users * Long.BYTES;
+        int seenOffsetsAt = itemIdsAt + items * Long.BYTES;
+        int seenItemsAt = seenOffsetsAt + (users + 1) * Integer.BYTES;
+        int userFactorsAt = seenItemsAt + seen * Integer.BYTES;
+        int itemFactorsAt = userFactorsAt + users * factors * Float.BYTES;
+
+        long[] itemIds = new long[items];
+        slice(mapped, itemIdsAt, items * Long.BYTES).asLongBuffer().get(itemIds);
+        float[] itemFactors = new float[items * factors];
+        slice(mapped, itemFactorsAt, items * factors * Float.BYTES).asFloatBuffer().get(itemFactors);
+        return new FactorModel(factors, version,
+                slice(mapped, userIdsAt, users * Long.BYTES).asLongBuffer(),
+                itemIds,
+                slice(mapped, seenOffsetsAt, (users + 1) * Integer.BYTES).asIntBuffer(),
+                slice(mapped, seenItemsAt, seen * Integer.BYTES).asIntBuffer(),
+                slice(mapped, userFactorsAt, users * factors * Float.BYTES).asFloatBuffer(),
+                itemFactors);
+    }
+
+    /**
+     * 只读取文件头中的数据版本，用于判断模型是否更新
+     * @param file 模型文件
+     * @return 数据版本，文件不存在时返回-1
+     */
+    public static long readVersion(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return -1L;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头
+            }
+            if (header.hasRemaining()) {
+                throw new IOException("invalid factor model header: " + file);
+            }
+            return checkHeader(header, file);
+        }
+    }
+
+    private static long checkHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("unsupported factor model: " + file);
+        }
+        return buffer.getLong(8);
+    }
+
+    private static long fileSize(int users, int items, int factors, int seen) {
+        return HEADER_BYTES + ((long) users + items) * Long.BYTES + ((long) users + 1 + seen) * Integer.BYTES
+                + ((long) users + items) * factors * Float.BYTES;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice().order(ORDER);
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
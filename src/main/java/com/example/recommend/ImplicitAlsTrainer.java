@@ -0,0 +1,285 @@
+package com.example.recommend;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 隐式反馈交替最小二乘（ALS）矩阵分解
+ * 按Hu、Koren、Volinsky的隐式反馈模型训练：交互矩阵中的值r视为偏好强度，置信度c = 1 + alpha·r，
+ * 有交互的偏好为1、其余为0。交替固定商品因子求解用户因子、固定用户因子求解商品因子，
+ * 每一行的求解为f×f的正规方程：(YᵀY + Σ(c-1)·y·yᵀ + λI)·x = Σc·y，
+ * 其中YᵀY对所有行相同，每半轮只计算一次，每行只需累加该行非零元素的贡献，再做一次Cholesky分解。
+ * 各行相互独立，在Fork/Join线程池上并行求解；计算使用double，结果保存为float。
+ */
+public final class ImplicitAlsTrainer {
+
+    /**
+     * 单个子任务求解的最大行数
+     */
+    private static final int LEAF_ROWS = 64;
+
+    /**
+     * 初始化因子的取值范围系数
+     */
+    private static final double INIT_SCALE = 0.1;
+
+    private final int factors;
+    private final double regularization;
+    private final double alpha;
+    private final int iterations;
+    private final long seed;
+    private final ThreadLocal<SolveWorkspace> workspaces;
+
+    /**
+     * @param factors 隐因子维数
+     * @param regularization L2正则化系数
+     * @param alpha 置信度系数
+     * @param iterations 交替迭代轮数
+     * @param seed 初始化随机种子
+     */
+    public ImplicitAlsTrainer(int factors, double regularization, double alpha, int iterations, long seed) {
+        if (factors <= 0 || iterations <= 0) {
+            throw new IllegalArgumentException("factors and iterations must be positive");
+        }
+        this.factors = factors;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.iterations = iterations;
+        this.seed = seed;
+        this.workspaces = ThreadLocal.withInitial(() -> new SolveWorkspace(factors));
+    }
+
+    /**
+     * 训练用户因子和商品因子
+     * @param userItems 用户-商品交互矩阵，值为偏好强度
+     * @param parallelism 并行度
+     * @return 因子矩阵，行下标与交互矩阵的行、列下标一致
+     */
+    public Factors train(SparseMatrix userItems, int parallelism) {
+        SparseMatrix itemUsers = userItems.transpose();
+        float[] userFactors = new float[userItems.rows() * factors];
+        float[] itemFactors = new float[userItems.cols() * factors];
+        SplittableRandom random = new SplittableRandom(seed);
+        double scale = INIT_SCALE / Math.sqrt(factors);
+        for (int i = 0; i < itemFactors.length; i++) {
+            itemFactors[i] = (float) ((random.nextDouble() * 2 - 1) * scale);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                solve(pool, userItems, itemFactors, userFactors);
+                solve(pool, itemUsers, userFactors, itemFactors);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new Factors(factors, userFactors, itemFactors);
+    }
+
+    /**
+     * 固定一侧因子，求解矩阵每一行对应的另一侧因子
+     */
+    private void solve(ForkJoinPool pool, SparseMatrix matrix, float[] fixed, float[] target) {
+        double[] gram = gram(fixed);
+        pool.invoke(new SolveTask(matrix, fixed, target, gram, 0, matrix.rows()));
+    }
+
+    /**
+     * 固定因子的Gram矩阵YᵀY，只计算下三角
+     */
+    private double[] gram(float[] fixed) {
+        double[] gram = new double[factors * factors];
+        for (int offset = 0; offset < fixed.length; offset += factors) {
+            for (int k = 0; k < factors; k++) {
+                double yk = fixed[offset + k];
+                int base = k * factors;
+                for (int l = 0; l <= k; l++) {
+                    gram[base + l] += yk * fixed[offset + l];
+                }
+            }
+        }
+        return gram;
+    }
+
+    /**
+     * 求解单行因子（在调用线程上执行）
+     */
+    private void solveRow(SparseMatrix matrix, int row, float[] fixed, float[] target, double[] gram,
+                          SolveWorkspace workspace) {
+        double[] a = workspace.a;
+        double[] b = workspace.b;
+        int out = row * factors;
+        int from = matrix.rowStart(row);
+        int to = matrix.rowEnd(row);
+        if (from == to) {
+            Arrays.fill(target, out, out + factors, 0f);
+            return;
+        }
+
+        System.arraycopy(gram, 0, a, 0, a.length);
+        Arrays.fill(b, 0.0);
+        for (int k = 0; k < factors; k++) {
+            a[k * factors + k] += regularization;
+        }
+        for (int p = from; p < to; p++) {
+            int offset = matrix.colAt(p) * factors;
+            double confidence = 1.0 + alpha * matrix.valueAt(p);
+            double extra = confidence - 1.0;
+            for (int k = 0; k < factors; k++) {
+                double yk = fixed[offset + k];
+                b[k] += confidence * yk;
+                double weighted = extra * yk;
+                int base = k * factors;
+                for (int l = 0; l <= k; l++) {
+                    a[base + l] += weighted * fixed[offset + l];
+                }
+            }
+        }
+
+        if (!cholesky(a, factors)) {
+            // 正则化系数为正时不会出现，保守起见退化为零向量
+            Arrays.fill(target, out, out + factors, 0f);
+            return;
+        }
+        solveInPlace(a, b, factors);
+        for (int k = 0; k < factors; k++) {
+            target[out + k] = (float) b[k];
+        }
+    }
+
+    /**
+     * 对称正定矩阵的Cholesky分解，结果L写回下三角
+     * @return 矩阵非正定时返回false
+     */
+    static boolean cholesky(double[] a, int n) {
+        for (int j = 0; j < n; j++) {
+            int rowJ = j * n;
+            double diagonal = a[rowJ + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[rowJ + k] * a[rowJ + k];
+            }
+            if (diagonal <= 0.0) {
+                return false;
+            }
+            double root = Math.sqrt(diagonal);
+            a[rowJ + j] = root;
+            for (int i = j + 1; i < n; i++) {
+                int rowI = i * n;
+                double sum = a[rowI + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= a[rowI + k] * a[rowJ + k];
+                }
+                a[rowI + j] = sum / root;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 用Cholesky因子L求解L·Lᵀ·x = b，结果写回b
+     */
+    static void solveInPlace(double[] l, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            int rowI = i * n;
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[rowI + k] * b[k];
+            }
+            b[i] = sum / l[rowI + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= l[k * n + i] * b[k];
+            }
+            b[i] = sum / l[i * n + i];
+        }
+    }
+
+    /**
+     * 训练结果：按行连续存放的用户因子和商品因子
+     */
+    public static final class Factors {
+
+        private final int factors;
+        private final float[] users;
+        private final float[] items;
+
+        Factors(int factors, float[] users, float[] items) {
+            this.factors = factors;
+            this.users = users;
+            this.items = items;
+        }
+
+        public int factors() {
+            return factors;
+        }
+
+        /**
+         * 用户因子，第row个用户位于[row·factors, (row+1)·factors)
+         */
+        public float[] users() {
+            return users;
+        }
+
+        /**
+         * 商品因子，第col个商品位于[col·factors, (col+1)·factors)
+         */
+        public float[] items() {
+            return items;
+        }
+    }
+
+    /**
+     * 单个工作线程复用的正规方程空间
+     */
+    private static final class SolveWorkspace {
+
+        private final double[] a;
+        private final double[] b;
+
+        SolveWorkspace(int factors) {
+            this.a = new double[factors * factors];
+            this.b = new double[factors];
+        }
+    }
+
+    /**
+     * 按行区间拆分的求解任务
+     */
+    private class SolveTask extends RecursiveAction {
+
+        private final SparseMatrix matrix;
+        private final float[] fixed;
+        private final float[] target;
+        private final double[] gram;
+        private final int from;
+        private final int to;
+
+        SolveTask(SparseMatrix matrix, float[] fixed, float[] target, double[] gram, int from, int to) {
+            this.matrix = matrix;
+            this.fixed = fixed;
+            this.target = target;
+            this.gram = gram;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_ROWS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SolveTask(matrix, fixed, target, gram, from, mid),
+                        new SolveTask(matrix, fixed, target, gram, mid, to));
+                return;
+            }
+            SolveWorkspace workspace = workspaces.get();
+            for (int row = from; row < to; row++) {
+                solveRow(matrix, row, fixed, target, gram, workspace);
+            }
+        }
+    }
+}
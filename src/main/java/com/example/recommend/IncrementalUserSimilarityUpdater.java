@@ -0,0 +1,347 @@
+package com.example.recommend;
+
+import com.example.constants.RecommendConstants;
+import com.example.mapper.JobCheckpointMapper;
+import com.example.mapper.OrderItemMapper;
+import com.example.mapper.UserSimilarityMapper;
+import com.example.model.dto.UserPurchaseDTO;
+import com.example.model.entity.JobCheckpoint;
+import com.example.model.entity.UserSimilarity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户相似度增量更新器
+ * 在最近一次全量构建的快照基础上，按(订单完成时间, 订单项ID)水位线轮询新完成订单的购买记录
+ * （与全量构建相同，只处理最近DEFAULT_ACTIVE_DAYS天内创建的订单）：
+ * 1. 更新受影响用户的购买向量与模，以及相关商品的购买用户列表（只在内存中保存变化部分）
+ * 2. 对每个受影响用户，借助商品的购买用户列表累加与所有共同购买者的点积，重新计算其Top-K邻居并替换原有记录
+ * 3. 共同购买者一侧的(共同购买者, 受影响用户)记录：相似度达到其第K名相似度时读取其现有邻居列表，
+ *    合并后重新取Top-K（淘汰被挤出的邻居并更新第K名相似度），否则只更新已存在的记录
+ * 水位线保存在job_checkpoint表中，重启后从上次位置继续；切换到新的全量构建快照时回退到快照加载时间
+ * （快照只包含加载时间之前完成的订单）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IncrementalUserSimilarityUpdater {
+
+    /**
+     * 检查点任务名称
+     */
+    public static final String JOB_NAME = "user_similarity_incremental";
+
+    private final OrderItemMapper orderItemMapper;
+    private final UserSimilarityMapper userSimilarityMapper;
+    private final JobCheckpointMapper jobCheckpointMapper;
+    private final UserSimilarityMatrixBuilder userSimilarityMatrixBuilder;
+
+    /**
+     * 当前维护的基础快照，以下状态均由poll所在线程在同步块内访问
+     */
+    private UserSimilaritySnapshot baseSnapshot;
+    private SparseMatrix inverted;
+    private final Map<Long, SparseVector> userOverlay = new HashMap<>();
+    private final Map<Long, SparseVector> productOverlay = new HashMap<>();
+    private final Map<Long, Float> floorOverlay = new HashMap<>();
+
+    /**
+     * 处理一批新完成订单的购买记录
+     * @param limit 本次最多处理的购买记录数
+     * @return 处理的购买记录数
+     */
+    public synchronized int poll(int limit) {
+        syncSnapshot();
+
+        JobCheckpoint checkpoint = jobCheckpointMapper.selectByJobName(JOB_NAME);
+        LocalDateTime sinceTime = baseSnapshot.loadTime();
+        long sinceId = 0L;
+        // 快照加载之前完成的订单已包含在矩阵中，水位线不早于快照加载时间；
+        // 切换快照时水位线已回退到快照加载时间，此后的检查点都属于当前快照
+        if (checkpoint != null && checkpoint.getCheckpointTime() != null
+                && !checkpoint.getCheckpointTime().isBefore(sinceTime)) {
+            sinceTime = checkpoint.getCheckpointTime();
+            sinceId = checkpoint.getCheckpointId() == null ? 0L : checkpoint.getCheckpointId();
+        }
+
+        List<UserPurchaseDTO> purchases = orderItemMapper.selectCompletedPurchasesAfter(
+                sinceTime, sinceId, RecommendConstants.DEFAULT_ACTIVE_DAYS, limit);
+        if (purchases.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return apply(purchases);
+        } catch (RuntimeException e) {
+            // 内存中的向量已包含本批数据而水位线未推进，丢弃增量状态，下次从快照重新开始
+            baseSnapshot = null;
+            throw e;
+        }
+    }
+
+    private int apply(List<UserPurchaseDTO> purchases) {
+        long startTime = System.currentTimeMillis();
+        Set<Long> affectedUsers = new LinkedHashSet<>();
+        for (UserPurchaseDTO purchase : purchases) {
+            if (purchase.getUserId() == null || purchase.getProductId() == null || purchase.getQuantity() == null) {
+                continue;
+            }
+            mutableUserVector(purchase.getUserId()).add(purchase.getProductId(), purchase.getQuantity());
+            mutableProductVector(purchase.getProductId()).add(purchase.getUserId(), purchase.getQuantity());
+            affectedUsers.add(purchase.getUserId());
+        }
+
+        LocalDateTime updateTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<UserSimilarity> upserts = new ArrayList<>();
+        List<UserSimilarity> updates = new ArrayList<>();
+        Map<Long, Set<Long>> neighborSets = new HashMap<>();
+        Map<Long, Map<Long, Float>> reverse = new HashMap<>();
+        for (Long userId : affectedUsers) {
+            refreshUser(userId, affectedUsers, updateTime, upserts, neighborSets, reverse);
+        }
+        reverse.forEach((coBuyer, scores) -> mergeReverse(coBuyer, scores, updateTime, upserts, updates, neighborSets));
+
+        int batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
+        for (int from = 0; from < upserts.size(); from += batchSize) {
+            userSimilarityMapper.batchInsert(upserts.subList(from, Math.min(from + batchSize, upserts.size())));
+        }
+        for (int from = 0; from < updates.size(); from += batchSize) {
+            userSimilarityMapper.batchUpdateExisting(updates.subList(from, Math.min(from + batchSize, updates.size())));
+        }
+        // 邻居列表已整体重算的用户，删除不再属于Top-K的旧记录
+        neighborSets.forEach(userSimilarityMapper::deleteByUserIdExcept);
+
+        UserPurchaseDTO last = purchases.get(purchases.size() - 1);
+        jobCheckpointMapper.upsert(JOB_NAME, last.getOrderCompleteTime(), last.getOrderItemId());
+        log.info("增量更新用户相似度完成，购买记录: {}, 受影响用户: {}, 写入: {}, 更新: {}, 重算列表: {}, 耗时: {}ms",
+                purchases.size(), affectedUsers.size(), upserts.size(), updates.size(), neighborSets.size(),
+                System.currentTimeMillis() - startTime);
+        return purchases.size();
+    }
+
+    /**
+     * 重新计算指定用户的邻居，并收集共同购买者一侧的新相似度
+     */
+    private void refreshUser(Long userId, Set<Long> affectedUsers, LocalDateTime updateTime,
+                             List<UserSimilarity> upserts, Map<Long, Set<Long>> neighborSets,
+                             Map<Long, Map<Long, Float>> reverse) {
+        SparseVector vector = userVector(userId);
+        if (vector == null || vector.norm() <= 0) {
+            return;
+        }
+
+        // 通过商品的购买用户列表累加点积
+        LongFloatHashMap dots = new LongFloatHashMap(vector.size() * 16);
+        for (int i = 0; i < vector.size(); i++) {
+            SparseVector buyers = productVector(vector.idAt(i));
+            if (buyers == null || buyers.size() > RecommendConstants.INCREMENTAL_SIMILARITY_MAX_FANOUT) {
+                continue;
+            }
+            float weight = vector.weightAt(i);
+            for (int j = 0; j < buyers.size(); j++) {
+                long other = buyers.idAt(j);
+                if (other != userId) {
+                    dots.addTo(other, weight * buyers.weightAt(j));
+                }
+            }
+        }
+
+        int topK = baseSnapshot.topK();
+        long[] candidates = new long[dots.size()];
+        float[] similarities = new float[dots.size()];
+        TopKHeap heap = new TopKHeap(topK);
+        int n = 0;
+        for (int slot = 0; slot < dots.capacity(); slot++) {
+            if (!dots.isUsed(slot)) {
+                continue;
+            }
+            long other = dots.keyAt(slot);
+            double similarity = dots.valueAt(slot) / (vector.norm() * userNorm(other));
+            candidates[n] = other;
+            similarities[n] = (float) Math.min(1.0, similarity);
+            heap.offer(n, similarities[n]);
+            n++;
+        }
+
+        int[] neighbors = new int[topK];
+        float[] neighborSimilarities = new float[topK];
+        int count = heap.drainDescending(neighbors, neighborSimilarities);
+        Set<Long> neighborSet = new HashSet<>(count * 2);
+        for (int k = 0; k < count; k++) {
+            upserts.add(record(userId, candidates[neighbors[k]], neighborSimilarities[k], updateTime));
+            neighborSet.add(candidates[neighbors[k]]);
+        }
+        neighborSets.put(userId, neighborSet);
+        floorOverlay.put(userId, count == topK ? neighborSimilarities[count - 1] : 0f);
+
+        // 受影响用户的向量变化后，共同购买者与其之间的相似度也随之变化；
+        // 共同购买者同样受影响时，其邻居列表已在本轮整体重算
+        for (int k = 0; k < n; k++) {
+            if (!affectedUsers.contains(candidates[k])) {
+                reverse.computeIfAbsent(candidates[k], key -> new HashMap<>()).put(userId, similarities[k]);
+            }
+        }
+    }
+
+    /**
+     * 写入共同购买者一侧的相似度：有相似度达到其第K名相似度时，与现有邻居列表合并后重新取Top-K，
+     * 被挤出的邻居随后删除；否则只更新已存在的记录，邻居列表长度不变
+     */
+    private void mergeReverse(Long coBuyer, Map<Long, Float> scores, LocalDateTime updateTime,
+                              List<UserSimilarity> upserts, List<UserSimilarity> updates,
+                              Map<Long, Set<Long>> neighborSets) {
+        float floor = neighborFloor(coBuyer);
+        boolean promoted = false;
+        for (float similarity : scores.values()) {
+            if (similarity >= floor) {
+                promoted = true;
+                break;
+            }
+        }
+        if (!promoted) {
+            scores.forEach((userId, similarity) -> updates.add(record(coBuyer, userId, similarity, updateTime)));
+            return;
+        }
+
+        int topK = baseSnapshot.topK();
+        Map<Long, Float> merged = new HashMap<>((topK + scores.size()) * 2);
+        for (UserSimilarity existing : userSimilarityMapper.selectMostSimilarUsers(coBuyer, topK)) {
+            if (existing.getSimilarity() != null) {
+                merged.put(existing.getUserIdB(), existing.getSimilarity().floatValue());
+            }
+        }
+        merged.putAll(scores);
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(merged.entrySet());
+        ranked.sort(Map.Entry.<Long, Float>comparingByValue().reversed());
+        int count = Math.min(topK, ranked.size());
+        Set<Long> neighborSet = new HashSet<>(count * 2);
+        for (int k = 0; k < count; k++) {
+            Map.Entry<Long, Float> entry = ranked.get(k);
+            upserts.add(record(coBuyer, entry.getKey(), entry.getValue(), updateTime));
+            neighborSet.add(entry.getKey());
+        }
+        neighborSets.put(coBuyer, neighborSet);
+        floorOverlay.put(coBuyer, count == topK ? ranked.get(count - 1).getValue() : 0f);
+    }
+
+    private UserSimilarity record(long userIdA, long userIdB, float similarity, LocalDateTime updateTime) {
+        return UserSimilarity.builder()
+                .userIdA(userIdA)
+                .userIdB(userIdB)
+                .similarity(UserSimilarityMatrixBuilder.toDecimal(similarity))
+                .updateTime(updateTime)
+                .build();
+    }
+
+    /**
+     * 切换到最新的全量构建快照；服务启动后尚未全量构建时，从数据库加载购买矩阵与各用户的第K名相似度
+     */
+    private void syncSnapshot() {
+        UserSimilaritySnapshot latest = userSimilarityMatrixBuilder.getLatestSnapshot();
+        if (latest != null && latest != baseSnapshot) {
+            reset(latest);
+            log.info("增量更新切换到新的用户相似度快照，加载时间: {}", latest.loadTime());
+        } else if (baseSnapshot == null) {
+            reset(loadSnapshot());
+        }
+    }
+
+    private UserSimilaritySnapshot loadSnapshot() {
+        LocalDateTime loadTime = orderItemMapper.selectCurrentTime();
+        SparseMatrix matrix = userSimilarityMatrixBuilder.loadPurchaseMatrix(RecommendConstants.DEFAULT_ACTIVE_DAYS, loadTime);
+        int topK = RecommendConstants.DEFAULT_SIMILAR_USERS_TOP_K;
+        float[] floors = new float[matrix.rows()];
+        userSimilarityMapper.scanNeighborFloors(topK, context -> {
+            UserSimilarity floor = context.getResultObject();
+            int row = matrix.rowIndex(floor.getUserIdA());
+            if (row >= 0 && floor.getSimilarity() != null) {
+                floors[row] = floor.getSimilarity().floatValue();
+            }
+        });
+        log.info("增量更新加载用户购买矩阵完成，用户数: {}, 非零元素: {}", matrix.rows(), matrix.nnz());
+        return new UserSimilaritySnapshot(matrix, floors, topK, loadTime);
+    }
+
+    /**
+     * 切换到快照并把水位线回退到快照加载时间：全量构建期间增量任务可能已把水位线推进到加载时间之后，
+     * 这段时间完成的订单不在新快照的矩阵中，需要在新快照上重新处理
+     */
+    private void reset(UserSimilaritySnapshot snapshot) {
+        jobCheckpointMapper.upsert(JOB_NAME, snapshot.loadTime(), 0L);
+        baseSnapshot = snapshot;
+        inverted = snapshot.matrix().transpose();
+        userOverlay.clear();
+        productOverlay.clear();
+        floorOverlay.clear();
+    }
+
+    private SparseVector userVector(long userId) {
+        SparseVector vector = userOverlay.get(userId);
+        if (vector != null) {
+            return vector;
+        }
+        int row = baseSnapshot.matrix().rowIndex(userId);
+        return row >= 0 ? SparseVector.ofRow(baseSnapshot.matrix(), row) : null;
+    }
+
+    private SparseVector productVector(long productId) {
+        SparseVector vector = productOverlay.get(productId);
+        if (vector != null) {
+            return vector;
+        }
+        int row = inverted.rowIndex(productId);
+        return row >= 0 ? SparseVector.ofRow(inverted, row) : null;
+    }
+
+    private SparseVector mutableUserVector(long userId) {
+        SparseVector vector = userOverlay.get(userId);
+        if (vector == null) {
+            vector = userVector(userId);
+            if (vector == null) {
+                vector = new SparseVector();
+            }
+            userOverlay.put(userId, vector);
+        }
+        return vector;
+    }
+
+    private SparseVector mutableProductVector(long productId) {
+        SparseVector vector = productOverlay.get(productId);
+        if (vector == null) {
+            vector = productVector(productId);
+            if (vector == null) {
+                vector = new SparseVector();
+            }
+            productOverlay.put(productId, vector);
+        }
+        return vector;
+    }
+
+    private double userNorm(long userId) {
+        SparseVector vector = userOverlay.get(userId);
+        if (vector != null) {
+            return vector.norm();
+        }
+        return baseSnapshot.matrix().norm(baseSnapshot.matrix().rowIndex(userId));
+    }
+
+    private float neighborFloor(long userId) {
+        Float floor = floorOverlay.get(userId);
+        if (floor != null) {
+            return floor;
+        }
+        int row = baseSnapshot.matrix().rowIndex(userId);
+        return row >= 0 ? baseSnapshot.neighborFloor(row) : 0f;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.recommend;
+
+import java.util.Arrays;
+
+/**
+ * long键到float值的开放寻址哈希表
+ * 用于推荐计算中按商品ID累加候选得分，键值保存在基本类型数组中，避免HashMap&lt;Long, Double&gt;的装箱开销。
+ * 槽位下标在扩容前保持不变，可作为TopKHeap的元素ID使用；非线程安全。
+ */
+public final class LongFloatHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private float[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongFloatHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 累加键的值，键不存在时以0为初值
+     * @return 累加后的值
+     */
+    public float addTo(long key, float delta) {
+        int slot = findOrInsert(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    public void put(long key, float value) {
+        values[findOrInsert(key)] = value;
+    }
+
+    /**
+     * 获取键的值，键不存在时返回defaultValue
+     */
+    public float get(long key, float defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 槽位总数，遍历时配合isUsed/keyAt/valueAt使用
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public float valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * 所有值中的最大值，表为空时返回0
+     */
+    public float maxValue() {
+        float max = 0f;
+        boolean first = true;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot] && (first || values[slot] > max)) {
+                max = values[slot];
+                first = false;
+            }
+        }
+        return max;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, 0f);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findOrInsert(long key) {
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+            return findOrInsert(key);
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        float[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot]) {
+                int target = hash(oldKeys[slot]) & mask;
+                while (used[target]) {
+                    target = (target + 1) & mask;
+                }
+                used[target] = true;
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new float[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.recommend;
+
+/**
+ * long元素的开放寻址哈希集合
+ * 用于推荐计算中记录需要排除的商品ID，避免HashSet&lt;Long&gt;的装箱开销；非线程安全。
+ */
+public final class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] elements;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 加入元素
+     * @return 元素原先不存在时返回true
+     */
+    public boolean add(long element) {
+        int slot = hash(element) & mask;
+        while (used[slot]) {
+            if (elements[slot] == element) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size + 1 > elements.length * LOAD_FACTOR) {
+            rehash(elements.length << 1);
+            return add(element);
+        }
+        used[slot] = true;
+        elements[slot] = element;
+        size++;
+        return true;
+    }
+
+    /**
+     * 批量加入数组前limit个元素
+     */
+    public void addAll(long[] source, int limit) {
+        for (int i = 0, n = Math.min(limit, source.length); i < n; i++) {
+            add(source[i]);
+        }
+    }
+
+    public boolean contains(long element) {
+        int slot = hash(element) & mask;
+        while (used[slot]) {
+            if (elements[slot] == element) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldElements = elements;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int slot = 0; slot < oldElements.length; slot++) {
+            if (oldUsed[slot]) {
+                add(oldElements[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        elements = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.recommend;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * MinHash + LSH近似近邻索引
+ * 对矩阵每一行的非零列集合计算 bands×rowsPerBand 个MinHash值，每 rowsPerBand 个值合并为一个分桶键，
+ * 两行在任意一个band中落入同一桶即成为候选对，只对候选对计算精确相似度。
+ * Jaccard相似度为s的两行成为候选的概率为 1-(1-s^r)^b，band越多召回越高，每个band的行数越多候选越少。
+ * 构建完成后只读，可被多个线程并发查询。
+ */
+public final class MinHashLshIndex {
+
+    private final int rows;
+    private final int bands;
+    private final int maxBucketSize;
+
+    /**
+     * 每个band内按(分桶键, 行下标)排序后的打包值：高32位为分桶键，低32位为行下标
+     */
+    private final long[][] sortedEntries;
+
+    /**
+     * 每个band内各行的分桶键
+     */
+    private final int[][] rowBucketKeys;
+
+    private MinHashLshIndex(int rows, int bands, int maxBucketSize, long[][] sortedEntries, int[][] rowBucketKeys) {
+        this.rows = rows;
+        this.bands = bands;
+        this.maxBucketSize = maxBucketSize;
+        this.sortedEntries = sortedEntries;
+        this.rowBucketKeys = rowBucketKeys;
+    }
+
+    /**
+     * 为矩阵的所有行建立索引
+     * @param matrix 稀疏矩阵，只使用非零列集合
+     * @param bands band数量
+     * @param rowsPerBand 每个band包含的MinHash值数量
+     * @param maxBucketSize 单次查询从每个桶中最多取出的候选数，避免热门商品形成的超大桶退化为全量比较
+     * @param seed 哈希种子
+     */
+    public static MinHashLshIndex build(SparseMatrix matrix, int bands, int rowsPerBand, int maxBucketSize, long seed) {
+        if (bands <= 0 || rowsPerBand <= 0 || maxBucketSize <= 0) {
+            throw new IllegalArgumentException("bands, rowsPerBand and maxBucketSize must be positive");
+        }
+        int rows = matrix.rows();
+        int hashes = bands * rowsPerBand;
+        long[] hashSeeds = new long[hashes];
+        for (int h = 0; h < hashes; h++) {
+            hashSeeds[h] = mix64(seed + 0x9E3779B97F4A7C15L * (h + 1));
+        }
+
+        int[][] rowBucketKeys = new int[bands][rows];
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            int[] signature = new int[hashes];
+            Arrays.fill(signature, Integer.MAX_VALUE);
+            for (int p = matrix.rowStart(row); p < matrix.rowEnd(row); p++) {
+                long key = matrix.colKey(matrix.colAt(p));
+                for (int h = 0; h < hashes; h++) {
+                    int value = (int) (mix64(key ^ hashSeeds[h]) >>> 33);
+                    if (value < signature[h]) {
+                        signature[h] = value;
+                    }
+                }
+            }
+            for (int band = 0; band < bands; band++) {
+                long bucket = band;
+                for (int h = band * rowsPerBand; h < (band + 1) * rowsPerBand; h++) {
+                    bucket = mix64(bucket * 31 + signature[h]);
+                }
+                rowBucketKeys[band][row] = (int) bucket;
+            }
+        });
+
+        long[][] sortedEntries = new long[bands][];
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            long[] entries = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                entries[row] = pack(rowBucketKeys[band][row], row);
+            }
+            Arrays.sort(entries);
+            sortedEntries[band] = entries;
+        });
+        return new MinHashLshIndex(rows, bands, maxBucketSize, sortedEntries, rowBucketKeys);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    /**
+     * 单行候选数量的上限，可用于分配候选输出数组
+     */
+    public int maxCandidates() {
+        return (int) Math.min(rows, (long) bands * maxBucketSize);
+    }
+
+    /**
+     * 收集与指定行至少在一个band中同桶的候选行（不含自身，已去重）
+     * @param row 行下标
+     * @param marks 去重标记数组，长度为rows()，由调用方复用；marks[i] == row + 1 表示已收集
+     * @param out 候选输出数组，长度不小于maxCandidates()
+     * @return 候选数量
+     */
+    public int collectCandidates(int row, int[] marks, int[] out) {
+        int stamp = row + 1;
+        int count = 0;
+        int half = maxBucketSize >>> 1;
+        for (int band = 0; band < bands; band++) {
+            long[] entries = sortedEntries[band];
+            int key = rowBucketKeys[band][row];
+            int pos = Arrays.binarySearch(entries, pack(key, row));
+            // 以自身位置为中心向两侧扩展，超大桶只取邻近的一部分
+            int lower = pos;
+            while (lower > 0 && pos - lower < half && bucketKey(entries[lower - 1]) == key) {
+                lower--;
+            }
+            int upper = pos + 1;
+            while (upper < entries.length && upper - pos <= half && bucketKey(entries[upper]) == key) {
+                upper++;
+            }
+            for (int p = lower; p < upper; p++) {
+                int other = (int) entries[p];
+                if (other != row && marks[other] != stamp) {
+                    marks[other] = stamp;
+                    out[count++] = other;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long pack(int bucketKey, int row) {
+        return ((long) bucketKey << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static int bucketKey(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * 64位混合函数（SplitMix64终结步骤）
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
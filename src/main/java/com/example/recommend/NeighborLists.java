@@ -0,0 +1,440 @@
+package com.example.recommend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * 只读的相似列表（压缩行存储）
+ * 行ID升序排列，每行的相似对象连续存放在neighborIds/scores中，由offsets划分区间。
+ * 数据保存在基本类型缓冲区中，既可以是堆内数组，也可以是内存映射的快照文件（见SimilaritySnapshotFile），
+ * 查询只做绝对位置读取，不创建对象。
+ * 商品相似商品列表每行按相似商品ID升序，多个商品的列表合并时用小顶堆做k路归并，
+ * 同一候选商品在各列表中的相似度一次累加完成，不需要哈希表；用户相似用户列表每行按相似度降序，直接取前缀。
+ */
+public final class NeighborLists {
+
+    /**
+     * 持久化格式中每个相似商品占用的字节数：8字节商品ID + 4字节相似度
+     */
+    public static final int ENTRY_BYTES = 12;
+
+    private static final NeighborLists EMPTY = new NeighborLists(LongBuffer.allocate(0), IntBuffer.allocate(1),
+            LongBuffer.allocate(0), FloatBuffer.allocate(0), 0L, null);
+
+    private final LongBuffer productIds;
+    private final IntBuffer offsets;
+    private final LongBuffer neighborIds;
+    private final FloatBuffer scores;
+    private final int rows;
+    private final long version;
+    private final LongPredicate accept;
+
+    NeighborLists(LongBuffer productIds, IntBuffer offsets, LongBuffer neighborIds, FloatBuffer scores,
+                  long version, LongPredicate accept) {
+        this.productIds = productIds;
+        this.offsets = offsets;
+        this.neighborIds = neighborIds;
+        this.scores = scores;
+        this.rows = productIds.limit();
+        this.version = version;
+        this.accept = accept;
+    }
+
+    public static NeighborLists empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(int expectedProducts) {
+        return new Builder(expectedProducts);
+    }
+
+    /**
+     * 共享同一份数据、只保留accept返回true的相似对象的视图
+     * @param accept 相似对象过滤条件
+     */
+    public NeighborLists filtered(LongPredicate accept) {
+        LongPredicate combined = this.accept == null ? accept : this.accept.and(accept);
+        return new NeighborLists(productIds, offsets, neighborIds, scores, version, combined);
+    }
+
+    /**
+     * 有相似列表的行数
+     */
+    public int products() {
+        return rows;
+    }
+
+    /**
+     * 相似对象总数（过滤前）
+     */
+    public int neighbors() {
+        return neighborIds.limit();
+    }
+
+    /**
+     * 数据版本，从快照文件映射时为构建时间戳，堆内构建时为0
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 行的相似对象数量（过滤前），行不存在时返回0
+     */
+    public int neighborCount(long productId) {
+        int index = indexOf(productId);
+        return index < 0 ? 0 : offsets.get(index + 1) - offsets.get(index);
+    }
+
+    /**
+     * 多行的相似对象数量之和，即合并结果数量的上限
+     */
+    public int neighborCount(long[] productIds, int count) {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += neighborCount(productIds[i]);
+        }
+        return total;
+    }
+
+    /**
+     * 把一行的相似对象按存储顺序复制到调用方提供的数组中
+     * @param key 行ID
+     * @param limit 最多复制的数量，同时不超过数组长度
+     * @param ids 相似对象ID
+     * @param similarities 相似度
+     * @return 复制的数量，行不存在时返回0
+     */
+    public int copyRow(long key, int limit, long[] ids, float[] similarities) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return 0;
+        }
+        int max = Math.min(limit, Math.min(ids.length, similarities.length));
+        int count = 0;
+        for (int pos = offsets.get(index), end = offsets.get(index + 1); pos < end && count < max; pos++) {
+            long id = neighborIds.get(pos);
+            if (accept == null || accept.test(id)) {
+                ids[count] = id;
+                similarities[count] = scores.get(pos);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 合并多个商品的相似商品列表（要求每行按相似商品ID升序）
+     * 按相似商品ID升序输出每个候选商品一次，得分为它在各列表中的相似度之和
+     * @param sources 源商品ID
+     * @param sourceCount 参与合并的源商品数量（取数组前缀）
+     * @param excluded 需要排除的商品，可为null
+     * @param sink 接收合并结果
+     * @return 输出的候选商品数量
+     */
+    public int merge(long[] sources, int sourceCount, LongHashSet excluded, MergeSink sink) {
+        int[] position = new int[sourceCount];
+        int[] end = new int[sourceCount];
+        // 堆中保存列表下标，按列表当前位置的相似商品ID排序
+        int[] heap = new int[sourceCount];
+        int heapSize = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            int index = indexOf(sources[i]);
+            if (index >= 0 && offsets.get(index) < offsets.get(index + 1)) {
+                position[heapSize] = offsets.get(index);
+                end[heapSize] = offsets.get(index + 1);
+                heap[heapSize] = heapSize;
+                heapSize++;
+            }
+        }
+        for (int i = (heapSize >>> 1) - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, position);
+        }
+
+        int emitted = 0;
+        while (heapSize > 0) {
+            long candidate = neighborIds.get(position[heap[0]]);
+            float score = 0f;
+            int hits = 0;
+            while (heapSize > 0 && neighborIds.get(position[heap[0]]) == candidate) {
+                int list = heap[0];
+                score += scores.get(position[list]);
+                hits++;
+                if (++position[list] < end[list]) {
+                    siftDown(heap, heapSize, 0, position);
+                } else if (--heapSize > 0) {
+                    heap[0] = heap[heapSize];
+                    siftDown(heap, heapSize, 0, position);
+                }
+            }
+            if ((excluded == null || !excluded.contains(candidate)) && (accept == null || accept.test(candidate))) {
+                sink.accept(emitted++, candidate, score, hits);
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * 写出为快照文件的各段数据（供SimilaritySnapshotFile使用）
+     */
+    LongBuffer keyBuffer() {
+        return productIds.duplicate();
+    }
+
+    IntBuffer offsetBuffer() {
+        return offsets.duplicate();
+    }
+
+    LongBuffer neighborIdBuffer() {
+        return neighborIds.duplicate();
+    }
+
+    FloatBuffer scoreBuffer() {
+        return scores.duplicate();
+    }
+
+    private int indexOf(long key) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = productIds.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void siftDown(int[] heap, int size, int index, int[] position) {
+        int list = heap[index];
+        long key = neighborIds.get(position[list]);
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && neighborIds.get(position[heap[child + 1]]) < neighborIds.get(position[heap[child]])) {
+                child++;
+            }
+            if (neighborIds.get(position[heap[child]]) >= key) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = list;
+    }
+
+    /**
+     * 把一个商品的相似商品编码为持久化格式，按相似商品ID升序排列
+     * @param neighborIds 相似商品ID
+     * @param scores 相似度，与neighborIds按下标对应
+     * @param count 相似商品数量
+     * @return 编码结果，长度为count * ENTRY_BYTES
+     */
+    public static byte[] encode(long[] neighborIds, float[] scores, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(neighborIds[a], neighborIds[b]));
+        ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_BYTES);
+        for (int i : order) {
+            buffer.putLong(neighborIds[i]).putFloat(scores[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 合并结果的接收者
+     */
+    @FunctionalInterface
+    public interface MergeSink {
+
+        /**
+         * @param ordinal 候选商品的输出序号（从0开始）
+         * @param productId 候选商品ID
+         * @param score 在各列表中的相似度之和
+         * @param hits 出现在多少个列表中
+         */
+        void accept(int ordinal, long productId, float score, int hits);
+    }
+
+    /**
+     * 创建按矩阵行收集Top-K结果的收集器，供相似度构建引擎在并行计算时使用
+     * @param matrix 参与计算的矩阵，行ID升序
+     * @param sortById 每行是否按相似对象ID升序保存（商品相似列表需要归并），否则保持相似度降序
+     */
+    public static RowCollector collector(SparseMatrix matrix, boolean sortById) {
+        return new RowCollector(matrix, sortById);
+    }
+
+    /**
+     * 并行计算结果的收集器：不同线程写入不同的行，计算全部结束后按行ID顺序构建
+     */
+    public static final class RowCollector {
+
+        private final SparseMatrix matrix;
+        private final boolean sortById;
+        private final long[][] ids;
+        private final float[][] similarities;
+
+        private RowCollector(SparseMatrix matrix, boolean sortById) {
+            this.matrix = matrix;
+            this.sortById = sortById;
+            this.ids = new long[matrix.rows()][];
+            this.similarities = new float[matrix.rows()][];
+        }
+
+        /**
+         * 保存一行的Top-K结果
+         * @param row 行下标
+         * @param neighbors 邻居行下标（按相似度降序）
+         * @param scores 相似度
+         * @param count 有效元素数量
+         */
+        public void set(int row, int[] neighbors, float[] scores, int count) {
+            long[] rowIds = new long[count];
+            float[] rowScores = new float[count];
+            for (int k = 0; k < count; k++) {
+                rowIds[k] = matrix.rowKey(neighbors[k]);
+                rowScores[k] = scores[k];
+            }
+            if (sortById) {
+                sortById(rowIds, rowScores);
+            }
+            ids[row] = rowIds;
+            similarities[row] = rowScores;
+        }
+
+        public NeighborLists build() {
+            Builder builder = new Builder(ids.length);
+            for (int row = 0; row < ids.length; row++) {
+                if (ids[row] != null) {
+                    builder.add(matrix.rowKey(row), ids[row], similarities[row], ids[row].length);
+                }
+            }
+            return builder.build();
+        }
+
+        private static void sortById(long[] rowIds, float[] rowScores) {
+            // 每行最多K个元素，插入排序即可
+            for (int i = 1; i < rowIds.length; i++) {
+                long id = rowIds[i];
+                float score = rowScores[i];
+                int j = i - 1;
+                while (j >= 0 && rowIds[j] > id) {
+                    rowIds[j + 1] = rowIds[j];
+                    rowScores[j + 1] = rowScores[j];
+                    j--;
+                }
+                rowIds[j + 1] = id;
+                rowScores[j + 1] = score;
+            }
+        }
+    }
+
+    /**
+     * 按行ID升序追加相似列表
+     */
+    public static final class Builder {
+
+        private long[] productIds;
+        private int[] offsets;
+        private long[] neighborIds;
+        private float[] scores;
+        private int products;
+        private int neighbors;
+
+        private Builder(int expectedProducts) {
+            int capacity = Math.max(16, expectedProducts);
+            this.productIds = new long[capacity];
+            this.offsets = new int[capacity + 1];
+            this.neighborIds = new long[capacity * 8];
+            this.scores = new float[capacity * 8];
+        }
+
+        /**
+         * 追加一个商品的持久化相似商品列表，只保留accept返回true的相似商品
+         * @param productId 商品ID，必须大于之前追加的商品ID
+         * @param encoded encode()的编码结果
+         * @param accept 相似商品过滤条件，为null时全部保留
+         */
+        public Builder add(long productId, byte[] encoded, LongPredicate accept) {
+            int count = encoded == null ? 0 : encoded.length / ENTRY_BYTES;
+            ensureNeighborCapacity(neighbors + count);
+            ByteBuffer buffer = count == 0 ? null : ByteBuffer.wrap(encoded);
+            int start = neighbors;
+            for (int i = 0; i < count; i++) {
+                long neighborId = buffer.getLong();
+                float score = buffer.getFloat();
+                if (accept == null || accept.test(neighborId)) {
+                    neighborIds[neighbors] = neighborId;
+                    scores[neighbors] = score;
+                    neighbors++;
+                }
+            }
+            return endRow(productId, start);
+        }
+
+        /**
+         * 按给定顺序追加一行相似列表
+         * @param key 行ID，必须大于之前追加的行ID
+         * @param ids 相似对象ID
+         * @param similarities 相似度，与ids按下标对应
+         * @param count 数量
+         */
+        public Builder add(long key, long[] ids, float[] similarities, int count) {
+            ensureNeighborCapacity(neighbors + count);
+            int start = neighbors;
+            System.arraycopy(ids, 0, neighborIds, neighbors, count);
+            System.arraycopy(similarities, 0, scores, neighbors, count);
+            neighbors += count;
+            return endRow(key, start);
+        }
+
+        public NeighborLists build() {
+            if (products == 0) {
+                return EMPTY;
+            }
+            return new NeighborLists(LongBuffer.wrap(Arrays.copyOf(productIds, products)),
+                    IntBuffer.wrap(Arrays.copyOf(offsets, products + 1)),
+                    LongBuffer.wrap(Arrays.copyOf(neighborIds, neighbors)),
+                    FloatBuffer.wrap(Arrays.copyOf(scores, neighbors)), 0L, null);
+        }
+
+        private Builder endRow(long key, int start) {
+            if (products > 0 && key <= productIds[products - 1]) {
+                neighbors = start;
+                throw new IllegalArgumentException("row keys must be strictly increasing");
+            }
+            if (neighbors == start) {
+                return this;
+            }
+            if (products == productIds.length) {
+                productIds = Arrays.copyOf(productIds, products << 1);
+                offsets = Arrays.copyOf(offsets, (products << 1) + 1);
+            }
+            productIds[products++] = key;
+            offsets[products] = neighbors;
+            return this;
+        }
+
+        private void ensureNeighborCapacity(int required) {
+            if (required > neighborIds.length) {
+                int capacity = Math.max(required, neighborIds.length << 1);
+                neighborIds = Arrays.copyOf(neighborIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.recommend;
+
+import com.example.config.RecommendProperties;
+import com.example.constants.RecommendConstants;
+import com.example.mapper.ProductMapper;
+import com.example.mapper.UserBehaviorMapper;
+import com.example.model.dto.ProductEngagementDTO;
+import com.example.model.dto.ProductScoreDTO;
+import com.example.model.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品热度引擎
+ * 定时从user_behavior和order_item中流式读取按天汇总的浏览、加购、收藏和购买次数，
+ * 按行为权重和半衰期指数衰减累加为每个在售商品的热度分，预先计算全站和各分类的热度榜以及新品榜并保存在内存中。
+ * 查询时直接返回预先计算好的列表前缀，不访问数据库；刷新时整体替换快照，读取无需加锁。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityEngine {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final UserBehaviorMapper userBehaviorMapper;
+    private final ProductMapper productMapper;
+    private final RecommendProperties recommendProperties;
+
+    private volatile PopularitySnapshot snapshot;
+
+    /**
+     * 重新计算热度榜和新品榜
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        RecommendProperties.Popularity config = recommendProperties.getPopularity();
+
+        // 1. 在售商品（按ID升序），热度分数组与之按下标对应
+        ActiveProducts products = new ActiveProducts();
+        productMapper.scanActiveProducts(context -> products.add(context.getResultObject()));
+        int count = products.size;
+        float[] scores = new float[count];
+
+        // 2. 按天汇总的互动次数，按距今天数衰减后累加
+        int days = Math.max(1, config.getDays());
+        float[] decay = new float[days + 2];
+        for (int age = 0; age < decay.length; age++) {
+            decay[age] = (float) Math.pow(0.5, age / Math.max(0.1, config.getHalfLifeDays()));
+        }
+        long[] rows = new long[1];
+        userBehaviorMapper.scanProductEngagement(days, context -> {
+            rows[0]++;
+            ProductEngagementDTO row = context.getResultObject();
+            int index = Arrays.binarySearch(products.ids, 0, count, row.getProductId());
+            if (index < 0 || row.getEventCount() == null) {
+                return;
+            }
+            int age = row.getAgeDays() == null ? 0 : Math.min(Math.max(row.getAgeDays(), 0), decay.length - 1);
+            scores[index] += weight(row.getBehaviorType()) * row.getEventCount() * decay[age];
+        });
+
+        // 3. 全站和各分类的热度榜
+        TopKHeap globalHeap = new TopKHeap(Math.max(1, config.getTopN()));
+        Map<Long, TopKHeap> categoryHeaps = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (scores[i] > 0f) {
+                globalHeap.offer(i, scores[i]);
+                categoryHeaps.computeIfAbsent(products.categoryIds[i], key -> new TopKHeap(Math.max(1, config.getCategoryTopN())))
+                        .offer(i, scores[i]);
+            }
+        }
+        RankedList global = drain(globalHeap, products.ids);
+        Map<Long, RankedList> byCategory = new HashMap<>(categoryHeaps.size() * 2);
+        for (Map.Entry<Long, TopKHeap> entry : categoryHeaps.entrySet()) {
+            byCategory.put(entry.getKey(), drain(entry.getValue(), products.ids));
+        }
+
+        // 4. 新品榜：近期上架的商品按上架时间倒序
+        long newSince = LocalDateTime.now().minusDays(Math.max(1, config.getNewProductDays()))
+                .atZone(ZONE).toEpochSecond();
+        List<Integer> fresh = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (products.createTimes[i] >= newSince) {
+                fresh.add(i);
+            }
+        }
+        fresh.sort((a, b) -> Long.compare(products.createTimes[b], products.createTimes[a]));
+        long[] newIds = new long[fresh.size()];
+        long[] newTimes = new long[fresh.size()];
+        for (int i = 0; i < newIds.length; i++) {
+            newIds[i] = products.ids[fresh.get(i)];
+            newTimes[i] = products.createTimes[fresh.get(i)];
+        }
+
+        snapshot = new PopularitySnapshot(global, byCategory, newIds, newTimes);
+        log.info("商品热度榜刷新完成: 在售商品={}, 汇总记录={}, 上榜商品={}, 分类={}, 新品={}, 耗时={}ms",
+                count, rows[0], global.items.size(), byCategory.size(), newIds.length, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 全站热度最高的在售商品
+     * @param limit 数量
+     * @return 按热度降序排列的商品得分，不超过配置的榜单长度
+     */
+    public List<ProductScoreDTO> topProducts(int limit) {
+        return current().global.prefix(limit);
+    }
+
+    /**
+     * 分类内热度最高的在售商品
+     * @param categoryId 分类ID
+     * @param limit 数量
+     * @return 按热度降序排列的商品得分，分类没有热度数据时返回空列表
+     */
+    public List<ProductScoreDTO> topProductsInCategory(Long categoryId, int limit) {
+        RankedList ranked = current().byCategory.get(categoryId);
+        return ranked == null ? Collections.emptyList() : ranked.prefix(limit);
+    }
+
+    /**
+     * 最近上架的在售商品
+     * @param days 最近天数，超过配置的新品天数时按配置值截断
+     * @param limit 数量
+     * @return 按上架时间倒序排列的商品ID
+     */
+    public List<Long> newProducts(int days, int limit) {
+        PopularitySnapshot current = current();
+        long since = LocalDateTime.now().minusDays(days).atZone(ZONE).toEpochSecond();
+        List<Long> result = new ArrayList<>(Math.min(Math.max(limit, 0), current.newIds.length));
+        for (int i = 0; i < current.newIds.length && result.size() < limit && current.newTimes[i] >= since; i++) {
+            result.add(current.newIds[i]);
+        }
+        return result;
+    }
+
+    private PopularitySnapshot current() {
+        PopularitySnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static float weight(Integer behaviorType) {
+        if (behaviorType == null) {
+            return 0f;
+        }
+        switch (behaviorType) {
+            case 1:
+                return RecommendConstants.BEHAVIOR_WEIGHT_VIEW;
+            case 3:
+                return RecommendConstants.BEHAVIOR_WEIGHT_CART;
+            case 4:
+                return RecommendConstants.BEHAVIOR_WEIGHT_FAVORITE;
+            case 8:
+                return RecommendConstants.BEHAVIOR_WEIGHT_PURCHASE;
+            default:
+                return 0f;
+        }
+    }
+
+    private static RankedList drain(TopKHeap heap, long[] ids) {
+        int[] indexes = new int[heap.size()];
+        float[] scores = new float[heap.size()];
+        int count = heap.drainDescending(indexes, scores);
+        List<ProductScoreDTO> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductScoreDTO item = new ProductScoreDTO();
+            item.setProductId(ids[indexes[i]]);
+            item.setScore((double) scores[i]);
+            items.add(item);
+        }
+        return new RankedList(Collections.unmodifiableList(items));
+    }
+
+    /**
+     * 在售商品的ID、分类、上架时间，按扫描顺序（ID升序）追加
+     */
+    private static final class ActiveProducts {
+
+        private long[] ids = new long[1024];
+        private long[] categoryIds = new long[1024];
+        private long[] createTimes = new long[1024];
+        private int size;
+
+        void add(Product product) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+                categoryIds = Arrays.copyOf(categoryIds, size << 1);
+                createTimes = Arrays.copyOf(createTimes, size << 1);
+            }
+            ids[size] = product.getId();
+            categoryIds[size] = product.getCategoryId() == null ? 0L : product.getCategoryId();
+            createTimes[size] = product.getCreateTime() == null ? 0L : product.getCreateTime().atZone(ZONE).toEpochSecond();
+            size++;
+        }
+    }
+
+    /**
+     * 按得分降序排列的榜单
+     */
+    private static final class RankedList {
+
+        private final List<ProductScoreDTO> items;
+
+        RankedList(List<ProductScoreDTO> items) {
+            this.items = items;
+        }
+
+        List<ProductScoreDTO> prefix(int limit) {
+            if (limit <= 0) {
+                return Collections.emptyList();
+            }
+            return items.size() > limit ? items.subList(0, limit) : items;
+        }
+    }
+
+    /**
+     * 一次刷新的计算结果，构建后只读
+     */
+    private static final class PopularitySnapshot {
+
+        private final RankedList global;
+        private final Map<Long, RankedList> byCategory;
+        private final long[] newIds;
+        private final long[] newTimes;
+
+        PopularitySnapshot(RankedList global, Map<Long, RankedList> byCategory, long[] newIds, long[] newTimes) {
+            this.global = global;
+            this.byCategory = byCategory;
+            this.newIds = newIds;
+            this.newTimes = newTimes;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.recommend;
+
+import com.example.mapper.ProductMapper;
+import com.example.mapper.ProductNeighborListMapper;
+import com.example.model.entity.ProductNeighborList;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * 商品相似商品列表内存索引
+ * 有商品相似度快照文件时直接使用内存映射的快照，只在查询时过滤下架商品；
+ * 否则从product_neighbor_list流式加载每个商品的Top-K相似商品，只保留在售商品，构建为按商品ID有序的压缩行存储。
+ * 基于商品的推荐和相似商品推荐直接在内存中对最近浏览商品的列表做k路归并，不再查询product_similarity。
+ * 相似度矩阵构建完成后以及定时任务中整体替换，读取无需加锁；快照切换版本后下一次读取即生效。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductNeighborIndex {
+
+    private final ProductMapper productMapper;
+    private final ProductNeighborListMapper productNeighborListMapper;
+    private final SimilaritySnapshotStore similaritySnapshotStore;
+
+    /**
+     * 在售商品过滤条件，每次刷新时替换
+     */
+    private volatile LongPredicate activeFilter;
+
+    /**
+     * 从数据库加载的列表，使用快照时为null
+     */
+    private volatile NeighborLists tableLists;
+
+    /**
+     * 快照及其过滤视图，快照版本或在售商品变化时重新创建
+     */
+    private volatile MappedView mappedView;
+
+    private volatile long loadedAt;
+
+    /**
+     * 重新加载在售商品，没有快照时同时重新加载相似商品列表
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+
+        // 在售商品ID（升序），用于过滤下架商品
+        long[][] active = {new long[1024]};
+        int[] activeCount = new int[1];
+        productMapper.scanActiveProducts(context -> {
+            if (activeCount[0] == active[0].length) {
+                active[0] = Arrays.copyOf(active[0], activeCount[0] << 1);
+            }
+            active[0][activeCount[0]++] = context.getResultObject().getId();
+        });
+        long[] activeIds = Arrays.copyOf(active[0], activeCount[0]);
+        LongPredicate filter = productId -> Arrays.binarySearch(activeIds, productId) >= 0;
+        activeFilter = filter;
+        mappedView = null;
+
+        NeighborLists snapshot = similaritySnapshotStore.get(SimilaritySnapshotStore.PRODUCT_SIMILARITY);
+        if (snapshot != null) {
+            tableLists = null;
+            loadedAt = System.currentTimeMillis();
+            log.info("商品相似商品列表使用快照: 版本={}, 在售商品={}, 列表={}, 相似商品={}, 耗时={}ms",
+                    snapshot.version(), activeIds.length, snapshot.products(), snapshot.neighbors(), loadedAt - start);
+            return;
+        }
+
+        NeighborLists.Builder builder = NeighborLists.builder(activeIds.length);
+        long[] rows = new long[1];
+        productNeighborListMapper.scanAll(context -> {
+            rows[0]++;
+            ProductNeighborList row = context.getResultObject();
+            if (row.getProductId() == null || !filter.test(row.getProductId())) {
+                return;
+            }
+            builder.add(row.getProductId(), row.getNeighbors(), filter);
+        });
+
+        NeighborLists loaded = builder.build();
+        tableLists = loaded;
+        loadedAt = System.currentTimeMillis();
+        log.info("商品相似商品列表加载完成: 在售商品={}, 读取列表={}, 有效列表={}, 相似商品={}, 耗时={}ms",
+                activeIds.length, rows[0], loaded.products(), loaded.neighbors(), loadedAt - start);
+    }
+
+    /**
+     * 当前的相似商品列表，首次访问时加载
+     */
+    public NeighborLists current() {
+        if (activeFilter == null) {
+            synchronized (this) {
+                if (activeFilter == null) {
+                    refresh();
+                }
+            }
+        }
+        NeighborLists snapshot = similaritySnapshotStore.get(SimilaritySnapshotStore.PRODUCT_SIMILARITY);
+        if (snapshot != null) {
+            MappedView view = mappedView;
+            if (view == null || view.snapshot != snapshot) {
+                view = new MappedView(snapshot, snapshot.filtered(activeFilter));
+                mappedView = view;
+            }
+            return view.filtered;
+        }
+        NeighborLists lists = tableLists;
+        if (lists == null) {
+            // 快照被删除或关闭，改为从数据库加载
+            synchronized (this) {
+                if (tableLists == null) {
+                    refresh();
+                }
+                lists = tableLists;
+            }
+        }
+        return lists == null ? NeighborLists.empty() : lists;
+    }
+
+    /**
+     * 索引统计数据
+     */
+    public Map<String, Object> getStats() {
+        NeighborLists current = activeFilter == null ? null : current();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("source", current != null && current.version() > 0 ? "snapshot" : "table");
+        stats.put("products", current == null ? 0 : current.products());
+        stats.put("neighbors", current == null ? 0 : current.neighbors());
+        stats.put("version", current == null ? 0L : current.version());
+        stats.put("loaded_at", loadedAt);
+        return stats;
+    }
+
+    private static final class MappedView {
+
+        private final NeighborLists snapshot;
+        private final NeighborLists filtered;
+
+        MappedView(NeighborLists snapshot, NeighborLists filtered) {
+            this.snapshot = snapshot;
+            this.filtered = filtered;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.recommend;
+
+import com.example.constants.RecommendConstants;
+import com.example.mapper.ProductNeighborListMapper;
+import com.example.mapper.ProductSimilarityMapper;
+import com.example.mapper.UserBehaviorMapper;
+import com.example.model.dto.UserInteractionDTO;
+import com.example.model.entity.ProductNeighborList;
+import com.example.model.entity.ProductSimilarity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品相似度矩阵构建引擎
+ * 1. 一次流式扫描浏览、加购、收藏和购买记录，按行为权重加载为用户-商品稀疏矩阵，权重取对数抑制重复浏览
+ * 2. 转置得到商品-用户矩阵，以用户-商品矩阵作为倒排索引，只对至少被同一用户交互过的商品对累加点积，
+ *    交互商品过多的异常用户不参与累加
+ * 3. 每个商品保留余弦相似度最高的K个商品，按(商品, 相似商品)方向分批写入，
+ *    查询某商品的相似商品只需扫描product_id_a的一段主键范围
+ * 4. 同时把每个商品的Top-K列表编码为一行写入product_neighbor_list，供内存索引整体加载；
+ *    开启快照时还输出按商品ID排列的快照文件，各节点直接内存映射查询
+ * 5. 构建结束后清理本次未刷新的旧记录
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSimilarityMatrixBuilder {
+
+    /**
+     * 保留七位小数后为0的相似度不写入
+     */
+    private static final double MIN_STORED_SIMILARITY = 0.00000005;
+
+    /**
+     * 相似商品列表每批写入的商品数
+     */
+    private static final int NEIGHBOR_LIST_BATCH_SIZE = 200;
+
+    private final UserBehaviorMapper userBehaviorMapper;
+    private final ProductSimilarityMapper productSimilarityMapper;
+    private final ProductNeighborListMapper productNeighborListMapper;
+    private final SimilaritySnapshotStore similaritySnapshotStore;
+
+    /**
+     * 加载用户-商品交互矩阵（行为用户，列为商品，值为行为权重之和取对数）
+     * @param days 统计最近多少天的数据
+     * @return 稀疏矩阵
+     */
+    public SparseMatrix loadInteractionMatrix(int days) {
+        SparseMatrix.Builder builder = SparseMatrix.builder(1 << 16);
+        userBehaviorMapper.scanUserInteractions(days, context -> {
+            UserInteractionDTO interaction = context.getResultObject();
+            if (interaction.getUserId() == null || interaction.getProductId() == null) {
+                return;
+            }
+            float weight = behaviorWeight(interaction.getBehaviorType());
+            if (weight > 0) {
+                builder.add(interaction.getUserId(), interaction.getProductId(), weight);
+            }
+        });
+        return builder.build().logScaled();
+    }
+
+    /**
+     * 构建商品相似度矩阵
+     * @param batchSize 每批写入的记录数
+     * @return 写入的记录数量
+     */
+    public int build(int batchSize) {
+        return build(batchSize, RecommendConstants.DEFAULT_SIMILAR_PRODUCTS_TOP_K);
+    }
+
+    /**
+     * 构建商品相似度矩阵
+     * @param batchSize 每批写入的记录数
+     * @param topK 每个商品保留的相似商品数量
+     * @return 写入的记录数量
+     */
+    public int build(int batchSize, int topK) {
+        long startTime = System.currentTimeMillis();
+        // 用户 -> 交互过的商品，同时作为倒排索引
+        SparseMatrix userItems = loadInteractionMatrix(RecommendConstants.DEFAULT_ACTIVE_DAYS);
+        log.info("加载用户交互矩阵完成，用户数: {}, 商品数: {}, 非零元素: {}, 耗时: {}ms",
+                userItems.rows(), userItems.cols(), userItems.nnz(), System.currentTimeMillis() - startTime);
+        if (userItems.cols() < 2) {
+            log.info("没有足够的商品交互数据，跳过构建商品相似度矩阵");
+            return 0;
+        }
+
+        // 商品 -> 交互过该商品的用户
+        SparseMatrix items = userItems.transpose();
+        TopKCosineSimilarity similarity = new TopKCosineSimilarity(items, userItems, topK,
+                RecommendConstants.MAX_USER_INTERACTIONS_FOR_ITEM_SIMILARITY, MIN_STORED_SIMILARITY);
+
+        AtomicLong totalPairs = new AtomicLong();
+        AtomicLong failedPairs = new AtomicLong();
+        // 数据库时间戳精度为秒，截断后才能准确区分本次写入与历史记录
+        LocalDateTime buildTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        NeighborLists.RowCollector collector = similaritySnapshotStore.isEnabled()
+                ? NeighborLists.collector(items, true) : null;
+        similarity.compute(Runtime.getRuntime().availableProcessors(),
+                () -> new SimilarityWriter(items, batchSize, buildTime, collector, totalPairs, failedPairs));
+        if (collector != null) {
+            similaritySnapshotStore.publish(SimilaritySnapshotStore.PRODUCT_SIMILARITY, collector.build());
+        }
+
+        // 删除本次构建未覆盖的历史记录，有写入失败时保留旧数据
+        if (failedPairs.get() == 0) {
+            int removed = productSimilarityMapper.deleteBeforeTime(buildTime);
+            int removedLists = productNeighborListMapper.deleteBeforeTime(buildTime);
+            log.info("清理过期商品相似度记录 {} 条，相似商品列表 {} 条", removed, removedLists);
+        } else {
+            log.warn("有 {} 条商品相似度写入失败，跳过清理历史记录", failedPairs.get());
+        }
+
+        log.info("商品相似度矩阵构建完成，共写入 {} 条，耗时: {}ms", totalPairs.get(), System.currentTimeMillis() - startTime);
+        return (int) Math.min(Integer.MAX_VALUE, totalPairs.get());
+    }
+
+    /**
+     * 行为类型对应的权重，不参与计算的行为返回0
+     */
+    static float behaviorWeight(Integer behaviorType) {
+        if (behaviorType == null) {
+            return 0f;
+        }
+        switch (behaviorType) {
+            case 1: // 浏览
+                return RecommendConstants.BEHAVIOR_WEIGHT_VIEW;
+            case 3: // 加入购物车
+                return RecommendConstants.BEHAVIOR_WEIGHT_CART;
+            case 4: // 收藏
+                return RecommendConstants.BEHAVIOR_WEIGHT_FAVORITE;
+            case 8: // 购买
+                return RecommendConstants.BEHAVIOR_WEIGHT_PURCHASE;
+            default:
+                return 0f;
+        }
+    }
+
+    /**
+     * 将相似度转换为存储格式（限制在0-1之间，按表字段保留七位小数）
+     */
+    static BigDecimal toDecimal(double similarity) {
+        double clamped = Math.max(0.0, Math.min(1.0, similarity));
+        return BigDecimal.valueOf(clamped).setScale(RecommendConstants.SIMILARITY_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 将每个商品的Top-K相似商品转换为相似度记录并分批写入
+     */
+    private class SimilarityWriter implements TopKCosineSimilarity.RowSink {
+
+        private final SparseMatrix items;
+        private final int batchSize;
+        private final LocalDateTime buildTime;
+        private final NeighborLists.RowCollector collector;
+        private final AtomicLong totalPairs;
+        private final AtomicLong failedPairs;
+        private final List<ProductSimilarity> batch;
+        private final List<ProductNeighborList> neighborBatch;
+        private long[] neighborIds = new long[RecommendConstants.DEFAULT_SIMILAR_PRODUCTS_TOP_K];
+
+        SimilarityWriter(SparseMatrix items, int batchSize, LocalDateTime buildTime,
+                         NeighborLists.RowCollector collector, AtomicLong totalPairs, AtomicLong failedPairs) {
+            this.items = items;
+            this.batchSize = batchSize;
+            this.buildTime = buildTime;
+            this.collector = collector;
+            this.totalPairs = totalPairs;
+            this.failedPairs = failedPairs;
+            this.batch = new ArrayList<>(batchSize);
+            this.neighborBatch = new ArrayList<>(NEIGHBOR_LIST_BATCH_SIZE);
+        }
+
+        @Override
+        public void accept(int row, int[] neighbors, float[] similarities, int count) {
+            if (collector != null) {
+                collector.set(row, neighbors, similarities, count);
+            }
+            if (count > neighborIds.length) {
+                neighborIds = new long[count];
+            }
+            for (int k = 0; k < count; k++) {
+                neighborIds[k] = items.rowKey(neighbors[k]);
+            }
+            if (count > 0) {
+                neighborBatch.add(ProductNeighborList.builder()
+                        .productId(items.rowKey(row))
+                        .neighborCount(count)
+                        .neighbors(NeighborLists.encode(neighborIds, similarities, count))
+                        .buildTime(buildTime)
+                        .build());
+                if (neighborBatch.size() >= NEIGHBOR_LIST_BATCH_SIZE) {
+                    flushNeighborLists();
+                }
+            }
+            for (int k = 0; k < count; k++) {
+                batch.add(ProductSimilarity.builder()
+                        .productIdA(items.rowKey(row))
+                        .productIdB(neighborIds[k])
+                        .similarity(toDecimal(similarities[k]))
+                        .updateTime(buildTime)
+                        .build());
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushNeighborLists();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                productSimilarityMapper.batchInsert(batch);
+                long total = totalPairs.addAndGet(batch.size());
+                log.debug("已写入 {} 条商品相似度", total);
+            } catch (Exception e) {
+                failedPairs.addAndGet(batch.size());
+                log.error("批量写入商品相似度失败，本批 {} 条", batch.size(), e);
+            }
+            batch.clear();
+        }
+
+        private void flushNeighborLists() {
+            if (neighborBatch.isEmpty()) {
+                return;
+            }
+            try {
+                productNeighborListMapper.batchUpsert(neighborBatch);
+            } catch (Exception e) {
+                failedPairs.addAndGet(neighborBatch.size());
+                log.error("批量写入相似商品列表失败，本批 {} 个商品", neighborBatch.size(), e);
+            }
+            neighborBatch.clear();
+        }
+    }
+}
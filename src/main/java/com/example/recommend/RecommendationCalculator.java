@@ -0,0 +1,295 @@
+package com.example.recommend;
+
+import com.example.config.RecommendProperties;
+import com.example.constants.RecommendationConstant;
+import com.example.model.dto.ProductScoreDTO;
+import com.example.model.dto.UserBehaviorSnapshot;
+import com.example.model.entity.RecommendationResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 推荐结果计算
+ * 只负责根据加载器提供的数据计算推荐列表，不读写推荐结果表；
+ * 单用户生成与批量生成共用同一套计算逻辑，区别仅在于使用的加载器是否缓存共享数据。
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationCalculator {
+
+    /**
+     * 参考的相似用户数量
+     */
+    private static final int SIMILAR_USERS = 10;
+
+    /**
+     * 每个相似用户参考的最近浏览商品数
+     */
+    private static final int SIMILAR_USER_VIEWED = 20;
+
+    /**
+     * 每个相似用户参考的收藏商品数
+     */
+    private static final int SIMILAR_USER_FAVORITES = 10;
+
+    /**
+     * 基于商品推荐时参考的最近浏览商品数
+     */
+    private static final int RECENT_PRODUCTS = 10;
+
+    /**
+     * 需要排除的用户已交互商品数
+     */
+    private static final int INTERACTED_PRODUCTS = 100;
+
+    /**
+     * 基于用户推荐的分数权重
+     */
+    private static final double USER_BASED_WEIGHT = 0.8;
+
+    private final RecommendProperties recommendProperties;
+
+    /**
+     * 基于用户的协同过滤：相似用户最近浏览和收藏、而当前用户未浏览过的商品
+     * @param userId 用户ID
+     * @param limit 推荐数量
+     * @param loader 数据加载器
+     * @param now 生成时间
+     * @return 推荐结果（algorithmType=1）
+     */
+    public List<RecommendationResult> computeUserBased(Long userId, int limit, RecommendationDataLoader loader,
+                                                       LocalDateTime now) {
+        long[] similarIds = new long[SIMILAR_USERS];
+        float[] similarities = new float[SIMILAR_USERS];
+        int similarCount = loader.similarUsers(userId, SIMILAR_USERS, similarIds, similarities);
+        if (similarCount == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // 当前用户和全部相似用户的行为一次加载
+        Map<Long, UserBehaviorSnapshot> snapshots = loader.behaviorSnapshots(withSimilarUsers(userId, similarIds, similarCount));
+
+        Set<Long> interacted = new HashSet<>();
+        addPrefix(interacted, snapshots.get(userId).getRecentViewed(), INTERACTED_PRODUCTS);
+        Set<Long> recommended = new HashSet<>();
+        List<RecommendationResult> recommendations = new ArrayList<>();
+        LocalDateTime expireTime = now.plusDays(RecommendationConstant.DEFAULT_EXPIRE_DAYS);
+        for (int s = 0; s < similarCount; s++) {
+            UserBehaviorSnapshot snapshot = snapshots.get(similarIds[s]);
+            Set<Long> candidates = new LinkedHashSet<>();
+            addPrefix(candidates, snapshot.getRecentViewed(), SIMILAR_USER_VIEWED);
+            addPrefix(candidates, snapshot.getFavorites(), SIMILAR_USER_FAVORITES);
+
+            BigDecimal score = BigDecimal.valueOf(similarities[s] * USER_BASED_WEIGHT).setScale(6, RoundingMode.HALF_UP);
+            for (Long productId : candidates) {
+                if (interacted.contains(productId) || !recommended.add(productId)) {
+                    continue;
+                }
+                recommendations.add(result(userId, productId, score,
+                        RecommendationConstant.ALGORITHM_USER_BASED_CF, expireTime, now));
+                if (recommendations.size() >= limit) {
+                    return recommendations;
+                }
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * 基于商品的协同过滤：与用户最近浏览的商品相似的商品，分数为与各浏览商品相似度的平均值
+     * 最近浏览商品的相似商品列表在内存中按商品ID做k路归并，每个候选只输出一次，再用定长最小堆选出前limit个
+     * @param userId 用户ID
+     * @param limit 推荐数量
+     * @param loader 数据加载器
+     * @param now 生成时间
+     * @return 推荐结果（algorithmType=2）
+     */
+    public List<RecommendationResult> computeItemBased(Long userId, int limit, RecommendationDataLoader loader,
+                                                       LocalDateTime now) {
+        long[] viewed = loader.behaviorSnapshot(userId).getRecentViewed();
+        int recentCount = Math.min(RECENT_PRODUCTS, viewed.length);
+        if (recentCount == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        NeighborLists neighbors = loader.productNeighbors();
+        int maxCandidates = neighbors.neighborCount(viewed, recentCount);
+        if (maxCandidates == 0) {
+            return Collections.emptyList();
+        }
+        LongHashSet interacted = new LongHashSet(INTERACTED_PRODUCTS);
+        interacted.addAll(viewed, INTERACTED_PRODUCTS);
+
+        // 归并输出序号作为堆元素ID
+        long[] candidates = new long[maxCandidates];
+        TopKHeap heap = new TopKHeap(Math.min(limit, maxCandidates));
+        neighbors.merge(viewed, recentCount, interacted, (ordinal, productId, score, hits) -> {
+            candidates[ordinal] = productId;
+            heap.offer(ordinal, score);
+        });
+        int[] ordinals = new int[heap.size()];
+        float[] ranked = new float[heap.size()];
+        int count = heap.drainDescending(ordinals, ranked);
+
+        List<RecommendationResult> recommendations = new ArrayList<>(count);
+        LocalDateTime expireTime = now.plusDays(RecommendationConstant.DEFAULT_EXPIRE_DAYS);
+        for (int i = 0; i < count; i++) {
+            BigDecimal score = BigDecimal.valueOf((double) ranked[i] / recentCount)
+                    .setScale(6, RoundingMode.HALF_UP);
+            recommendations.add(result(userId, candidates[ordinals[i]], score,
+                    RecommendationConstant.ALGORITHM_ITEM_BASED_CF, expireTime, now));
+        }
+        return recommendations;
+    }
+
+    /**
+     * 混合协同过滤：在内存中合并基于用户、基于商品和热门商品三路候选，只输出最终的Top-N
+     * 各路得分先除以该路最高分归一化到[0, 1]，再按配置的权重加权求和；
+     * 候选用基本类型哈希表去重累加，用定长最小堆选出前limit个，不对全部候选排序。
+     * @param userId 用户ID
+     * @param limit 推荐数量
+     * @param loader 数据加载器
+     * @param now 生成时间
+     * @return 按得分降序排列的推荐结果（algorithmType=3）
+     */
+    public List<RecommendationResult> computeHybrid(Long userId, int limit, RecommendationDataLoader loader,
+                                                    LocalDateTime now) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        RecommendProperties.Hybrid config = recommendProperties.getHybrid();
+
+        // 当前用户和全部相似用户的行为一次加载
+        long[] similarIds = new long[SIMILAR_USERS];
+        float[] similarities = new float[SIMILAR_USERS];
+        int similarCount = loader.similarUsers(userId, SIMILAR_USERS, similarIds, similarities);
+        Map<Long, UserBehaviorSnapshot> snapshots = loader.behaviorSnapshots(withSimilarUsers(userId, similarIds, similarCount));
+        long[] viewed = snapshots.get(userId).getRecentViewed();
+        LongHashSet interacted = new LongHashSet(INTERACTED_PRODUCTS);
+        interacted.addAll(viewed, INTERACTED_PRODUCTS);
+
+        // 基于用户：相似用户浏览、收藏的商品，得分为各相似用户相似度之和
+        LongFloatHashMap userScores = new LongFloatHashMap(similarCount * (SIMILAR_USER_VIEWED + SIMILAR_USER_FAVORITES));
+        for (int s = 0; s < similarCount; s++) {
+            UserBehaviorSnapshot snapshot = snapshots.get(similarIds[s]);
+            float similarity = similarities[s];
+            LongHashSet seen = new LongHashSet(SIMILAR_USER_VIEWED + SIMILAR_USER_FAVORITES);
+            accumulate(userScores, seen, interacted, snapshot.getRecentViewed(), SIMILAR_USER_VIEWED, similarity);
+            accumulate(userScores, seen, interacted, snapshot.getFavorites(), SIMILAR_USER_FAVORITES, similarity);
+        }
+
+        // 基于商品：最近浏览商品的相似商品列表k路归并，得分为与各浏览商品相似度之和
+        int recentCount = Math.min(RECENT_PRODUCTS, viewed.length);
+        NeighborLists neighbors = loader.productNeighbors();
+        LongFloatHashMap itemScores = new LongFloatHashMap(neighbors.neighborCount(viewed, recentCount));
+        neighbors.merge(viewed, recentCount, interacted,
+                (ordinal, productId, score, hits) -> itemScores.put(productId, score));
+
+        // 热门商品
+        List<ProductScoreDTO> popular = loader.popularProducts(config.getPopularCandidates());
+        LongFloatHashMap popularScores = new LongFloatHashMap(popular.size());
+        for (ProductScoreDTO product : popular) {
+            if (!interacted.contains(product.getProductId())) {
+                popularScores.put(product.getProductId(), product.getScore().floatValue());
+            }
+        }
+
+        LongFloatHashMap scores = new LongFloatHashMap(userScores.size() + itemScores.size() + popularScores.size());
+        merge(scores, userScores, config.getUserWeight());
+        merge(scores, itemScores, config.getItemWeight());
+        merge(scores, popularScores, config.getPopularWeight());
+        if (scores.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 槽位下标作为堆元素ID，最终只对保留下来的limit个元素排序
+        TopKHeap heap = new TopKHeap(Math.min(limit, scores.size()));
+        for (int slot = 0; slot < scores.capacity(); slot++) {
+            if (scores.isUsed(slot)) {
+                heap.offer(slot, scores.valueAt(slot));
+            }
+        }
+        int[] slots = new int[heap.size()];
+        float[] ranked = new float[heap.size()];
+        int count = heap.drainDescending(slots, ranked);
+
+        List<RecommendationResult> recommendations = new ArrayList<>(count);
+        LocalDateTime expireTime = now.plusDays(RecommendationConstant.DEFAULT_EXPIRE_DAYS);
+        for (int i = 0; i < count; i++) {
+            BigDecimal score = BigDecimal.valueOf(ranked[i]).setScale(6, RoundingMode.HALF_UP);
+            recommendations.add(result(userId, scores.keyAt(slots[i]), score,
+                    RecommendationConstant.ALGORITHM_HYBRID_CF, expireTime, now));
+        }
+        return recommendations;
+    }
+
+    /**
+     * 把数组前limit个未排除的商品累加到得分表，同一来源中重复出现的商品只计一次
+     */
+    private static void accumulate(LongFloatHashMap scores, LongHashSet seen, LongHashSet excluded,
+                                   long[] productIds, int limit, float score) {
+        for (int i = 0, n = Math.min(limit, productIds.length); i < n; i++) {
+            long productId = productIds[i];
+            if (!excluded.contains(productId) && seen.add(productId)) {
+                scores.addTo(productId, score);
+            }
+        }
+    }
+
+    /**
+     * 把一路候选按最高分归一化后乘以权重累加到总得分表
+     */
+    private static void merge(LongFloatHashMap target, LongFloatHashMap source, float weight) {
+        float max = source.maxValue();
+        if (source.isEmpty() || weight <= 0f || max <= 0f) {
+            return;
+        }
+        float factor = weight / max;
+        for (int slot = 0; slot < source.capacity(); slot++) {
+            if (source.isUsed(slot)) {
+                target.addTo(source.keyAt(slot), source.valueAt(slot) * factor);
+            }
+        }
+    }
+
+    /**
+     * 当前用户与相似用户的ID列表
+     */
+    private static List<Long> withSimilarUsers(Long userId, long[] similarIds, int similarCount) {
+        List<Long> userIds = new ArrayList<>(similarCount + 1);
+        userIds.add(userId);
+        for (int i = 0; i < similarCount; i++) {
+            userIds.add(similarIds[i]);
+        }
+        return userIds;
+    }
+
+    private static void addPrefix(Set<Long> target, long[] productIds, int limit) {
+        for (int i = 0, n = Math.min(limit, productIds.length); i < n; i++) {
+            target.add(productIds[i]);
+        }
+    }
+
+    private RecommendationResult result(Long userId, Long productId, BigDecimal score, int algorithmType,
+                                        LocalDateTime expireTime, LocalDateTime now) {
+        return RecommendationResult.builder()
+                .userId(userId)
+                .productId(productId)
+                .score(score)
+                .algorithmType(algorithmType)
+                .expireTime(expireTime)
+                .createTime(now)
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.recommend;
+
+import com.example.config.RecommendProperties;
+import com.example.mapper.UserSimilarityMapper;
+import com.example.model.dto.ProductScoreDTO;
+import com.example.model.dto.UserBehaviorSnapshot;
+import com.example.model.entity.UserSimilarity;
+import com.example.service.UserBehaviorService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 推荐计算所需数据的加载器
+ * 默认实例每次直接查询数据库；批量生成时通过memoizing()创建带缓存的实例，
+ * 相似用户的行为快照、相似用户列表等在大量用户之间共享，同一份数据在一次批量任务中只查询一次；
+ * 商品的相似商品列表和热门商品直接读取常驻内存的索引，不需要缓存；
+ * 有用户相似度快照文件且未开启增量更新时，相似用户直接从内存映射的快照读取，不查询user_similarity。
+ * 用户行为以快照形式按用户集合批量加载，为一个用户计算推荐时只需常数次查询，与相似用户数量无关。
+ * 缓存按固定的最大条数加载，调用方需要的条数更少时截取前缀，保证与直接查询的结果一致。
+ */
+@Component
+public class RecommendationDataLoader {
+
+    /**
+     * 每个用户最多加载的最近浏览商品数
+     */
+    public static final int MAX_VIEWED_PRODUCTS = 100;
+
+    /**
+     * 每个用户最多加载的收藏商品数
+     */
+    public static final int MAX_FAVORITE_PRODUCTS = 50;
+
+    /**
+     * 每个用户最多加载的购买商品数
+     */
+    public static final int MAX_PURCHASED_PRODUCTS = 50;
+
+    /**
+     * 每个用户最多加载的相似用户数
+     */
+    public static final int MAX_SIMILAR_USERS = 50;
+
+    private final UserBehaviorService userBehaviorService;
+    private final UserSimilarityMapper userSimilarityMapper;
+    private final ProductNeighborIndex productNeighborIndex;
+    private final PopularityEngine popularityEngine;
+    private final SimilaritySnapshotStore similaritySnapshotStore;
+    private final RecommendProperties recommendProperties;
+
+    private final Cache<Long, UserBehaviorSnapshot> behaviorSnapshots;
+    private final Cache<Long, List<UserSimilarity>> similarUsers;
+
+    @Autowired
+    public RecommendationDataLoader(UserBehaviorService userBehaviorService,
+                                    UserSimilarityMapper userSimilarityMapper,
+                                    ProductNeighborIndex productNeighborIndex,
+                                    PopularityEngine popularityEngine,
+                                    SimilaritySnapshotStore similaritySnapshotStore,
+                                    RecommendProperties recommendProperties) {
+        this(userBehaviorService, userSimilarityMapper, productNeighborIndex, popularityEngine,
+                similaritySnapshotStore, recommendProperties, 0L);
+    }
+
+    private RecommendationDataLoader(UserBehaviorService userBehaviorService,
+                                     UserSimilarityMapper userSimilarityMapper,
+                                     ProductNeighborIndex productNeighborIndex,
+                                     PopularityEngine popularityEngine,
+                                     SimilaritySnapshotStore similaritySnapshotStore,
+                                     RecommendProperties recommendProperties,
+                                     long maximumSize) {
+        this.userBehaviorService = userBehaviorService;
+        this.userSimilarityMapper = userSimilarityMapper;
+        this.productNeighborIndex = productNeighborIndex;
+        this.popularityEngine = popularityEngine;
+        this.similaritySnapshotStore = similaritySnapshotStore;
+        this.recommendProperties = recommendProperties;
+        this.behaviorSnapshots = maximumSize > 0 ? newCache(maximumSize) : null;
+        this.similarUsers = maximumSize > 0 ? newCache(maximumSize) : null;
+    }
+
+    /**
+     * 创建带缓存的加载器，供一次批量任务内的所有工作线程共享
+     * @param maximumSize 每类数据最多缓存的条目数
+     * @return 新的加载器
+     */
+    public RecommendationDataLoader memoizing(long maximumSize) {
+        return new RecommendationDataLoader(userBehaviorService, userSimilarityMapper, productNeighborIndex,
+                popularityEngine, similaritySnapshotStore, recommendProperties, Math.max(1L, maximumSize));
+    }
+
+    /**
+     * 单个用户的行为快照
+     */
+    public UserBehaviorSnapshot behaviorSnapshot(Long userId) {
+        return behaviorSnapshots(Collections.singleton(userId)).get(userId);
+    }
+
+    /**
+     * 批量加载多个用户的行为快照；带缓存时只查询未缓存的用户
+     * @param userIds 用户ID集合
+     * @return 用户ID到行为快照的映射，包含每个请求的用户
+     */
+    public Map<Long, UserBehaviorSnapshot> behaviorSnapshots(Collection<Long> userIds) {
+        if (behaviorSnapshots == null) {
+            return loadSnapshots(userIds);
+        }
+        return behaviorSnapshots.getAll(userIds, this::loadSnapshots);
+    }
+
+    /**
+     * 与用户最相似的用户（按相似度降序），写入调用方提供的数组
+     * 增量更新开启时user_similarity表比快照新，仍查询数据库
+     * @param userId 用户ID
+     * @param limit 最多返回的数量，同时不超过数组长度
+     * @param userIds 相似用户ID
+     * @param similarities 相似度
+     * @return 相似用户数量
+     */
+    public int similarUsers(Long userId, int limit, long[] userIds, float[] similarities) {
+        NeighborLists snapshot = recommendProperties.getSimilarity().isIncrementalEnabled()
+                ? null : similaritySnapshotStore.get(SimilaritySnapshotStore.USER_SIMILARITY);
+        if (snapshot != null) {
+            return snapshot.copyRow(userId, limit, userIds, similarities);
+        }
+        List<UserSimilarity> rows = load(similarUsers, userId, limit, MAX_SIMILAR_USERS,
+                size -> userSimilarityMapper.selectMostSimilarUsers(userId, size));
+        int count = Math.min(rows.size(), Math.min(userIds.length, similarities.length));
+        for (int i = 0; i < count; i++) {
+            userIds[i] = rows.get(i).getUserIdB();
+            similarities[i] = rows.get(i).getSimilarity().floatValue();
+        }
+        return count;
+    }
+
+    /**
+     * 全部在售商品的相似商品列表，直接读取内存索引的当前快照
+     */
+    public NeighborLists productNeighbors() {
+        return productNeighborIndex.current();
+    }
+
+    /**
+     * 全站热门的在售商品（按热度降序），直接读取热度引擎预先计算的榜单
+     * @param limit 数量
+     */
+    public List<ProductScoreDTO> popularProducts(int limit) {
+        return popularityEngine.topProducts(limit);
+    }
+
+    private Map<Long, UserBehaviorSnapshot> loadSnapshots(Collection<? extends Long> userIds) {
+        return userBehaviorService.getBehaviorSnapshots(new ArrayList<>(userIds),
+                MAX_VIEWED_PRODUCTS, MAX_FAVORITE_PRODUCTS, MAX_PURCHASED_PRODUCTS);
+    }
+
+    private <T> List<T> load(Cache<Long, List<T>> cache, Long key, int limit, int maxSize,
+                             Function<Integer, List<T>> query) {
+        if (cache == null || limit > maxSize) {
+            List<T> result = query.apply(limit);
+            return result == null ? Collections.emptyList() : result;
+        }
+        List<T> cached = cache.get(key, k -> {
+            List<T> result = query.apply(maxSize);
+            return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+        });
+        return cached.size() > limit ? cached.subList(0, limit) : cached;
+    }
+
+    private static <V> Cache<Long, V> newCache(long maximumSize) {
+        return Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.recommend;
+
+/**
+ * 相似度矩阵构建模式
+ */
+public enum SimilarityMode {
+
+    /**
+     * 精确计算：借助倒排索引对所有存在共同商品的用户对计算余弦相似度
+     */
+    EXACT,
+
+    /**
+     * 近似计算：只对MinHash LSH分桶碰撞的用户对计算余弦相似度，适用于用户规模很大的场景
+     */
+    MINHASH_LSH
+}
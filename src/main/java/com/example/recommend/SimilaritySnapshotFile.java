@@ -0,0 +1,172 @@
+package com.example.recommend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 相似度快照文件格式
+ * 把NeighborLists按压缩行存储原样写入一个二进制文件，各节点以只读方式内存映射后直接查询：
+ * <pre>
+ * 文件头（24字节）：魔数 int | 格式版本 int | 数据版本 long | 行数 int | 相似对象总数 int
+ * 行ID      long[行数]（升序）
+ * 相似对象ID long[相似对象总数]
+ * 行偏移    int[行数 + 1]
+ * 相似度    float[相似对象总数]
+ * </pre>
+ * 所有数值为小端序，long段在前保证8字节对齐。写入时先写同目录下的临时文件并刷盘，再原子重命名覆盖正式文件，
+ * 读取方不会看到写了一半的文件；已映射旧文件的节点在重新映射前继续使用旧版本。单个文件不超过2GB。
+ */
+public final class SimilaritySnapshotFile {
+
+    private static final int MAGIC = 0x534D4953;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private SimilaritySnapshotFile() {
+    }
+
+    /**
+     * 原子写入快照文件
+     * @param target 目标文件
+     * @param lists 相似列表
+     * @param version 数据版本（通常为构建时间戳），读取方据此判断文件是否更新
+     */
+    public static void write(Path target, NeighborLists lists, long version) throws IOException {
+        int rows = lists.products();
+        int nnz = lists.neighbors();
+        long size = fileSize(rows, nnz);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("similarity snapshot too large: " + size + " bytes");
+        }
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ORDER);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(version).putInt(rows).putInt(nnz);
+            LongBuffer keys = lists.keyBuffer();
+            for (int i = 0; i < rows; i++) {
+                buffer = ensure(channel, buffer, Long.BYTES).putLong(keys.get(i));
+            }
+            LongBuffer neighborIds = lists.neighborIdBuffer();
+            for (int i = 0; i < nnz; i++) {
+                buffer = ensure(channel, buffer, Long.BYTES).putLong(neighborIds.get(i));
+            }
+            IntBuffer offsets = lists.offsetBuffer();
+            for (int i = 0; i <= rows; i++) {
+                buffer = ensure(channel, buffer, Integer.BYTES).putInt(offsets.get(i));
+            }
+            FloatBuffer scores = lists.scoreBuffer();
+            for (int i = 0; i < nnz; i++) {
+                buffer = ensure(channel, buffer, Float.BYTES).putFloat(scores.get(i));
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 只读映射快照文件
+     * @param file 快照文件
+     * @return 直接读取映射内存的相似列表
+     */
+    public static NeighborLists map(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("invalid similarity snapshot size: " + file);
+            }
+            // 映射建立后关闭通道不影响映射内存的访问
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        mapped.order(ORDER);
+        long version = checkHeader(mapped, file);
+        int rows = mapped.getInt(16);
+        int nnz = mapped.getInt(20);
+        if (fileSize(rows, nnz) != mapped.capacity()) {
+            throw new IOException("similarity snapshot size mismatch: " + file);
+        }
+        int keysAt = HEADER_BYTES;
+        int neighborIdsAt = keysAt + rows * Long.BYTES;
+        int offsetsAt = neighborIdsAt + nnz * Long.BYTES;
+        int scoresAt = offsetsAt + (rows + 1) * Integer.BYTES;
+        return new NeighborLists(
+                slice(mapped, keysAt, rows * Long.BYTES).asLongBuffer(),
+                slice(mapped, offsetsAt, (rows + 1) * Integer.BYTES).asIntBuffer(),
+                slice(mapped, neighborIdsAt, nnz * Long.BYTES).asLongBuffer(),
+                slice(mapped, scoresAt, nnz * Float.BYTES).asFloatBuffer(),
+                version, null);
+    }
+
+    /**
+     * 只读取文件头中的数据版本，用于判断快照是否更新
+     * @param file 快照文件
+     * @return 数据版本，文件不存在时返回-1
+     */
+    public static long readVersion(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return -1L;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头
+            }
+            if (header.hasRemaining()) {
+                throw new IOException("invalid similarity snapshot header: " + file);
+            }
+            return checkHeader(header, file);
+        }
+    }
+
+    private static long checkHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("unsupported similarity snapshot: " + file);
+        }
+        return buffer.getLong(8);
+    }
+
+    private static long fileSize(int rows, long nnz) {
+        return HEADER_BYTES + (long) rows * (Long.BYTES + Integer.BYTES) + Integer.BYTES
+                + nnz * (Long.BYTES + Float.BYTES);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice().order(ORDER);
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.recommend;
+
+import com.example.config.RecommendProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 相似度快照文件仓库
+ * 相似度矩阵构建完成后把结果写为快照文件（见SimilaritySnapshotFile），各节点定时检查文件头中的数据版本，
+ * 版本变化时重新映射并整体替换引用，无需重启；查询直接读取映射内存，不经过数据库和MyBatis结果映射。
+ * 快照不存在或未开启时返回null，调用方回退到数据库查询。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SimilaritySnapshotStore {
+
+    /**
+     * 商品相似商品快照（每行按相似商品ID升序）
+     */
+    public static final String PRODUCT_SIMILARITY = "product-similarity";
+
+    /**
+     * 用户相似用户快照（每行按相似度降序）
+     */
+    public static final String USER_SIMILARITY = "user-similarity";
+
+    private static final String[] NAMES = {PRODUCT_SIMILARITY, USER_SIMILARITY};
+
+    private final RecommendProperties recommendProperties;
+
+    private final Map<String, NeighborLists> mapped = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * 是否开启快照
+     */
+    public boolean isEnabled() {
+        return recommendProperties.getSnapshot().isEnabled();
+    }
+
+    /**
+     * 当前映射的快照
+     * @param name 快照名称
+     * @return 快照，未开启或文件不存在时返回null
+     */
+    public NeighborLists get(String name) {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+        return mapped.get(name);
+    }
+
+    /**
+     * 写出新版本的快照并立即在本节点生效，其他节点在下次检查时切换
+     * @param name 快照名称
+     * @param lists 相似列表
+     */
+    public void publish(String name, NeighborLists lists) {
+        if (!isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            SimilaritySnapshotFile.write(path(name), lists, start);
+            log.info("相似度快照{}写入完成: 行数={}, 相似对象={}, 耗时={}ms",
+                    name, lists.products(), lists.neighbors(), System.currentTimeMillis() - start);
+            reload(name);
+        } catch (IOException e) {
+            log.error("相似度快照{}写入失败", name, e);
+        }
+    }
+
+    /**
+     * 检查全部快照文件，版本变化的重新映射
+     */
+    public synchronized void reload() {
+        for (String name : NAMES) {
+            reload(name);
+        }
+        loaded = true;
+    }
+
+    /**
+     * 各快照的版本与规模
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (String name : NAMES) {
+            NeighborLists lists = mapped.get(name);
+            Map<String, Object> item = new HashMap<>();
+            item.put("version", lists == null ? -1L : lists.version());
+            item.put("rows", lists == null ? 0 : lists.products());
+            item.put("neighbors", lists == null ? 0 : lists.neighbors());
+            stats.put(name, item);
+        }
+        return stats;
+    }
+
+    private synchronized void reload(String name) {
+        Path file = path(name);
+        try {
+            long version = SimilaritySnapshotFile.readVersion(file);
+            NeighborLists current = mapped.get(name);
+            if (version < 0) {
+                if (current != null) {
+                    mapped.remove(name);
+                    log.warn("相似度快照{}已不存在，回退到数据库查询", name);
+                }
+                return;
+            }
+            if (current != null && current.version() == version) {
+                return;
+            }
+            // 旧映射不主动释放，正在使用它的查询可以继续完成，之后由GC回收
+            mapped.put(name, SimilaritySnapshotFile.map(file));
+            log.info("相似度快照{}切换到版本{}", name, version);
+        } catch (IOException e) {
+            log.error("加载相似度快照{}失败，继续使用当前版本", name, e);
+        }
+    }
+
+    private Path path(String name) {
+        return Paths.get(recommendProperties.getSnapshot().getDir(), name + ".snap");
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.recommend;
+
+import java.util.Arrays;
+
+/**
+ * 稀疏矩阵（CSR压缩行存储）
+ * 行、列均为业务ID（如用户ID、商品ID），内部映射为从0开始的连续下标；
+ * 所有数据保存在基本类型数组中，避免使用Map保存向量带来的装箱和对象开销。
+ * 构建完成后只读，可安全地被多个线程并发访问。
+ */
+public final class SparseMatrix {
+
+    /**
+     * 行ID（升序）
+     */
+    private final long[] rowKeys;
+
+    /**
+     * 列ID（升序）
+     */
+    private final long[] colKeys;
+
+    /**
+     * 行偏移：第i行的数据位于[rowPtr[i], rowPtr[i+1])
+     */
+    private final int[] rowPtr;
+
+    /**
+     * 非零元素的列下标（每行内升序）
+     */
+    private final int[] colIdx;
+
+    /**
+     * 非零元素的值
+     */
+    private final float[] values;
+
+    /**
+     * 每行向量的模
+     */
+    private final float[] rowNorms;
+
+    private SparseMatrix(long[] rowKeys, long[] colKeys, int[] rowPtr, int[] colIdx, float[] values) {
+        this.rowKeys = rowKeys;
+        this.colKeys = colKeys;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+        this.rowNorms = new float[rowKeys.length];
+        for (int row = 0; row < rowKeys.length; row++) {
+            double sum = 0.0;
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                sum += (double) values[p] * values[p];
+            }
+            rowNorms[row] = (float) Math.sqrt(sum);
+        }
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int rows() {
+        return rowKeys.length;
+    }
+
+    public int cols() {
+        return colKeys.length;
+    }
+
+    public int nnz() {
+        return colIdx.length;
+    }
+
+    public long rowKey(int row) {
+        return rowKeys[row];
+    }
+
+    public long colKey(int col) {
+        return colKeys[col];
+    }
+
+    /**
+     * 根据行ID查找行下标
+     * @param key 行ID
+     * @return 行下标，不存在返回负数
+     */
+    public int rowIndex(long key) {
+        return Arrays.binarySearch(rowKeys, key);
+    }
+
+    /**
+     * 根据列ID查找列下标
+     * @param key 列ID
+     * @return 列下标，不存在返回负数
+     */
+    public int colIndex(long key) {
+        return Arrays.binarySearch(colKeys, key);
+    }
+
+    public int rowStart(int row) {
+        return rowPtr[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowPtr[row + 1];
+    }
+
+    public int colAt(int pos) {
+        return colIdx[pos];
+    }
+
+    public float valueAt(int pos) {
+        return values[pos];
+    }
+
+    public float norm(int row) {
+        return rowNorms[row];
+    }
+
+    /**
+     * 两行向量的点积（按列下标归并）
+     */
+    public double dot(int rowA, int rowB) {
+        int i = rowPtr[rowA];
+        int endA = rowPtr[rowA + 1];
+        int j = rowPtr[rowB];
+        int endB = rowPtr[rowB + 1];
+        double sum = 0.0;
+        while (i < endA && j < endB) {
+            int ca = colIdx[i];
+            int cb = colIdx[j];
+            if (ca == cb) {
+                sum += (double) values[i++] * values[j++];
+            } else if (ca < cb) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 两行向量的余弦相似度，结果限制在[0, 1]
+     */
+    public double cosine(int rowA, int rowB) {
+        double denominator = (double) rowNorms[rowA] * rowNorms[rowB];
+        if (denominator <= 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, Math.min(1.0, dot(rowA, rowB) / denominator));
+    }
+
+    /**
+     * 转置矩阵（行列互换），如由用户-商品矩阵得到商品-用户倒排
+     */
+    public SparseMatrix transpose() {
+        int nnz = colIdx.length;
+        int[] counts = new int[colKeys.length + 1];
+        for (int p = 0; p < nnz; p++) {
+            counts[colIdx[p] + 1]++;
+        }
+        for (int c = 0; c < colKeys.length; c++) {
+            counts[c + 1] += counts[c];
+        }
+        int[] tRowPtr = counts.clone();
+        int[] cursor = Arrays.copyOf(counts, colKeys.length);
+        int[] tColIdx = new int[nnz];
+        float[] tValues = new float[nnz];
+        // 按行顺序扫描，转置后每行内的列下标天然有序
+        for (int row = 0; row < rowKeys.length; row++) {
+            for (int p = rowPtr[row]; p < rowPtr[row + 1]; p++) {
+                int dest = cursor[colIdx[p]]++;
+                tColIdx[dest] = row;
+                tValues[dest] = values[p];
+            }
+        }
+        return new SparseMatrix(colKeys, rowKeys, tRowPtr, tColIdx, tValues);
+    }
+
+    /**
+     * 对所有非零元素取log(1+v)，抑制重复行为（如反复浏览）对向量的支配
+     */
+    public SparseMatrix logScaled() {
+        float[] scaled = new float[values.length];
+        for (int p = 0; p < values.length; p++) {
+            scaled[p] = (float) Math.log1p(values[p]);
+        }
+        return new SparseMatrix(rowKeys, colKeys, rowPtr, colIdx, scaled);
+    }
+
+    /**
+     * 稀疏矩阵构建器
+     * 以(行ID, 列ID, 值)三元组形式追加数据，顺序任意，重复的坐标会被累加
+     */
+    public static final class Builder {
+
+        private long[] rows;
+        private long[] cols;
+        private float[] vals;
+        private int size;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            this.rows = new long[capacity];
+            this.cols = new long[capacity];
+            this.vals = new float[capacity];
+        }
+
+        public Builder add(long row, long col, float value) {
+            if (size == rows.length) {
+                int capacity = rows.length + (rows.length >> 1);
+                rows = Arrays.copyOf(rows, capacity);
+                cols = Arrays.copyOf(cols, capacity);
+                vals = Arrays.copyOf(vals, capacity);
+            }
+            rows[size] = row;
+            cols[size] = col;
+            vals[size] = value;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public SparseMatrix build() {
+            long[] rowKeys = distinctSorted(rows, size);
+            long[] colKeys = distinctSorted(cols, size);
+
+            // 计数排序：按行分桶
+            int[] rowPtr = new int[rowKeys.length + 1];
+            int[] rowOf = new int[size];
+            for (int i = 0; i < size; i++) {
+                int r = Arrays.binarySearch(rowKeys, rows[i]);
+                rowOf[i] = r;
+                rowPtr[r + 1]++;
+            }
+            for (int r = 0; r < rowKeys.length; r++) {
+                rowPtr[r + 1] += rowPtr[r];
+            }
+            // 列下标与值打包为long（高32位列下标，低32位浮点数位），行内排序后即按列有序
+            long[] packed = new long[size];
+            int[] cursor = Arrays.copyOf(rowPtr, rowKeys.length);
+            for (int i = 0; i < size; i++) {
+                int c = Arrays.binarySearch(colKeys, cols[i]);
+                packed[cursor[rowOf[i]]++] = ((long) c << 32) | (Float.floatToRawIntBits(vals[i]) & 0xFFFFFFFFL);
+            }
+
+            // 行内排序并合并重复列
+            int[] colIdx = new int[size];
+            float[] values = new float[size];
+            int[] compactPtr = new int[rowKeys.length + 1];
+            int write = 0;
+            for (int r = 0; r < rowKeys.length; r++) {
+                int from = rowPtr[r];
+                int to = rowPtr[r + 1];
+                Arrays.sort(packed, from, to);
+                int lastCol = -1;
+                for (int p = from; p < to; p++) {
+                    int c = (int) (packed[p] >>> 32);
+                    float v = Float.intBitsToFloat((int) packed[p]);
+                    if (c == lastCol) {
+                        values[write - 1] += v;
+                    } else {
+                        colIdx[write] = c;
+                        values[write] = v;
+                        write++;
+                        lastCol = c;
+                    }
+                }
+                compactPtr[r + 1] = write;
+            }
+            return new SparseMatrix(rowKeys, colKeys, compactPtr,
+                    Arrays.copyOf(colIdx, write), Arrays.copyOf(values, write));
+        }
+
+        private static long[] distinctSorted(long[] source, int length) {
+            long[] sorted = Arrays.copyOf(source, length);
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, unique);
+        }
+    }
+}
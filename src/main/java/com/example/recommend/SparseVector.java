@@ -0,0 +1,159 @@
+package com.example.recommend;
+
+import java.util.Arrays;
+
+/**
+ * 基本类型稀疏向量
+ * ID升序保存在long[]中，权重保存在对应位置的float[]中，模的平方随修改增量维护；
+ * 点积按ID归并计算，全程不装箱、不创建中间对象。
+ * 用于单个向量之间的相似度计算（两个用户的购买向量、增量更新中变化的用户或商品向量），
+ * 批量计算使用SparseMatrix，其每一行与本类结构相同，可通过ofRow转换。非线程安全。
+ */
+public final class SparseVector {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * 长度相差超过该倍数时，点积改为在较长向量中二分查找较短向量的每个ID
+     */
+    private static final int SEARCH_RATIO = 16;
+
+    private long[] ids;
+    private float[] weights;
+    private int size;
+    private double squaredNorm;
+
+    public SparseVector() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SparseVector(int expectedSize) {
+        int capacity = Math.max(INITIAL_CAPACITY, expectedSize);
+        this.ids = new long[capacity];
+        this.weights = new float[capacity];
+    }
+
+    /**
+     * 复制稀疏矩阵的一行，ID为矩阵的列ID
+     * @param matrix 稀疏矩阵
+     * @param row 行下标
+     * @return 新的向量
+     */
+    public static SparseVector ofRow(SparseMatrix matrix, int row) {
+        int from = matrix.rowStart(row);
+        int to = matrix.rowEnd(row);
+        SparseVector vector = new SparseVector(to - from);
+        for (int p = from; p < to; p++) {
+            float weight = matrix.valueAt(p);
+            vector.ids[vector.size] = matrix.colKey(matrix.colAt(p));
+            vector.weights[vector.size] = weight;
+            vector.squaredNorm += (double) weight * weight;
+            vector.size++;
+        }
+        return vector;
+    }
+
+    /**
+     * 累加ID的权重，ID不存在时插入到有序位置
+     * @param id ID
+     * @param delta 权重增量
+     */
+    public void add(long id, float delta) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            float old = weights[pos];
+            weights[pos] = old + delta;
+            squaredNorm += (double) weights[pos] * weights[pos] - (double) old * old;
+            return;
+        }
+        int insert = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            weights = Arrays.copyOf(weights, ids.length);
+        }
+        System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+        System.arraycopy(weights, insert, weights, insert + 1, size - insert);
+        ids[insert] = id;
+        weights[insert] = delta;
+        squaredNorm += (double) delta * delta;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    public float weightAt(int index) {
+        return weights[index];
+    }
+
+    /**
+     * ID的权重，不存在时返回0
+     */
+    public float weight(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        return pos >= 0 ? weights[pos] : 0f;
+    }
+
+    public double norm() {
+        return Math.sqrt(squaredNorm);
+    }
+
+    /**
+     * 点积：长度相近时双指针归并，相差悬殊时在较长向量中逐段二分查找
+     */
+    public double dot(SparseVector other) {
+        SparseVector small = size <= other.size ? this : other;
+        SparseVector large = small == this ? other : this;
+        if (small.size == 0) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        if (large.size > small.size * SEARCH_RATIO) {
+            int from = 0;
+            for (int i = 0; i < small.size && from < large.size; i++) {
+                int pos = Arrays.binarySearch(large.ids, from, large.size, small.ids[i]);
+                if (pos >= 0) {
+                    sum += (double) small.weights[i] * large.weights[pos];
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+            }
+            return sum;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < small.size && j < large.size) {
+            long a = small.ids[i];
+            long b = large.ids[j];
+            if (a == b) {
+                sum += (double) small.weights[i++] * large.weights[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 余弦相似度，结果限制在[0, 1]，任一向量为零向量时返回0
+     */
+    public double cosine(SparseVector other) {
+        double denominator = norm() * other.norm();
+        if (denominator <= 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, Math.min(1.0, dot(other) / denominator));
+    }
+}
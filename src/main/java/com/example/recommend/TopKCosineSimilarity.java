@@ -0,0 +1,200 @@
+package com.example.recommend;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * 并行Top-K余弦相似度计算
+ * 对矩阵的每一行，借助倒排索引累加与所有存在共同列的行的点积，归一化为余弦相似度后
+ * 用定长最小堆保留最高的K个，按行交给结果接收器处理。
+ * 用户相似度（用户-商品矩阵）与商品相似度（商品-用户矩阵）共用此计算过程。
+ * 使用MinHash LSH索引构建时为近似模式：候选行来自索引分桶碰撞，只对候选行计算精确余弦相似度。
+ */
+public final class TopKCosineSimilarity {
+
+    /**
+     * 单个子任务处理的最大行数，行数较小便于工作窃取均衡各行计算量的差异
+     */
+    private static final int LEAF_ROWS = 16;
+
+    /**
+     * 结果接收器，每个子任务创建一个实例，只在单个线程内使用
+     */
+    public interface RowSink {
+
+        /**
+         * 接收一行的计算结果
+         * @param row 行下标
+         * @param neighbors 邻居行下标（按相似度降序）
+         * @param similarities 相似度
+         * @param count 有效元素数量
+         */
+        void accept(int row, int[] neighbors, float[] similarities, int count);
+
+        /**
+         * 子任务结束时调用，用于写出剩余数据
+         */
+        void flush();
+    }
+
+    private final SparseMatrix matrix;
+    private final SparseMatrix inverted;
+    private final MinHashLshIndex lshIndex;
+    private final int topK;
+    private final int maxFanout;
+    private final double minSimilarity;
+    private final ThreadLocal<RowWorkspace> workspaces;
+
+    /**
+     * @param matrix 参与计算的矩阵，每行为一个对象的特征向量
+     * @param inverted 倒排索引，即matrix.transpose()
+     * @param topK 每行保留的邻居数量
+     * @param maxFanout 倒排列表长度上限，超过的列视为噪声（如刷单用户、全站爆款）不参与累加
+     * @param minSimilarity 低于该值的相似度直接丢弃
+     */
+    public TopKCosineSimilarity(SparseMatrix matrix, SparseMatrix inverted, int topK, int maxFanout, double minSimilarity) {
+        this(matrix, inverted, null, topK, maxFanout, minSimilarity);
+    }
+
+    /**
+     * 近似模式
+     * @param matrix 参与计算的矩阵，每行为一个对象的特征向量
+     * @param lshIndex 基于matrix建立的MinHash LSH索引
+     * @param topK 每行保留的邻居数量
+     * @param minSimilarity 低于该值的相似度直接丢弃
+     */
+    public TopKCosineSimilarity(SparseMatrix matrix, MinHashLshIndex lshIndex, int topK, double minSimilarity) {
+        this(matrix, null, lshIndex, topK, Integer.MAX_VALUE, minSimilarity);
+    }
+
+    private TopKCosineSimilarity(SparseMatrix matrix, SparseMatrix inverted, MinHashLshIndex lshIndex,
+                                 int topK, int maxFanout, double minSimilarity) {
+        this.matrix = matrix;
+        this.inverted = inverted;
+        this.lshIndex = lshIndex;
+        this.topK = topK;
+        this.maxFanout = maxFanout;
+        this.minSimilarity = minSimilarity;
+        this.workspaces = ThreadLocal.withInitial(() -> new RowWorkspace(matrix.rows(), topK, lshIndex));
+    }
+
+    /**
+     * 是否为近似模式
+     */
+    public boolean isApproximate() {
+        return lshIndex != null;
+    }
+
+    /**
+     * 在指定并行度的Fork/Join线程池上计算全部行
+     * @param parallelism 并行度
+     * @param sinkFactory 结果接收器工厂
+     */
+    public void compute(int parallelism, Supplier<? extends RowSink> sinkFactory) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RowRangeTask(0, matrix.rows(), sinkFactory));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 计算单行的Top-K邻居（在调用线程上执行）
+     * @param row 行下标
+     * @param neighbors 邻居输出数组，长度不小于topK
+     * @param similarities 相似度输出数组，长度不小于topK
+     * @return 邻居数量
+     */
+    public int computeRow(int row, int[] neighbors, float[] similarities) {
+        RowWorkspace workspace = workspaces.get();
+        TopKHeap heap = workspace.heap;
+        if (lshIndex != null) {
+            int count = lshIndex.collectCandidates(row, workspace.marks, workspace.candidates);
+            for (int k = 0; k < count; k++) {
+                int other = workspace.candidates[k];
+                double similarity = matrix.cosine(row, other);
+                if (similarity >= minSimilarity) {
+                    heap.offer(other, (float) similarity);
+                }
+            }
+            return heap.drainDescending(neighbors, similarities);
+        }
+
+        CoOccurrenceAccumulator accumulator = workspace.accumulator;
+        accumulator.accumulate(matrix, inverted, row, false, maxFanout);
+        double norm = matrix.norm(row);
+        for (int k = 0; k < accumulator.size(); k++) {
+            int other = accumulator.neighborAt(k);
+            double similarity = accumulator.dotAt(k) / (norm * matrix.norm(other));
+            if (similarity >= minSimilarity) {
+                heap.offer(other, (float) Math.min(1.0, similarity));
+            }
+        }
+        return heap.drainDescending(neighbors, similarities);
+    }
+
+    /**
+     * 单个工作线程复用的计算空间
+     */
+    private static final class RowWorkspace {
+
+        private final CoOccurrenceAccumulator accumulator;
+        private final int[] marks;
+        private final int[] candidates;
+        private final TopKHeap heap;
+        private final int[] neighbors;
+        private final float[] similarities;
+
+        RowWorkspace(int rows, int topK, MinHashLshIndex lshIndex) {
+            if (lshIndex == null) {
+                this.accumulator = new CoOccurrenceAccumulator(rows);
+                this.marks = null;
+                this.candidates = null;
+            } else {
+                this.accumulator = null;
+                this.marks = new int[rows];
+                this.candidates = new int[lshIndex.maxCandidates()];
+            }
+            this.heap = new TopKHeap(topK);
+            this.neighbors = new int[topK];
+            this.similarities = new float[topK];
+        }
+    }
+
+    /**
+     * 按行区间拆分的计算任务
+     */
+    private class RowRangeTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final Supplier<? extends RowSink> sinkFactory;
+
+        RowRangeTask(int from, int to, Supplier<? extends RowSink> sinkFactory) {
+            this.from = from;
+            this.to = to;
+            this.sinkFactory = sinkFactory;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_ROWS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RowRangeTask(from, mid, sinkFactory), new RowRangeTask(mid, to, sinkFactory));
+                return;
+            }
+
+            RowWorkspace workspace = workspaces.get();
+            RowSink sink = sinkFactory.get();
+            for (int row = from; row < to; row++) {
+                int count = computeRow(row, workspace.neighbors, workspace.similarities);
+                if (count > 0) {
+                    sink.accept(row, workspace.neighbors, workspace.similarities, count);
+                }
+            }
+            sink.flush();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.recommend;
+
+/**
+ * 定长最小堆，用于保留得分最高的K个元素
+ * 堆顶为当前保留元素中得分最低者，新元素只有高于堆顶才会入堆，整体复杂度O(n·logK)。
+ * 元素与得分分别存放在int/float数组中，可重复使用，非线程安全。
+ */
+public final class TopKHeap {
+
+    private final int capacity;
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    /**
+     * 尝试加入一个元素
+     * @return 是否被保留
+     */
+    public boolean offer(int id, float score) {
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 当前保留元素中的最低得分，堆为空时返回0
+     */
+    public float minScore() {
+        return size == 0 ? 0f : scores[0];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 按得分降序导出全部元素并清空堆
+     * @param outIds 元素输出数组，长度不小于size()
+     * @param outScores 得分输出数组，长度不小于size()
+     * @return 导出的元素数量
+     */
+    public int drainDescending(int[] outIds, float[] outScores) {
+        int count = size;
+        for (int k = count - 1; k >= 0; k--) {
+            outIds[k] = ids[0];
+            outScores[k] = scores[0];
+            size--;
+            if (size > 0) {
+                ids[0] = ids[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return count;
+    }
+
+    private void siftUp(int index) {
+        int id = ids[index];
+        float score = scores[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            ids[index] = ids[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+
+    private void siftDown(int index) {
+        int id = ids[index];
+        float score = scores[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            ids[index] = ids[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+}
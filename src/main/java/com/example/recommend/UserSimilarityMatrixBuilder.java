@@ -0,0 +1,307 @@
+package com.example.recommend;
+
+import com.example.config.RecommendProperties;
+import com.example.constants.RecommendConstants;
+import com.example.mapper.OrderItemMapper;
+import com.example.mapper.UserSimilarityMapper;
+import com.example.model.dto.UserPurchaseDTO;
+import com.example.model.entity.UserSimilarity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户相似度矩阵构建引擎
+ * 1. 一次流式扫描订单数据，将所有用户的购买向量加载为稀疏矩阵，并转置得到商品-用户倒排索引
+ * 2. 借助倒排索引只对至少购买过一件相同商品的用户对累加点积，在所有CPU核心上并行计算余弦相似度（见TopKCosineSimilarity）
+ * 3. 每个用户用定长最小堆只保留相似度最高的K个邻居，按(用户, 邻居)方向写入，
+ *    查询某用户的邻居只需扫描user_id_a的一段主键范围，表大小为O(用户数·K)
+ * 4. 分批调用batchInsert写入结果，每批独立提交，不持有长事务；构建结束后清理本次未刷新的旧记录
+ * 用户规模很大时可切换为MinHash LSH近似模式，只对分桶碰撞的用户对计算相似度，
+ * 召回率与耗时可通过band参数调整，并可用evaluateApproximateRecall与精确结果对比
+ * 构建完成后发布快照（购买矩阵与每个用户的第K名相似度），供增量更新继续维护；
+ * 开启相似度快照文件时还输出每个用户按相似度降序的邻居列表，各节点直接内存映射查询
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSimilarityMatrixBuilder {
+
+    /**
+     * 保留七位小数后为0的相似度不写入
+     */
+    private static final double MIN_STORED_SIMILARITY = 0.00000005;
+
+    private final OrderItemMapper orderItemMapper;
+    private final UserSimilarityMapper userSimilarityMapper;
+    private final RecommendProperties recommendProperties;
+    private final SimilaritySnapshotStore similaritySnapshotStore;
+
+    /**
+     * 最近一次成功构建的快照
+     */
+    private volatile UserSimilaritySnapshot latestSnapshot;
+
+    /**
+     * 加载用户-商品购买矩阵（行为用户，列为商品，值为购买数量）
+     * @param days 统计最近多少天的订单
+     * @param completedBefore 只统计在该时间之前完成的订单（不包含），为空时不限；
+     *                        增量更新从该时间开始处理新完成的订单，两者不重叠
+     * @return 稀疏矩阵
+     */
+    public SparseMatrix loadPurchaseMatrix(int days, LocalDateTime completedBefore) {
+        SparseMatrix.Builder builder = SparseMatrix.builder(1 << 16);
+        orderItemMapper.scanUserPurchases(days, completedBefore, context -> {
+            UserPurchaseDTO purchase = context.getResultObject();
+            if (purchase.getUserId() != null && purchase.getProductId() != null && purchase.getQuantity() != null) {
+                builder.add(purchase.getUserId(), purchase.getProductId(), purchase.getQuantity());
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * 构建用户相似度矩阵
+     * @param batchSize 每批写入的记录数
+     * @return 写入的记录数量
+     */
+    public int build(int batchSize) {
+        return build(batchSize, recommendProperties.getSimilarity().getMode());
+    }
+
+    /**
+     * 按指定模式构建用户相似度矩阵
+     * @param batchSize 每批写入的记录数
+     * @param mode 构建模式
+     * @return 写入的记录数量
+     */
+    public int build(int batchSize, SimilarityMode mode) {
+        return build(batchSize, RecommendConstants.DEFAULT_SIMILAR_USERS_TOP_K, mode);
+    }
+
+    /**
+     * 构建用户相似度矩阵
+     * @param batchSize 每批写入的记录数
+     * @param topK 每个用户保留的邻居数量
+     * @param mode 构建模式
+     * @return 写入的记录数量
+     */
+    public int build(int batchSize, int topK, SimilarityMode mode) {
+        long startTime = System.currentTimeMillis();
+        // 订单完成时间由数据库写入，增量水位线的起点使用数据库时间
+        LocalDateTime loadTime = orderItemMapper.selectCurrentTime();
+        SparseMatrix matrix = loadPurchaseMatrix(RecommendConstants.DEFAULT_ACTIVE_DAYS, loadTime);
+        log.info("加载用户购买矩阵完成，用户数: {}, 商品数: {}, 非零元素: {}, 耗时: {}ms",
+                matrix.rows(), matrix.cols(), matrix.nnz(), System.currentTimeMillis() - startTime);
+        if (matrix.rows() < 2) {
+            log.info("没有足够的活跃用户，跳过构建相似度矩阵");
+            return 0;
+        }
+
+        long indexStart = System.currentTimeMillis();
+        TopKCosineSimilarity similarity = createSimilarity(matrix, topK, mode);
+        log.info("{}模式索引构建完成，耗时: {}ms", mode, System.currentTimeMillis() - indexStart);
+
+        AtomicLong totalPairs = new AtomicLong();
+        AtomicLong failedPairs = new AtomicLong();
+        float[] neighborFloors = new float[matrix.rows()];
+        // 数据库时间戳精度为秒，截断后才能准确区分本次写入与历史记录
+        LocalDateTime buildTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        // 开启增量更新时user_similarity表比快照新，查询不读取用户相似度快照，也就不再生成
+        NeighborLists.RowCollector collector = similaritySnapshotStore.isEnabled()
+                && !recommendProperties.getSimilarity().isIncrementalEnabled()
+                ? NeighborLists.collector(matrix, false) : null;
+        similarity.compute(Runtime.getRuntime().availableProcessors(),
+                () -> new SimilarityWriter(matrix, topK, neighborFloors, batchSize, buildTime, collector,
+                        totalPairs, failedPairs));
+        if (collector != null) {
+            similaritySnapshotStore.publish(SimilaritySnapshotStore.USER_SIMILARITY, collector.build());
+        }
+
+        // 删除本次构建未覆盖的历史记录（包括以前写入的零相似度记录），有写入失败时保留旧数据
+        if (failedPairs.get() == 0) {
+            int removed = userSimilarityMapper.deleteBeforeTime(buildTime);
+            log.info("清理过期用户相似度记录 {} 条", removed);
+            latestSnapshot = new UserSimilaritySnapshot(matrix, neighborFloors, topK, loadTime);
+        } else {
+            log.warn("有 {} 条用户相似度写入失败，跳过清理历史记录", failedPairs.get());
+        }
+
+        log.info("用户相似度矩阵构建完成，共写入 {} 条，耗时: {}ms", totalPairs.get(), System.currentTimeMillis() - startTime);
+        return (int) Math.min(Integer.MAX_VALUE, totalPairs.get());
+    }
+
+    /**
+     * 最近一次成功构建的快照，尚未构建过返回null
+     */
+    public UserSimilaritySnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    /**
+     * 评估近似模式的召回率：抽样部分用户，分别用精确模式与近似模式计算Top-K邻居并比较
+     * 精确模式与calculateUserSimilarity使用相同的购买数量余弦相似度，结果可作为基准
+     * @param sampleSize 抽样用户数
+     * @param topK 每个用户的邻居数量
+     * @return 召回率、耗时等统计
+     */
+    public Map<String, Object> evaluateApproximateRecall(int sampleSize, int topK) {
+        Map<String, Object> result = new HashMap<>();
+        SparseMatrix matrix = loadPurchaseMatrix(RecommendConstants.DEFAULT_ACTIVE_DAYS, null);
+        RecommendProperties.Similarity config = recommendProperties.getSimilarity();
+        result.put("users", matrix.rows());
+        result.put("bands", config.getLshBands());
+        result.put("rowsPerBand", config.getLshRowsPerBand());
+        result.put("maxBucketSize", config.getLshMaxBucketSize());
+        if (matrix.rows() < 2) {
+            result.put("sampleSize", 0);
+            return result;
+        }
+
+        long start = System.currentTimeMillis();
+        TopKCosineSimilarity exact = createSimilarity(matrix, topK, SimilarityMode.EXACT);
+        long exactIndexMillis = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+        TopKCosineSimilarity approximate = createSimilarity(matrix, topK, SimilarityMode.MINHASH_LSH);
+        long approximateIndexMillis = System.currentTimeMillis() - start;
+
+        int samples = Math.min(sampleSize, matrix.rows());
+        int[] exactNeighbors = new int[topK];
+        int[] approximateNeighbors = new int[topK];
+        float[] exactSimilarities = new float[topK];
+        float[] approximateSimilarities = new float[topK];
+        long exactNanos = 0;
+        long approximateNanos = 0;
+        long expected = 0;
+        long hits = 0;
+        // 等间隔抽样，覆盖不同ID段的用户
+        double step = (double) matrix.rows() / samples;
+        for (int s = 0; s < samples; s++) {
+            int row = (int) (s * step);
+            long t0 = System.nanoTime();
+            int exactCount = exact.computeRow(row, exactNeighbors, exactSimilarities);
+            long t1 = System.nanoTime();
+            int approximateCount = approximate.computeRow(row, approximateNeighbors, approximateSimilarities);
+            long t2 = System.nanoTime();
+            exactNanos += t1 - t0;
+            approximateNanos += t2 - t1;
+
+            expected += exactCount;
+            for (int i = 0; i < exactCount; i++) {
+                for (int j = 0; j < approximateCount; j++) {
+                    if (exactNeighbors[i] == approximateNeighbors[j]) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        result.put("sampleSize", samples);
+        result.put("topK", topK);
+        result.put("recall", expected == 0 ? 1.0 : (double) hits / expected);
+        result.put("exactIndexMillis", exactIndexMillis);
+        result.put("approximateIndexMillis", approximateIndexMillis);
+        result.put("exactAvgMicrosPerUser", exactNanos / 1000.0 / samples);
+        result.put("approximateAvgMicrosPerUser", approximateNanos / 1000.0 / samples);
+        log.info("用户相似度近似模式评估: {}", result);
+        return result;
+    }
+
+    /**
+     * 按模式创建相似度计算器
+     */
+    private TopKCosineSimilarity createSimilarity(SparseMatrix matrix, int topK, SimilarityMode mode) {
+        if (mode == SimilarityMode.MINHASH_LSH) {
+            RecommendProperties.Similarity config = recommendProperties.getSimilarity();
+            MinHashLshIndex index = MinHashLshIndex.build(matrix, config.getLshBands(), config.getLshRowsPerBand(),
+                    config.getLshMaxBucketSize(), config.getLshSeed());
+            return new TopKCosineSimilarity(matrix, index, topK, MIN_STORED_SIMILARITY);
+        }
+        // 商品 -> 购买过该商品的用户
+        SparseMatrix inverted = matrix.transpose();
+        return new TopKCosineSimilarity(matrix, inverted, topK, Integer.MAX_VALUE, MIN_STORED_SIMILARITY);
+    }
+
+    /**
+     * 将相似度转换为存储格式（限制在0-1之间，按表字段保留七位小数）
+     */
+    static BigDecimal toDecimal(double similarity) {
+        double clamped = Math.max(0.0, Math.min(1.0, similarity));
+        return BigDecimal.valueOf(clamped).setScale(RecommendConstants.SIMILARITY_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 将每个用户的Top-K邻居转换为相似度记录并分批写入
+     */
+    private class SimilarityWriter implements TopKCosineSimilarity.RowSink {
+
+        private final SparseMatrix matrix;
+        private final int topK;
+        private final float[] neighborFloors;
+        private final int batchSize;
+        private final LocalDateTime buildTime;
+        private final NeighborLists.RowCollector collector;
+        private final AtomicLong totalPairs;
+        private final AtomicLong failedPairs;
+        private final List<UserSimilarity> batch;
+
+        SimilarityWriter(SparseMatrix matrix, int topK, float[] neighborFloors, int batchSize, LocalDateTime buildTime,
+                         NeighborLists.RowCollector collector, AtomicLong totalPairs, AtomicLong failedPairs) {
+            this.matrix = matrix;
+            this.topK = topK;
+            this.neighborFloors = neighborFloors;
+            this.batchSize = batchSize;
+            this.buildTime = buildTime;
+            this.collector = collector;
+            this.totalPairs = totalPairs;
+            this.failedPairs = failedPairs;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void accept(int row, int[] neighbors, float[] similarities, int count) {
+            neighborFloors[row] = count == topK ? similarities[count - 1] : 0f;
+            if (collector != null) {
+                collector.set(row, neighbors, similarities, count);
+            }
+            for (int k = 0; k < count; k++) {
+                batch.add(UserSimilarity.builder()
+                        .userIdA(matrix.rowKey(row))
+                        .userIdB(matrix.rowKey(neighbors[k]))
+                        .similarity(toDecimal(similarities[k]))
+                        .updateTime(buildTime)
+                        .build());
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                userSimilarityMapper.batchInsert(batch);
+                long total = totalPairs.addAndGet(batch.size());
+                log.debug("已写入 {} 条用户相似度", total);
+            } catch (Exception e) {
+                failedPairs.addAndGet(batch.size());
+                log.error("批量写入用户相似度失败，本批 {} 条", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+}
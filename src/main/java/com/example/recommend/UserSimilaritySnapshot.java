@@ -0,0 +1,48 @@
+package com.example.recommend;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户相似度构建快照
+ * 保存最近一次全量构建使用的购买矩阵及每个用户的第K名相似度，供增量更新在此基础上继续维护。
+ * 快照本身只读，可被多个线程并发访问。
+ */
+public final class UserSimilaritySnapshot {
+
+    private final SparseMatrix matrix;
+    private final float[] neighborFloors;
+    private final int topK;
+    private final LocalDateTime loadTime;
+
+    /**
+     * @param matrix 用户-商品购买矩阵
+     * @param neighborFloors 按矩阵行下标存放的第K名相似度，邻居不足K个的用户为0
+     * @param topK 每个用户保留的邻居数量
+     * @param loadTime 开始加载购买数据的时间，此前完成的订单均已包含在矩阵中
+     */
+    public UserSimilaritySnapshot(SparseMatrix matrix, float[] neighborFloors, int topK, LocalDateTime loadTime) {
+        this.matrix = matrix;
+        this.neighborFloors = neighborFloors;
+        this.topK = topK;
+        this.loadTime = loadTime;
+    }
+
+    public SparseMatrix matrix() {
+        return matrix;
+    }
+
+    /**
+     * 指定行用户的第K名相似度，新相似度不低于该值时才会进入其邻居列表
+     */
+    public float neighborFloor(int row) {
+        return neighborFloors[row];
+    }
+
+    public int topK() {
+        return topK;
+    }
+
+    public LocalDateTime loadTime() {
+        return loadTime;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.model.entity.ProductSimilarity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductSimilarityService extends IService<ProductSimilarity> {
+    /**
+     * 获取相似度最高的商品
+     * @param productId 商品ID
+     * @param limit 限制数量
+     * @return 相似度最高的商品列表
+     */
+    List<ProductSimilarity> getMostSimilarProducts(Long productId, Integer limit);
+
+    /**
+     * 获取指定分类下的相似商品
+     * @param productId 商品ID
+     * @param categoryId 分类ID
+     * @param limit 限制数量
+     * @return 同分类下的相似商品列表
+     */
+    List<ProductSimilarity> getSimilarProductsByCategory(Long productId, Long categoryId, Integer limit);
+
+    /**
+     * 删除过期的相似度
+     * @param beforeTime 过期时间
+     */
+    int deleteOldSimilarities(LocalDateTime beforeTime);
+
+    /**
+     * 构建商品相似度矩阵
+     * @param batchSize 批量大小
+     * @return 写入的相似度记录数量
+     */
+    int buildProductSimilarityMatrix(Integer batchSize);
+}
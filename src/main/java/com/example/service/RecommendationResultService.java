@@ -178,4 +178,18 @@ public interface RecommendationResultService extends IService<RecommendationResu
      * @return 有效期统计数据
      */
     Map<String, Object> getRecommendationExpiryStats();
+    
+    /**
+     * 获取推荐列表缓存的命中统计
+     * @return 缓存统计数据
+     */
+    Map<String, Object> getRecommendationCacheStats();
+    
+    /**
+     * 为全部活跃用户批量生成个性化推荐
+     * @param limit 每个用户的推荐数量
+     * @param resume 是否从上次中断的位置继续
+     * @return 生成统计数据
+     */
+    Map<String, Object> generateBatchRecommendations(Integer limit, boolean resume);
 } 
\ No newline at end of file
@@ -3,10 +3,12 @@ package com.example.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.model.dto.UserBehaviorSnapshot;
 import com.example.model.entity.UserBehavior;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -21,7 +23,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * @param productId 商品ID
      * @param categoryId 分类ID
      * @param stayTime 停留时间(秒)
-     * @return 是否成功
+     * @return 是否已接收（异步批量写入，见BehaviorIngestionPipeline）
      */
     boolean recordViewBehavior(Long userId, Long productId, Long categoryId, Integer stayTime);
     
@@ -30,7 +32,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * @param userId 用户ID
      * @param productId 商品ID
      * @param categoryId 分类ID
-     * @return 是否成功
+     * @return 是否已接收（异步批量写入，见BehaviorIngestionPipeline）
      */
     boolean recordClickBehavior(Long userId, Long productId, Long categoryId);
     
@@ -39,7 +41,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * @param userId 用户ID
      * @param productId 商品ID
      * @param categoryId 分类ID
-     * @return 是否成功
+     * @return 是否已接收（异步批量写入，见BehaviorIngestionPipeline）
      */
     boolean recordCartBehavior(Long userId, Long productId, Long categoryId);
     
@@ -48,7 +50,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * @param userId 用户ID
      * @param productId 商品ID
      * @param categoryId 分类ID
-     * @return 是否成功
+     * @return 是否已接收（异步批量写入，见BehaviorIngestionPipeline）
      */
     boolean recordFavoriteBehavior(Long userId, Long productId, Long categoryId);
     
@@ -56,7 +58,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * 记录用户搜索行为
      * @param userId 用户ID
      * @param keyword 搜索关键词
-     * @return 是否成功
+     * @return 是否已接收（异步批量写入，见BehaviorIngestionPipeline）
      */
     boolean recordSearchBehavior(Long userId, String keyword);
     
@@ -86,7 +88,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * @param userId 用户ID
      * @param productId 商品ID
      * @param categoryId 分类ID
-     * @return 是否成功
+     * @return 是否已接收（异步批量写入，见BehaviorIngestionPipeline）
      */
     boolean recordPurchaseBehavior(Long userId, Long productId, Long categoryId);
     
@@ -114,6 +116,17 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      */
     List<Long> getFavoriteProducts(Long userId, Integer limit);
     
+    /**
+     * 批量获取多个用户的行为快照（最近浏览、收藏、购买的商品），每批用户只查询一次数据库
+     * @param userIds 用户ID集合
+     * @param viewLimit 每个用户的浏览商品数量上限
+     * @param favoriteLimit 每个用户的收藏商品数量上限
+     * @param purchaseLimit 每个用户的购买商品数量上限
+     * @return 用户ID到行为快照的映射，包含每个请求的用户，没有行为的用户对应空快照
+     */
+    Map<Long, UserBehaviorSnapshot> getBehaviorSnapshots(Collection<Long> userIds, Integer viewLimit,
+                                                         Integer favoriteLimit, Integer purchaseLimit);
+    
     /**
      * 获取用户的搜索历史
      * @param userId 用户ID
@@ -123,11 +136,20 @@ public interface UserBehaviorService extends IService<UserBehavior> {
     List<String> getUserSearchHistory(Long userId, Integer limit);
     
     /**
-     * 获取热门搜索关键词
+     * 获取最近一段时间（默认时间段见app.behavior.hot-search.default-window-minutes，默认60分钟）的热门搜索关键词
+     * 注意：只统计默认时间段内的搜索，不再统计全部历史搜索；需要更长时间段时使用带windowMinutes的重载
      * @param limit 限制数量
-     * @return 热门关键词列表
+     * @return 热门关键词列表，字段含义同{@link #getHotSearchKeywords(Integer, Integer)}（内存统计时search_count为保证次数，另含max_error）
      */
     List<Map<String, Object>> getHotSearchKeywords(Integer limit);
+
+    /**
+     * 获取最近一段时间的热门搜索关键词
+     * @param windowMinutes 时间段（分钟），最长为保留时长
+     * @param limit 限制数量
+     * @return 热门关键词列表，包含keyword、search_count（内存统计时为不大于真实次数的保证次数，真实次数不超过search_count + max_error）
+     */
+    List<Map<String, Object>> getHotSearchKeywords(Integer windowMinutes, Integer limit);
     
     /**
      * 获取商品的平均评分
@@ -183,7 +205,7 @@ public interface UserBehaviorService extends IService<UserBehavior> {
     List<Map<String, Object>> analyzeUserInterests(Long userId, Integer limit);
     
     /**
-     * 获取用户行为热力图数据
+     * 获取用户行为热力图数据（读取用户每日活跃汇总）
      * @param userId 用户ID
      * @param days 天数
      * @return 热力图数据，包含date、behaviorCount
@@ -198,6 +220,14 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      */
     Integer calculateUserActivityScore(Long userId, Integer days);
     
+    /**
+     * 批量获取用户活跃度评分（用于用户分群等批量任务）
+     * @param userIds 用户ID集合
+     * @param days 天数
+     * @return 用户ID到活跃度评分（0-100）的映射
+     */
+    Map<Long, Integer> calculateUserActivityScores(Collection<Long> userIds, Integer days);
+    
     /**
      * 清理指定日期之前的行为数据
      * @param beforeDate 日期
@@ -212,4 +242,10 @@ public interface UserBehaviorService extends IService<UserBehavior> {
      * @return 合并的记录数
      */
     Integer mergeUserBehaviors(Long sourceUserId, Long targetUserId);
+    
+    /**
+     * 获取行为异步写入的队列深度与写入统计（counter为行为计数合并写入的统计，hot_search为热门搜索关键词统计，rating_repair为最近一次评分汇总校正，activity为每日活跃汇总）
+     * @return 统计信息
+     */
+    Map<String, Object> getIngestionStats();
 } 
\ No newline at end of file
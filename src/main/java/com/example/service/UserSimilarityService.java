@@ -8,6 +8,7 @@ import java.time.LocalDateTime;
 import java.util.Map;
 import com.example.model.vo.RecommendUserVO;
 import com.example.model.vo.SimilarityPairVO;
+import com.example.recommend.SimilarityMode;
 
 public interface UserSimilarityService extends IService<UserSimilarity> {
     /**
@@ -75,6 +76,21 @@ public interface UserSimilarityService extends IService<UserSimilarity> {
      */
     int buildUserSimilarityMatrix(Integer batchSize);
 
+    /**
+     * 按指定模式构建用户相似度矩阵
+     * @param batchSize 批量大小
+     * @param mode 构建模式（精确/MinHash LSH近似）
+     * @return 写入的相似度记录数量
+     */
+    int buildUserSimilarityMatrix(Integer batchSize, SimilarityMode mode);
+
+    /**
+     * 评估MinHash LSH近似模式相对精确计算的召回率与耗时
+     * @param sampleSize 抽样用户数
+     * @return 评估结果
+     */
+    Map<String, Object> evaluateApproximateSimilarity(Integer sampleSize);
+
     /**
      * 获取推荐用户列表
      * @param userId 用户ID
@@ -84,16 +100,32 @@ public interface UserSimilarityService extends IService<UserSimilarity> {
     List<RecommendUserVO> getRecommendedUsers(Long userId, Integer limit);
 
     /**
-     * 获取高相似度用户对
+     * 获取相似度最高的高相似度用户对，按相似度降序，最多返回RecommendConstants.MAX_HIGH_SIMILARITY_PAIRS对
+     * （内部按主键分页扫描，内存中只保留当前最高的部分）
      * @param threshold 阈值
      * @return 高相似度用户对列表
+     * @deprecated 结果被截断且每次扫描全部达到阈值的记录，需要完整结果时使用
+     *             {@link #getHighSimilarityUserPairs(BigDecimal, Long, Long, Integer)}分页读取
      */
+    @Deprecated
     List<SimilarityPairVO> getHighSimilarityUserPairs(BigDecimal threshold);
 
+    /**
+     * 分页获取高相似度用户对，按(用户A, 用户B)升序
+     * 下一页以本页最后一条的userIdA、userIdB作为起点；返回数量少于limit时没有更多数据
+     * @param threshold 阈值
+     * @param afterUserIdA 上一页最后一条的用户A的ID，第一页传null
+     * @param afterUserIdB 上一页最后一条的用户B的ID，第一页传null
+     * @param limit 每页数量
+     * @return 高相似度用户对列表
+     */
+    List<SimilarityPairVO> getHighSimilarityUserPairs(BigDecimal threshold, Long afterUserIdA, Long afterUserIdB,
+                                                      Integer limit);
+
     /**
      * 获取相似度分布
-     * @param days 天数
-     * @return 相似度分布
+     * @param days 只统计更新时间在该天数之前的记录
+     * @return 相似度区间（如"0.1-0.2"）到记录数的映射，按区间升序
      */
     Map<String, Integer> getSimilarityDistribution(Integer days);
     
@@ -55,7 +55,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
             
             boolean result = save(cart);
             
-            // 记录用户加入购物车行为
+            // 记录用户加入购物车行为：只放入异步写入队列，不在本事务中执行INSERT
             if (result) {
                 try {
                     userBehaviorService.recordCartBehavior(userId, productId, null);
@@ -3,12 +3,15 @@ package com.example.service.impl;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.cache.ProductCardCache;
 import com.example.common.ResultCode;
 import com.example.constants.ProductConstants;
 import com.example.exception.BusinessException;
 import com.example.mapper.ProductMapper;
+import com.example.model.dto.ProductScoreDTO;
 import com.example.model.entity.Product;
 import com.example.model.entity.User;
+import com.example.recommend.PopularityEngine;
 import com.example.service.CategoryService;
 import com.example.service.ProductService;
 import com.example.service.UserService;
@@ -26,6 +29,8 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -40,6 +45,8 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     private final CategoryService categoryService;
     private final UserService userService;
     private final ObjectMapper objectMapper;
+    private final PopularityEngine popularityEngine;
+    private final ProductCardCache productCardCache;
 
     @Override
     public IPage<Product> getProductPage(Page<Product> page, Map<String, Object> params) {
@@ -106,6 +113,7 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         // 设置更新时间
         product.setUpdateTime(LocalDateTime.now());
 
+        productCardCache.evict(product.getId());
         return updateById(product);
     }
 
@@ -123,6 +131,7 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         }
 
         // 删除商品
+        productCardCache.evict(id);
         return removeById(id);
     }
 
@@ -133,6 +142,7 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
             throw new BusinessException(ResultCode.VALIDATE_FAILED, "商品ID列表不能为空");
         }
 
+        productCardCache.evict(ids);
         return removeByIds(ids);
     }
 
@@ -188,6 +198,7 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         }
 
         int rows = productMapper.batchUpdateStatus(ids, status);
+        productCardCache.evict(ids);
         return rows > 0;
     }
 
@@ -196,6 +207,22 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         if (limit == null || limit <= 0) {
             limit = ProductConstants.DEFAULT_HOT_PRODUCTS_LIMIT; // 默认10个
         }
+        // 优先使用内存中的热度榜，只按ID批量查询商品详情
+        try {
+            List<ProductScoreDTO> ranked = popularityEngine.topProducts(limit);
+            if (!ranked.isEmpty()) {
+                List<Long> ids = ranked.stream().map(ProductScoreDTO::getProductId).collect(Collectors.toList());
+                Map<Long, Product> products = listByIds(ids).stream()
+                        .filter(product -> product.getStatus() != null && product.getStatus() == ProductConstants.STATUS_ON_SHELF)
+                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+                List<Product> result = ids.stream().map(products::get).filter(Objects::nonNull).collect(Collectors.toList());
+                if (!result.isEmpty()) {
+                    return result;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取商品热度榜失败，使用兜底查询: {}", e.getMessage());
+        }
         return productMapper.selectHotProducts(limit);
     }
 
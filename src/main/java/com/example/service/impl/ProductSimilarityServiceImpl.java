@@ -0,0 +1,72 @@
+package com.example.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.constants.RecommendConstants;
+import com.example.mapper.ProductSimilarityMapper;
+import com.example.model.entity.ProductSimilarity;
+import com.example.recommend.ProductNeighborIndex;
+import com.example.recommend.ProductSimilarityMatrixBuilder;
+import com.example.service.ProductSimilarityService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 商品相似度服务实现类
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSimilarityServiceImpl extends ServiceImpl<ProductSimilarityMapper, ProductSimilarity> implements ProductSimilarityService {
+
+    private final ProductSimilarityMapper productSimilarityMapper;
+    private final ProductSimilarityMatrixBuilder productSimilarityMatrixBuilder;
+    private final ProductNeighborIndex productNeighborIndex;
+
+    @Override
+    public List<ProductSimilarity> getMostSimilarProducts(Long productId, Integer limit) {
+        if (productId == null) {
+            return Collections.emptyList();
+        }
+        if (limit == null || limit <= 0) {
+            limit = RecommendConstants.DEFAULT_SIMILAR_PRODUCTS_LIMIT;
+        }
+        return productSimilarityMapper.selectMostSimilarProducts(productId, limit);
+    }
+
+    @Override
+    public List<ProductSimilarity> getSimilarProductsByCategory(Long productId, Long categoryId, Integer limit) {
+        if (productId == null || categoryId == null) {
+            return Collections.emptyList();
+        }
+        if (limit == null || limit <= 0) {
+            limit = RecommendConstants.DEFAULT_SIMILAR_PRODUCTS_LIMIT;
+        }
+        return productSimilarityMapper.selectSimilarProductsByCategory(productId, categoryId, limit);
+    }
+
+    @Override
+    public int deleteOldSimilarities(LocalDateTime beforeTime) {
+        if (beforeTime == null) {
+            beforeTime = LocalDateTime.now().minusDays(RecommendConstants.DEFAULT_SIMILARITY_EXPIRY_DAYS);
+        }
+        return productSimilarityMapper.deleteBeforeTime(beforeTime);
+    }
+
+    @Override
+    public int buildProductSimilarityMatrix(Integer batchSize) {
+        if (batchSize == null || batchSize <= 0) {
+            batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
+        }
+
+        // 一次加载全部交互向量后在内存中并行计算，分批写入，不开启整体事务
+        int written = productSimilarityMatrixBuilder.build(batchSize);
+        // 重新加载内存中的相似商品列表
+        productNeighborIndex.refresh();
+        return written;
+    }
+}
@@ -4,13 +4,27 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.cache.ProductCardCache;
+import com.example.cache.RecommendationListCache;
+import com.example.constants.ProductConstants;
+import com.example.constants.RecommendationConstant;
 import com.example.mapper.RecommendationResultMapper;
+import com.example.model.dto.ProductCardDTO;
+import com.example.model.dto.ProductScoreDTO;
 import com.example.model.entity.RecommendationResult;
 import com.example.model.vo.ProductRecommendVO;
-import com.example.model.vo.RecommendUserVO;
+import com.example.recommend.AlsRecommender;
+import com.example.recommend.BatchRecommendationGenerator;
+import com.example.recommend.ExpiredRecommendationPurger;
+import com.example.recommend.LongHashSet;
+import com.example.recommend.NeighborLists;
+import com.example.recommend.PopularityEngine;
+import com.example.recommend.RecommendationCalculator;
+import com.example.recommend.ProductNeighborIndex;
+import com.example.recommend.RecommendationDataLoader;
+import com.example.recommend.SimilaritySnapshotStore;
+import com.example.recommend.TopKHeap;
 import com.example.service.RecommendationResultService;
-import com.example.service.UserBehaviorService;
-import com.example.service.UserSimilarityService;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,8 +32,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 
 /**
@@ -33,13 +49,43 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
     private RecommendationResultMapper recommendationResultMapper;
     
     @Autowired
-    private UserBehaviorService userBehaviorService;
+    private RecommendationListCache recommendationListCache;
     
     @Autowired
-    private UserSimilarityService userSimilarityService;
+    private RecommendationCalculator recommendationCalculator;
+    
+    @Autowired
+    private RecommendationDataLoader recommendationDataLoader;
+    
+    @Autowired
+    private BatchRecommendationGenerator batchRecommendationGenerator;
+    
+    @Autowired
+    private PopularityEngine popularityEngine;
+    
+    @Autowired
+    private ProductCardCache productCardCache;
+    
+    @Autowired
+    private ProductNeighborIndex productNeighborIndex;
+    
+    @Autowired
+    private ExpiredRecommendationPurger expiredRecommendationPurger;
+    
+    @Autowired
+    private SimilaritySnapshotStore similaritySnapshotStore;
+    
+    @Autowired
+    private AlsRecommender alsRecommender;
 
     @Override
     public List<RecommendationResult> getUserRecommendations(Long userId, Integer limit) {
+        if (userId != null && limit != null) {
+            List<RecommendationResult> cached = recommendationListCache.get(userId, limit, false);
+            if (cached != null) {
+                return cached;
+            }
+        }
         return recommendationResultMapper.selectByUserId(userId, limit);
     }
 
@@ -50,6 +96,12 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
 
     @Override
     public List<RecommendationResult> getValidRecommendations(Long userId, Integer limit) {
+        if (userId != null && limit != null) {
+            List<RecommendationResult> cached = recommendationListCache.get(userId, limit, true);
+            if (cached != null) {
+                return cached;
+            }
+        }
         return recommendationResultMapper.selectValidRecommendations(userId, LocalDateTime.now(), limit);
     }
 
@@ -61,6 +113,7 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
     @Override
     public boolean saveOrUpdateRecommendation(Long userId, Long productId, BigDecimal score, Integer algorithmType, LocalDateTime expireTime) {
         int result = recommendationResultMapper.insertOrUpdate(userId, productId, score, algorithmType, expireTime);
+        recommendationListCache.evict(userId);
         return result > 0;
     }
 
@@ -79,23 +132,27 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
         }
         
         int result = recommendationResultMapper.batchInsert(recommendationList);
+        recommendationListCache.evict(recommendationList.stream().map(RecommendationResult::getUserId).collect(Collectors.toList()));
         return result > 0;
     }
 
     @Override
     public int cleanExpiredRecommendations() {
-        return recommendationResultMapper.deleteExpiredRecommendations(LocalDateTime.now());
+        // 按主键分段删除，避免一条DELETE长时间锁表
+        return expiredRecommendationPurger.purge();
     }
 
     @Override
     public boolean deleteUserRecommendations(Long userId) {
         int result = recommendationResultMapper.deleteByUserId(userId);
+        recommendationListCache.evict(userId);
         return result > 0;
     }
 
     @Override
     public boolean deleteRecommendationsByAlgorithmType(Integer algorithmType) {
         int result = recommendationResultMapper.deleteByAlgorithmType(algorithmType);
+        recommendationListCache.invalidateAll();
         return result > 0;
     }
 
@@ -109,13 +166,49 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
         if (productIds == null || productIds.isEmpty()) {
             return new ArrayList<>();
         }
-        
-        Map<Long, Map<String, Object>> resultMap = recommendationResultMapper.selectSimilarProductRecommendations(productIds, limit);
-        if (resultMap == null || resultMap.isEmpty()) {
+        if (limit == null || limit <= 0) {
+            limit = RecommendationConstant.DEFAULT_RECOMMEND_LIMIT;
+        }
+
+        // 各浏览商品的相似商品列表在内存中归并，得分为与各浏览商品相似度的平均值
+        long[] sources = productIds.stream().filter(Objects::nonNull).distinct().mapToLong(Long::longValue).toArray();
+        NeighborLists neighbors = recommendationDataLoader.productNeighbors();
+        int maxCandidates = neighbors.neighborCount(sources, sources.length);
+        if (maxCandidates == 0) {
             return new ArrayList<>();
         }
-        
-        return new ArrayList<>(resultMap.values());
+        LongHashSet excluded = new LongHashSet(sources.length);
+        excluded.addAll(sources, sources.length);
+        long[] candidates = new long[maxCandidates];
+        TopKHeap heap = new TopKHeap(Math.min(limit, maxCandidates));
+        neighbors.merge(sources, sources.length, excluded, (ordinal, productId, score, hits) -> {
+            candidates[ordinal] = productId;
+            heap.offer(ordinal, score);
+        });
+        int[] ordinals = new int[heap.size()];
+        float[] ranked = new float[heap.size()];
+        int count = heap.drainDescending(ordinals, ranked);
+
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(candidates[ordinals[i]]);
+        }
+        Map<Long, ProductCardDTO> cards = productCardCache.getAll(ids);
+        List<Map<String, Object>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductCardDTO card = cards.get(ids.get(i));
+            if (card == null || !Integer.valueOf(ProductConstants.STATUS_ON_SHELF).equals(card.getStatus())) {
+                continue;
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("product_id", card.getId());
+            item.put("product_name", card.getName());
+            item.put("price", card.getPrice());
+            item.put("image", card.getImageMain());
+            item.put("avg_score", BigDecimal.valueOf((double) ranked[i] / sources.length).setScale(6, RoundingMode.HALF_UP));
+            result.add(item);
+        }
+        return result;
     }
 
     @Override
@@ -137,21 +230,12 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
             queryWrapper.eq(RecommendationResult::getUserId, userId)
                     .in(RecommendationResult::getAlgorithmType, Arrays.asList(1, 2, 3)); // 个性化推荐算法类型
             remove(queryWrapper);
+            recommendationListCache.evict(userId);
             
-            // 2. 生成基于用户的协同过滤推荐
-            boolean userBasedResult = generateUserBasedRecommendations(userId, limit);
-            
-            // 3. 生成基于商品的协同过滤推荐
-            boolean itemBasedResult = generateItemBasedRecommendations(userId, limit);
-            
-            // 4. 如果推荐数量不足，补充热门商品推荐
-            List<RecommendationResult> currentRecommendations = getUserRecommendations(userId, limit);
-            if (currentRecommendations.size() < limit) {
-                //int needMore = limit - currentRecommendations.size();
-                // 这里应该调用热门商品推荐的逻辑，为简化实现，暂不实现
-            }
-            
-            return userBasedResult || itemBasedResult;
+            // 2. 在内存中合并基于用户、基于商品和热门商品的候选，只写入最终的混合推荐列表
+            List<RecommendationResult> recommendations =
+                    recommendationCalculator.computeHybrid(userId, limit, recommendationDataLoader, LocalDateTime.now());
+            return batchSaveRecommendations(recommendations);
         } catch (Exception e) {
             log.error("为用户{}生成个性化推荐失败", userId, e);
             return false;
@@ -162,70 +246,10 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
     @Transactional
     public boolean generateUserBasedRecommendations(Long userId, Integer limit) {
         try {
-            // 1. 获取与当前用户相似度最高的用户列表
-            List<RecommendUserVO> similarUsers = userSimilarityService.getRecommendedUsers(userId, 10);
-            if (similarUsers.isEmpty()) {
-                return false;
-            }
-            
-            // 2. 获取相似用户的行为数据
-            Set<Long> recommendProductIds = new HashSet<>();
-            List<RecommendationResult> recommendations = new ArrayList<>();
+            List<RecommendationResult> recommendations =
+                    recommendationCalculator.computeUserBased(userId, limit, recommendationDataLoader, LocalDateTime.now());
             
-            // 设置推荐过期时间，默认7天后过期
-            LocalDateTime expireTime = LocalDateTime.now().plusDays(7);
-            
-            // 3. 为每个相似用户，获取其喜欢的商品
-            for (RecommendUserVO similarUser : similarUsers) {
-                // 获取该用户最近浏览、收藏、购买的商品
-                List<Long> viewedProducts = userBehaviorService.getRecentViewedProducts(similarUser.getUserId(), 20);
-                List<Long> favoriteProducts = userBehaviorService.getFavoriteProducts(similarUser.getUserId(), 10);
-                
-                // 合并商品ID列表，并排除当前用户已经交互过的商品
-                Set<Long> candidateProducts = new HashSet<>();
-                candidateProducts.addAll(viewedProducts);
-                candidateProducts.addAll(favoriteProducts);
-                
-                // 获取当前用户已交互的商品，用于排除
-                List<Long> userInteractedProducts = userBehaviorService.getRecentViewedProducts(userId, 100);
-                candidateProducts.removeAll(userInteractedProducts);
-                
-                // 4. 为每个候选商品计算推荐分数并创建推荐结果
-                for (Long productId : candidateProducts) {
-                    // 避免重复推荐
-                    if (recommendProductIds.contains(productId)) {
-                        continue;
-                    }
-                    
-                    // 计算推荐分数：相似度 * 权重因子
-                    BigDecimal score = similarUser.getSimilarity().multiply(new BigDecimal("0.8"));
-                    
-                    // 创建推荐结果对象
-                    RecommendationResult recommendation = RecommendationResult.builder()
-                            .userId(userId)
-                            .productId(productId)
-                            .score(score)
-                            .algorithmType(1) // 基于用户的协同过滤
-                            .expireTime(expireTime)
-                            .createTime(LocalDateTime.now())
-                            .build();
-                    
-                    recommendations.add(recommendation);
-                    recommendProductIds.add(productId);
-                    
-                    // 达到推荐数量限制时停止
-                    if (recommendations.size() >= limit) {
-                        break;
-                    }
-                }
-                
-                // 达到推荐数量限制时停止
-                if (recommendations.size() >= limit) {
-                    break;
-                }
-            }
-            
-            // 5. 批量保存推荐结果
+            // 批量保存推荐结果
             if (!recommendations.isEmpty()) {
                 return batchSaveRecommendations(recommendations);
             }
@@ -241,72 +265,10 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
     @Transactional
     public boolean generateItemBasedRecommendations(Long userId, Integer limit) {
         try {
-            // 1. 获取用户最近交互的商品
-            List<Long> recentProducts = userBehaviorService.getRecentViewedProducts(userId, 10);
-            if (recentProducts.isEmpty()) {
-                return false;
-            }
-            
-            // 2. 获取相似商品推荐
-            List<Map<String, Object>> similarProducts = getSimilarProductRecommendations(recentProducts, limit * 2);
-            if (similarProducts.isEmpty()) {
-                return false;
-            }
+            List<RecommendationResult> recommendations =
+                    recommendationCalculator.computeItemBased(userId, limit, recommendationDataLoader, LocalDateTime.now());
             
-            // 3. 获取用户已交互的商品，用于排除
-            List<Long> userInteractedProducts = userBehaviorService.getRecentViewedProducts(userId, 100);
-            Set<Long> interactedProductSet = new HashSet<>(userInteractedProducts);
-            
-            // 4. 创建推荐结果列表
-            List<RecommendationResult> recommendations = new ArrayList<>();
-            Set<Long> recommendProductIds = new HashSet<>();
-            
-            // 设置推荐过期时间，默认7天后过期
-            LocalDateTime expireTime = LocalDateTime.now().plusDays(7);
-            
-            // 5. 处理相似商品数据
-            for (Map<String, Object> product : similarProducts) {
-                Long productId = Long.valueOf(product.get("product_id").toString());
-                
-                // 排除用户已交互的商品和已添加到推荐列表的商品
-                if (interactedProductSet.contains(productId) || recommendProductIds.contains(productId)) {
-                    continue;
-                }
-                
-                // 获取推荐分数
-                BigDecimal score;
-                if (product.containsKey("avg_score")) {
-                    Object scoreObj = product.get("avg_score");
-                    if (scoreObj instanceof BigDecimal) {
-                        score = (BigDecimal) scoreObj;
-                    } else {
-                        score = new BigDecimal(scoreObj.toString());
-                    }
-                } else {
-                    // 默认分数
-                    score = new BigDecimal("0.5");
-                }
-                
-                // 创建推荐结果对象
-                RecommendationResult recommendation = RecommendationResult.builder()
-                        .userId(userId)
-                        .productId(productId)
-                        .score(score)
-                        .algorithmType(2) // 基于商品的协同过滤
-                        .expireTime(expireTime)
-                        .createTime(LocalDateTime.now())
-                        .build();
-                
-                recommendations.add(recommendation);
-                recommendProductIds.add(productId);
-                
-                // 达到推荐数量限制时停止
-                if (recommendations.size() >= limit) {
-                    break;
-                }
-            }
-            
-            // 6. 批量保存推荐结果
+            // 批量保存推荐结果
             if (!recommendations.isEmpty()) {
                 return batchSaveRecommendations(recommendations);
             }
@@ -319,12 +281,11 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
     }
 
     @Override
-    @Transactional
     public boolean generatePopularRecommendations(Integer limit) {
         try {
-            // 这里应该调用商品服务获取热门商品
-            // 为简化实现，暂时返回false
-            return false;
+            // 热门推荐对所有用户相同，只刷新内存中的热度榜，查询时直接读取，不为每个用户写入推荐结果
+            popularityEngine.refresh();
+            return !popularityEngine.topProducts(limit == null ? RecommendationConstant.DEFAULT_RECOMMEND_LIMIT : limit).isEmpty();
         } catch (Exception e) {
             log.error("生成热门商品推荐失败", e);
             return false;
@@ -332,12 +293,13 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
     }
 
     @Override
-    @Transactional
     public boolean generateNewProductRecommendations(Integer days, Integer limit) {
         try {
-            // 这里应该调用商品服务获取新品
-            // 为简化实现，暂时返回false
-            return false;
+            // 新品推荐同样只刷新内存中的新品榜
+            popularityEngine.refresh();
+            return !popularityEngine.newProducts(
+                    days == null ? RecommendationConstant.DEFAULT_NEW_PRODUCT_DAYS : days,
+                    limit == null ? RecommendationConstant.DEFAULT_RECOMMEND_LIMIT : limit).isEmpty();
         } catch (Exception e) {
             log.error("生成新品推荐失败", e);
             return false;
@@ -346,37 +308,43 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
 
     @Override
     public List<ProductRecommendVO> getUserRecommendProductDetails(Long userId, Integer limit) {
-        // 1. 获取用户的有效推荐结果
-        List<RecommendationResult> recommendations = getValidRecommendations(userId, limit);
+        // 1. 获取用户的有效推荐结果，数量不足时先用矩阵分解模型实时补充，仍不足时（如新用户）用内存热度榜补齐
+        List<RecommendationResult> recommendations = new ArrayList<>(getValidRecommendations(userId, limit));
+        if (limit != null && recommendations.size() < limit) {
+            appendModelRecommendations(userId, recommendations, limit);
+        }
+        if (limit != null && recommendations.size() < limit) {
+            appendPopularRecommendations(userId, recommendations, limit);
+        }
         if (recommendations.isEmpty()) {
             return new ArrayList<>();
         }
         
-        // 2. 获取推荐商品的详细信息
-        // 实际项目中应该调用商品服务获取商品详情
-        // 这里为了简化，直接构造返回数据
+        // 2. 批量获取推荐商品的卡片信息：优先读本地缓存，未命中的商品合并为一次查询
+        Map<Long, ProductCardDTO> cards = productCardCache.getAll(
+                recommendations.stream().map(RecommendationResult::getProductId).collect(Collectors.toList()));
         
-        List<ProductRecommendVO> result = new ArrayList<>();
+        // 3. 组装视图对象，已删除或已下架的商品不展示
+        List<ProductRecommendVO> result = new ArrayList<>(recommendations.size());
         for (RecommendationResult recommendation : recommendations) {
-            ProductRecommendVO vo = ProductRecommendVO.builder()
+            ProductCardDTO card = cards.get(recommendation.getProductId());
+            if (card == null || !Integer.valueOf(ProductConstants.STATUS_ON_SHELF).equals(card.getStatus())) {
+                continue;
+            }
+            result.add(ProductRecommendVO.builder()
                     .id(recommendation.getId())
                     .productId(recommendation.getProductId())
+                    .productName(card.getName())
+                    .productImage(card.getImageMain())
+                    .productPrice(card.getPrice())
+                    .productDescription(card.getDescription())
                     .score(recommendation.getScore())
                     .algorithmType(recommendation.getAlgorithmType())
                     .algorithmTypeName(getAlgorithmTypeName(recommendation.getAlgorithmType()))
                     .recommendReason(generateRecommendReason(recommendation.getAlgorithmType()))
                     .expireTime(recommendation.getExpireTime())
                     .createTime(recommendation.getCreateTime())
-                    .build();
-            
-            // 这里应该调用商品服务填充商品详情
-            // 为简化实现，使用模拟数据
-            vo.setProductName("商品" + recommendation.getProductId());
-            vo.setProductImage("https://example.com/images/" + recommendation.getProductId() + ".jpg");
-            vo.setProductPrice(new BigDecimal("99.99"));
-            vo.setProductDescription("这是一个推荐商品的描述");
-            
-            result.add(vo);
+                    .build());
         }
         
         return result;
@@ -390,44 +358,104 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
         }
         
         recommendation.setExpireTime(expireTime);
-        return updateById(recommendation);
+        boolean updated = updateById(recommendation);
+        recommendationListCache.evict(recommendation.getUserId());
+        return updated;
     }
 
     @Override
     public Map<String, Object> getRecommendationExpiryStats() {
-        Map<String, Object> result = new HashMap<>();
-        
-        // 获取当前时间
+        // 一次扫描expire_time索引得到各区间的数量
         LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> histogram = recommendationResultMapper.selectExpiryHistogram(now, now.plusHours(24));
+        long totalCount = toLong(histogram, "total_count");
+        long expiredCount = toLong(histogram, "expired_count");
         
-        // 查询已过期的推荐数量
-        LambdaQueryWrapper<RecommendationResult> expiredQuery = new LambdaQueryWrapper<>();
-        expiredQuery.lt(RecommendationResult::getExpireTime, now);
-        long expiredCount = count(expiredQuery);
-        
-        // 查询即将过期的推荐数量（24小时内）
-        LambdaQueryWrapper<RecommendationResult> soonExpireQuery = new LambdaQueryWrapper<>();
-        soonExpireQuery.ge(RecommendationResult::getExpireTime, now)
-                .lt(RecommendationResult::getExpireTime, now.plusHours(24));
-        long soonExpireCount = count(soonExpireQuery);
-        
-        // 查询有效的推荐数量
-        LambdaQueryWrapper<RecommendationResult> validQuery = new LambdaQueryWrapper<>();
-        validQuery.ge(RecommendationResult::getExpireTime, now);
-        long validCount = count(validQuery);
-        
-        // 查询总推荐数量
-        long totalCount = count();
-        
+        Map<String, Object> result = new HashMap<>();
         result.put("expired_count", expiredCount);
-        result.put("soon_expire_count", soonExpireCount);
-        result.put("valid_count", validCount);
+        result.put("soon_expire_count", toLong(histogram, "soon_expire_count"));
+        result.put("valid_count", toLong(histogram, "valid_count"));
         result.put("total_count", totalCount);
         result.put("expired_ratio", totalCount > 0 ? (double) expiredCount / totalCount : 0);
+        result.put("last_purge", expiredRecommendationPurger.getLastRun());
         
         return result;
     }
     
+    @Override
+    public Map<String, Object> getRecommendationCacheStats() {
+        Map<String, Object> stats = new HashMap<>(recommendationListCache.getStats());
+        stats.put("product_card", productCardCache.getStats());
+        stats.put("product_neighbors", productNeighborIndex.getStats());
+        stats.put("similarity_snapshot", similaritySnapshotStore.getStats());
+        stats.put("als_model", alsRecommender.getStats());
+        return stats;
+    }
+    
+    @Override
+    public Map<String, Object> generateBatchRecommendations(Integer limit, boolean resume) {
+        return batchRecommendationGenerator.generate(limit, resume);
+    }
+    
+    /**
+     * 用矩阵分解模型为用户实时计算的商品补充推荐列表，补充的推荐不写入数据库
+     * @param userId 用户ID
+     * @param recommendations 已有的推荐列表
+     * @param limit 目标数量
+     */
+    private void appendModelRecommendations(Long userId, List<RecommendationResult> recommendations, int limit) {
+        if (userId == null || !alsRecommender.isEnabled()) {
+            return;
+        }
+        // 多取已有数量的商品，去掉与已有推荐重复的部分后仍能补满
+        int wanted = limit + recommendations.size();
+        long[] productIds = new long[wanted];
+        float[] scores = new float[wanted];
+        int count = alsRecommender.recommend(userId, wanted, productIds, scores);
+        if (count == 0) {
+            return;
+        }
+        Set<Long> existing = recommendations.stream().map(RecommendationResult::getProductId).collect(Collectors.toSet());
+        for (int i = 0; i < count && recommendations.size() < limit; i++) {
+            if (existing.add(productIds[i])) {
+                recommendations.add(RecommendationResult.builder()
+                        .userId(userId)
+                        .productId(productIds[i])
+                        .score(BigDecimal.valueOf(scores[i]).setScale(6, RoundingMode.HALF_UP))
+                        .algorithmType(RecommendationConstant.ALGORITHM_MATRIX_FACTORIZATION)
+                        .build());
+            }
+        }
+    }
+    
+    /**
+     * 用热度榜中尚未推荐的商品把推荐列表补齐到limit条，补齐的推荐不写入数据库
+     * @param userId 用户ID
+     * @param recommendations 已有的推荐列表
+     * @param limit 目标数量
+     */
+    private void appendPopularRecommendations(Long userId, List<RecommendationResult> recommendations, int limit) {
+        Set<Long> existing = recommendations.stream().map(RecommendationResult::getProductId).collect(Collectors.toSet());
+        List<ProductScoreDTO> popular = popularityEngine.topProducts(limit + existing.size());
+        if (popular.isEmpty()) {
+            return;
+        }
+        double topScore = popular.get(0).getScore();
+        for (ProductScoreDTO product : popular) {
+            if (recommendations.size() >= limit) {
+                break;
+            }
+            if (existing.add(product.getProductId())) {
+                recommendations.add(RecommendationResult.builder()
+                        .userId(userId)
+                        .productId(product.getProductId())
+                        .score(BigDecimal.valueOf(topScore > 0 ? product.getScore() / topScore : 0).setScale(6, RoundingMode.HALF_UP))
+                        .algorithmType(RecommendationConstant.ALGORITHM_POPULAR)
+                        .build());
+            }
+        }
+    }
+    
     /**
      * 获取算法类型名称
      * @param algorithmType 算法类型
@@ -445,6 +473,8 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
                 return "热门推荐";
             case 5:
                 return "新品推荐";
+            case 6:
+                return "矩阵分解推荐";
             default:
                 return "未知算法";
         }
@@ -467,8 +497,18 @@ public class RecommendationResultServiceImpl extends ServiceImpl<RecommendationR
                 return "热门商品推荐";
             case 5:
                 return "新品上架，为您优先推荐";
+            case 6:
+                return "根据您的整体购物偏好推荐";
             default:
                 return "猜您喜欢";
         }
     }
+    
+    /**
+     * 读取统计查询结果中的数值列，列不存在时返回0
+     */
+    private static long toLong(Map<String, Object> row, String column) {
+        Object value = row == null ? null : row.get(column);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
 } 
\ No newline at end of file
@@ -4,7 +4,15 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.behavior.BehaviorCounterCoalescer;
+import com.example.behavior.BehaviorIngestionPipeline;
+import com.example.behavior.HotSearchKeywordTracker;
+import com.example.behavior.ProductRatingAggregator;
+import com.example.behavior.UserActivityRollup;
+import com.example.config.BehaviorProperties;
 import com.example.mapper.UserBehaviorMapper;
+import com.example.model.dto.UserBehaviorSnapshot;
+import com.example.model.dto.UserInteractionDTO;
 import com.example.model.entity.UserBehavior;
 import com.example.service.UserBehaviorService;
 import lombok.extern.slf4j.Slf4j;
@@ -13,7 +21,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import java.util.*;
@@ -26,9 +33,32 @@ import java.util.*;
 @Service
 public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, UserBehavior> implements UserBehaviorService {
 
+    /**
+     * 批量查询行为快照时每次查询的最多用户数
+     */
+    private static final int SNAPSHOT_QUERY_BATCH_SIZE = 500;
+
     @Autowired
     private UserBehaviorMapper userBehaviorMapper;
 
+    @Autowired
+    private BehaviorIngestionPipeline behaviorIngestionPipeline;
+
+    @Autowired
+    private BehaviorCounterCoalescer behaviorCounterCoalescer;
+
+    @Autowired
+    private HotSearchKeywordTracker hotSearchKeywordTracker;
+
+    @Autowired
+    private ProductRatingAggregator productRatingAggregator;
+
+    @Autowired
+    private UserActivityRollup userActivityRollup;
+
+    @Autowired
+    private BehaviorProperties behaviorProperties;
+
     @Override
     public boolean recordViewBehavior(Long userId, Long productId, Long categoryId, Integer stayTime) {
         UserBehavior behavior = UserBehavior.builder()
@@ -41,7 +71,11 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean accepted = behaviorIngestionPipeline.submit(behavior);
+        if (accepted) {
+            behaviorCounterCoalescer.increment(userId, productId, categoryId, 1);
+        }
+        return accepted;
     }
 
     @Override
@@ -54,7 +88,7 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        return behaviorIngestionPipeline.submit(behavior);
     }
 
     @Override
@@ -68,10 +102,15 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean accepted = behaviorIngestionPipeline.submit(behavior);
+        if (accepted) {
+            behaviorCounterCoalescer.increment(userId, productId, categoryId, 3);
+        }
+        return accepted;
     }
 
     @Override
+    @Transactional
     public boolean recordFavoriteBehavior(Long userId, Long productId, Long categoryId) {
         UserBehavior behavior = UserBehavior.builder()
                 .userId(userId)
@@ -81,7 +120,12 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean accepted = behaviorIngestionPipeline.submit(behavior);
+        if (accepted) {
+            // 收藏人数按用户去重，由收藏关系表的主键判断是否首次收藏
+            productRatingAggregator.addFavorite(userId, productId);
+        }
+        return accepted;
     }
 
     @Override
@@ -93,10 +137,15 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean accepted = behaviorIngestionPipeline.submit(behavior);
+        if (accepted && hotSearchKeywordTracker.isEnabled()) {
+            hotSearchKeywordTracker.record(keyword);
+        }
+        return accepted;
     }
 
     @Override
+    @Transactional
     public boolean recordRatingBehavior(Long userId, Long productId, Long categoryId, BigDecimal rating) {
         UserBehavior behavior = UserBehavior.builder()
                 .userId(userId)
@@ -107,10 +156,16 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean saved = save(behavior);
+        if (saved) {
+            productRatingAggregator.addRating(productId, rating);
+            userActivityRollup.add(Collections.singletonList(behavior));
+        }
+        return saved;
     }
 
     @Override
+    @Transactional
     public boolean recordReviewBehavior(Long userId, Long productId, Long categoryId, BigDecimal rating, String reviewContent) {
         UserBehavior behavior = UserBehavior.builder()
                 .userId(userId)
@@ -122,7 +177,14 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean saved = save(behavior);
+        if (saved) {
+            if (reviewContent != null) {
+                productRatingAggregator.addReview(productId);
+            }
+            userActivityRollup.add(Collections.singletonList(behavior));
+        }
+        return saved;
     }
 
     @Override
@@ -136,7 +198,11 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(behavior);
+        boolean accepted = behaviorIngestionPipeline.submit(behavior);
+        if (accepted) {
+            behaviorCounterCoalescer.increment(userId, productId, categoryId, 8);
+        }
+        return accepted;
     }
 
     @Override
@@ -154,6 +220,56 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
         return userBehaviorMapper.selectFavoriteProducts(userId, limit);
     }
 
+    @Override
+    public Map<Long, UserBehaviorSnapshot> getBehaviorSnapshots(Collection<Long> userIds, Integer viewLimit,
+                                                                Integer favoriteLimit, Integer purchaseLimit) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Map<Long, UserBehaviorSnapshot> snapshots = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += SNAPSHOT_QUERY_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + SNAPSHOT_QUERY_BATCH_SIZE, ids.size()));
+            List<UserInteractionDTO> rows = userBehaviorMapper.selectBehaviorSnapshots(batch, viewLimit, favoriteLimit, purchaseLimit);
+            // 结果按用户、行为类型、时间排序，同一用户同一行为的记录连续出现
+            int start = 0;
+            while (start < rows.size()) {
+                Long userId = rows.get(start).getUserId();
+                int end = start;
+                while (end < rows.size() && userId.equals(rows.get(end).getUserId())) {
+                    end++;
+                }
+                snapshots.put(userId, new UserBehaviorSnapshot(userId,
+                        productIds(rows, start, end, 1), productIds(rows, start, end, 4), productIds(rows, start, end, 8)));
+                start = end;
+            }
+        }
+        for (Long userId : ids) {
+            snapshots.computeIfAbsent(userId, UserBehaviorSnapshot::empty);
+        }
+        return snapshots;
+    }
+
+    /**
+     * 取出[start, end)范围内指定行为类型的商品ID
+     */
+    private static long[] productIds(List<UserInteractionDTO> rows, int start, int end, int behaviorType) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (rows.get(i).getBehaviorType() == behaviorType) {
+                count++;
+            }
+        }
+        long[] productIds = new long[count];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (rows.get(i).getBehaviorType() == behaviorType) {
+                productIds[n++] = rows.get(i).getProductId();
+            }
+        }
+        return productIds;
+    }
+
     @Override
     public List<String> getUserSearchHistory(Long userId, Integer limit) {
         return userBehaviorMapper.selectUserSearchHistory(userId, limit);
@@ -161,17 +277,28 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
 
     @Override
     public List<Map<String, Object>> getHotSearchKeywords(Integer limit) {
-        return userBehaviorMapper.selectHotSearchKeywords(limit);
+        return getHotSearchKeywords(behaviorProperties.getHotSearch().getDefaultWindowMinutes(), limit);
+    }
+
+    @Override
+    public List<Map<String, Object>> getHotSearchKeywords(Integer windowMinutes, Integer limit) {
+        int window = windowMinutes == null || windowMinutes <= 0
+                ? behaviorProperties.getHotSearch().getDefaultWindowMinutes() : windowMinutes;
+        int size = limit == null || limit <= 0 ? 10 : limit;
+        if (hotSearchKeywordTracker.isEnabled()) {
+            return hotSearchKeywordTracker.getHotKeywords(window, size);
+        }
+        return userBehaviorMapper.selectHotSearchKeywords(LocalDateTime.now().minusMinutes(window), null, size);
     }
 
     @Override
     public BigDecimal getProductAvgRating(Long productId) {
-        return userBehaviorMapper.selectAvgRatingByProductId(productId);
+        return productRatingAggregator.getAverageRating(productId);
     }
 
     @Override
     public Integer getProductReviewCount(Long productId) {
-        return userBehaviorMapper.countReviewsByProductId(productId);
+        return productRatingAggregator.getReviewCount(productId);
     }
 
     @Override
@@ -191,7 +318,7 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
 
     @Override
     public Integer getProductFavoriteCount(Long productId) {
-        return userBehaviorMapper.countFavoriteUsers(productId);
+        return productRatingAggregator.getFavoriteCount(productId);
     }
 
     @Override
@@ -258,64 +385,27 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
 
     @Override
     public List<Map<String, Object>> getUserBehaviorHeatmap(Long userId, Integer days) {
-        // 获取指定天数内的用户行为
-        LocalDateTime endTime = LocalDateTime.now();
-        LocalDateTime startTime = endTime.minusDays(days);
-        
-        LambdaQueryWrapper<UserBehavior> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(UserBehavior::getUserId, userId)
-                .ge(UserBehavior::getCreateTime, startTime)
-                .le(UserBehavior::getCreateTime, endTime);
-        
-        List<UserBehavior> behaviors = list(queryWrapper);
-        
-        // 按日期分组统计行为数量
-        Map<LocalDate, Integer> dailyCounts = new HashMap<>();
-        
-        for (UserBehavior behavior : behaviors) {
-            LocalDate date = behavior.getCreateTime().toLocalDate();
-            dailyCounts.put(date, dailyCounts.getOrDefault(date, 0) + 1);
-        }
-        
-        // 确保所有日期都有数据
-        LocalDate currentDate = startTime.toLocalDate();
-        List<Map<String, Object>> result = new ArrayList<>();
-        
-        while (!currentDate.isAfter(endTime.toLocalDate())) {
-            Map<String, Object> dayData = new HashMap<>();
-            dayData.put("date", currentDate.toString());
-            dayData.put("behaviorCount", dailyCounts.getOrDefault(currentDate, 0));
-            result.add(dayData);
-            
-            currentDate = currentDate.plusDays(1);
-        }
-        
-        return result;
+        return userActivityRollup.getHeatmap(userId, normalizeDays(days));
     }
 
     @Override
     public Integer calculateUserActivityScore(Long userId, Integer days) {
-        // 获取用户热力图数据
-        List<Map<String, Object>> heatmapData = getUserBehaviorHeatmap(userId, days);
-        
-        // 计算总行为数
-        int totalBehaviors = heatmapData.stream()
-                .mapToInt(data -> (Integer) data.get("behaviorCount"))
-                .sum();
-        
-        // 计算活跃天数
-        long activeDays = heatmapData.stream()
-                .filter(data -> (Integer) data.get("behaviorCount") > 0)
-                .count();
-        
-        // 计算活跃度评分 (0-100)
-        // 考虑因素：总行为数、活跃天数比例
-        double behaviorScore = Math.min(totalBehaviors / 2.0, 50); // 最高50分
-        double activeRatio = (double) activeDays / days;
-        double activeScore = activeRatio * 50; // 最高50分
-        
-        int finalScore = (int) Math.round(behaviorScore + activeScore);
-        return Math.min(finalScore, 100); // 确保不超过100
+        return userActivityRollup.getActivityScore(userId, normalizeDays(days));
+    }
+
+    @Override
+    public Map<Long, Integer> calculateUserActivityScores(Collection<Long> userIds, Integer days) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return userActivityRollup.getActivityScores(userIds, normalizeDays(days));
+    }
+
+    /**
+     * 热力图与活跃度评分的天数，未指定时按30天
+     */
+    private static int normalizeDays(Integer days) {
+        return days == null || days <= 0 ? 30 : days;
     }
 
     @Override
@@ -351,8 +441,20 @@ public class UserBehaviorServiceImpl extends ServiceImpl<UserBehaviorMapper, Use
             
             // 批量更新
             updateBatchById(sourceBehaviors);
+            userActivityRollup.mergeUser(sourceUserId, targetUserId);
+            productRatingAggregator.mergeUser(sourceUserId, targetUserId);
         }
         
         return count;
     }
+
+    @Override
+    public Map<String, Object> getIngestionStats() {
+        Map<String, Object> stats = behaviorIngestionPipeline.getStats();
+        stats.put("counter", behaviorCounterCoalescer.getStats());
+        stats.put("hot_search", hotSearchKeywordTracker.getStats());
+        stats.put("rating_repair", productRatingAggregator.getLastRepair());
+        stats.put("activity", userActivityRollup.getStats());
+        return stats;
+    }
 } 
\ No newline at end of file
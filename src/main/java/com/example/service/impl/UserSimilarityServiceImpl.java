@@ -13,6 +13,9 @@ import com.example.model.entity.User;
 import com.example.model.entity.UserSimilarity;
 import com.example.model.vo.RecommendUserVO;
 import com.example.model.vo.SimilarityPairVO;
+import com.example.recommend.SimilarityMode;
+import com.example.recommend.SparseVector;
+import com.example.recommend.UserSimilarityMatrixBuilder;
 import com.example.service.UserSimilarityService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,9 +28,12 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -41,6 +47,7 @@ public class UserSimilarityServiceImpl extends ServiceImpl<UserSimilarityMapper,
     private final UserSimilarityMapper userSimilarityMapper;
     private final UserMapper userMapper;
     private final OrderItemMapper orderItemMapper;
+    private final UserSimilarityMatrixBuilder userSimilarityMatrixBuilder;
 
     @Override
     public List<UserSimilarity> getMostSimilarUsers(Long userId, Integer limit) {
@@ -79,25 +86,13 @@ public class UserSimilarityServiceImpl extends ServiceImpl<UserSimilarityMapper,
             throw new BusinessException(ResultCode.VALIDATE_FAILED, "参数不能为空");
         }
         
-        // 确保userIdA小于userIdB，以保持一致性
-        if (userIdA > userIdB) {
-            Long temp = userIdA;
-            userIdA = userIdB;
-            userIdB = temp;
-        }
-        
-        // 确保相似度在0-1之间
-        if (similarity.compareTo(BigDecimal.ZERO) < 0) {
-            similarity = BigDecimal.ZERO;
-        } else if (similarity.compareTo(BigDecimal.ONE) > 0) {
-            similarity = BigDecimal.ONE;
-        }
-        
-        // 保留四位小数
-        similarity = similarity.setScale(4, RoundingMode.HALF_UP);
+        // 确保相似度在0-1之间，按表字段保留七位小数
+        similarity = normalizeSimilarity(similarity);
         
+        // 相似度按(用户, 邻居)方向存储，两个方向都需要写入
         LocalDateTime now = LocalDateTime.now();
         int rows = userSimilarityMapper.insertOrUpdate(userIdA, userIdB, similarity, now);
+        rows += userSimilarityMapper.insertOrUpdate(userIdB, userIdA, similarity, now);
         return rows > 0;
     }
 
@@ -108,30 +103,26 @@ public class UserSimilarityServiceImpl extends ServiceImpl<UserSimilarityMapper,
             return false;
         }
         
-        // 确保每个相似度记录的userIdA小于userIdB，并设置更新时间
+        // 相似度按(用户, 邻居)方向存储，为每条记录补充反方向记录，并设置更新时间
         LocalDateTime now = LocalDateTime.now();
+        List<UserSimilarity> records = new ArrayList<>(similarityList.size() * 2);
         for (UserSimilarity similarity : similarityList) {
-            if (similarity.getUserIdA() > similarity.getUserIdB()) {
-                Long temp = similarity.getUserIdA();
-                similarity.setUserIdA(similarity.getUserIdB());
-                similarity.setUserIdB(temp);
-            }
-            
-            // 确保相似度在0-1之间
-            BigDecimal similarityValue = similarity.getSimilarity();
-            if (similarityValue.compareTo(BigDecimal.ZERO) < 0) {
-                similarity.setSimilarity(BigDecimal.ZERO);
-            } else if (similarityValue.compareTo(BigDecimal.ONE) > 0) {
-                similarity.setSimilarity(BigDecimal.ONE);
-            }
-            
-            // 保留四位小数
-            similarity.setSimilarity(similarityValue.setScale(4, RoundingMode.HALF_UP));
-            
-            similarity.setUpdateTime(now);
-        }
-        
-        int rows = userSimilarityMapper.batchInsert(similarityList);
+            BigDecimal similarityValue = normalizeSimilarity(similarity.getSimilarity());
+            records.add(UserSimilarity.builder()
+                    .userIdA(similarity.getUserIdA())
+                    .userIdB(similarity.getUserIdB())
+                    .similarity(similarityValue)
+                    .updateTime(now)
+                    .build());
+            records.add(UserSimilarity.builder()
+                    .userIdA(similarity.getUserIdB())
+                    .userIdB(similarity.getUserIdA())
+                    .similarity(similarityValue)
+                    .updateTime(now)
+                    .build());
+        }
+        
+        int rows = userSimilarityMapper.batchInsert(records);
         return rows > 0;
     }
 
@@ -182,116 +173,42 @@ public class UserSimilarityServiceImpl extends ServiceImpl<UserSimilarityMapper,
             return BigDecimal.ZERO; // 如果任一用户没有购买记录，相似度为0
         }
         
-        // 构建用户A的商品ID到购买数量的映射
-        Map<Long, Integer> userAProductMap = userAItems.stream()
-                .collect(Collectors.toMap(
-                        OrderItem::getProductId,
-                        OrderItem::getQuantity,
-                        Integer::sum)); // 合并相同商品ID的数量
-        
-        // 构建用户B的商品ID到购买数量的映射
-        Map<Long, Integer> userBProductMap = userBItems.stream()
-                .collect(Collectors.toMap(
-                        OrderItem::getProductId,
-                        OrderItem::getQuantity,
-                        Integer::sum)); // 合并相同商品ID的数量
-        
-        // 计算余弦相似度
+        // 购买向量（商品ID升序，相同商品的数量累加），余弦相似度按商品ID归并计算，结果限制在0-1之间
         // 公式: cos(A,B) = (A·B) / (|A|·|B|)
-        // 其中A·B是向量点积，|A|和|B|分别是向量A和B的模
+        double similarity = purchaseVector(userAItems).cosine(purchaseVector(userBItems));
         
-        // 计算向量点积(A·B)
-        double dotProduct = 0.0;
-        for (Map.Entry<Long, Integer> entry : userAProductMap.entrySet()) {
-            Long productId = entry.getKey();
-            Integer quantityA = entry.getValue();
-            
-            if (userBProductMap.containsKey(productId)) {
-                Integer quantityB = userBProductMap.get(productId);
-                dotProduct += quantityA * quantityB;
-            }
-        }
-        
-        // 计算向量A的模的平方
-        double normASquared = userAProductMap.values().stream()
-                .mapToDouble(quantity -> quantity * quantity)
-                .sum();
-        
-        // 计算向量B的模的平方
-        double normBSquared = userBProductMap.values().stream()
-                .mapToDouble(quantity -> quantity * quantity)
-                .sum();
-        
-        // 计算相似度
-        double similarity = 0.0;
-        if (normASquared > 0 && normBSquared > 0) {
-            similarity = dotProduct / (Math.sqrt(normASquared) * Math.sqrt(normBSquared));
-        }
-        
-        // 确保相似度在0-1之间
-        similarity = Math.max(0.0, Math.min(1.0, similarity));
-        
-        return new BigDecimal(similarity).setScale(4, RoundingMode.HALF_UP);
+        return BigDecimal.valueOf(similarity).setScale(RecommendConstants.SIMILARITY_SCALE, RoundingMode.HALF_UP);
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public int buildUserSimilarityMatrix(Integer batchSize) {
         if (batchSize == null || batchSize <= 0) {
             batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
         }
         
-        // 获取所有活跃用户ID
-        List<Long> userIds = userMapper.selectActiveUserIds(RecommendConstants.DEFAULT_ACTIVE_DAYS);
-        if (CollectionUtils.isEmpty(userIds)) {
-            log.info("没有活跃用户，跳过构建相似度矩阵");
-            return 0;
+        // 一次加载全部购买向量后在内存中并行计算，分批写入，不开启整体事务
+        return userSimilarityMatrixBuilder.build(batchSize);
+    }
+
+    @Override
+    public int buildUserSimilarityMatrix(Integer batchSize, SimilarityMode mode) {
+        if (batchSize == null || batchSize <= 0) {
+            batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
         }
-        
-        int totalPairs = 0;
-        List<UserSimilarity> batchSimilarities = new ArrayList<>(batchSize);
-        
-        // 遍历所有用户对，计算相似度
-        for (int i = 0; i < userIds.size(); i++) {
-            for (int j = i + 1; j < userIds.size(); j++) {
-                Long userIdA = userIds.get(i);
-                Long userIdB = userIds.get(j);
-                
-                try {
-                    // 计算相似度
-                    BigDecimal similarity = calculateUserSimilarity(userIdA, userIdB);
-                    
-                    // 创建相似度记录
-                    UserSimilarity similarityRecord = UserSimilarity.builder()
-                            .userIdA(userIdA)
-                            .userIdB(userIdB)
-                            .similarity(similarity)
-                            .updateTime(LocalDateTime.now())
-                            .build();
-                    
-                    // 添加到批量处理列表
-                    batchSimilarities.add(similarityRecord);
-                    totalPairs++;
-                    
-                    // 达到批处理大小时，执行批量插入
-                    if (batchSimilarities.size() >= batchSize) {
-                        userSimilarityMapper.batchInsert(batchSimilarities);
-                        batchSimilarities.clear();
-                        log.info("已处理 {} 对用户相似度", totalPairs);
-                    }
-                } catch (Exception e) {
-                    log.error("计算用户 {} 和 {} 的相似度时出错", userIdA, userIdB, e);
-                }
-            }
+        if (mode == null) {
+            return userSimilarityMatrixBuilder.build(batchSize);
         }
         
-        // 处理剩余的记录
-        if (!batchSimilarities.isEmpty()) {
-            userSimilarityMapper.batchInsert(batchSimilarities);
-            log.info("最终处理 {} 对用户相似度", totalPairs);
+        return userSimilarityMatrixBuilder.build(batchSize, mode);
+    }
+
+    @Override
+    public Map<String, Object> evaluateApproximateSimilarity(Integer sampleSize) {
+        if (sampleSize == null || sampleSize <= 0) {
+            sampleSize = RecommendConstants.DEFAULT_LSH_EVALUATION_SAMPLE_SIZE;
         }
         
-        return totalPairs;
+        return userSimilarityMatrixBuilder.evaluateApproximateRecall(sampleSize, RecommendConstants.DEFAULT_SIMILAR_USERS_TOP_K);
     }
 
     @Override
@@ -357,52 +274,103 @@ public class UserSimilarityServiceImpl extends ServiceImpl<UserSimilarityMapper,
     }
 
     @Override
+    @Deprecated
     public List<SimilarityPairVO>  getHighSimilarityUserPairs(BigDecimal threshold) {
         if (threshold == null) {
             threshold = RecommendConstants.DEFAULT_SIMILARITY_THRESHOLD;
         }
         
-        // 获取高相似度用户对
-        List<UserSimilarity> highSimilarities = getSimilarUsersByThreshold(threshold);
-        if (CollectionUtils.isEmpty(highSimilarities)) {
+        // 沿主键分页扫描高相似度用户对，用大小固定的最小堆保留相似度最高的部分，内存占用与表大小无关
+        int pageSize = RecommendConstants.MAX_SIMILARITY_PAIR_PAGE_SIZE;
+        int maxPairs = RecommendConstants.MAX_HIGH_SIMILARITY_PAIRS;
+        PriorityQueue<UserSimilarity> top = new PriorityQueue<>(maxPairs + 1,
+                (a, b) -> a.getSimilarity().compareTo(b.getSimilarity()));
+        long afterUserIdA = 0L;
+        long afterUserIdB = 0L;
+        while (true) {
+            List<UserSimilarity> page = userSimilarityMapper.selectByThresholdAfter(threshold,
+                    afterUserIdA, afterUserIdB, pageSize);
+            if (CollectionUtils.isEmpty(page)) {
+                break;
+            }
+            for (UserSimilarity similarity : page) {
+                if (similarity.getSimilarity() == null) {
+                    continue;
+                }
+                if (top.size() < maxPairs) {
+                    top.offer(similarity);
+                } else if (similarity.getSimilarity().compareTo(top.peek().getSimilarity()) > 0) {
+                    top.poll();
+                    top.offer(similarity);
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            UserSimilarity last = page.get(page.size() - 1);
+            afterUserIdA = last.getUserIdA();
+            afterUserIdB = last.getUserIdB();
+        }
+        if (top.isEmpty()) {
             return Collections.emptyList();
         }
+        List<SimilarityPairVO> similarityPairs = toSimilarityPairs(new ArrayList<>(top));
+        similarityPairs.sort((a, b) -> b.getSimilarity().compareTo(a.getSimilarity()));
+        return similarityPairs;
+    }
+
+    @Override
+    public List<SimilarityPairVO> getHighSimilarityUserPairs(BigDecimal threshold, Long afterUserIdA, Long afterUserIdB,
+                                                             Integer limit) {
+        if (threshold == null) {
+            threshold = RecommendConstants.DEFAULT_SIMILARITY_THRESHOLD;
+        }
+        if (limit == null || limit <= 0) {
+            limit = RecommendConstants.DEFAULT_SIMILARITY_PAIR_PAGE_SIZE;
+        }
+        limit = Math.min(limit, RecommendConstants.MAX_SIMILARITY_PAIR_PAGE_SIZE);
         
-        // 收集所有涉及的用户ID
-        List<Long> allUserIds = new ArrayList<>();
+        // 获取一页高相似度用户对，沿主键从上一页末尾继续扫描
+        List<UserSimilarity> highSimilarities = userSimilarityMapper.selectByThresholdAfter(threshold,
+                afterUserIdA == null ? 0L : afterUserIdA, afterUserIdB == null ? 0L : afterUserIdB, limit);
+        if (CollectionUtils.isEmpty(highSimilarities)) {
+            return Collections.emptyList();
+        }
+        return toSimilarityPairs(highSimilarities);
+    }
+
+    /**
+     * 把一页相似度记录转换为相似度对VO，只查询本页涉及的用户，已删除的用户不返回
+     */
+    private List<SimilarityPairVO> toSimilarityPairs(List<UserSimilarity> highSimilarities) {
+        Set<Long> pageUserIds = new HashSet<>(highSimilarities.size() * 2);
         for (UserSimilarity similarity : highSimilarities) {
-            allUserIds.add(similarity.getUserIdA());
-            allUserIds.add(similarity.getUserIdB());
+            pageUserIds.add(similarity.getUserIdA());
+            pageUserIds.add(similarity.getUserIdB());
         }
-        
-        // 获取这些用户的基本信息
         List<User> userInfoList = userMapper.selectList(
                 new LambdaQueryWrapper<User>()
-                        .in(User::getId, allUserIds)
+                        .select(User::getId, User::getUsername)
+                        .in(User::getId, pageUserIds)
         );
         Map<Long, User> userInfoMap = userInfoList.stream()
                 .collect(Collectors.toMap(User::getId, user -> user));
         
-        // 构建相似度对VO列表
-        List<SimilarityPairVO> similarityPairs = new ArrayList<>();
-        
+        List<SimilarityPairVO> similarityPairs = new ArrayList<>(highSimilarities.size());
         for (UserSimilarity similarity : highSimilarities) {
-            Long userIdA = similarity.getUserIdA();
-            Long userIdB = similarity.getUserIdB();
-            
-            User userA = userInfoMap.get(userIdA);
-            User userB = userInfoMap.get(userIdB);
-            
+            User userA = userInfoMap.get(similarity.getUserIdA());
+            User userB = userInfoMap.get(similarity.getUserIdB());
             if (userA != null && userB != null) {
-                SimilarityPairVO pairVO = new SimilarityPairVO();
-                pairVO.setUserIdA(userIdA);
-                pairVO.setUserIdB(userIdB);
-                pairVO.setSimilarity(similarity.getSimilarity());
-                
-                similarityPairs.add(pairVO);
+                similarityPairs.add(SimilarityPairVO.builder()
+                        .userIdA(similarity.getUserIdA())
+                        .usernameA(userA.getUsername())
+                        .userIdB(similarity.getUserIdB())
+                        .usernameB(userB.getUsername())
+                        .similarity(similarity.getSimilarity())
+                        .calculateTime(similarity.getUpdateTime())
+                        .build());
             }
         }
-
         return similarityPairs;
     }
 
@@ -412,19 +380,57 @@ public class UserSimilarityServiceImpl extends ServiceImpl<UserSimilarityMapper,
             days = RecommendConstants.DEFAULT_SIMILARITY_EXPIRY_DAYS;
         }
         
+        // 分组计数在数据库中完成，只取回每个区间一行
+        BigDecimal width = RecommendConstants.SIMILARITY_HISTOGRAM_BUCKET_WIDTH;
+        int buckets = BigDecimal.ONE.divide(width, 0, RoundingMode.CEILING).intValue();
         LocalDateTime beforeTime = LocalDateTime.now().minusDays(days);
-        List<UserSimilarity> similarities = userSimilarityMapper.selectList(
-                new LambdaQueryWrapper<UserSimilarity>()
-                        .lt(UserSimilarity::getUpdateTime, beforeTime));
-                        
-        Map<String, Integer> distribution = new HashMap<>();
-        for (UserSimilarity similarity : similarities) {
-            String key = similarity.getUserIdA() + "_" + similarity.getUserIdB();
-            distribution.put(key, distribution.getOrDefault(key, 0) + 1);
+        int[] counts = new int[buckets];
+        for (Map<String, Object> row : userSimilarityMapper.selectSimilarityHistogram(beforeTime, width, buckets)) {
+            Object bucket = row.get("bucket");
+            Object count = row.get("record_count");
+            if (bucket instanceof Number && count instanceof Number) {
+                int index = ((Number) bucket).intValue();
+                if (index >= 0 && index < buckets) {
+                    counts[index] = ((Number) count).intValue();
+                }
+            }
+        }
+        
+        // 按区间升序输出，没有记录的区间计为0
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < buckets; i++) {
+            BigDecimal lower = width.multiply(BigDecimal.valueOf(i));
+            BigDecimal upper = i == buckets - 1 ? BigDecimal.ONE.setScale(width.scale()) : lower.add(width);
+            distribution.put(lower.toPlainString() + "-" + upper.toPlainString(), counts[i]);
         }
         
         return distribution;
     }
-}
-
     
+    /**
+     * 由订单项构建购买向量，商品ID为维度、购买数量为权重
+     */
+    private static SparseVector purchaseVector(List<OrderItem> items) {
+        SparseVector vector = new SparseVector(items.size());
+        for (OrderItem item : items) {
+            if (item.getProductId() != null && item.getQuantity() != null) {
+                vector.add(item.getProductId(), item.getQuantity());
+            }
+        }
+        return vector;
+    }
+    
+    /**
+     * 将相似度限制在0-1之间，按表字段保留七位小数
+     * @param similarity 相似度
+     * @return 规范化后的相似度
+     */
+    private BigDecimal normalizeSimilarity(BigDecimal similarity) {
+        if (similarity.compareTo(BigDecimal.ZERO) < 0) {
+            similarity = BigDecimal.ZERO;
+        } else if (similarity.compareTo(BigDecimal.ONE) > 0) {
+            similarity = BigDecimal.ONE;
+        }
+        return similarity.setScale(RecommendConstants.SIMILARITY_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -138,11 +138,13 @@ CREATE TABLE orders (
     `coupon_id` BIGINT COMMENT '使用的优惠券ID',
     `discount_amount` DECIMAL(10, 2) DEFAULT 0.00 COMMENT '优惠金额',
     `payment_time` TIMESTAMP NULL COMMENT '支付时间',
+    `complete_time` TIMESTAMP NULL COMMENT '完成时间（首次变为已完成时写入，之后不再变化）',
     `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
     UNIQUE INDEX `uk_order_no` (`order_no`),
     INDEX `idx_user_id` (`user_id`),
+    INDEX `idx_complete_time` (`complete_time`),
     FOREIGN KEY (`user_id`) REFERENCES users (`id`) ON DELETE RESTRICT
 ) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '订单表';
 
@@ -153,9 +155,10 @@ CREATE TABLE user_similarity (
     similarity DECIMAL(8,7) NOT NULL COMMENT '相似度分数（0.0-1.0，余弦相似度计算）',
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '最后计算时间',
     PRIMARY KEY (user_id_a, user_id_b),
+    INDEX idx_user_a_similarity (user_id_a, similarity DESC),
     FOREIGN KEY (user_id_a) REFERENCES users(id),
     FOREIGN KEY (user_id_b) REFERENCES users(id)
-) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='用户相似度表（用于协同过滤推荐，存储用户间行为相似度）';
+) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='用户相似度表（用于协同过滤推荐，按用户方向存储每个用户相似度最高的K个邻居）';
 
 -- 10. 用户-标签关联表
 CREATE TABLE `user_tag_relation` (
@@ -197,9 +200,10 @@ CREATE TABLE product_similarity (
     similarity DECIMAL(8,7) NOT NULL COMMENT '相似度分数（0.0-1.0，基于共同购买/浏览行为计算）',
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '最后计算时间',
     PRIMARY KEY (product_id_a, product_id_b),
+    INDEX idx_product_a_similarity (product_id_a, similarity DESC),
     FOREIGN KEY (product_id_a) REFERENCES products(id),
     FOREIGN KEY (product_id_b) REFERENCES products(id)
-) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='商品相似度表（用于商品协同过滤推荐，存储商品间关联度）';
+) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='商品相似度表（用于商品协同过滤推荐，按商品方向存储每个商品相似度最高的K个商品）';
 
 -- 13. 商品-标签关联表
 CREATE TABLE `product_tag_relation` (
@@ -308,6 +312,7 @@ CREATE TABLE recommendation_result (
     PRIMARY KEY (id),
     UNIQUE KEY uk_user_product (user_id, product_id),
     INDEX idx_user_score (user_id, score DESC),
+    INDEX idx_expire_time (expire_time),
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (product_id) REFERENCES products(id)
 ) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='推荐结果表（存储实时推荐结果，包含算法类型和有效期）';
@@ -330,3 +335,75 @@ CREATE TABLE `user_coupon` (
     FOREIGN KEY (`coupon_id`) REFERENCES coupon (`id`) ON DELETE CASCADE,
     FOREIGN KEY (`order_id`) REFERENCES orders (`id`) ON DELETE SET NULL
 ) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '用户优惠券表';
+
+-- 20. 任务检查点表
+CREATE TABLE `job_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL COMMENT '任务名称',
+    `checkpoint_time` TIMESTAMP NULL COMMENT '已处理数据的最大时间',
+    `checkpoint_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理数据在该时间内的最大ID',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`job_name`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '任务检查点表（记录增量任务的处理进度）';
+
+-- 21. 商品相似商品列表表（product_similarity按商品汇总后的紧凑存储，加载到内存后用于基于商品的推荐）
+CREATE TABLE product_neighbor_list (
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    neighbor_count INT NOT NULL DEFAULT 0 COMMENT '相似商品数量',
+    neighbors BLOB NOT NULL COMMENT '相似商品列表，按相似商品ID升序，每项为8字节商品ID加4字节相似度（大端序）',
+    build_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '构建时间',
+    PRIMARY KEY (product_id),
+    FOREIGN KEY (product_id) REFERENCES products(id)
+) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='商品相似商品列表表（每个商品一行，由商品相似度矩阵构建时一并写入）';
+
+-- 22. 用户-商品行为计数汇总表
+CREATE TABLE `user_product_counter` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `view_count` INT NOT NULL DEFAULT 0 COMMENT '浏览次数',
+    `cart_count` INT NOT NULL DEFAULT 0 COMMENT '加购次数',
+    `buy_count` INT NOT NULL DEFAULT 0 COMMENT '购买次数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `product_id`),
+    INDEX `idx_product_id` (`product_id`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '用户-商品行为计数汇总表（内存中按时间窗口合并后批量累加）';
+
+-- 23. 商品行为计数汇总表
+CREATE TABLE `product_counter` (
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `category_id` BIGINT COMMENT '分类ID',
+    `view_count` BIGINT NOT NULL DEFAULT 0 COMMENT '浏览次数',
+    `cart_count` BIGINT NOT NULL DEFAULT 0 COMMENT '加购次数',
+    `buy_count` BIGINT NOT NULL DEFAULT 0 COMMENT '购买次数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`product_id`),
+    INDEX `idx_category_views` (`category_id`, `view_count` DESC)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '商品行为计数汇总表（分类热门商品查询使用）';
+
+-- 24. 商品评分汇总表
+CREATE TABLE `product_rating_stats` (
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `rating_sum` DECIMAL(14,1) NOT NULL DEFAULT 0 COMMENT '评分总和',
+    `rating_count` INT NOT NULL DEFAULT 0 COMMENT '评分次数',
+    `review_count` INT NOT NULL DEFAULT 0 COMMENT '评价数量',
+    `favorite_count` INT NOT NULL DEFAULT 0 COMMENT '收藏人数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`product_id`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '商品评分汇总表（评分、评价、收藏时累加，定时由行为记录校正）';
+
+-- 25. 商品收藏关系表
+CREATE TABLE `product_favorite` (
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '首次收藏时间',
+    PRIMARY KEY (`product_id`, `user_id`),
+    INDEX `idx_user_id` (`user_id`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '商品收藏关系表（每个用户每个商品一行，收藏人数按首次插入累加）';
+
+-- 26. 用户每日活跃汇总表
+CREATE TABLE `user_daily_activity` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `activity_date` DATE NOT NULL COMMENT '日期',
+    `behavior_count` INT NOT NULL DEFAULT 0 COMMENT '当天行为次数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `activity_date`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '用户每日活跃汇总表（行为写入时累加，行为热力图与活跃度评分使用）';
@@ -0,0 +1,132 @@
+-- 已有数据库升级脚本
+-- mall.sql只用于全新安装；已按旧版mall.sql建好的数据库按顺序执行以下各节，每节只需执行一次
+USE mall;
+
+-- user_similarity按用户方向只保留相似度最高的K个邻居，按(user_id_a, similarity)读取邻居；
+-- 升级后执行一次全量构建，清除原有的全部用户对
+ALTER TABLE user_similarity
+    ADD INDEX idx_user_a_similarity (user_id_a, similarity DESC),
+    COMMENT = '用户相似度表（用于协同过滤推荐，按用户方向存储每个用户相似度最高的K个邻居）';
+
+-- product_similarity按商品方向只保留相似度最高的K个商品，按(product_id_a, similarity)读取相似商品
+ALTER TABLE product_similarity
+    ADD INDEX idx_product_a_similarity (product_id_a, similarity DESC),
+    COMMENT = '商品相似度表（用于商品协同过滤推荐，按商品方向存储每个商品相似度最高的K个商品）';
+
+-- 增量更新用户相似度：订单完成时间作为增量水位，任务进度记录在检查点表
+ALTER TABLE orders
+    ADD COLUMN `complete_time` TIMESTAMP NULL COMMENT '完成时间（首次变为已完成时写入，之后不再变化）' AFTER `payment_time`,
+    ADD INDEX `idx_complete_time` (`complete_time`);
+
+-- 已完成的历史订单以最后更新时间近似完成时间
+UPDATE orders SET `complete_time` = `update_time` WHERE `status` = 3 AND `complete_time` IS NULL;
+
+CREATE TABLE IF NOT EXISTS `job_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL COMMENT '任务名称',
+    `checkpoint_time` TIMESTAMP NULL COMMENT '已处理数据的最大时间',
+    `checkpoint_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理数据在该时间内的最大ID',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`job_name`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '任务检查点表（记录增量任务的处理进度）';
+
+-- 商品相似商品列表表，下次构建商品相似度矩阵时写入
+CREATE TABLE IF NOT EXISTS product_neighbor_list (
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    neighbor_count INT NOT NULL DEFAULT 0 COMMENT '相似商品数量',
+    neighbors BLOB NOT NULL COMMENT '相似商品列表，按相似商品ID升序，每项为8字节商品ID加4字节相似度（大端序）',
+    build_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '构建时间',
+    PRIMARY KEY (product_id),
+    FOREIGN KEY (product_id) REFERENCES products(id)
+) ENGINE=INNODB DEFAULT CHARSET=utf8mb4 COMMENT='商品相似商品列表表（每个商品一行，由商品相似度矩阵构建时一并写入）';
+
+-- 过期推荐按ID分段清理时按过期时间定位
+ALTER TABLE recommendation_result
+    ADD INDEX idx_expire_time (expire_time);
+
+-- 浏览、加购、购买次数汇总表，由历史行为记录回填（在部署新版本前执行，回填结果不会与新版本的累加重复）
+CREATE TABLE IF NOT EXISTS `user_product_counter` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `view_count` INT NOT NULL DEFAULT 0 COMMENT '浏览次数',
+    `cart_count` INT NOT NULL DEFAULT 0 COMMENT '加购次数',
+    `buy_count` INT NOT NULL DEFAULT 0 COMMENT '购买次数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `product_id`),
+    INDEX `idx_product_id` (`product_id`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '用户-商品行为计数汇总表（内存中按时间窗口合并后批量累加）';
+
+CREATE TABLE IF NOT EXISTS `product_counter` (
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `category_id` BIGINT COMMENT '分类ID',
+    `view_count` BIGINT NOT NULL DEFAULT 0 COMMENT '浏览次数',
+    `cart_count` BIGINT NOT NULL DEFAULT 0 COMMENT '加购次数',
+    `buy_count` BIGINT NOT NULL DEFAULT 0 COMMENT '购买次数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`product_id`),
+    INDEX `idx_category_views` (`category_id`, `view_count` DESC)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '商品行为计数汇总表（分类热门商品查询使用）';
+
+INSERT INTO `user_product_counter` (`user_id`, `product_id`, `view_count`, `cart_count`, `buy_count`)
+SELECT `user_id`, `product_id`,
+       COALESCE(SUM(`view_count`), 0), COALESCE(SUM(`cart_count`), 0), COALESCE(SUM(`buy_count`), 0)
+FROM `user_behavior`
+WHERE `product_id` IS NOT NULL
+GROUP BY `user_id`, `product_id`;
+
+INSERT INTO `product_counter` (`product_id`, `category_id`, `view_count`, `cart_count`, `buy_count`)
+SELECT b.`product_id`, p.`category_id`,
+       COALESCE(SUM(b.`view_count`), 0), COALESCE(SUM(b.`cart_count`), 0), COALESCE(SUM(b.`buy_count`), 0)
+FROM `user_behavior` b
+JOIN `products` p ON p.`id` = b.`product_id`
+GROUP BY b.`product_id`, p.`category_id`;
+
+-- 商品评分汇总表与商品收藏关系表，由历史行为记录回填（在部署新版本前执行）
+CREATE TABLE IF NOT EXISTS `product_rating_stats` (
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `rating_sum` DECIMAL(14,1) NOT NULL DEFAULT 0 COMMENT '评分总和',
+    `rating_count` INT NOT NULL DEFAULT 0 COMMENT '评分次数',
+    `review_count` INT NOT NULL DEFAULT 0 COMMENT '评价数量',
+    `favorite_count` INT NOT NULL DEFAULT 0 COMMENT '收藏人数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`product_id`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '商品评分汇总表（评分、评价、收藏时累加，定时由行为记录校正）';
+
+CREATE TABLE IF NOT EXISTS `product_favorite` (
+    `product_id` BIGINT NOT NULL COMMENT '商品ID',
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '首次收藏时间',
+    PRIMARY KEY (`product_id`, `user_id`),
+    INDEX `idx_user_id` (`user_id`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '商品收藏关系表（每个用户每个商品一行，收藏人数按首次插入累加）';
+
+INSERT IGNORE INTO `product_favorite` (`product_id`, `user_id`, `create_time`)
+SELECT `product_id`, `user_id`, MIN(`create_time`)
+FROM `user_behavior`
+WHERE `product_id` IS NOT NULL
+AND `behavior_type` = 4
+GROUP BY `product_id`, `user_id`;
+
+INSERT INTO `product_rating_stats` (`product_id`, `rating_sum`, `rating_count`, `review_count`, `favorite_count`)
+SELECT `product_id`,
+       COALESCE(SUM(CASE WHEN `behavior_type` = 6 AND `rating` IS NOT NULL THEN `rating` END), 0),
+       COUNT(CASE WHEN `behavior_type` = 6 AND `rating` IS NOT NULL THEN 1 END),
+       COUNT(CASE WHEN `behavior_type` = 7 AND `review_content` IS NOT NULL THEN 1 END),
+       COUNT(DISTINCT CASE WHEN `behavior_type` = 4 THEN `user_id` END)
+FROM `user_behavior`
+WHERE `product_id` IS NOT NULL
+AND `behavior_type` IN (4, 6, 7)
+GROUP BY `product_id`;
+
+-- 用户每日活跃汇总表，由历史行为记录回填（在部署新版本前执行）
+CREATE TABLE IF NOT EXISTS `user_daily_activity` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `activity_date` DATE NOT NULL COMMENT '日期',
+    `behavior_count` INT NOT NULL DEFAULT 0 COMMENT '当天行为次数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `activity_date`)
+) ENGINE = INNODB DEFAULT CHARSET = utf8mb4 COMMENT = '用户每日活跃汇总表（行为写入时累加，行为热力图与活跃度评分使用）';
+
+INSERT INTO `user_daily_activity` (`user_id`, `activity_date`, `behavior_count`)
+SELECT `user_id`, DATE(`create_time`), COUNT(*)
+FROM `user_behavior`
+GROUP BY `user_id`, DATE(`create_time`);
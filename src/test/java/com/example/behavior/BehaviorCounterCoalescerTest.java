@@ -0,0 +1,159 @@
+package com.example.behavior;
+
+import com.example.config.BehaviorProperties;
+import com.example.mapper.BehaviorCounterMapper;
+import com.example.model.dto.BehaviorCounterDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BehaviorCounterCoalescerTest {
+
+    private FakeCounterMapper mapper;
+    private BehaviorProperties properties;
+    private BehaviorCounterCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        mapper = new FakeCounterMapper();
+        properties = new BehaviorProperties();
+        // 每批一行，一次写入拆成多个批次
+        properties.getCounter().setBatchSize(1);
+        coalescer = new BehaviorCounterCoalescer(mapper, properties, mapper);
+    }
+
+    @Test
+    void coalescesIncrementsPerKey() {
+        coalescer.increment(1L, 10L, 100L, 1);
+        coalescer.increment(1L, 10L, 100L, 1);
+        coalescer.increment(1L, 10L, 100L, 3);
+        coalescer.increment(2L, 10L, 100L, 8);
+        coalescer.increment(2L, 10L, 100L, 4);
+
+        assertEquals(2, coalescer.flush());
+        assertEquals(List.of(2, 1, 0), mapper.userCounts(1L, 10L));
+        assertEquals(List.of(0, 0, 1), mapper.userCounts(2L, 10L));
+        assertEquals(List.of(2, 1, 1), mapper.productCounts(10L));
+        assertEquals(0, coalescer.flush());
+    }
+
+    @Test
+    void failedFlushIsRequeuedWithoutDoubleCounting() {
+        coalescer.increment(1L, 10L, 100L, 1);
+        coalescer.increment(2L, 11L, 100L, 1);
+        coalescer.increment(3L, 12L, 100L, 3);
+        // 用户-商品三批写入成功后，第二个商品批次失败
+        mapper.failProductBatch = 2;
+
+        assertEquals(3, coalescer.flush());
+        assertTrue(mapper.committedUsers.isEmpty());
+        assertTrue(mapper.committedProducts.isEmpty());
+        assertEquals(3, coalescer.getStats().get("pending_keys"));
+        assertEquals(1L, coalescer.getStats().get("failed_flushes"));
+
+        // 失败期间的新增量与放回的增量合并
+        coalescer.increment(1L, 10L, 100L, 1);
+        assertEquals(3, coalescer.flush());
+        assertEquals(List.of(2, 0, 0), mapper.userCounts(1L, 10L));
+        assertEquals(List.of(1, 0, 0), mapper.userCounts(2L, 11L));
+        assertEquals(List.of(0, 1, 0), mapper.userCounts(3L, 12L));
+        assertEquals(List.of(2, 0, 0), mapper.productCounts(10L));
+        assertEquals(List.of(1, 0, 0), mapper.productCounts(11L));
+        assertEquals(List.of(0, 1, 0), mapper.productCounts(12L));
+        assertEquals(0, coalescer.getStats().get("pending_keys"));
+    }
+
+    @Test
+    void disabledCounterWritesImmediately() {
+        properties.getCounter().setEnabled(false);
+        coalescer.increment(1L, 10L, 100L, 8);
+        assertEquals(List.of(0, 0, 1), mapper.userCounts(1L, 10L));
+        assertEquals(List.of(0, 0, 1), mapper.productCounts(10L));
+        assertEquals(0, coalescer.flush());
+    }
+
+    /**
+     * 内存中的计数表：事务内的写入先暂存，提交时累加，回滚时丢弃
+     */
+    private static final class FakeCounterMapper implements BehaviorCounterMapper, PlatformTransactionManager {
+
+        private final Map<List<Long>, int[]> committedUsers = new HashMap<>();
+        private final Map<Long, int[]> committedProducts = new HashMap<>();
+        private final List<BehaviorCounterDTO> stagedUsers = new ArrayList<>();
+        private final List<BehaviorCounterDTO> stagedProducts = new ArrayList<>();
+        private int productBatches;
+
+        /**
+         * 第几个商品批次（从1开始）写入失败，0表示不失败；失败一次后复位
+         */
+        private int failProductBatch;
+
+        @Override
+        public int batchUpsertUserProduct(List<BehaviorCounterDTO> list) {
+            stagedUsers.addAll(list);
+            return list.size();
+        }
+
+        @Override
+        public int batchUpsertProduct(List<BehaviorCounterDTO> list) {
+            if (++productBatches == failProductBatch) {
+                failProductBatch = 0;
+                throw new IllegalStateException("simulated failure");
+            }
+            stagedProducts.addAll(list);
+            return list.size();
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            productBatches = 0;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            for (BehaviorCounterDTO row : stagedUsers) {
+                add(committedUsers.computeIfAbsent(List.of(row.getUserId(), row.getProductId()), key -> new int[3]), row);
+            }
+            for (BehaviorCounterDTO row : stagedProducts) {
+                add(committedProducts.computeIfAbsent(row.getProductId(), key -> new int[3]), row);
+            }
+            rollback(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            stagedUsers.clear();
+            stagedProducts.clear();
+        }
+
+        List<Integer> userCounts(Long userId, Long productId) {
+            return toList(committedUsers.get(List.of(userId, productId)));
+        }
+
+        List<Integer> productCounts(Long productId) {
+            return toList(committedProducts.get(productId));
+        }
+
+        private static void add(int[] counts, BehaviorCounterDTO row) {
+            counts[0] += row.getViewCount();
+            counts[1] += row.getCartCount();
+            counts[2] += row.getBuyCount();
+        }
+
+        private static List<Integer> toList(int[] counts) {
+            return counts == null ? List.of(0, 0, 0) : List.of(counts[0], counts[1], counts[2]);
+        }
+    }
+}
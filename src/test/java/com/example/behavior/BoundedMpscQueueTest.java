@@ -0,0 +1,121 @@
+package com.example.behavior;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedMpscQueueTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, new BoundedMpscQueue<Integer>(1).capacity());
+        assertEquals(8, new BoundedMpscQueue<Integer>(5).capacity());
+        assertEquals(8, new BoundedMpscQueue<Integer>(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new BoundedMpscQueue<Integer>(0));
+    }
+
+    @Test
+    void emptyQueueReturnsNull() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(4);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertEquals(0, queue.drainTo(new ArrayList<>(), 10));
+    }
+
+    @Test
+    void offerFailsWhenFullAndSucceedsAfterPoll() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(4, queue.size());
+        assertFalse(queue.offer(4));
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        assertFalse(queue.offer(5));
+        assertEquals(4, queue.size());
+    }
+
+    @Test
+    void preservesOrderAcrossManyWraps() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(4);
+        int next = 0;
+        int expected = 0;
+        // 每轮入队3个、出队3个，槽位序号反复绕回
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(queue.offer(next++));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected++, queue.poll());
+            }
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void drainToRespectsLimit() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(8);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained, 4));
+        assertEquals(List.of(0, 1, 2, 3), drained);
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20000;
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        int received = 0;
+        while (received < seen.length) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertFalse(seen[value]);
+            seen[value] = true;
+            // 同一生产者的元素保持入队顺序
+            int producer = value / perProducer;
+            assertTrue(value > lastPerProducer[producer]);
+            lastPerProducer[producer] = value;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.behavior;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DailyActivityTest {
+
+    /**
+     * 天号对DAYS取模为0的一天，便于构造跨64位字和跨环形边界的区间
+     */
+    private static final long BASE = 20000L * DailyActivity.DAYS;
+
+    @Test
+    void activeDaysAcrossWordBoundary() {
+        long today = BASE + 100;
+        DailyActivity activity = new DailyActivity(today);
+        // 槽位62、63在第一个字，64、65在第二个字
+        activity.add(BASE + 62, 1);
+        activity.add(BASE + 63, 2);
+        activity.add(BASE + 64, 3);
+        activity.add(BASE + 65, 4);
+
+        assertEquals(4, activity.activeDays(BASE + 62, BASE + 65));
+        assertEquals(2, activity.activeDays(BASE + 63, BASE + 64));
+        assertEquals(1, activity.activeDays(BASE + 63, BASE + 63));
+        assertEquals(1, activity.activeDays(BASE + 64, BASE + 64));
+        assertEquals(2, activity.activeDays(BASE, BASE + 63));
+        assertEquals(2, activity.activeDays(BASE + 64, today));
+        assertEquals(5, activity.total(BASE + 63, BASE + 64));
+    }
+
+    @Test
+    void activeDaysAcrossRingBoundary() {
+        // 窗口为[BASE + 10 - DAYS + 1, BASE + 10]，跨过槽位DAYS-1到0的绕回
+        long today = BASE + 10;
+        DailyActivity activity = new DailyActivity(today);
+        activity.add(BASE - 2, 1);
+        activity.add(BASE - 1, 1);
+        activity.add(BASE, 1);
+        activity.add(BASE + 1, 1);
+        activity.add(today, 1);
+
+        assertEquals(4, activity.activeDays(BASE - 2, BASE + 1));
+        assertEquals(2, activity.activeDays(BASE - 1, BASE));
+        assertEquals(5, activity.activeDays(today - DailyActivity.DAYS + 1, today));
+        // 超出窗口的部分按0计
+        assertEquals(5, activity.activeDays(today - 1000, today + 1000));
+        assertArrayEquals(new int[]{1, 1, 1, 1}, activity.counts(BASE - 2, BASE + 1));
+    }
+
+    @Test
+    void advancingClearsReusedSlots() {
+        long today = BASE + 63;
+        DailyActivity activity = new DailyActivity(today);
+        activity.add(BASE + 63, 5);
+        activity.add(BASE + 64 - DailyActivity.DAYS, 7);
+        assertEquals(2, activity.activeDays(today - DailyActivity.DAYS + 1, today));
+
+        // 推进一天后槽位64被复用，原来的数据被清除
+        activity.add(BASE + 64, 1);
+        assertEquals(0, activity.count(BASE + 64 - DailyActivity.DAYS));
+        assertEquals(1, activity.count(BASE + 64));
+        assertEquals(2, activity.activeDays(BASE + 65 - DailyActivity.DAYS, BASE + 64));
+
+        // 推进超过整个窗口后全部清空
+        long later = BASE + 64 + 3L * DailyActivity.DAYS;
+        activity.add(later, 2);
+        assertEquals(1, activity.activeDays(later - DailyActivity.DAYS + 1, later));
+        assertEquals(2, activity.total(later - DailyActivity.DAYS + 1, later));
+    }
+
+    @Test
+    void ignoresDaysBeforeWindow() {
+        long today = BASE;
+        DailyActivity activity = new DailyActivity(today);
+        activity.add(today - DailyActivity.DAYS, 3);
+        activity.add(today - DailyActivity.DAYS + 1, 4);
+        assertEquals(0, activity.count(today - DailyActivity.DAYS));
+        assertEquals(1, activity.activeDays(today - 2L * DailyActivity.DAYS, today));
+        assertEquals(4, activity.total(today - 2L * DailyActivity.DAYS, today));
+    }
+}
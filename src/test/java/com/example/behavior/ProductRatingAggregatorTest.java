@@ -0,0 +1,202 @@
+package com.example.behavior;
+
+import com.example.cache.ProductRatingStatsCache;
+import com.example.config.BehaviorProperties;
+import com.example.mapper.ProductFavoriteMapper;
+import com.example.mapper.ProductRatingStatsMapper;
+import com.example.model.dto.ProductRatingStatsDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductRatingAggregatorTest {
+
+    private FakeRatingMapper mapper;
+    private BehaviorProperties properties;
+    private ProductRatingAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        mapper = new FakeRatingMapper();
+        properties = new BehaviorProperties();
+        properties.getRating().setRepairChunkSize(3);
+        properties.getRating().setRepairPauseMs(0L);
+        ProductRatingStatsCache cache = new ProductRatingStatsCache(mapper, properties);
+        aggregator = new ProductRatingAggregator(mapper, mapper, cache, properties);
+    }
+
+    @Test
+    void repeatedFavoriteIsCountedOnce() {
+        assertTrue(aggregator.addFavorite(1L, 10L));
+        // 先读一次，使汇总进入缓存
+        assertEquals(1, aggregator.getFavoriteCount(10L));
+
+        assertFalse(aggregator.addFavorite(1L, 10L));
+        assertTrue(aggregator.addFavorite(2L, 10L));
+        assertTrue(aggregator.addFavorite(1L, 11L));
+
+        assertEquals(2, aggregator.getFavoriteCount(10L));
+        assertEquals(1, aggregator.getFavoriteCount(11L));
+        assertEquals(3, mapper.favoriteIncrements);
+    }
+
+    @Test
+    void mergedUserFavoritesAreNotCountedAgain() {
+        aggregator.addFavorite(1L, 10L);
+        aggregator.addFavorite(2L, 10L);
+        aggregator.mergeUser(2L, 1L);
+
+        assertEquals(Set.of(List.of(1L, 10L)), mapper.favorites);
+        assertFalse(aggregator.addFavorite(1L, 10L));
+        assertEquals(2, mapper.favoriteIncrements);
+    }
+
+    @Test
+    void repairRecomputesEveryChunkAndInvalidatesCache() {
+        aggregator.addFavorite(1L, 2L);
+        aggregator.addFavorite(1L, 7L);
+        aggregator.addRating(4L, new BigDecimal("4.0"));
+        aggregator.addRating(4L, new BigDecimal("5.0"));
+        assertEquals(1, aggregator.getFavoriteCount(7L));
+        assertEquals(0, new BigDecimal("4.5").compareTo(aggregator.getAverageRating(4L)));
+
+        // 汇总与行为记录不一致：收藏关系被清理、评分累加被重复执行
+        mapper.favorites.remove(List.of(1L, 7L));
+        mapper.stats.get(4L).setRatingCount(3);
+
+        assertEquals(3, aggregator.repair());
+        assertEquals(List.of(List.of(0L, 3L), List.of(3L, 6L), List.of(6L, 7L)), mapper.recomputedRanges);
+        assertEquals(0, aggregator.getFavoriteCount(7L));
+        assertEquals(1, aggregator.getFavoriteCount(2L));
+        assertEquals(0, new BigDecimal("4.5").compareTo(aggregator.getAverageRating(4L)));
+        assertEquals(3, aggregator.getLastRepair().get("chunks"));
+        assertEquals(false, aggregator.getLastRepair().get("interrupted"));
+    }
+
+    @Test
+    void repairOfEmptyTableDoesNothing() {
+        assertEquals(0, aggregator.repair());
+        assertTrue(mapper.recomputedRanges.isEmpty());
+    }
+
+    /**
+     * 内存中的评分汇总表和收藏关系表，评分明细保存在ratings中作为重新计算的依据
+     */
+    private static final class FakeRatingMapper implements ProductRatingStatsMapper, ProductFavoriteMapper {
+
+        private final TreeMap<Long, ProductRatingStatsDTO> stats = new TreeMap<>();
+        private final Map<Long, List<BigDecimal>> ratings = new HashMap<>();
+        private final Set<List<Long>> favorites = new HashSet<>();
+        private final List<List<Long>> recomputedRanges = new ArrayList<>();
+        private int favoriteIncrements;
+
+        @Override
+        public ProductRatingStatsDTO selectByProductId(Long productId) {
+            ProductRatingStatsDTO row = stats.get(productId);
+            if (row == null) {
+                return null;
+            }
+            ProductRatingStatsDTO copy = new ProductRatingStatsDTO();
+            copy.setProductId(row.getProductId());
+            copy.setRatingSum(row.getRatingSum());
+            copy.setRatingCount(row.getRatingCount());
+            copy.setReviewCount(row.getReviewCount());
+            copy.setFavoriteCount(row.getFavoriteCount());
+            return copy;
+        }
+
+        @Override
+        public int addRating(Long productId, BigDecimal rating) {
+            ratings.computeIfAbsent(productId, key -> new ArrayList<>()).add(rating);
+            ProductRatingStatsDTO row = row(productId);
+            row.setRatingSum(row.getRatingSum().add(rating));
+            row.setRatingCount(row.getRatingCount() + 1);
+            return 1;
+        }
+
+        @Override
+        public int addReview(Long productId) {
+            ProductRatingStatsDTO row = row(productId);
+            row.setReviewCount(row.getReviewCount() + 1);
+            return 1;
+        }
+
+        @Override
+        public int addFavorite(Long productId) {
+            favoriteIncrements++;
+            ProductRatingStatsDTO row = row(productId);
+            row.setFavoriteCount(row.getFavoriteCount() + 1);
+            return 1;
+        }
+
+        @Override
+        public int recomputeRange(Long afterProductId, Long toProductId) {
+            recomputedRanges.add(List.of(afterProductId, toProductId));
+            int affected = 0;
+            for (ProductRatingStatsDTO row : stats.values()) {
+                long productId = row.getProductId();
+                if (productId <= afterProductId || productId > toProductId) {
+                    continue;
+                }
+                List<BigDecimal> productRatings = ratings.getOrDefault(productId, List.of());
+                row.setRatingSum(productRatings.stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+                row.setRatingCount(productRatings.size());
+                row.setFavoriteCount((int) favorites.stream().filter(key -> key.get(1) == productId).count());
+                affected++;
+            }
+            return affected;
+        }
+
+        @Override
+        public Long selectMaxProductId() {
+            return stats.isEmpty() ? null : stats.lastKey();
+        }
+
+        @Override
+        public int insertIgnore(Long userId, Long productId) {
+            return favorites.add(List.of(userId, productId)) ? 1 : 0;
+        }
+
+        @Override
+        public int mergeUser(Long sourceUserId, Long targetUserId) {
+            int affected = 0;
+            for (List<Long> key : new ArrayList<>(favorites)) {
+                if (key.get(0).equals(sourceUserId) && favorites.add(List.of(targetUserId, key.get(1)))) {
+                    affected++;
+                }
+            }
+            return affected;
+        }
+
+        @Override
+        public int deleteByUserId(Long userId) {
+            int before = favorites.size();
+            favorites.removeIf(key -> key.get(0).equals(userId));
+            return before - favorites.size();
+        }
+
+        private ProductRatingStatsDTO row(Long productId) {
+            return stats.computeIfAbsent(productId, key -> {
+                ProductRatingStatsDTO row = new ProductRatingStatsDTO();
+                row.setProductId(productId);
+                row.setRatingSum(BigDecimal.ZERO);
+                row.setRatingCount(0);
+                row.setReviewCount(0);
+                row.setFavoriteCount(0);
+                return row;
+            });
+        }
+    }
+}
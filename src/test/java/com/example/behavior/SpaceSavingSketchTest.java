@@ -0,0 +1,155 @@
+package com.example.behavior;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTest {
+
+    private static final int CAPACITY = 20;
+
+    @Test
+    void exactWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+        sketch.offer("a", 3);
+        sketch.offer("b", 1);
+        sketch.offer("a", 2);
+        SpaceSavingSketch.Snapshot snapshot = sketch.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals("a", snapshot.key(0));
+        assertEquals(5, snapshot.count(0));
+        assertEquals(0, snapshot.error(0));
+        assertEquals(0, snapshot.floor());
+        assertEquals(6, snapshot.total());
+    }
+
+    @Test
+    void singleSketchBoundsHold() {
+        Map<String, Long> truth = new HashMap<>();
+        SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+        feed(sketch, truth, new Random(1), 20000);
+        SpaceSavingSketch.Snapshot snapshot = sketch.snapshot();
+        assertBounds(snapshot, truth);
+        // 单个统计的误差不超过total/capacity，真实次数超过该值的元素一定被保存
+        long bound = snapshot.total() / CAPACITY;
+        assertTrue(snapshot.floor() <= bound);
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertTrue(snapshot.error(i) <= bound);
+        }
+    }
+
+    @Test
+    void mergedSketchBoundsHold() {
+        Random random = new Random(7);
+        Map<String, Long> truth = new HashMap<>();
+        List<SpaceSavingSketch.Snapshot> snapshots = new ArrayList<>();
+        for (int bucket = 0; bucket < 6; bucket++) {
+            SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+            // 各分桶的热门元素不同，合并时大量元素只出现在部分分桶中
+            feed(sketch, truth, random, 5000 + bucket * 1000, "b" + bucket + "-");
+            feed(sketch, truth, random, 3000, "");
+            snapshots.add(sketch.snapshot());
+        }
+        SpaceSavingSketch.Snapshot merged = SpaceSavingSketch.Snapshot.merge(snapshots, CAPACITY);
+        assertEquals(CAPACITY, merged.size());
+        assertEquals(truth.values().stream().mapToLong(Long::longValue).sum(), merged.total());
+        assertBounds(merged, truth);
+
+        // 先合并已关闭的分桶再与其余分桶合并，界限仍然成立
+        SpaceSavingSketch.Snapshot closed = SpaceSavingSketch.Snapshot.merge(snapshots.subList(0, 4), CAPACITY);
+        SpaceSavingSketch.Snapshot nested = SpaceSavingSketch.Snapshot.merge(
+                List.of(closed, snapshots.get(4), snapshots.get(5)), CAPACITY);
+        assertEquals(merged.total(), nested.total());
+        assertBounds(nested, truth);
+    }
+
+    @Test
+    void heavyHittersSurviveMerge() {
+        Map<String, Long> truth = new HashMap<>();
+        List<SpaceSavingSketch.Snapshot> snapshots = new ArrayList<>();
+        Random random = new Random(3);
+        for (int bucket = 0; bucket < 4; bucket++) {
+            SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+            for (int i = 0; i < 2000; i++) {
+                offer(sketch, truth, "hot", 1);
+                offer(sketch, truth, "noise-" + random.nextInt(5000), 1);
+            }
+            snapshots.add(sketch.snapshot());
+        }
+        SpaceSavingSketch.Snapshot merged = SpaceSavingSketch.Snapshot.merge(snapshots, CAPACITY);
+        assertEquals("hot", merged.key(0));
+        assertBounds(merged, truth);
+    }
+
+    @Test
+    void concatKeepsDisjointEstimates() {
+        SpaceSavingSketch left = new SpaceSavingSketch(CAPACITY);
+        SpaceSavingSketch right = new SpaceSavingSketch(CAPACITY);
+        left.offer("a", 5);
+        right.offer("b", 7);
+        SpaceSavingSketch.Snapshot all = SpaceSavingSketch.Snapshot.concat(List.of(left.snapshot(), right.snapshot()));
+        assertEquals(2, all.size());
+        assertEquals("b", all.key(0));
+        assertEquals(7, all.count(0));
+        assertEquals(12, all.total());
+    }
+
+    @Test
+    void mergeOfSingleSmallSnapshotIsIdentity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+        sketch.offer("a", 1);
+        SpaceSavingSketch.Snapshot snapshot = sketch.snapshot();
+        assertSame(snapshot, SpaceSavingSketch.Snapshot.merge(List.of(snapshot), CAPACITY));
+    }
+
+    /**
+     * 保存的元素：计数减误差 <= 真实次数 <= 计数，且按保证次数降序；未保存的元素：真实次数 <= floor
+     */
+    private static void assertBounds(SpaceSavingSketch.Snapshot snapshot, Map<String, Long> truth) {
+        Set<String> kept = new HashSet<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            String key = snapshot.key(i);
+            long actual = truth.getOrDefault(key, 0L);
+            kept.add(key);
+            assertTrue(snapshot.count(i) - snapshot.error(i) <= actual, key + " guaranteed count above actual");
+            assertTrue(actual <= snapshot.count(i), key + " estimate below actual");
+            if (i > 0) {
+                assertTrue(snapshot.count(i - 1) - snapshot.error(i - 1) >= snapshot.count(i) - snapshot.error(i));
+            }
+        }
+        for (Map.Entry<String, Long> entry : truth.entrySet()) {
+            if (!kept.contains(entry.getKey())) {
+                assertTrue(entry.getValue() <= snapshot.floor(), entry.getKey() + " above floor");
+            }
+        }
+    }
+
+    private static void feed(SpaceSavingSketch sketch, Map<String, Long> truth, Random random, int events) {
+        feed(sketch, truth, random, events, "");
+    }
+
+    /**
+     * 近似Zipf分布：元素k的概率约与1/(k+1)成正比
+     */
+    private static void feed(SpaceSavingSketch sketch, Map<String, Long> truth, Random random, int events, String prefix) {
+        for (int i = 0; i < events; i++) {
+            int rank = (int) Math.floor(Math.pow(1000, random.nextDouble())) - 1;
+            offer(sketch, truth, prefix + rank, 1 + random.nextInt(2));
+        }
+    }
+
+    private static void offer(SpaceSavingSketch sketch, Map<String, Long> truth, String key, long weight) {
+        sketch.offer(key, weight);
+        truth.merge(key, weight, Long::sum);
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.bench;
+
+import com.example.mapper.OrderItemMapper;
+import com.example.mapper.ProductMapper;
+import com.example.mapper.ProductNeighborListMapper;
+import com.example.mapper.ProductSimilarityMapper;
+import com.example.mapper.UserBehaviorMapper;
+import com.example.mapper.UserSimilarityMapper;
+import com.example.model.dto.ProductEngagementDTO;
+import com.example.model.dto.UserInteractionDTO;
+import com.example.model.dto.UserPurchaseDTO;
+import com.example.model.entity.OrderItem;
+import com.example.model.entity.Product;
+import com.example.model.entity.ProductNeighborList;
+import com.example.model.entity.UserSimilarity;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 嵌入式数据库替身
+ * 用内存中的合成数据集实现推荐链路用到的Mapper方法，语义与对应的MyBatis XML一致
+ * （时间窗口、订单状态过滤、去重和排序），其他方法调用时抛出UnsupportedOperationException。
+ * 相似度写入只保留推荐查询会读取的数据：user_similarity和product_neighbor_list保存完整记录，product_similarity只计数。
+ * 结果集逐行创建对象并通过ResultHandler回调，与流式查询的调用方式相同，但不包含网络和SQL执行开销。
+ */
+public final class InMemoryMallDatabase {
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private final SyntheticDataset data;
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private final Map<Long, List<UserSimilarity>> userSimilarities = new HashMap<>();
+    private final TreeMap<Long, ProductNeighborList> neighborLists = new TreeMap<>();
+    private final AtomicLong productSimilarityRows = new AtomicLong();
+    private final AtomicLong scannedRows = new AtomicLong();
+
+    public InMemoryMallDatabase(SyntheticDataset data) {
+        this.data = data;
+    }
+
+    public UserBehaviorMapper userBehaviorMapper() {
+        return proxy(UserBehaviorMapper.class, (method, args) -> {
+            switch (method) {
+                case "scanUserInteractions":
+                    scanUserInteractions((Integer) args[0], handler(args[1]));
+                    return null;
+                case "scanProductEngagement":
+                    scanProductEngagement((Integer) args[0], handler(args[1]));
+                    return null;
+                case "selectBehaviorSnapshots":
+                    return selectBehaviorSnapshots(collection(args[0]), (Integer) args[1], (Integer) args[2], (Integer) args[3]);
+                default:
+                    return unsupported(UserBehaviorMapper.class, method);
+            }
+        });
+    }
+
+    public OrderItemMapper orderItemMapper() {
+        return proxy(OrderItemMapper.class, (method, args) -> {
+            switch (method) {
+                case "scanUserPurchases":
+                    scanUserPurchases((Integer) args[0], handler(args[2]));
+                    return null;
+                case "selectRecentPurchasesByUserId":
+                    return selectRecentPurchases((Long) args[0], (Integer) args[1]);
+                case "selectCurrentTime":
+                    return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                default:
+                    return unsupported(OrderItemMapper.class, method);
+            }
+        });
+    }
+
+    public ProductMapper productMapper() {
+        return proxy(ProductMapper.class, (method, args) -> {
+            if ("scanActiveProducts".equals(method)) {
+                scanActiveProducts(handler(args[0]));
+                return null;
+            }
+            return unsupported(ProductMapper.class, method);
+        });
+    }
+
+    public ProductSimilarityMapper productSimilarityMapper() {
+        return proxy(ProductSimilarityMapper.class, (method, args) -> {
+            switch (method) {
+                case "batchInsert":
+                    int size = ((List<?>) args[0]).size();
+                    productSimilarityRows.addAndGet(size);
+                    return size;
+                case "deleteBeforeTime":
+                    return 0;
+                default:
+                    return unsupported(ProductSimilarityMapper.class, method);
+            }
+        });
+    }
+
+    public ProductNeighborListMapper productNeighborListMapper() {
+        return proxy(ProductNeighborListMapper.class, (method, args) -> {
+            switch (method) {
+                case "batchUpsert":
+                    return batchUpsertNeighborLists(list(args[0]));
+                case "deleteBeforeTime":
+                    return deleteNeighborListsBefore((LocalDateTime) args[0]);
+                case "scanAll":
+                    scanNeighborLists(handler(args[0]));
+                    return null;
+                default:
+                    return unsupported(ProductNeighborListMapper.class, method);
+            }
+        });
+    }
+
+    public UserSimilarityMapper userSimilarityMapper() {
+        return proxy(UserSimilarityMapper.class, (method, args) -> {
+            switch (method) {
+                case "batchInsert":
+                    return insertUserSimilarities(list(args[0]));
+                case "deleteBeforeTime":
+                    return deleteUserSimilaritiesBefore((LocalDateTime) args[0]);
+                case "selectMostSimilarUsers":
+                    return selectMostSimilarUsers((Long) args[0], (Integer) args[1]);
+                default:
+                    return unsupported(UserSimilarityMapper.class, method);
+            }
+        });
+    }
+
+    /**
+     * 存储统计：各表记录数和累计扫描行数
+     */
+    public synchronized Map<String, Object> getStats() {
+        long userSimilarityRows = 0;
+        for (List<UserSimilarity> rows : userSimilarities.values()) {
+            userSimilarityRows += rows.size();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("user_similarity_rows", userSimilarityRows);
+        stats.put("product_similarity_rows", productSimilarityRows.get());
+        stats.put("product_neighbor_lists", neighborLists.size());
+        stats.put("scanned_rows", scannedRows.get());
+        return stats;
+    }
+
+    private void scanUserInteractions(int days, ResultHandler<UserInteractionDTO> handler) {
+        int window = days * SECONDS_PER_DAY;
+        Rows<UserInteractionDTO> rows = new Rows<>(handler);
+        for (int u = 0; u < data.users && !rows.isStopped(); u++) {
+            for (int e = data.userOffsets[u]; e < data.userOffsets[u + 1] && !rows.isStopped(); e++) {
+                byte type = data.types[e];
+                if (data.ageSeconds[e] >= window
+                        || (type == SyntheticDataset.PURCHASE && data.orderStatus[e] != SyntheticDataset.ORDER_COMPLETED)) {
+                    continue;
+                }
+                UserInteractionDTO row = new UserInteractionDTO();
+                row.setUserId(u + 1L);
+                row.setProductId((long) data.productIds[e]);
+                row.setBehaviorType((int) type);
+                rows.emit(row);
+            }
+        }
+    }
+
+    private void scanUserPurchases(int days, ResultHandler<UserPurchaseDTO> handler) {
+        int window = days * SECONDS_PER_DAY;
+        Rows<UserPurchaseDTO> rows = new Rows<>(handler);
+        for (int u = 0; u < data.users && !rows.isStopped(); u++) {
+            for (int e = data.userOffsets[u]; e < data.userOffsets[u + 1] && !rows.isStopped(); e++) {
+                if (data.types[e] != SyntheticDataset.PURCHASE || data.ageSeconds[e] >= window
+                        || data.orderStatus[e] != SyntheticDataset.ORDER_COMPLETED) {
+                    continue;
+                }
+                UserPurchaseDTO row = new UserPurchaseDTO();
+                row.setUserId(u + 1L);
+                row.setProductId((long) data.productIds[e]);
+                row.setQuantity((int) data.quantities[e]);
+                rows.emit(row);
+            }
+        }
+    }
+
+    private List<OrderItem> selectRecentPurchases(Long userId, int limit) {
+        // 已完成订单的订单项，按下单时间倒序
+        List<OrderItem> result = new ArrayList<>();
+        if (userId == null || userId < 1 || userId > data.users) {
+            return result;
+        }
+        int u = (int) (userId - 1);
+        for (int e = data.userOffsets[u + 1] - 1; e >= data.userOffsets[u] && result.size() < limit; e--) {
+            if (data.types[e] == SyntheticDataset.PURCHASE && data.orderStatus[e] == SyntheticDataset.ORDER_COMPLETED) {
+                OrderItem item = new OrderItem();
+                item.setOrderId((long) e + 1);
+                item.setProductId((long) data.productIds[e]);
+                item.setQuantity((int) data.quantities[e]);
+                item.setPrice(BigDecimal.valueOf(100));
+                item.setCreateTime(now.minusSeconds(data.ageSeconds[e]));
+                result.add(item);
+            }
+        }
+        scannedRows.addAndGet(result.size());
+        return result;
+    }
+
+    private void scanProductEngagement(int days, ResultHandler<ProductEngagementDTO> handler) {
+        // GROUP BY product_id, behavior_type, age_days；购买统计已支付、已发货、已完成订单的件数
+        int window = days * SECONDS_PER_DAY;
+        Map<Long, long[]> groups = new HashMap<>();
+        for (int e = 0; e < data.events(); e++) {
+            byte type = data.types[e];
+            if (data.ageSeconds[e] >= window) {
+                continue;
+            }
+            long amount = 1;
+            if (type == SyntheticDataset.PURCHASE) {
+                byte status = data.orderStatus[e];
+                if (status < 1 || status > SyntheticDataset.ORDER_COMPLETED) {
+                    continue;
+                }
+                amount = data.quantities[e];
+            }
+            long key = ((long) data.productIds[e] << 20) | ((long) type << 16) | (data.ageSeconds[e] / SECONDS_PER_DAY);
+            groups.computeIfAbsent(key, k -> new long[1])[0] += amount;
+        }
+        Rows<ProductEngagementDTO> rows = new Rows<>(handler);
+        for (Map.Entry<Long, long[]> group : groups.entrySet()) {
+            if (rows.isStopped()) {
+                break;
+            }
+            long key = group.getKey();
+            ProductEngagementDTO row = new ProductEngagementDTO();
+            row.setProductId(key >>> 20);
+            row.setBehaviorType((int) ((key >>> 16) & 0xF));
+            row.setAgeDays((int) (key & 0xFFFF));
+            row.setEventCount(group.getValue()[0]);
+            rows.emit(row);
+        }
+    }
+
+    private List<UserInteractionDTO> selectBehaviorSnapshots(Collection<Long> userIds, int viewLimit,
+                                                             int favoriteLimit, int purchaseLimit) {
+        // ORDER BY user_id, behavior_type, 最近一次行为时间降序；同一商品只出现一次
+        List<UserInteractionDTO> result = new ArrayList<>();
+        for (Long userId : new TreeSet<>(userIds)) {
+            if (userId == null || userId < 1 || userId > data.users) {
+                continue;
+            }
+            int u = (int) (userId - 1);
+            latest(result, u, SyntheticDataset.VIEW, viewLimit);
+            latest(result, u, SyntheticDataset.FAVORITE, favoriteLimit);
+            latest(result, u, SyntheticDataset.PURCHASE, purchaseLimit);
+        }
+        scannedRows.addAndGet(result.size());
+        return result;
+    }
+
+    private void latest(List<UserInteractionDTO> result, int u, byte type, int limit) {
+        int from = result.size();
+        for (int e = data.userOffsets[u + 1] - 1; e >= data.userOffsets[u] && result.size() - from < limit; e--) {
+            if (data.types[e] != type
+                    || (type == SyntheticDataset.PURCHASE && data.orderStatus[e] != SyntheticDataset.ORDER_COMPLETED)) {
+                continue;
+            }
+            long productId = data.productIds[e];
+            boolean seen = false;
+            for (int i = from; i < result.size() && !seen; i++) {
+                seen = result.get(i).getProductId() == productId;
+            }
+            if (!seen) {
+                UserInteractionDTO row = new UserInteractionDTO();
+                row.setUserId(u + 1L);
+                row.setProductId(productId);
+                row.setBehaviorType((int) type);
+                result.add(row);
+            }
+        }
+    }
+
+    private void scanActiveProducts(ResultHandler<Product> handler) {
+        Rows<Product> rows = new Rows<>(handler);
+        for (int p = 0; p < data.products && !rows.isStopped(); p++) {
+            if (data.productStatus[p] != 1) {
+                continue;
+            }
+            Product product = new Product();
+            product.setId(p + 1L);
+            product.setCategoryId((long) data.categoryIds[p]);
+            product.setName("商品" + (p + 1));
+            product.setPrice(BigDecimal.valueOf(100));
+            product.setStatus(1);
+            product.setCreateTime(now.minusDays(data.productAgeDays[p]));
+            rows.emit(product);
+        }
+    }
+
+    private synchronized int batchUpsertNeighborLists(List<ProductNeighborList> lists) {
+        for (ProductNeighborList list : lists) {
+            neighborLists.put(list.getProductId(), list);
+        }
+        return lists.size();
+    }
+
+    private synchronized int deleteNeighborListsBefore(LocalDateTime beforeTime) {
+        int before = neighborLists.size();
+        neighborLists.values().removeIf(list -> list.getBuildTime().isBefore(beforeTime));
+        return before - neighborLists.size();
+    }
+
+    private void scanNeighborLists(ResultHandler<ProductNeighborList> handler) {
+        List<ProductNeighborList> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(neighborLists.values());
+        }
+        Rows<ProductNeighborList> rows = new Rows<>(handler);
+        for (int i = 0; i < snapshot.size() && !rows.isStopped(); i++) {
+            rows.emit(snapshot.get(i));
+        }
+    }
+
+    private synchronized int insertUserSimilarities(List<UserSimilarity> batch) {
+        for (UserSimilarity similarity : batch) {
+            userSimilarities.computeIfAbsent(similarity.getUserIdA(), key -> new ArrayList<>()).add(similarity);
+        }
+        return batch.size();
+    }
+
+    private synchronized int deleteUserSimilaritiesBefore(LocalDateTime beforeTime) {
+        int removed = 0;
+        for (List<UserSimilarity> rows : userSimilarities.values()) {
+            int size = rows.size();
+            rows.removeIf(row -> row.getUpdateTime().isBefore(beforeTime));
+            removed += size - rows.size();
+        }
+        userSimilarities.values().removeIf(List::isEmpty);
+        return removed;
+    }
+
+    private synchronized List<UserSimilarity> selectMostSimilarUsers(Long userId, int limit) {
+        List<UserSimilarity> rows = userSimilarities.get(userId);
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        List<UserSimilarity> sorted = new ArrayList<>(rows);
+        sorted.sort((a, b) -> b.getSimilarity().compareTo(a.getSimilarity()));
+        scannedRows.addAndGet(Math.min(limit, sorted.size()));
+        return new ArrayList<>(sorted.subList(0, Math.min(limit, sorted.size())));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ResultHandler<T> handler(Object arg) {
+        return (ResultHandler<T>) arg;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> list(Object arg) {
+        return (List<T>) arg;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Long> collection(Object arg) {
+        return (Collection<Long>) arg;
+    }
+
+    private static Object unsupported(Class<?> type, String method) {
+        throw new UnsupportedOperationException(type.getSimpleName() + "." + method + " is not supported by the benchmark database");
+    }
+
+    /**
+     * 创建Mapper接口的动态代理，Object方法之外的调用交给invocation按方法名分派
+     */
+    static <T> T proxy(Class<T> type, Invocation invocation) {
+        Object instance = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return invocation.invoke(method.getName(), args == null ? new Object[0] : args);
+            }
+        });
+        return type.cast(instance);
+    }
+
+    @FunctionalInterface
+    interface Invocation {
+        Object invoke(String method, Object[] args);
+    }
+
+    /**
+     * 逐行回调结果处理器，处理器调用stop()后停止输出
+     */
+    private final class Rows<T> implements ResultContext<T> {
+
+        private final ResultHandler<T> handler;
+        private T current;
+        private int count;
+        private boolean stopped;
+
+        Rows(ResultHandler<T> handler) {
+            this.handler = handler;
+        }
+
+        void emit(T row) {
+            current = row;
+            count++;
+            scannedRows.incrementAndGet();
+            handler.handleResult(this);
+        }
+
+        @Override
+        public T getResultObject() {
+            return current;
+        }
+
+        @Override
+        public int getResultCount() {
+            return count;
+        }
+
+        @Override
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+        }
+    }
+}
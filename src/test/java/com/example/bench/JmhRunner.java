@@ -0,0 +1,23 @@
+package com.example.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH基准入口：接受JMH的全部命令行参数，并且总是加上GC分析器，结果同时包含吞吐量和每次操作的分配字节数
+ * mvn test -Pjmh [-Djmh.args="UserSimilarity -p purchases=50"]
+ */
+public final class JmhRunner {
+
+    private JmhRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
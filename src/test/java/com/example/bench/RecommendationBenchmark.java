@@ -0,0 +1,329 @@
+package com.example.bench;
+
+import com.example.constants.RecommendConstants;
+import com.example.model.dto.ProductScoreDTO;
+import com.example.model.entity.RecommendationResult;
+import com.example.recommend.PopularityEngine;
+import com.example.recommend.ProductNeighborIndex;
+import com.example.recommend.ProductSimilarityMatrixBuilder;
+import com.example.recommend.RecommendationCalculator;
+import com.example.recommend.RecommendationDataLoader;
+import com.example.recommend.SimilarityMode;
+import com.example.recommend.UserSimilarityMatrixBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推荐离线评估与性能基准
+ * 生成合成数据，按时间留出每个用户最后一部分行为作为测试集，用训练集在内存数据库替身上依次构建
+ * 热度榜、商品相似度、用户相似度（近似与精确），再对抽样用户逐个生成各算法的推荐，统计：
+ * 构建耗时、单用户生成延迟分位数、堆内存占用、precision@K / recall@K 和覆盖率。
+ * 报告写入target/benchmark下的JSON文件，相同参数和种子的多次运行可以直接对比。
+ * 默认不随mvn test执行，使用 mvn test -Pbenchmark [-Dbench.events=1000000 ...] 运行，参数见SyntheticDataGenerator.Config。
+ */
+@Slf4j
+@Tag("benchmark")
+class RecommendationBenchmark {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Test
+    void benchmark() throws Exception {
+        SyntheticDataGenerator.Config config = SyntheticDataGenerator.Config.fromSystemProperties();
+        int k = Integer.getInteger("bench.k", 20);
+        int evaluationUsers = Integer.getInteger("bench.evalUsers", 2000);
+        int warmupUsers = Integer.getInteger("bench.warmupUsers", 200);
+        double holdout = Double.parseDouble(System.getProperty("bench.holdout", "0.2"));
+        int minEvents = Integer.getInteger("bench.minEvents", 5);
+        boolean lsh = Boolean.parseBoolean(System.getProperty("bench.lsh", "true"));
+        boolean snapshot = Boolean.parseBoolean(System.getProperty("bench.snapshot", "true"));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> settings = config.toMap();
+        settings.put("k", k);
+        settings.put("evaluation_users", evaluationUsers);
+        settings.put("warmup_users", warmupUsers);
+        settings.put("holdout", holdout);
+        settings.put("min_events", minEvents);
+        settings.put("lsh", lsh);
+        settings.put("snapshot", snapshot);
+        report.put("run_time", LocalDateTime.now());
+        report.put("settings", settings);
+        report.put("environment", environment());
+        resetPeakUsage();
+
+        // 1. 生成数据并切分
+        Map<String, Object> data = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        SyntheticDataset dataset = SyntheticDataGenerator.generate(config);
+        data.put("generate_ms", millisSince(start));
+        start = System.nanoTime();
+        SyntheticDataset.Split split = dataset.split(holdout, minEvents);
+        data.put("split_ms", millisSince(start));
+        long[] candidates = split.evaluationUsers();
+        data.put("events", dataset.events());
+        data.put("train_events", split.train().events());
+        data.put("users_with_holdout", candidates.length);
+        data.put("heap_used_mb", heapUsedMb());
+        report.put("data", data);
+        dataset = null;
+
+        // 2. 在数据库替身上组装推荐组件
+        RecommendationFixture fixture = RecommendationFixture.create(split.train(), snapshot);
+        PopularityEngine popularityEngine = fixture.popularityEngine();
+        ProductSimilarityMatrixBuilder productBuilder = fixture.productSimilarityMatrixBuilder();
+        UserSimilarityMatrixBuilder userBuilder = fixture.userSimilarityMatrixBuilder();
+        ProductNeighborIndex neighborIndex = fixture.productNeighborIndex();
+        RecommendationDataLoader loader = fixture.dataLoader();
+        RecommendationCalculator calculator = fixture.calculator();
+
+        // 3. 构建阶段
+        Map<String, Object> build = new LinkedHashMap<>();
+        int batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
+        build.put("popularity", stage(() -> {
+            popularityEngine.refresh();
+            return popularityEngine.topProducts(1).size();
+        }));
+        build.put("product_similarity", stage(() -> productBuilder.build(batchSize)));
+        build.put("product_neighbor_index", stage(() -> {
+            neighborIndex.refresh();
+            return neighborIndex.current().neighbors();
+        }));
+        if (lsh) {
+            build.put("user_similarity_lsh", stage(() -> userBuilder.build(batchSize, SimilarityMode.MINHASH_LSH)));
+            build.put("user_similarity_lsh_recall", userBuilder.evaluateApproximateRecall(
+                    RecommendConstants.DEFAULT_LSH_EVALUATION_SAMPLE_SIZE, RecommendConstants.DEFAULT_SIMILAR_USERS_TOP_K));
+        }
+        // 最后用精确模式构建，推荐阶段使用精确结果
+        build.put("user_similarity_exact", stage(() -> userBuilder.build(batchSize, SimilarityMode.EXACT)));
+        build.put("database", fixture.database().getStats());
+        build.put("snapshot_bytes", fixture.snapshotBytes());
+        build.put("heap_used_mb", heapUsedMb());
+        report.put("build", build);
+
+        // 4. 逐用户生成推荐并评估
+        long[] users = sample(candidates, evaluationUsers, config.seed);
+        long[] warmup = Arrays.copyOf(users, Math.min(warmupUsers, users.length));
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Generator> algorithms = new LinkedHashMap<>();
+        algorithms.put("user_based", userId -> productIds(calculator.computeUserBased(userId, k, loader, now)));
+        algorithms.put("item_based", userId -> productIds(calculator.computeItemBased(userId, k, loader, now)));
+        algorithms.put("hybrid", userId -> productIds(calculator.computeHybrid(userId, k, loader, now)));
+        algorithms.put("popular", userId -> {
+            List<ProductScoreDTO> popular = loader.popularProducts(k);
+            long[] ids = new long[popular.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = popular.get(i).getProductId();
+            }
+            return ids;
+        });
+        RecommendationDataLoader memoizing = loader.memoizing(fixture.properties().getBatch().getLoaderCacheSize());
+        algorithms.put("hybrid_batch_loader", userId -> productIds(calculator.computeHybrid(userId, k, memoizing, now)));
+
+        Map<String, Object> algorithmReports = new LinkedHashMap<>();
+        for (Map.Entry<String, Generator> algorithm : algorithms.entrySet()) {
+            for (long userId : warmup) {
+                algorithm.getValue().generate(userId);
+            }
+            algorithmReports.put(algorithm.getKey(), evaluate(algorithm.getValue(), users, split, k));
+        }
+        report.put("algorithms", algorithmReports);
+        report.put("peak_heap_mb", peakHeapMb());
+
+        Path output = writeReport(report);
+        log.info("推荐基准完成，报告: {}", output.toAbsolutePath());
+        for (Map.Entry<String, Object> algorithm : algorithmReports.entrySet()) {
+            log.info("{}: {}", algorithm.getKey(), algorithm.getValue());
+        }
+        fixture.close();
+        assertTrue(users.length > 0, "没有可评估的用户，请增大bench.events或减小bench.minEvents");
+    }
+
+    /**
+     * 对一个算法逐用户计时并计算准确率指标
+     */
+    private static Map<String, Object> evaluate(Generator generator, long[] users, SyntheticDataset.Split split, int k) {
+        long[] latencies = new long[users.length];
+        double precision = 0;
+        double recall = 0;
+        int nonEmpty = 0;
+        Set<Long> recommendedProducts = new HashSet<>();
+        for (int i = 0; i < users.length; i++) {
+            long userId = users[i];
+            long begin = System.nanoTime();
+            long[] recommended = generator.generate(userId);
+            latencies[i] = System.nanoTime() - begin;
+
+            long[] heldOut = split.heldOut(userId);
+            int hits = 0;
+            int count = Math.min(k, recommended.length);
+            for (int r = 0; r < count; r++) {
+                recommendedProducts.add(recommended[r]);
+                for (long expected : heldOut) {
+                    if (expected == recommended[r]) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+            if (count > 0) {
+                nonEmpty++;
+            }
+            precision += (double) hits / k;
+            recall += (double) hits / heldOut.length;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users.length);
+        result.put("precision_at_k", round(precision / users.length));
+        result.put("recall_at_k", round(recall / users.length));
+        result.put("user_coverage", round((double) nonEmpty / users.length));
+        result.put("distinct_products", recommendedProducts.size());
+        result.put("latency_us", percentiles(latencies));
+        return result;
+    }
+
+    private static Map<String, Object> stage(Callable<Integer> task) throws Exception {
+        long begin = System.nanoTime();
+        int output = task.call();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ms", millisSince(begin));
+        result.put("output", output);
+        result.put("heap_used_mb", heapUsedMb());
+        return result;
+    }
+
+    private static Map<String, Object> percentiles(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long value : sorted) {
+            total += value;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (sorted.length == 0) {
+            return result;
+        }
+        result.put("mean", round(total / 1000.0 / sorted.length));
+        result.put("p50", percentile(sorted, 0.50));
+        result.put("p90", percentile(sorted, 0.90));
+        result.put("p99", percentile(sorted, 0.99));
+        result.put("p999", percentile(sorted, 0.999));
+        result.put("max", round(sorted[sorted.length - 1] / 1000.0));
+        return result;
+    }
+
+    /**
+     * 最近秩法取分位数，单位微秒
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return round(sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1000.0);
+    }
+
+    /**
+     * 用固定种子从可评估用户中不放回抽样，保证各次运行评估同一批用户
+     */
+    private static long[] sample(long[] candidates, int size, long seed) {
+        long[] shuffled = candidates.clone();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = tmp;
+        }
+        return Arrays.copyOf(shuffled, Math.min(size, shuffled.length));
+    }
+
+    private static long[] productIds(List<RecommendationResult> results) {
+        long[] ids = new long[results.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = results.get(i).getProductId();
+        }
+        return ids;
+    }
+
+    private static Map<String, Object> environment() {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("java_version", System.getProperty("java.version"));
+        environment.put("vm", System.getProperty("java.vm.name"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        environment.put("max_heap_mb", Runtime.getRuntime().maxMemory() >> 20);
+        return environment;
+    }
+
+    private static long heapUsedMb() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+    }
+
+    private static void resetPeakUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * 各堆内存池峰值之和，是整个运行期间堆占用峰值的上界
+     */
+    private static long peakHeapMb() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak >> 20;
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10000.0) / 10000.0;
+    }
+
+    private static Path writeReport(Map<String, Object> report) throws IOException {
+        Path directory = Paths.get(System.getProperty("bench.output", "target/benchmark"));
+        Files.createDirectories(directory);
+        Path file = directory.resolve("recommendation-" + LocalDateTime.now().format(FILE_TIME) + ".json");
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.writeValue(file.toFile(), report);
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface Generator {
+        long[] generate(long userId);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bench;
+
+import com.example.constants.RecommendConstants;
+import com.example.model.entity.RecommendationResult;
+import com.example.recommend.SimilarityMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单用户推荐生成的微基准
+ * generateUserBasedRecommendations / generateItemBasedRecommendations的候选收集、去重和排序都在RecommendationCalculator中，
+ * 这里直接调用计算器，不包含推荐结果写库；数据来自合成数据集上构建好的相似度快照、矩阵分解模型和内存数据库替身。
+ * 每次调用轮换到下一个用户，结果是所有用户的平均吞吐量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationCalculatorBenchmark {
+
+    @Param({"100000"})
+    public int events;
+
+    @Param({"20"})
+    public int limit;
+
+    private RecommendationFixture fixture;
+    private long[] users;
+    private LocalDateTime now;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("bench.events", String.valueOf(events));
+        SyntheticDataset data = SyntheticDataGenerator.generate(SyntheticDataGenerator.Config.fromSystemProperties());
+        fixture = RecommendationFixture.create(data, true);
+        int batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
+        fixture.popularityEngine().refresh();
+        fixture.productSimilarityMatrixBuilder().build(batchSize);
+        fixture.productNeighborIndex().refresh();
+        fixture.userSimilarityMatrixBuilder().build(batchSize, SimilarityMode.EXACT);
+        fixture.alsRecommender().train();
+        users = activeUsers(data);
+        now = LocalDateTime.now();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<RecommendationResult> userBased(UserCursor cursor) {
+        return fixture.calculator().computeUserBased(cursor.next(users), limit, fixture.dataLoader(), now);
+    }
+
+    @Benchmark
+    public List<RecommendationResult> itemBased(UserCursor cursor) {
+        return fixture.calculator().computeItemBased(cursor.next(users), limit, fixture.dataLoader(), now);
+    }
+
+    @Benchmark
+    public List<RecommendationResult> hybrid(UserCursor cursor) {
+        return fixture.calculator().computeHybrid(cursor.next(users), limit, fixture.dataLoader(), now);
+    }
+
+    /**
+     * 矩阵分解模型推荐：用户因子与全部在售商品因子的点积和Top-N选择，与服务中补充推荐的调用方式相同
+     */
+    @Benchmark
+    public int matrixFactorization(UserCursor cursor) {
+        long[] productIds = new long[limit];
+        float[] scores = new float[limit];
+        return fixture.alsRecommender().recommend(cursor.next(users), limit, productIds, scores);
+    }
+
+    private static long[] activeUsers(SyntheticDataset data) {
+        long[] ids = new long[data.users()];
+        int count = 0;
+        for (int u = 0; u < data.users(); u++) {
+            if (data.userOffsets[u + 1] > data.userOffsets[u]) {
+                ids[count++] = u + 1;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * 每个线程独立轮换用户
+     */
+    @State(Scope.Thread)
+    public static class UserCursor {
+
+        private int position;
+
+        long next(long[] users) {
+            long userId = users[position];
+            position = position + 1 == users.length ? 0 : position + 1;
+            return userId;
+        }
+    }
+}
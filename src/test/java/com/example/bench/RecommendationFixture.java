@@ -0,0 +1,135 @@
+package com.example.bench;
+
+import com.example.config.RecommendProperties;
+import com.example.recommend.AlsRecommender;
+import com.example.recommend.PopularityEngine;
+import com.example.recommend.ProductNeighborIndex;
+import com.example.recommend.ProductSimilarityMatrixBuilder;
+import com.example.recommend.RecommendationCalculator;
+import com.example.recommend.RecommendationDataLoader;
+import com.example.recommend.SimilaritySnapshotStore;
+import com.example.recommend.UserSimilarityMatrixBuilder;
+import com.example.service.impl.UserBehaviorServiceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 在内存数据库替身上组装的推荐组件，不启动Spring容器
+ * 组件之间的依赖关系与应用中相同；相似度快照和矩阵分解模型文件写入临时目录，close()时删除。
+ * 增量更新任务不运行，相似用户与相似商品一样读取快照（关闭快照时查询替身中的user_similarity）。
+ */
+public final class RecommendationFixture implements AutoCloseable {
+
+    private final InMemoryMallDatabase database;
+    private final RecommendProperties properties;
+    private final Path snapshotDir;
+    private final PopularityEngine popularityEngine;
+    private final ProductSimilarityMatrixBuilder productSimilarityMatrixBuilder;
+    private final UserSimilarityMatrixBuilder userSimilarityMatrixBuilder;
+    private final ProductNeighborIndex productNeighborIndex;
+    private final RecommendationDataLoader dataLoader;
+    private final RecommendationCalculator calculator;
+    private final AlsRecommender alsRecommender;
+
+    private RecommendationFixture(SyntheticDataset data, boolean snapshot) throws IOException {
+        database = new InMemoryMallDatabase(data);
+        snapshotDir = Files.createTempDirectory("bench-similarity");
+        properties = new RecommendProperties();
+        properties.getSnapshot().setEnabled(snapshot);
+        properties.getSnapshot().setDir(snapshotDir.toString());
+        properties.getSimilarity().setIncrementalEnabled(false);
+        properties.getAls().setFile(snapshotDir.resolve("als.model").toString());
+
+        SimilaritySnapshotStore snapshotStore = new SimilaritySnapshotStore(properties);
+        popularityEngine = new PopularityEngine(database.userBehaviorMapper(), database.productMapper(), properties);
+        productSimilarityMatrixBuilder = new ProductSimilarityMatrixBuilder(database.userBehaviorMapper(),
+                database.productSimilarityMapper(), database.productNeighborListMapper(), snapshotStore);
+        userSimilarityMatrixBuilder = new UserSimilarityMatrixBuilder(database.orderItemMapper(),
+                database.userSimilarityMapper(), properties, snapshotStore);
+        productNeighborIndex = new ProductNeighborIndex(database.productMapper(), database.productNeighborListMapper(),
+                snapshotStore);
+        UserBehaviorServiceImpl userBehaviorService = new UserBehaviorServiceImpl();
+        ReflectionTestUtils.setField(userBehaviorService, "userBehaviorMapper", database.userBehaviorMapper());
+        dataLoader = new RecommendationDataLoader(userBehaviorService, database.userSimilarityMapper(),
+                productNeighborIndex, popularityEngine, snapshotStore, properties);
+        calculator = new RecommendationCalculator(properties);
+        alsRecommender = new AlsRecommender(productSimilarityMatrixBuilder, database.productMapper(), properties);
+    }
+
+    /**
+     * 组装组件，尚未构建任何相似度数据
+     * @param data 训练数据
+     * @param snapshot 是否开启相似度快照
+     */
+    public static RecommendationFixture create(SyntheticDataset data, boolean snapshot) throws IOException {
+        return new RecommendationFixture(data, snapshot);
+    }
+
+    public InMemoryMallDatabase database() {
+        return database;
+    }
+
+    public RecommendProperties properties() {
+        return properties;
+    }
+
+    public Path snapshotDir() {
+        return snapshotDir;
+    }
+
+    public PopularityEngine popularityEngine() {
+        return popularityEngine;
+    }
+
+    public ProductSimilarityMatrixBuilder productSimilarityMatrixBuilder() {
+        return productSimilarityMatrixBuilder;
+    }
+
+    public UserSimilarityMatrixBuilder userSimilarityMatrixBuilder() {
+        return userSimilarityMatrixBuilder;
+    }
+
+    public ProductNeighborIndex productNeighborIndex() {
+        return productNeighborIndex;
+    }
+
+    public RecommendationDataLoader dataLoader() {
+        return dataLoader;
+    }
+
+    public RecommendationCalculator calculator() {
+        return calculator;
+    }
+
+    public AlsRecommender alsRecommender() {
+        return alsRecommender;
+    }
+
+    /**
+     * 快照目录占用的字节数
+     */
+    public long snapshotBytes() throws IOException {
+        try (Stream<Path> files = Files.walk(snapshotDir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> files = Files.walk(snapshotDir)) {
+            List<Path> paths = new ArrayList<>();
+            files.forEach(paths::add);
+            paths.sort(Comparator.reverseOrder());
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.bench;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 合成数据生成器
+ * 相同配置和种子生成完全相同的数据集，不同时间的运行结果可以直接比较。数据特征：
+ * <ul>
+ *     <li>用户活跃度服从对数正态分布，少数用户贡献大量事件</li>
+ *     <li>商品按ID轮流分配到各分类，分类内热度服从Zipf分布</li>
+ *     <li>每个用户偏好两个分类，大部分事件落在偏好分类内</li>
+ *     <li>一部分事件是对用户近期交互过的商品的后续行为（加购、收藏、购买），形成浏览到购买的转化</li>
+ * </ul>
+ */
+public final class SyntheticDataGenerator {
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    /**
+     * 用户回看的近期商品数
+     */
+    private static final int RECENT_WINDOW = 8;
+
+    private SyntheticDataGenerator() {
+    }
+
+    /**
+     * 生成数据集
+     * @param config 生成配置
+     * @return 数据集
+     */
+    public static SyntheticDataset generate(Config config) {
+        SplittableRandom random = new SplittableRandom(config.seed);
+        int users = config.users;
+        int products = config.products;
+        int categories = Math.min(config.categories, products);
+
+        // 商品：分类按ID轮流分配，分类内ID越小越热门
+        int[] categoryIds = new int[products];
+        byte[] productStatus = new byte[products];
+        int[] productAgeDays = new int[products];
+        for (int p = 0; p < products; p++) {
+            categoryIds[p] = p % categories + 1;
+            productStatus[p] = (byte) (random.nextDouble() < config.onShelfRate ? 1 : 0);
+            productAgeDays[p] = random.nextInt(365);
+        }
+
+        // 每个用户的事件数：对数正态权重按比例分配总事件数
+        double[] weights = new double[users];
+        double totalWeight = 0;
+        for (int u = 0; u < users; u++) {
+            weights[u] = Math.exp(config.activitySigma * gaussian(random));
+            totalWeight += weights[u];
+        }
+        int[] userOffsets = new int[users + 1];
+        double carry = 0;
+        for (int u = 0; u < users; u++) {
+            double expected = config.events * weights[u] / totalWeight + carry;
+            int count = (int) expected;
+            carry = expected - count;
+            userOffsets[u + 1] = userOffsets[u] + count;
+        }
+        int events = userOffsets[users];
+
+        int[] productIds = new int[events];
+        byte[] types = new byte[events];
+        int[] ageSeconds = new int[events];
+        byte[] orderStatus = new byte[events];
+        byte[] quantities = new byte[events];
+        int window = config.days * SECONDS_PER_DAY;
+        for (int u = 0; u < users; u++) {
+            int from = userOffsets[u];
+            int to = userOffsets[u + 1];
+            // 同一用户的事件按时间先后排列：距今秒数降序
+            for (int e = from; e < to; e++) {
+                ageSeconds[e] = random.nextInt(window);
+            }
+            Arrays.sort(ageSeconds, from, to);
+            reverse(ageSeconds, from, to);
+
+            long preference = mix(config.seed ^ (u + 1L));
+            int preferred1 = (int) Long.remainderUnsigned(preference, categories) + 1;
+            int preferred2 = (int) Long.remainderUnsigned(preference >>> 24, categories) + 1;
+            for (int e = from; e < to; e++) {
+                boolean followUp = e > from && random.nextDouble() < config.followUpRate;
+                if (followUp) {
+                    productIds[e] = productIds[e - 1 - random.nextInt(Math.min(RECENT_WINDOW, e - from))];
+                    types[e] = followUpType(random);
+                } else {
+                    double pick = random.nextDouble();
+                    int category = pick < config.preferenceRate / 2 ? preferred1
+                            : pick < config.preferenceRate ? preferred2
+                            : random.nextInt(categories) + 1;
+                    int categorySize = (products - category) / categories + 1;
+                    int rank = zipfRank(random.nextDouble(), categorySize, config.productSkew);
+                    productIds[e] = category + (rank - 1) * categories;
+                    types[e] = firstType(random);
+                }
+                if (types[e] == SyntheticDataset.PURCHASE) {
+                    orderStatus[e] = orderStatus(random);
+                    quantities[e] = (byte) (random.nextDouble() < 0.8 ? 1 : 2 + random.nextInt(2));
+                }
+            }
+        }
+        return new SyntheticDataset(users, userOffsets, productIds, types, ageSeconds, orderStatus, quantities,
+                products, categoryIds, productStatus, productAgeDays);
+    }
+
+    private static byte firstType(SplittableRandom random) {
+        double pick = random.nextDouble();
+        if (pick < 0.85) {
+            return SyntheticDataset.VIEW;
+        }
+        if (pick < 0.90) {
+            return SyntheticDataset.FAVORITE;
+        }
+        return pick < 0.95 ? SyntheticDataset.CART : SyntheticDataset.PURCHASE;
+    }
+
+    private static byte followUpType(SplittableRandom random) {
+        double pick = random.nextDouble();
+        if (pick < 0.2) {
+            return SyntheticDataset.VIEW;
+        }
+        if (pick < 0.4) {
+            return SyntheticDataset.FAVORITE;
+        }
+        return pick < 0.7 ? SyntheticDataset.CART : SyntheticDataset.PURCHASE;
+    }
+
+    /**
+     * 订单状态分布：0-待支付 1-已支付 2-已发货 3-已完成 4-已取消
+     */
+    private static byte orderStatus(SplittableRandom random) {
+        double pick = random.nextDouble();
+        if (pick < 0.85) {
+            return SyntheticDataset.ORDER_COMPLETED;
+        }
+        if (pick < 0.90) {
+            return 2;
+        }
+        if (pick < 0.94) {
+            return 1;
+        }
+        return (byte) (pick < 0.98 ? 4 : 0);
+    }
+
+    /**
+     * 连续近似的Zipf分布逆变换采样，返回1..n的排名
+     */
+    private static int zipfRank(double u, int n, double s) {
+        if (n <= 1) {
+            return 1;
+        }
+        double exponent = 1.0 - s;
+        double rank = Math.abs(exponent) < 1e-9
+                ? Math.exp(u * Math.log(n + 1.0))
+                : Math.pow((Math.pow(n + 1.0, exponent) - 1.0) * u + 1.0, 1.0 / exponent);
+        return Math.max(1, Math.min(n, (int) rank));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static void reverse(int[] values, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+    /**
+     * 生成配置，全部参数可以通过系统属性bench.*覆盖
+     */
+    public static final class Config {
+
+        int users = 10000;
+        int products = 5000;
+        int categories = 50;
+        int events = 100000;
+        int days = 90;
+        long seed = 20240601L;
+        double productSkew = 1.1;
+        double activitySigma = 1.0;
+        double preferenceRate = 0.8;
+        double followUpRate = 0.3;
+        double onShelfRate = 0.95;
+
+        /**
+         * 读取系统属性，未设置的参数使用默认值；只设置bench.events时用户数和商品数按比例缩放
+         */
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.events = Integer.getInteger("bench.events", config.events);
+            double scale = config.events / 100000.0;
+            config.users = Integer.getInteger("bench.users", Math.max(100, (int) (config.users * scale)));
+            config.products = Integer.getInteger("bench.products", Math.max(100, (int) (config.products * Math.sqrt(scale))));
+            config.categories = Integer.getInteger("bench.categories", config.categories);
+            config.days = Integer.getInteger("bench.days", config.days);
+            config.seed = Long.getLong("bench.seed", config.seed);
+            config.productSkew = doubleProperty("bench.productSkew", config.productSkew);
+            config.activitySigma = doubleProperty("bench.activitySigma", config.activitySigma);
+            config.preferenceRate = doubleProperty("bench.preferenceRate", config.preferenceRate);
+            config.followUpRate = doubleProperty("bench.followUpRate", config.followUpRate);
+            config.onShelfRate = doubleProperty("bench.onShelfRate", config.onShelfRate);
+            return config;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("users", users);
+            map.put("products", products);
+            map.put("categories", categories);
+            map.put("events", events);
+            map.put("days", days);
+            map.put("seed", seed);
+            map.put("product_skew", productSkew);
+            map.put("activity_sigma", activitySigma);
+            map.put("preference_rate", preferenceRate);
+            map.put("follow_up_rate", followUpRate);
+            map.put("on_shelf_rate", onShelfRate);
+            return map;
+        }
+
+        private static double doubleProperty(String key, double defaultValue) {
+            String value = System.getProperty(key);
+            return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+        }
+    }
+}
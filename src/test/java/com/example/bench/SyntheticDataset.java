@@ -0,0 +1,173 @@
+package com.example.bench;
+
+import java.util.Arrays;
+
+/**
+ * 合成的商城数据集，按列存储，避免千万级事件时创建大量对象
+ * 用户ID为1..users，商品ID为1..products；事件按用户连续存放，同一用户的事件按时间先后排列。
+ * 各列与mall.sql的对应关系：
+ * <pre>
+ * 浏览/加购/收藏（1/3/4） user_behavior(user_id, product_id, behavior_type, create_time)
+ * 购买（8）             orders(user_id, status, create_time) + order_item(product_id, quantity)，每次购买对应一个单商品订单
+ * 商品                  products(id, category_id, status, create_time)
+ * </pre>
+ * 时间以距离生成时刻的秒数（事件）或天数（商品上架）表示，数据库替身据此换算create_time和DATEDIFF。
+ */
+public final class SyntheticDataset {
+
+    public static final byte VIEW = 1;
+    public static final byte CART = 3;
+    public static final byte FAVORITE = 4;
+    public static final byte PURCHASE = 8;
+
+    /**
+     * 已完成订单状态
+     */
+    public static final byte ORDER_COMPLETED = 3;
+
+    final int users;
+    final int[] userOffsets;
+    final int[] productIds;
+    final byte[] types;
+    final int[] ageSeconds;
+    final byte[] orderStatus;
+    final byte[] quantities;
+
+    final int products;
+    final int[] categoryIds;
+    final byte[] productStatus;
+    final int[] productAgeDays;
+
+    SyntheticDataset(int users, int[] userOffsets, int[] productIds, byte[] types, int[] ageSeconds,
+                     byte[] orderStatus, byte[] quantities,
+                     int products, int[] categoryIds, byte[] productStatus, int[] productAgeDays) {
+        this.users = users;
+        this.userOffsets = userOffsets;
+        this.productIds = productIds;
+        this.types = types;
+        this.ageSeconds = ageSeconds;
+        this.orderStatus = orderStatus;
+        this.quantities = quantities;
+        this.products = products;
+        this.categoryIds = categoryIds;
+        this.productStatus = productStatus;
+        this.productAgeDays = productAgeDays;
+    }
+
+    public int users() {
+        return users;
+    }
+
+    public int products() {
+        return products;
+    }
+
+    public int events() {
+        return userOffsets[users];
+    }
+
+    /**
+     * 按时间切分训练集和测试集：每个事件数不少于minEvents的用户，最后holdoutFraction比例的事件留作测试，
+     * 测试集只保留用户在训练集中没有交互过的商品（推荐结果会排除已交互商品）
+     * @param holdoutFraction 留出比例
+     * @param minEvents 参与评估的用户最少事件数
+     * @return 训练集与每个用户的测试商品
+     */
+    public Split split(double holdoutFraction, int minEvents) {
+        int[] offsets = new int[users + 1];
+        long[][] heldOut = new long[users][];
+        int kept = 0;
+        for (int u = 0; u < users; u++) {
+            int from = userOffsets[u];
+            int count = userOffsets[u + 1] - from;
+            int holdout = count >= minEvents ? Math.max(1, (int) Math.round(count * holdoutFraction)) : 0;
+            kept += count - holdout;
+            offsets[u + 1] = kept;
+        }
+
+        int[] trainProducts = new int[kept];
+        byte[] trainTypes = new byte[kept];
+        int[] trainAges = new int[kept];
+        byte[] trainStatus = new byte[kept];
+        byte[] trainQuantities = new byte[kept];
+        for (int u = 0; u < users; u++) {
+            int from = userOffsets[u];
+            int trainCount = offsets[u + 1] - offsets[u];
+            System.arraycopy(productIds, from, trainProducts, offsets[u], trainCount);
+            System.arraycopy(types, from, trainTypes, offsets[u], trainCount);
+            System.arraycopy(ageSeconds, from, trainAges, offsets[u], trainCount);
+            System.arraycopy(orderStatus, from, trainStatus, offsets[u], trainCount);
+            System.arraycopy(quantities, from, trainQuantities, offsets[u], trainCount);
+
+            int end = userOffsets[u + 1];
+            if (from + trainCount == end) {
+                continue;
+            }
+            int[] seen = Arrays.copyOfRange(productIds, from, from + trainCount);
+            Arrays.sort(seen);
+            long[] test = new long[end - from - trainCount];
+            int testCount = 0;
+            for (int e = from + trainCount; e < end; e++) {
+                int productId = productIds[e];
+                if (Arrays.binarySearch(seen, productId) < 0 && !contains(test, testCount, productId)) {
+                    test[testCount++] = productId;
+                }
+            }
+            if (testCount > 0) {
+                heldOut[u] = Arrays.copyOf(test, testCount);
+            }
+        }
+        SyntheticDataset train = new SyntheticDataset(users, offsets, trainProducts, trainTypes, trainAges,
+                trainStatus, trainQuantities, products, categoryIds, productStatus, productAgeDays);
+        return new Split(train, heldOut);
+    }
+
+    private static boolean contains(long[] values, int count, long value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 训练集与测试集
+     */
+    public static final class Split {
+
+        private final SyntheticDataset train;
+        private final long[][] heldOut;
+
+        Split(SyntheticDataset train, long[][] heldOut) {
+            this.train = train;
+            this.heldOut = heldOut;
+        }
+
+        public SyntheticDataset train() {
+            return train;
+        }
+
+        /**
+         * 用户的测试商品，不参与评估的用户返回null
+         * @param userId 用户ID
+         */
+        public long[] heldOut(long userId) {
+            return heldOut[(int) userId - 1];
+        }
+
+        /**
+         * 参与评估的用户ID（升序）
+         */
+        public long[] evaluationUsers() {
+            long[] ids = new long[heldOut.length];
+            int count = 0;
+            for (int u = 0; u < heldOut.length; u++) {
+                if (heldOut[u] != null) {
+                    ids[count++] = u + 1;
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        }
+    }
+}
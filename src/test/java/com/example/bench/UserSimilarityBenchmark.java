@@ -0,0 +1,193 @@
+package com.example.bench;
+
+import com.example.constants.RecommendConstants;
+import com.example.mapper.OrderItemMapper;
+import com.example.mapper.UserSimilarityMapper;
+import com.example.model.entity.OrderItem;
+import com.example.model.entity.UserSimilarity;
+import com.example.recommend.SparseVector;
+import com.example.service.impl.UserSimilarityServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用户相似度服务逐对计算路径的微基准
+ * calculateUserSimilarity和batchInsertSimilarities直接调用服务实现，Mapper替换为返回固定数据的内存实现；
+ * buildPurchaseVector、normalizeSimilarities复制服务中对应步骤的代码单独计时，用于定位整体耗时和分配量的来源，
+ * 修改服务中的这些步骤时需要同步修改；*Boxed基准保留改用SparseVector之前的Map实现，作为对比基线。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSimilarityBenchmark {
+
+    /**
+     * 每个用户的购买记录数，最大为服务查询的上限
+     */
+    @Param({"10", "50"})
+    public int purchases;
+
+    /**
+     * 两个用户共同购买的商品比例
+     */
+    @Param({"0.3"})
+    public double overlap;
+
+    private UserSimilarityServiceImpl service;
+    private List<OrderItem> itemsA;
+    private List<OrderItem> itemsB;
+    private Map<Long, Integer> mapA;
+    private Map<Long, Integer> mapB;
+    private SparseVector vectorA;
+    private SparseVector vectorB;
+    private List<UserSimilarity> similarities;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(20240601L);
+        itemsA = new ArrayList<>(purchases);
+        itemsB = new ArrayList<>(purchases);
+        for (int i = 0; i < purchases; i++) {
+            long productId = 1 + random.nextInt(100000);
+            itemsA.add(orderItem(productId, 1 + random.nextInt(3)));
+            long other = random.nextDouble() < overlap ? productId : 1 + random.nextInt(100000);
+            itemsB.add(orderItem(other, 1 + random.nextInt(3)));
+        }
+        mapA = purchaseMap(itemsA);
+        mapB = purchaseMap(itemsB);
+        vectorA = purchaseVector(itemsA);
+        vectorB = purchaseVector(itemsB);
+
+        int batchSize = RecommendConstants.DEFAULT_MATRIX_BUILD_BATCH_SIZE;
+        similarities = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            similarities.add(UserSimilarity.builder()
+                    .userIdA((long) i)
+                    .userIdB((long) i + 1)
+                    .similarity(BigDecimal.valueOf(random.nextDouble() * 1.2 - 0.1))
+                    .build());
+        }
+
+        OrderItemMapper orderItemMapper = InMemoryMallDatabase.proxy(OrderItemMapper.class, (method, args) ->
+                "selectRecentPurchasesByUserId".equals(method) && Long.valueOf(1L).equals(args[0]) ? itemsA : itemsB);
+        UserSimilarityMapper userSimilarityMapper = InMemoryMallDatabase.proxy(UserSimilarityMapper.class,
+                (method, args) -> ((List<?>) args[0]).size());
+        service = new UserSimilarityServiceImpl(userSimilarityMapper, null, orderItemMapper, null);
+    }
+
+    /**
+     * 完整的两用户相似度计算：两次查询、构建购买向量、余弦相似度、BigDecimal转换
+     */
+    @Benchmark
+    public BigDecimal calculateUserSimilarity() {
+        return service.calculateUserSimilarity(1L, 2L);
+    }
+
+    /**
+     * 只构建一个用户的购买向量
+     */
+    @Benchmark
+    public SparseVector buildPurchaseVector() {
+        return purchaseVector(itemsA);
+    }
+
+    /**
+     * 只在已构建的购买向量上计算余弦相似度
+     */
+    @Benchmark
+    public double cosineFromVectors() {
+        return vectorA.cosine(vectorB);
+    }
+
+    /**
+     * 对比基线：Stream + Collectors.toMap构建商品ID到购买数量的映射
+     */
+    @Benchmark
+    public Map<Long, Integer> collectPurchaseMapBoxed() {
+        return purchaseMap(itemsA);
+    }
+
+    /**
+     * 对比基线：在装箱映射上计算余弦相似度
+     */
+    @Benchmark
+    public double cosineFromMapsBoxed() {
+        double dotProduct = 0.0;
+        for (Map.Entry<Long, Integer> entry : mapA.entrySet()) {
+            if (mapB.containsKey(entry.getKey())) {
+                dotProduct += entry.getValue() * mapB.get(entry.getKey());
+            }
+        }
+        double normASquared = mapA.values().stream().mapToDouble(quantity -> quantity * quantity).sum();
+        double normBSquared = mapB.values().stream().mapToDouble(quantity -> quantity * quantity).sum();
+        return normASquared > 0 && normBSquared > 0
+                ? dotProduct / (Math.sqrt(normASquared) * Math.sqrt(normBSquared)) : 0.0;
+    }
+
+    /**
+     * 批量保存一批相似度：限制范围、统一精度并补充反方向记录
+     */
+    @Benchmark
+    public boolean batchInsertSimilarities() {
+        return service.batchInsertSimilarities(similarities);
+    }
+
+    /**
+     * 只对一批相似度做范围限制和精度转换
+     */
+    @Benchmark
+    public void normalizeSimilarities(Blackhole blackhole) {
+        for (UserSimilarity similarity : similarities) {
+            BigDecimal value = similarity.getSimilarity();
+            if (value.compareTo(BigDecimal.ZERO) < 0) {
+                value = BigDecimal.ZERO;
+            } else if (value.compareTo(BigDecimal.ONE) > 0) {
+                value = BigDecimal.ONE;
+            }
+            blackhole.consume(value.setScale(4, RoundingMode.HALF_UP));
+        }
+    }
+
+    private static SparseVector purchaseVector(List<OrderItem> items) {
+        SparseVector vector = new SparseVector(items.size());
+        for (OrderItem item : items) {
+            if (item.getProductId() != null && item.getQuantity() != null) {
+                vector.add(item.getProductId(), item.getQuantity());
+            }
+        }
+        return vector;
+    }
+
+    private static Map<Long, Integer> purchaseMap(List<OrderItem> items) {
+        return items.stream().collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity, Integer::sum));
+    }
+
+    private static OrderItem orderItem(long productId, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}